@@ -2,8 +2,10 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RentlyApplication {
 
 	public static void main(String[] args) {
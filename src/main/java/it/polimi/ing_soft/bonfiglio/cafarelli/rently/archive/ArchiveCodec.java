@@ -0,0 +1,41 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Turns the snapshots of the archived records into gzipped JSON, and back.
+ */
+@Component
+@RequiredArgsConstructor
+public class ArchiveCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public byte[] encode(Object snapshot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, snapshot);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not archive " + snapshot, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public <T> T decode(byte[] payload, Class<T> type) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(in, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read an archived " + type.getSimpleName(), e);
+        }
+    }
+}
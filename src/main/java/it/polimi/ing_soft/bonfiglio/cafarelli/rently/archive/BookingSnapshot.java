@@ -0,0 +1,38 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The archived form of a booking, referring to its user and property by ID.
+ */
+public record BookingSnapshot(Long id, LocalDate checkInDate, LocalDate checkOutDate, int numOfAdults,
+                              int numOfChildren, BigDecimal total, String bookingConfirmationCode,
+                              Long userId, Long propertyId, BookingStatus status) {
+
+    public static BookingSnapshot of(Booking booking) {
+        return new BookingSnapshot(booking.getId(), booking.getCheckInDate(), booking.getCheckOutDate(),
+                booking.getNumOfAdults(), booking.getNumOfChildren(), booking.getTotal(),
+                booking.getBookingConfirmationCode(),
+                booking.getUser() != null ? booking.getUser().getId() : null,
+                booking.getProperty() != null ? booking.getProperty().getId() : null,
+                booking.getStatus());
+    }
+
+    /**
+     * Rebuilds the booking, detached from the persistence context.
+     *
+     * @param user the user of the booking, null if it was deleted
+     * @param property the property of the booking, null if it was deleted
+     * @return the booking
+     */
+    public Booking toBooking(User user, Property property) {
+        return new Booking(id, checkInDate, checkOutDate, numOfAdults, numOfChildren, total,
+                bookingConfirmationCode, user, property, status, null);
+    }
+}
@@ -0,0 +1,27 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ChatMessage;
+
+import java.time.LocalDateTime;
+
+/**
+ * The archived form of a chat message, referring to its sender and receiver by ID.
+ */
+public record ChatMessageSnapshot(Long id, String content, Long senderId, Long receiverId, LocalDateTime sendAt) {
+
+    public static ChatMessageSnapshot of(ChatMessage message) {
+        return new ChatMessageSnapshot(message.getId(), message.getContent(),
+                message.getSender().getId(), message.getReceiver().getId(), message.getSendAt());
+    }
+
+    /**
+     * Returns the key shared by the messages of a conversation, whoever sent them.
+     *
+     * @param firstUserId the ID of one of the users
+     * @param secondUserId the ID of the other user
+     * @return the key of the conversation
+     */
+    public static String conversationKey(Long firstUserId, Long secondUserId) {
+        return Math.min(firstUserId, secondUserId) + ":" + Math.max(firstUserId, secondUserId);
+    }
+}
@@ -0,0 +1,29 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Ticket;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketReply;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The archived form of a ticket, together with its replies, referring to the users by ID.
+ */
+public record TicketSnapshot(Long id, String title, String description, LocalDateTime creationDate,
+                             LocalDateTime closingDate, Long userId, TicketStatus status, List<Reply> replies) {
+
+    public record Reply(Long id, String content, LocalDateTime creationDate, Long userId, boolean fromModerator) {
+
+        static Reply of(TicketReply reply) {
+            return new Reply(reply.getId(), reply.getContent(), reply.getCreationDate(),
+                    reply.getUser().getId(), reply.isFromModerator());
+        }
+    }
+
+    public static TicketSnapshot of(Ticket ticket, List<TicketReply> replies) {
+        return new TicketSnapshot(ticket.getId(), ticket.getTitle(), ticket.getDescription(),
+                ticket.getCreationDate(), ticket.getClosingDate(), ticket.getUser().getId(), ticket.getStatus(),
+                replies.stream().map(Reply::of).toList());
+    }
+}
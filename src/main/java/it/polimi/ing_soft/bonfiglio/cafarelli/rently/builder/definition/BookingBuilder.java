@@ -1,10 +1,12 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.definition;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Interface for building {@link Booking} objects.
@@ -29,5 +31,9 @@ public interface BookingBuilder {
 
     BookingBuilder property(Property property);
 
+    BookingBuilder status(BookingStatus status);
+
+    BookingBuilder holdExpiresAt(LocalDateTime holdExpiresAt);
+
     Booking build();
 }
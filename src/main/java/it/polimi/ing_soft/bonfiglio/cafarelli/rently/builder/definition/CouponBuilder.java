@@ -21,6 +21,8 @@ public interface CouponBuilder {
 
     CouponBuilder expiryDate(LocalDate expiryDate);
 
+    CouponBuilder maxRedemptions(Integer maxRedemptions);
+
     CouponBuilder users(List<User> users);
 
     Coupon build();
@@ -29,6 +29,10 @@ public interface PropertyBuilder {
 
     PropertyBuilder country(String country);
 
+    PropertyBuilder latitude(Double latitude);
+
+    PropertyBuilder longitude(Double longitude);
+
     PropertyBuilder pricePerNight(BigDecimal pricePerNight);
 
     PropertyBuilder maxGuests(Integer maxGuests);
@@ -39,8 +43,6 @@ public interface PropertyBuilder {
 
     PropertyBuilder isAvailable(boolean isAvailable);
 
-    PropertyBuilder favoritedBy(List<User> favoritedBy);
-
     PropertyBuilder bookings(List<Booking> bookings);
 
     PropertyBuilder propertyImages(List<String> propertyImages);
@@ -33,8 +33,6 @@ public interface UserBuilder {
 
     UserBuilder bookings(List<Booking> bookings);
 
-    UserBuilder favorite(List<Property> favorite);
-
     UserBuilder isActive(boolean isActive);
 
     UserBuilder balance(BigDecimal balance);
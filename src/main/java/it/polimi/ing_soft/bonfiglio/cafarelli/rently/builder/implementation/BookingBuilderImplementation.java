@@ -2,12 +2,14 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.definition.BookingBuilder;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Implementation of the {@link BookingBuilder} interface for building {@link Booking} objects.
@@ -24,6 +26,8 @@ public class BookingBuilderImplementation implements BookingBuilder {
     private String bookingConfirmationCode;
     private User user;
     private Property property;
+    private BookingStatus status = BookingStatus.CONFIRMED;
+    private LocalDateTime holdExpiresAt;
 
     public BookingBuilder id(Long id) {
         this.id = id;
@@ -73,7 +77,17 @@ public class BookingBuilderImplementation implements BookingBuilder {
         return this;
     }
     @Override
+    public BookingBuilder status(BookingStatus status) {
+        this.status = status;
+        return this;
+    }
+    @Override
+    public BookingBuilder holdExpiresAt(LocalDateTime holdExpiresAt) {
+        this.holdExpiresAt = holdExpiresAt;
+        return this;
+    }
+    @Override
     public Booking build() {
-        return new Booking(id, checkInDate, checkOutDate, numOfAdults, numOfChildren, total, bookingConfirmationCode, user, property);
+        return new Booking(id, checkInDate, checkOutDate, numOfAdults, numOfChildren, total, bookingConfirmationCode, user, property, status, holdExpiresAt);
     }
 }
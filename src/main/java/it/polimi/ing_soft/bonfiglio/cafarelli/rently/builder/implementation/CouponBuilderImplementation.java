@@ -21,6 +21,7 @@ public class CouponBuilderImplementation implements CouponBuilder {
     private BigDecimal discountAmount;
     private BigDecimal discountPercentage;
     private LocalDate expiryDate;
+    private Integer maxRedemptions;
     private List<User> users;
 
     @Override
@@ -53,6 +54,12 @@ public class CouponBuilderImplementation implements CouponBuilder {
         return this;
     }
 
+    @Override
+    public CouponBuilderImplementation maxRedemptions(Integer maxRedemptions) {
+        this.maxRedemptions = maxRedemptions;
+        return this;
+    }
+
     @Override
     public CouponBuilderImplementation users(List<User> users) {
         this.users = users;
@@ -61,6 +68,6 @@ public class CouponBuilderImplementation implements CouponBuilder {
 
     @Override
     public Coupon build() {
-        return new Coupon(id, code, discountAmount, discountPercentage, expiryDate, users);
+        return new Coupon(id, code, discountAmount, discountPercentage, expiryDate, maxRedemptions, 0, users);
     }
 }
@@ -3,6 +3,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.definition.PropertyBuilder;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.RatingSummary;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import lombok.NoArgsConstructor;
@@ -26,12 +27,13 @@ public class PropertyBuilderImplementation implements PropertyBuilder {
     private String city;
     private String state;
     private String country;
+    private Double latitude;
+    private Double longitude;
     private BigDecimal pricePerNight;
     private Integer maxGuests;
     private Integer bedrooms;
     private Integer bathrooms;
     private boolean isAvailable = true;
-    private List<User> favoritedBy;
     private List<Booking> bookings;
     private List<String> propertyImages;
     private List<Review> reviews;
@@ -84,6 +86,18 @@ public class PropertyBuilderImplementation implements PropertyBuilder {
         return this;
     }
 
+    @Override
+    public PropertyBuilder latitude(Double latitude) {
+        this.latitude = latitude;
+        return this;
+    }
+
+    @Override
+    public PropertyBuilder longitude(Double longitude) {
+        this.longitude = longitude;
+        return this;
+    }
+
     @Override
     public PropertyBuilder pricePerNight(BigDecimal pricePerNight) {
         this.pricePerNight = pricePerNight;
@@ -114,12 +128,6 @@ public class PropertyBuilderImplementation implements PropertyBuilder {
         return this;
     }
 
-    @Override
-    public PropertyBuilder favoritedBy(List<User> favoritedBy) {
-        this.favoritedBy = favoritedBy;
-        return this;
-    }
-
     @Override
     public PropertyBuilder bookings(List<Booking> bookings) {
         this.bookings = bookings;
@@ -140,6 +148,6 @@ public class PropertyBuilderImplementation implements PropertyBuilder {
 
     @Override
     public Property build() {
-        return new Property(propertyId, host, title, description, address, city, state, country, pricePerNight, maxGuests, bedrooms, bathrooms, isAvailable, null, null, favoritedBy, bookings, propertyImages, reviews);
+        return new Property(propertyId, host, title, description, address, city, state, country, latitude, longitude, pricePerNight, maxGuests, bedrooms, bathrooms, isAvailable, null, null, 0L, 0L, bookings, propertyImages, reviews, new RatingSummary());
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.definition.UserBuilder;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.RatingSummary;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Role;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
@@ -29,7 +30,6 @@ public class UserBuilderImplementation implements UserBuilder {
     private List receivedMessages;
     private List properties;
     private List bookings;
-    private List favorite;
     private boolean isActive;
     private BigDecimal balance;
     private List coupons;
@@ -107,12 +107,6 @@ public class UserBuilderImplementation implements UserBuilder {
         return this;
     }
 
-    @Override
-    public UserBuilder favorite(List favorite) {
-        this.favorite = favorite;
-        return this;
-    }
-
     @Override
     public UserBuilder isActive(boolean isActive) {
         this.isActive = isActive;
@@ -139,6 +133,6 @@ public class UserBuilderImplementation implements UserBuilder {
 
     @Override
     public User build() {
-        return new User(id, firstname, lastname, username, email, password, role, null, null, imageUrl, sentMessages, receivedMessages, properties, bookings, favorite, isActive, balance, coupons, reviews, new ArrayList<>());
+        return new User(id, firstname, lastname, username, email, password, role, null, null, imageUrl, sentMessages, receivedMessages, properties, bookings, isActive, balance, coupons, reviews, new ArrayList<>(), new RatingSummary());
     }
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of the results of the availability search, keyed by city, dates and number of guests.
+ * <p>
+ * Entries only hold the IDs of the matching properties, in the order of the search. They are invalidated
+ * selectively: a booking, a hold or a cancellation drops the searches of its city whose dates overlap its stay,
+ * and a property created, updated, toggled or deleted drops the searches of its city. Holds that expire without
+ * being released, and any change made behind the services, are covered by a time to live that depends on how
+ * soon the stay starts, as availability for the next days changes faster. Entries expire together at the end of
+ * their time bucket.
+ * </p>
+ */
+@Component
+public class AvailabilitySearchCache {
+
+    static final int MAX_ENTRIES = 10_000;
+    static final Duration SHORT_TIME_TO_LIVE = Duration.ofMinutes(1);
+    static final Duration MEDIUM_TIME_TO_LIVE = Duration.ofMinutes(5);
+    static final Duration LONG_TIME_TO_LIVE = Duration.ofMinutes(15);
+
+    /**
+     * The normalized criteria of an availability search.
+     *
+     * @param city the city, trimmed and in lower case
+     * @param checkInDate the check-in date
+     * @param checkOutDate the check-out date
+     * @param guests the total number of guests
+     */
+    public record Key(String city, LocalDate checkInDate, LocalDate checkOutDate, int guests) {
+
+        public static Key of(String city, LocalDate checkInDate, LocalDate checkOutDate, int guests) {
+            return new Key(normalize(city), checkInDate, checkOutDate, guests);
+        }
+
+        private boolean overlaps(LocalDate from, LocalDate to) {
+            return checkInDate.isBefore(to) && checkOutDate.isAfter(from);
+        }
+    }
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Bumped by every invalidation, so a search that raced with a change is not cached.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Map<String, Set<Key>> keysByCity = new HashMap<>();
+
+    private final Map<Key, Entry> results = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.incrementAndGet();
+                unlink(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Returns the cached result of a search.
+     *
+     * @param key the criteria of the search
+     * @return the IDs of the matching properties, or null on a miss
+     */
+    public List<Long> get(Key key) {
+        synchronized (results) {
+            Entry cached = results.get(key);
+            if (cached != null && cached.expiresAt() <= System.currentTimeMillis()) {
+                remove(key);
+                cached = null;
+            }
+            if (cached == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return cached.ids();
+        }
+    }
+
+    /**
+     * Returns the current version of the cache, to be read before running a search whose result is put.
+     *
+     * @return the number of invalidations so far
+     */
+    public long version() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches the result of a search, unless something was invalidated since the search started.
+     *
+     * @param key the criteria of the search
+     * @param ids the IDs of the matching properties
+     * @param version the version of the cache read before the search
+     */
+    public void put(Key key, List<Long> ids, long version) {
+        long now = System.currentTimeMillis();
+        long timeToLive = timeToLive(key.checkInDate()).toMillis();
+        synchronized (results) {
+            if (invalidations.get() != version) {
+                return;
+            }
+            results.put(key, new Entry(List.copyOf(ids), (now / timeToLive + 1) * timeToLive));
+            keysByCity.computeIfAbsent(key.city(), c -> new HashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * Drops the searches of a city whose dates overlap a stay, now and again once the current transaction commits.
+     *
+     * @param city the city of the booked property
+     * @param checkInDate the check-in date of the stay
+     * @param checkOutDate the check-out date of the stay
+     */
+    public void invalidate(String city, LocalDate checkInDate, LocalDate checkOutDate) {
+        String normalized = normalize(city);
+        runNowAndAfterCommit(() -> removeMatching(normalized, key -> key.overlaps(checkInDate, checkOutDate)));
+    }
+
+    /**
+     * Drops every search of a city, now and again once the current transaction commits.
+     *
+     * @param city the city of the changed property
+     */
+    public void invalidateCity(String city) {
+        String normalized = normalize(city);
+        runNowAndAfterCommit(() -> removeMatching(normalized, key -> true));
+    }
+
+    /**
+     * Drops every search, now and again once the current transaction commits.
+     */
+    public void clear() {
+        runNowAndAfterCommit(() -> {
+            synchronized (results) {
+                invalidations.incrementAndGet();
+                evictions.addAndGet(results.size());
+                results.clear();
+                keysByCity.clear();
+            }
+        });
+    }
+
+    /**
+     * Returns the hit/miss counters of the cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStatsResponse stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (results) {
+            size = results.size();
+        }
+        return new CacheStatsResponse(hitCount, missCount, evictions.get(), size, total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    static Duration timeToLive(LocalDate checkInDate) {
+        LocalDate today = LocalDate.now();
+        if (checkInDate.isBefore(today.plusDays(7))) {
+            return SHORT_TIME_TO_LIVE;
+        }
+        if (checkInDate.isBefore(today.plusDays(30))) {
+            return MEDIUM_TIME_TO_LIVE;
+        }
+        return LONG_TIME_TO_LIVE;
+    }
+
+    private void removeMatching(String city, Predicate<Key> matches) {
+        synchronized (results) {
+            invalidations.incrementAndGet();
+            Set<Key> keys = keysByCity.get(city);
+            if (keys == null) {
+                return;
+            }
+            for (Iterator<Key> iterator = keys.iterator(); iterator.hasNext(); ) {
+                Key key = iterator.next();
+                if (matches.test(key)) {
+                    iterator.remove();
+                    results.remove(key);
+                    evictions.incrementAndGet();
+                }
+            }
+            if (keys.isEmpty()) {
+                keysByCity.remove(city);
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        results.remove(key);
+        unlink(key);
+        evictions.incrementAndGet();
+    }
+
+    private void unlink(Key key) {
+        Set<Key> keys = keysByCity.get(key.city());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByCity.remove(key.city());
+            }
+        }
+    }
+
+    private static void runNowAndAfterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private static String normalize(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(List<Long> ids, long expiresAt) { }
+}
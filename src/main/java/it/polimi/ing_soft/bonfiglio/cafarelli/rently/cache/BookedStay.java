@@ -0,0 +1,15 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The dates taken by a booking, as loaded by {@link BookingCalendar}.
+ *
+ * @param bookingId the ID of the booking
+ * @param checkInDate the first night taken
+ * @param checkOutDate the day the property is free again
+ * @param holdExpiresAt when the hold expires, or null for a confirmed booking
+ */
+public record BookedStay(Long bookingId, LocalDate checkInDate, LocalDate checkOutDate, LocalDateTime holdExpiresAt) {
+}
@@ -0,0 +1,239 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory calendar of the upcoming bookings and holds of the properties, used to admit new holds.
+ * <p>
+ * The calendar of a property is an {@link IntervalTree} loaded on its first check, so telling whether some dates
+ * are free is a memory probe instead of a scan of the bookings of the property. A "free" answer is trusted, the
+ * database constraint on overlapping bookings being the backstop; a "taken" answer is confirmed with the database,
+ * and a calendar that disagrees is dropped and loaded again.
+ * </p>
+ * <p>
+ * A calendar only sees the holds placed by its own instance, so it is only used when
+ * {@code application.booking.calendar.single-instance} is set and the exclusion constraint of the booking table
+ * is in place, as reported by the schema initializer. Otherwise, e.g. on MySQL, on a partitioned table whose
+ * constraints miss the stays ending in different months, or with several instances sharing the database, every
+ * check is the overlap query, run under the same lock on the property row.
+ * </p>
+ * <p>
+ * Holds are added as soon as they are saved, while the property row is still locked, and removed if the
+ * transaction rolls back, so the next hold on the property already sees them. Confirmations and removals
+ * are applied once committed. At most {@link #MAX_PROPERTIES} calendars are kept, least recently used first out.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingCalendar {
+
+    static final int MAX_PROPERTIES = 10_000;
+
+    private final BookingRepository bookingRepository;
+
+    @Value("${application.booking.calendar.single-instance:false}")
+    private boolean singleInstance;
+
+    /**
+     * Whether the database refuses overlapping active bookings of a property, whatever month they end in.
+     */
+    private volatile boolean constrained;
+
+    private final Map<Long, IntervalTree> calendars = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, IntervalTree> eldest) {
+            return size() > MAX_PROPERTIES;
+        }
+    };
+
+    /**
+     * Checks if some dates of a property are taken by a confirmed booking or a live hold.
+     * Must be called while holding the lock on the property row.
+     *
+     * @param propertyId the ID of the property
+     * @param checkInDate the check-in date of the requested stay
+     * @param checkOutDate the check-out date of the requested stay
+     * @return true if at least a night is taken, false otherwise
+     */
+    public boolean isTaken(Long propertyId, LocalDate checkInDate, LocalDate checkOutDate) {
+        if (!isEnabled()) {
+            return bookingRepository.existsOverlappingBooking(propertyId, checkInDate, checkOutDate);
+        }
+
+        IntervalTree calendar = calendarOf(propertyId);
+        boolean taken;
+        synchronized (calendar) {
+            taken = calendar.overlaps(checkInDate.toEpochDay(), checkOutDate.toEpochDay(), LocalDateTime.now());
+        }
+        if (!taken) {
+            return false;
+        }
+
+        if (bookingRepository.existsOverlappingBooking(propertyId, checkInDate, checkOutDate)) {
+            return true;
+        }
+        // A booking removed without going through the calendar, reload it on the next check
+        evict(propertyId);
+        return false;
+    }
+
+    /**
+     * Tells whether the calendars are used, which needs a single instance and the exclusion constraint.
+     *
+     * @return true if a "free" answer of the calendar is trusted
+     */
+    public boolean isEnabled() {
+        return singleInstance && constrained;
+    }
+
+    /**
+     * Records whether the booking table holds an exclusion constraint covering every pair of active stays.
+     *
+     * @param constrained true if the constraint is in place
+     */
+    public void setConstrained(boolean constrained) {
+        this.constrained = constrained;
+        if (!constrained) {
+            clear();
+        }
+    }
+
+    /**
+     * Adds a saved hold to the calendar of its property, if loaded. The hold is removed again if the
+     * current transaction rolls back.
+     *
+     * @param booking the saved hold
+     */
+    public void add(Booking booking) {
+        IntervalTree calendar = loaded(booking.getProperty().getId());
+        if (calendar == null) {
+            return;
+        }
+        synchronized (calendar) {
+            calendar.add(booking.getId(), booking.getCheckInDate().toEpochDay(), booking.getCheckOutDate().toEpochDay(),
+                    booking.getHoldExpiresAt());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        synchronized (calendar) {
+                            calendar.remove(booking.getId());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Marks a hold as confirmed once the current transaction commits, so it never expires.
+     *
+     * @param booking the confirmed booking
+     */
+    public void confirm(Booking booking) {
+        afterCommit(() -> {
+            IntervalTree calendar = loaded(booking.getProperty().getId());
+            if (calendar != null) {
+                synchronized (calendar) {
+                    calendar.confirm(booking.getId());
+                }
+            }
+        });
+    }
+
+    /**
+     * Frees the dates of a booking or hold once the current transaction commits.
+     *
+     * @param booking the removed booking
+     */
+    public void remove(Booking booking) {
+        remove(booking.getProperty().getId(), booking.getId());
+    }
+
+    /**
+     * Frees the dates of a booking or hold of a property once the current transaction commits.
+     *
+     * @param propertyId the ID of the property
+     * @param bookingId the ID of the removed booking
+     */
+    public void remove(Long propertyId, Long bookingId) {
+        afterCommit(() -> {
+            IntervalTree calendar = loaded(propertyId);
+            if (calendar != null) {
+                synchronized (calendar) {
+                    calendar.remove(bookingId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the calendar of a property, which is loaded again on its next check.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void evict(Long propertyId) {
+        synchronized (calendars) {
+            calendars.remove(propertyId);
+        }
+    }
+
+    /**
+     * Drops every calendar.
+     */
+    public void clear() {
+        synchronized (calendars) {
+            calendars.clear();
+        }
+    }
+
+    private IntervalTree loaded(Long propertyId) {
+        synchronized (calendars) {
+            return calendars.get(propertyId);
+        }
+    }
+
+    private IntervalTree calendarOf(Long propertyId) {
+        IntervalTree calendar = loaded(propertyId);
+        if (calendar != null) {
+            return calendar;
+        }
+
+        // Past stays cannot overlap a new one, only the upcoming ones are loaded
+        List<BookedStay> stays = bookingRepository.findUpcomingStays(propertyId, LocalDate.now());
+        IntervalTree loaded = new IntervalTree();
+        for (BookedStay stay : stays) {
+            loaded.add(stay.bookingId(), stay.checkInDate().toEpochDay(), stay.checkOutDate().toEpochDay(), stay.holdExpiresAt());
+        }
+        synchronized (calendars) {
+            return calendars.computeIfAbsent(propertyId, id -> loaded);
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
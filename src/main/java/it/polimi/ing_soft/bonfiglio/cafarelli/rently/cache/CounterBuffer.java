@@ -0,0 +1,58 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Per-property deltas of a counter column, accumulated in striped counters until they are written.
+ * <p>
+ * Adding to a delta never blocks, however many threads hit the same property. A delta is subtracted only after
+ * it has been written, so increments made during a flush, and the deltas of a failed flush, are written by the
+ * next one. Counters are kept once created, so the buffer is bounded by the number of properties.
+ * </p>
+ */
+final class CounterBuffer {
+
+    private final Map<Long, LongAdder> deltas = new ConcurrentHashMap<>();
+
+    void add(Long propertyId, long delta) {
+        deltas.computeIfAbsent(propertyId, id -> new LongAdder()).add(delta);
+    }
+
+    long pending(Long propertyId) {
+        LongAdder delta = deltas.get(propertyId);
+        return delta == null ? 0 : delta.sum();
+    }
+
+    /**
+     * Writes the non-zero deltas in batches of at most the given size.
+     *
+     * @param batchSize the maximum number of deltas in a batch
+     * @param writer writes a batch of deltas, by property ID
+     */
+    synchronized void flush(int batchSize, Consumer<Map<Long, Long>> writer) {
+        Map<Long, Long> batch = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : deltas.entrySet()) {
+            long delta = entry.getValue().sum();
+            if (delta != 0) {
+                batch.put(entry.getKey(), delta);
+            }
+            if (batch.size() == batchSize) {
+                write(batch, writer);
+                batch = new HashMap<>();
+            }
+        }
+        write(batch, writer);
+    }
+
+    private void write(Map<Long, Long> batch, Consumer<Map<Long, Long>> writer) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        writer.accept(batch);
+        batch.forEach((propertyId, delta) -> deltas.get(propertyId).add(-delta));
+    }
+}
@@ -0,0 +1,32 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that invalidates the in-memory coupon caches whenever a coupon changes.
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponCacheListener {
+
+    private final CouponCatalogCache couponCatalogCache;
+    private final CouponRedemptionCache couponRedemptionCache;
+    private final CouponQuotaCache couponQuotaCache;
+
+    @PostUpdate
+    public void onCouponUpdated(Coupon coupon) {
+        couponCatalogCache.evictById(coupon.getId());
+        couponQuotaCache.evict(coupon.getId());
+    }
+
+    @PostRemove
+    public void onCouponRemoved(Coupon coupon) {
+        couponCatalogCache.evictById(coupon.getId());
+        couponRedemptionCache.evict(coupon.getId());
+        couponQuotaCache.evict(coupon.getId());
+    }
+}
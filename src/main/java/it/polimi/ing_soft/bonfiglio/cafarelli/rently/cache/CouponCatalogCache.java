@@ -0,0 +1,200 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded read-through cache of the coupon catalog, keyed by coupon code.
+ * <p>
+ * Only valid coupons are cached: an entry is dropped as soon as its expiry date has passed,
+ * and the least recently used entry is dropped when the cache is full.
+ * Entries are invalidated by {@link CouponCacheListener} whenever a coupon changes.
+ * A coupon loaded while an invalidation happened is returned but not cached, so a load that read
+ * the coupon before it changed never puts the old version back.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponCatalogCache {
+
+    static final int MAX_ENTRIES = 10_000;
+
+    private final CouponRepository couponRepository;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Number of invalidations so far, guarded by the lock of {@link #coupons}.
+     */
+    private long invalidations;
+
+    private final Map<String, Coupon> coupons = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Coupon> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Finds a coupon by its code, loading it from the database on a miss.
+     *
+     * @param code the code of the coupon
+     * @return an Optional containing the Coupon if found, or empty if not found
+     */
+    public Optional<Coupon> findByCode(String code) {
+        long version;
+        synchronized (coupons) {
+            version = invalidations;
+            Coupon cached = coupons.get(code);
+            if (cached != null && isExpired(cached)) {
+                coupons.remove(code);
+                evictions.incrementAndGet();
+                cached = null;
+            }
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached);
+            }
+        }
+
+        misses.incrementAndGet();
+        Optional<Coupon> loaded = couponRepository.findByCode(code);
+        loaded.filter(coupon -> !isExpired(coupon)).ifPresent(coupon -> {
+            synchronized (coupons) {
+                if (invalidations == version) {
+                    coupons.put(code, snapshot(coupon));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Removes a coupon from the cache.
+     *
+     * @param code the code of the coupon
+     */
+    public void evict(String code) {
+        synchronized (coupons) {
+            invalidations++;
+            if (coupons.remove(code) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes a coupon from the cache by its ID, so that a renamed coupon does not stay cached under its old code.
+     * Inside a transaction the coupon is removed again after the commit, since a load running before
+     * the commit still reads the old version.
+     *
+     * @param couponId the ID of the coupon
+     */
+    public void evictById(Long couponId) {
+        removeById(couponId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeById(couponId);
+                }
+            });
+        }
+    }
+
+    private void removeById(Long couponId) {
+        synchronized (coupons) {
+            invalidations++;
+            if (coupons.values().removeIf(coupon -> couponId.equals(coupon.getId()))) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the IDs of the coupons currently cached.
+     *
+     * @return a snapshot of the cached coupon IDs
+     */
+    public Set<Long> cachedIds() {
+        synchronized (coupons) {
+            Set<Long> ids = new HashSet<>();
+            for (Coupon coupon : coupons.values()) {
+                ids.add(coupon.getId());
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Drops every coupon that expired, once a day right after midnight.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void evictExpired() {
+        synchronized (coupons) {
+            coupons.values().removeIf(coupon -> {
+                if (isExpired(coupon)) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Returns the hit/miss counters of the cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStatsResponse stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (coupons) {
+            size = coupons.size();
+        }
+        return new CacheStatsResponse(hitCount, missCount, evictions.get(), size, total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    private boolean isExpired(Coupon coupon) {
+        return coupon.getExpiryDate().isBefore(LocalDate.now());
+    }
+
+    /**
+     * Copies the catalog fields of a coupon, leaving out the lazy collection of its users.
+     */
+    private Coupon snapshot(Coupon coupon) {
+        Coupon copy = new Coupon();
+        copy.setId(coupon.getId());
+        copy.setCode(coupon.getCode());
+        copy.setDiscountAmount(coupon.getDiscountAmount());
+        copy.setDiscountPercentage(coupon.getDiscountPercentage());
+        copy.setExpiryDate(coupon.getExpiryDate());
+        copy.setMaxRedemptions(coupon.getMaxRedemptions());
+        copy.setUsers(new ArrayList<>());
+        return copy;
+    }
+}
@@ -0,0 +1,100 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory counters of the redemptions still available for limited coupons.
+ * <p>
+ * A redemption first takes a permit from the counter of its coupon with a compare-and-set loop,
+ * so once a coupon is sold out every further attempt is rejected without locking or touching the database.
+ * The counter is only a gate in front of {@link CouponRepository#incrementRedemptionCount(Long)},
+ * which stays the source of truth when several instances share the same database.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponQuotaCache {
+
+    private final CouponRepository couponRepository;
+
+    private final Map<Long, AtomicInteger> remaining = new ConcurrentHashMap<>();
+
+    /**
+     * Checks whether a coupon may still have redemptions left, without taking one.
+     *
+     * @param coupon the coupon
+     * @return false if the coupon is known to be sold out, true otherwise
+     */
+    public boolean hasRemaining(Coupon coupon) {
+        return coupon.getMaxRedemptions() == null || counter(coupon.getId()).get() > 0;
+    }
+
+    /**
+     * Takes one redemption permit of a coupon.
+     * Inside a transaction the permit is given back if the transaction rolls back.
+     *
+     * @param coupon the coupon
+     * @return true if a permit was taken or the coupon has no limit, false if the coupon is sold out
+     */
+    public boolean tryReserve(Coupon coupon) {
+        if (coupon.getMaxRedemptions() == null) {
+            return true;
+        }
+
+        AtomicInteger counter = counter(coupon.getId());
+        int current;
+        do {
+            current = counter.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - 1));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        counter.incrementAndGet();
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Marks a coupon as sold out, for example when the database rejected a redemption
+     * that was counted by another instance.
+     *
+     * @param couponId the ID of the coupon
+     */
+    public void markSoldOut(Long couponId) {
+        counter(couponId).set(0);
+    }
+
+    /**
+     * Drops the counter of a coupon, so that it is loaded again from the database on the next redemption.
+     *
+     * @param couponId the ID of the coupon
+     */
+    public void evict(Long couponId) {
+        remaining.remove(couponId);
+    }
+
+    private AtomicInteger counter(Long couponId) {
+        return remaining.computeIfAbsent(couponId, id -> {
+            Integer left = couponRepository.findRemainingRedemptions(id);
+            return new AtomicInteger(left == null ? 0 : Math.max(left, 0));
+        });
+    }
+}
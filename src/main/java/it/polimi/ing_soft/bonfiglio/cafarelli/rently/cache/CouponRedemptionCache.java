@@ -0,0 +1,125 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the users that redeemed each coupon.
+ * <p>
+ * Every coupon has a sorted array of user ids, so its size only depends on how many users redeemed it
+ * and not on how large their ids are. A known redemption is authoritative, since a redemption is never undone,
+ * so repeated attempts are rejected without touching the database. An unknown one is confirmed with an
+ * indexed existence query on {@code used_coupon} and memoized when the query finds a redemption.
+ * </p>
+ * <p>
+ * Only the coupons held by {@link CouponCatalogCache} are kept: the others, expired or evicted,
+ * are dropped periodically and loaded again on their next redemption.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponRedemptionCache {
+
+    static final long SWEEP_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    private final CouponRepository couponRepository;
+    private final CouponCatalogCache couponCatalogCache;
+
+    private final Map<Long, UserSet> redemptions = new ConcurrentHashMap<>();
+
+    /**
+     * Checks whether a user already redeemed a coupon.
+     *
+     * @param couponId the ID of the coupon
+     * @param userId the ID of the user
+     * @return true if the user already redeemed the coupon, false otherwise
+     */
+    public boolean hasRedeemed(Long couponId, Long userId) {
+        UserSet users = redemptions.get(couponId);
+        if (users != null && users.contains(userId)) {
+            return true;
+        }
+
+        if (couponRepository.existsRedemption(couponId, userId)) {
+            remember(couponId, userId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that a user redeemed a coupon, keeping the index warm.
+     * Inside a transaction the user is only added after the commit, so a rolled back redemption is not remembered.
+     *
+     * @param couponId the ID of the coupon
+     * @param userId the ID of the user
+     */
+    public void recordRedemption(Long couponId, Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(couponId, userId);
+                }
+            });
+        } else {
+            remember(couponId, userId);
+        }
+    }
+
+    /**
+     * Drops the redemptions of a coupon, for example when the coupon is deleted.
+     *
+     * @param couponId the ID of the coupon
+     */
+    public void evict(Long couponId) {
+        redemptions.remove(couponId);
+    }
+
+    /**
+     * Drops the redemptions of every coupon that is no longer in the catalog cache.
+     */
+    @Scheduled(fixedDelay = SWEEP_INTERVAL_MILLIS)
+    public void evictUncatalogued() {
+        redemptions.keySet().retainAll(couponCatalogCache.cachedIds());
+    }
+
+    private void remember(Long couponId, Long userId) {
+        redemptions.computeIfAbsent(couponId, id -> new UserSet()).add(userId);
+    }
+
+    /**
+     * Sorted set of user ids, 8 bytes per user.
+     */
+    private static final class UserSet {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized boolean contains(long userId) {
+            return Arrays.binarySearch(ids, 0, size, userId) >= 0;
+        }
+
+        synchronized void add(long userId) {
+            int index = Arrays.binarySearch(ids, 0, size, userId);
+            if (index >= 0) {
+                return;
+            }
+            int insertion = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+            }
+            System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+            ids[insertion] = userId;
+            size++;
+        }
+    }
+}
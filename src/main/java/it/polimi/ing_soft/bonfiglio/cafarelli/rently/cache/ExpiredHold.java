@@ -0,0 +1,15 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import java.time.LocalDate;
+
+/**
+ * The dates held by an expired hold, as needed to drop the cached state it affected once released.
+ *
+ * @param bookingId the ID of the hold
+ * @param propertyId the ID of the held property
+ * @param city the city of the held property
+ * @param checkInDate the first night held
+ * @param checkOutDate the day the property was free again
+ */
+public record ExpiredHold(Long bookingId, Long propertyId, String city, LocalDate checkInDate, LocalDate checkOutDate) {
+}
@@ -0,0 +1,169 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Interval tree of the nights taken in a property, as half-open ranges of epoch days.
+ * <p>
+ * It is a treap ordered by start day, where every node also keeps the latest end day of its subtree,
+ * so a range check skips every subtree ending before the range starts. Adding, removing and checking
+ * a range take O(log n) expected time. An interval can be a pending hold, which stops counting once
+ * it expires.
+ * </p>
+ * Not thread-safe: {@link BookingCalendar} guards every tree with its own lock.
+ */
+final class IntervalTree {
+
+    private final Map<Long, Node> nodesById = new HashMap<>();
+    private Node root;
+
+    /**
+     * Adds an interval, replacing the one with the same ID.
+     *
+     * @param id the ID of the booking
+     * @param start the first night taken, in epoch days
+     * @param end the day the property is free again, in epoch days
+     * @param holdExpiresAt when the hold expires, or null for a confirmed booking
+     */
+    void add(long id, long start, long end, LocalDateTime holdExpiresAt) {
+        remove(id);
+        Node node = new Node(id, start, end, holdExpiresAt);
+        nodesById.put(id, node);
+        Node[] split = split(root, start, id);
+        root = merge(merge(split[0], node), split[1]);
+    }
+
+    /**
+     * Removes an interval.
+     *
+     * @param id the ID of the booking
+     * @return true if the interval was in the tree
+     */
+    boolean remove(long id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return false;
+        }
+        Node[] before = split(root, node.start, node.id);
+        Node[] after = split(before[1], node.start, node.id + 1);
+        root = merge(before[0], after[1]);
+        return true;
+    }
+
+    /**
+     * Turns a pending hold into a confirmed booking, which never expires.
+     *
+     * @param id the ID of the booking
+     */
+    void confirm(long id) {
+        Node node = nodesById.get(id);
+        if (node != null) {
+            node.holdExpiresAt = null;
+        }
+    }
+
+    /**
+     * Checks if a range shares at least a night with a confirmed booking or a live hold.
+     *
+     * @param start the first night of the range, in epoch days
+     * @param end the day after the last night of the range, in epoch days
+     * @param now the reference instant for the holds
+     * @return true if the range is taken, false otherwise
+     */
+    boolean overlaps(long start, long end, LocalDateTime now) {
+        return overlaps(root, start, end, now);
+    }
+
+    int size() {
+        return nodesById.size();
+    }
+
+    private static boolean overlaps(Node node, long start, long end, LocalDateTime now) {
+        if (node == null || node.maxEnd <= start) {
+            return false;
+        }
+        if (overlaps(node.left, start, end, now)) {
+            return true;
+        }
+        if (node.start >= end) {
+            // Every interval on the right starts even later
+            return false;
+        }
+        if (node.end > start && (node.holdExpiresAt == null || node.holdExpiresAt.isAfter(now))) {
+            return true;
+        }
+        return overlaps(node.right, start, end, now);
+    }
+
+    /**
+     * Splits a subtree into the nodes ordered before (start, id) and the others.
+     */
+    private static Node[] split(Node node, long start, long id) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        if (node.start < start || (node.start == start && node.id < id)) {
+            Node[] split = split(node.right, start, id);
+            node.right = split[0];
+            update(node);
+            return new Node[] { node, split[1] };
+        }
+        Node[] split = split(node.left, start, id);
+        node.left = split[1];
+        update(node);
+        return new Node[] { split[0], node };
+    }
+
+    /**
+     * Merges two subtrees, every node of the first one being ordered before the nodes of the second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        }
+        second.left = merge(first, second.left);
+        update(second);
+        return second;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static final class Node {
+        private final long id;
+        private final long start;
+        private final long end;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private LocalDateTime holdExpiresAt;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        private Node(long id, long start, long end, LocalDateTime holdExpiresAt) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.holdExpiresAt = holdExpiresAt;
+            this.maxEnd = end;
+        }
+    }
+}
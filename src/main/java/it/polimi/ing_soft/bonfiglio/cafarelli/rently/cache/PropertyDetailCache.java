@@ -0,0 +1,184 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded read-through cache of the property details, keyed by property ID.
+ * <p>
+ * Entries hold the JSON served by {@code GET /property/{propertyId}}, so a hit costs neither a query nor a
+ * serialization. Concurrent misses on the same property share a single database load. Entries are evicted
+ * by the property service whenever a property, its images or its rating change; as the host details are
+ * embedded too, entries also expire after {@link #TIME_TO_LIVE}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class PropertyDetailCache {
+
+    static final int MAX_ENTRIES = 5_000;
+    static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    private final PropertyRepository propertyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Bumped by every eviction, so a load that raced with a change is not cached.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Map<Long, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+    private final Map<Long, Entry> details = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Returns the serialized details of a property, loading them from the database on a miss.
+     *
+     * @param propertyId the ID of the property
+     * @return the JSON of the property
+     * @throws EntityNotFoundException if the property does not exist
+     */
+    public byte[] get(Long propertyId) {
+        synchronized (details) {
+            Entry cached = details.get(propertyId);
+            if (cached != null && cached.isExpired()) {
+                details.remove(propertyId);
+                evictions.incrementAndGet();
+                cached = null;
+            }
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.json();
+            }
+        }
+
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = loading.putIfAbsent(propertyId, load);
+        if (running != null) {
+            // Another request is already loading this property, wait for its result
+            hits.incrementAndGet();
+            return join(running);
+        }
+
+        misses.incrementAndGet();
+        long invalidationsBefore = invalidations.get();
+        try {
+            byte[] json = transactionTemplate.execute(status -> propertyRepository.findDetailById(propertyId)
+                    .map(this::serialize)
+                    .orElseThrow(() -> new EntityNotFoundException(Property.class)));
+            synchronized (details) {
+                if (invalidations.get() == invalidationsBefore) {
+                    details.put(propertyId, new Entry(json, System.nanoTime()));
+                }
+            }
+            load.complete(json);
+            return json;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(propertyId, load);
+        }
+    }
+
+    /**
+     * Removes a property from the cache, now and again once the current transaction commits,
+     * so a concurrent load cannot cache the details from before the change.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void evict(Long propertyId) {
+        remove(propertyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(propertyId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the hit/miss counters of the cache.
+     * A request served by the load of a concurrent request counts as a hit.
+     *
+     * @return the cache statistics
+     */
+    public CacheStatsResponse stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (details) {
+            size = details.size();
+        }
+        return new CacheStatsResponse(hitCount, missCount, evictions.get(), size, total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    private void remove(Long propertyId) {
+        synchronized (details) {
+            invalidations.incrementAndGet();
+            if (details.remove(propertyId) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private byte[] serialize(Property property) {
+        try {
+            return objectMapper.writeValueAsBytes(property);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize property " + property.getId(), e);
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry(byte[] json, long loadedAt) {
+
+        private boolean isExpired() {
+            return System.nanoTime() - loadedAt > TIME_TO_LIVE.toNanos();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Write-behind counter of the favorites of each property.
+ * <p>
+ * Adding or removing a favorite only bumps a striped in-memory counter, so concurrent users favoriting
+ * a popular property do not all contend on the lock of its row. The pending deltas are written to the
+ * {@code favoriteCount} column in JDBC batches every few seconds, and once more on shutdown.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class PropertyFavoriteCounter {
+
+    static final long FLUSH_INTERVAL_MILLIS = 5_000;
+    static final int BATCH_SIZE = 500;
+
+    private final PropertyRepository propertyRepository;
+
+    private final CounterBuffer pending = new CounterBuffer();
+
+    /**
+     * Counts a new favorite of a property, once the current transaction commits.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void increment(Long propertyId) {
+        add(propertyId, 1);
+    }
+
+    /**
+     * Counts a removed favorite of a property, once the current transaction commits.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void decrement(Long propertyId) {
+        add(propertyId, -1);
+    }
+
+    /**
+     * Writes the pending deltas to the database.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelay = FLUSH_INTERVAL_MILLIS)
+    public void flush() {
+        pending.flush(BATCH_SIZE, propertyRepository::addToFavoriteCounts);
+    }
+
+    /**
+     * Returns the delta of a property that is not written yet.
+     *
+     * @param propertyId the ID of the property
+     * @return the pending delta
+     */
+    public long pending(Long propertyId) {
+        return pending.pending(propertyId);
+    }
+
+    private void add(Long propertyId, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.add(propertyId, delta);
+                }
+            });
+        } else {
+            pending.add(propertyId, delta);
+        }
+    }
+}
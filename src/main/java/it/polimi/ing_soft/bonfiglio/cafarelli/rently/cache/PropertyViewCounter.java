@@ -0,0 +1,56 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind counter of the views of each property.
+ * <p>
+ * Serving a property detail only bumps a striped in-memory counter, so reads never turn into writes on the
+ * row of a popular property. The pending views are written to the {@code viewCount} column with one batched
+ * update every few seconds, and once more on a graceful shutdown; a crash loses at most the views of the last
+ * {@link #FLUSH_INTERVAL_MILLIS}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class PropertyViewCounter {
+
+    static final long FLUSH_INTERVAL_MILLIS = 5_000;
+    static final int BATCH_SIZE = 500;
+
+    private final PropertyRepository propertyRepository;
+
+    private final CounterBuffer pending = new CounterBuffer();
+
+    /**
+     * Counts a view of a property.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void increment(Long propertyId) {
+        pending.add(propertyId, 1);
+    }
+
+    /**
+     * Writes the pending views to the database.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelay = FLUSH_INTERVAL_MILLIS)
+    public void flush() {
+        pending.flush(BATCH_SIZE, propertyRepository::addToViewCounts);
+    }
+
+    /**
+     * Returns the views of a property that are not written yet.
+     *
+     * @param propertyId the ID of the property
+     * @return the number of pending views
+     */
+    public long pending(Long propertyId) {
+        return pending.pending(propertyId);
+    }
+}
@@ -0,0 +1,82 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Short-lived cache of the booking checks done before a review is accepted.
+ * <p>
+ * Both answers are cached for a few minutes, so a user retrying a rejected review or reviewing
+ * right after opening the form does not hit the database again. The short lifetime bounds how long
+ * a stay that just ended, or a booking that was just removed, is answered from stale data.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ReviewEligibilityCache {
+
+    static final long TTL_MILLIS = 5 * 60 * 1000;
+
+    private final BookingRepository bookingRepository;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Checks if a user stayed at a property, with a stay that is already over.
+     *
+     * @param userId the ID of the user
+     * @param propertyId the ID of the property
+     * @return true if the user can review the property, false otherwise
+     */
+    public boolean hasStayed(Long userId, Long propertyId) {
+        return lookup(new Key(Kind.STAY, userId, propertyId),
+                () -> bookingRepository.existsConcludedStay(userId, propertyId, LocalDate.now()));
+    }
+
+    /**
+     * Checks if a customer booked one of the properties of a host.
+     *
+     * @param host the host
+     * @param customer the customer
+     * @return true if such a booking exists, false otherwise
+     */
+    public boolean hasBooked(User host, User customer) {
+        return lookup(new Key(Kind.HOST_CUSTOMER, host.getId(), customer.getId()),
+                () -> Boolean.TRUE.equals(bookingRepository.existsBookingByHostIdAndClientId(host, customer)));
+    }
+
+    /**
+     * Drops the expired answers.
+     */
+    @Scheduled(fixedDelay = TTL_MILLIS)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private boolean lookup(Key key, BooleanSupplier query) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.value();
+        }
+
+        boolean value = query.getAsBoolean();
+        entries.put(key, new Entry(value, now + TTL_MILLIS));
+        return value;
+    }
+
+    private enum Kind { STAY, HOST_CUSTOMER }
+
+    private record Key(Kind kind, Long first, Long second) { }
+
+    private record Entry(boolean value, long expiresAt) { }
+}
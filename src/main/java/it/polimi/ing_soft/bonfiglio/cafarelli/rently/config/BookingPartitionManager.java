@@ -0,0 +1,243 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Range-partitions the booking table by check-out month on PostgreSQL.
+ * <p>
+ * The hot queries all bound the check-out date from below, so they only visit the partitions of the current and
+ * upcoming months, however long the history grows. Partitioning is opt-in with
+ * {@code application.booking.partitioning.enabled}: the table is then converted once at startup, copying the
+ * bookings into monthly partitions. Every day the partitions of the next {@link #MONTHS_AHEAD} months are created,
+ * and the ones that ended more than {@code application.booking.partitioning.retention-months} ago are detached:
+ * their rows stay in a standalone table named after the month, out of every query on the bookings. With the
+ * archiver keeping concluded bookings for a shorter time, those tables are left with the leftovers only.
+ * Stays ending after the created months land in a default partition, and move out of it once their month
+ * gets its own partition.
+ * </p>
+ * <p>
+ * A partitioned table cannot hold an exclusion constraint on a date range, so every monthly partition gets its own,
+ * added once its rows are in place, each in a statement of its own: a partition whose active stays already overlap,
+ * from before the overlap check was serialized, is left without it and a warning is logged, as on the plain table.
+ * Such constraints only compare the stays ending in the same month: overlapping stays whose check-out months differ,
+ * and the stays in {@code booking_default}, which has no constraint, are only kept apart by the overlap check the
+ * bookings run under the lock on the property row.
+ * </p>
+ * A conversion that fails is rolled back as a whole, leaving the plain table in place.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingPartitionManager {
+
+    static final int MONTHS_AHEAD = 18;
+    static final String DEFAULT_PARTITION = "booking_default";
+
+    private static final String PARTITION_PREFIX = "booking_p";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final long MAINTENANCE_INTERVAL_MS = 24 * 60 * 60 * 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.booking.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${application.booking.partitioning.retention-months:24}")
+    private int retentionMonths;
+
+    /**
+     * Set once the table is known to be partitioned, so the maintenance never runs on other databases.
+     */
+    private volatile boolean partitioned;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Converts the booking table into a partitioned one, if partitioning is enabled and it was not done yet.
+     * Must only be called on PostgreSQL.
+     */
+    public void partition() {
+        if (!enabled) {
+            return;
+        }
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('booking')", Integer.class);
+        if (existing == null || existing == 0) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> convert());
+            } catch (DataAccessException e) {
+                log.warn("Unable to partition the bookings, the table is left as it is: {}", e.getMessage());
+                return;
+            }
+            // Outside the conversion, so a partition refusing its constraint cannot undo it
+            for (String partition : partitions()) {
+                if (monthOf(partition) != null) {
+                    addExclusionConstraint(partition);
+                }
+            }
+        }
+        partitioned = true;
+        maintainPartitions();
+    }
+
+    /**
+     * Creates the partitions of the upcoming months and detaches the ones past the retention.
+     */
+    @Scheduled(fixedDelay = MAINTENANCE_INTERVAL_MS, initialDelay = MAINTENANCE_INTERVAL_MS)
+    public void maintainPartitions() {
+        if (!partitioned) {
+            return;
+        }
+
+        YearMonth current = YearMonth.now();
+        for (int ahead = 0; ahead <= MONTHS_AHEAD; ahead++) {
+            createPartition(current.plusMonths(ahead));
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String partition : partitions()) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("ALTER TABLE booking DETACH PARTITION " + partition);
+            }
+        }
+    }
+
+    /**
+     * Creates the partition of a month, moving its rows out of the default partition.
+     *
+     * @param month the month of the check-out dates of the partition
+     */
+    void createPartition(YearMonth month) {
+        if (createPartitionTable(month)) {
+            addExclusionConstraint(partitionName(month));
+        }
+    }
+
+    /**
+     * Creates the partition of a month without its exclusion constraint, moving its rows out of the default partition.
+     *
+     * @param month the month of the check-out dates of the partition
+     * @return whether the partition was created, false if it already existed
+     */
+    private boolean createPartitionTable(YearMonth month) {
+        String partition = partitionName(month);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition))) {
+            return false;
+        }
+
+        String range = "check_out_date >= '" + month.atDay(1) + "' AND check_out_date < '" + month.plusMonths(1).atDay(1) + "'";
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean stranded = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE " + range + ")", Boolean.class));
+            String columns = stranded ? insertableColumns(DEFAULT_PARTITION) : null;
+            if (stranded) {
+                jdbcTemplate.execute("CREATE TEMPORARY TABLE booking_stranded AS SELECT " + columns +
+                        " FROM " + DEFAULT_PARTITION + " WHERE " + range);
+                jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range);
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF booking FOR VALUES FROM ('" +
+                    month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+
+            if (stranded) {
+                jdbcTemplate.execute("INSERT INTO booking (" + columns + ") SELECT " + columns + " FROM booking_stranded");
+                jdbcTemplate.execute("DROP TABLE booking_stranded");
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Adds the exclusion constraint on the active stays to a partition. Must not run inside a transaction,
+     * which a refused constraint would abort on PostgreSQL.
+     *
+     * @param partition the name of the partition
+     */
+    void addExclusionConstraint(String partition) {
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + partition + " ADD CONSTRAINT " + partition + "_no_overlapping_active_stays " +
+                    "EXCLUDE USING gist (property_id WITH =, stay WITH &&) WHERE (" + BookingSchemaInitializer.ACTIVE + ")");
+        } catch (DataAccessException e) {
+            log.warn("Unable to add the exclusion constraint on {}: {}", partition, e.getMessage());
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(MONTH_SUFFIX);
+    }
+
+    /**
+     * Returns the month of a partition, or null for the default partition.
+     */
+    static YearMonth monthOf(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), MONTH_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'booking'::regclass", String.class);
+    }
+
+    private String insertableColumns(String table) {
+        return jdbcTemplate.queryForObject("SELECT string_agg(quote_ident(column_name), ', ' ORDER BY ordinal_position) " +
+                "FROM information_schema.columns WHERE table_name = ? AND is_generated = 'NEVER'", String.class, table);
+    }
+
+    private void convert() {
+        jdbcTemplate.execute("ALTER TABLE booking RENAME TO booking_unpartitioned");
+        jdbcTemplate.execute("CREATE TABLE booking (LIKE booking_unpartitioned INCLUDING DEFAULTS INCLUDING IDENTITY " +
+                "INCLUDING GENERATED INCLUDING CONSTRAINTS) PARTITION BY RANGE (check_out_date)");
+        // The partition key must be part of the primary key, the IDs stay unique as they come from the same sequence
+        jdbcTemplate.execute("ALTER TABLE booking ADD PRIMARY KEY (id, check_out_date)");
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF booking DEFAULT");
+
+        LocalDate oldest = jdbcTemplate.queryForObject("SELECT MIN(check_out_date) FROM booking_unpartitioned", LocalDate.class);
+        YearMonth last = YearMonth.now().plusMonths(MONTHS_AHEAD);
+        for (YearMonth month = oldest == null ? YearMonth.now() : YearMonth.from(oldest); !month.isAfter(last); month = month.plusMonths(1)) {
+            createPartitionTable(month);
+        }
+
+        String columns = insertableColumns("booking_unpartitioned");
+        jdbcTemplate.execute("INSERT INTO booking (" + columns + ") SELECT " + columns + " FROM booking_unpartitioned");
+        jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('booking', 'id'), " +
+                "COALESCE((SELECT MAX(id) FROM booking), 0) + 1, false)", Long.class);
+
+        List<String> foreignKeys = jdbcTemplate.queryForList("SELECT pg_get_constraintdef(oid) FROM pg_constraint " +
+                "WHERE conrelid = 'booking_unpartitioned'::regclass AND contype = 'f'", String.class);
+        jdbcTemplate.execute("DROP TABLE booking_unpartitioned");
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE booking ADD " + foreignKey);
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_booking_user_property_check_out " +
+                "ON booking (user_id, property_id, check_out_date)");
+        log.info("Converted the booking table into monthly partitions from {}", oldest);
+    }
+}
@@ -0,0 +1,174 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookingCalendar;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Adds to the booking table the parts of the schema that JPA cannot describe.
+ * <p>
+ * On PostgreSQL the overlap lookups are served by a partial index holding only the active bookings, i.e. the
+ * pending and confirmed ones, so cancelled and completed stays never weigh on it. Every booking also gets a
+ * {@code stay} daterange column, generated from its dates, and an exclusion constraint backed by a GiST index
+ * on (property_id, stay) of the active bookings, so two of them can never share a night, whatever the
+ * application does. On the other databases, such as MySQL, there are neither partial indexes nor exclusion
+ * constraints: a btree index on (property_id, status, check_out_date, check_in_date) serves the lookups and
+ * the lock on the property row serializes the holds.
+ * </p>
+ * <p>
+ * The constraints Hibernate derived from the booking statuses when the table was created, a check constraint on
+ * PostgreSQL and an enum column on MySQL, are widened whenever a status is added, as updating the schema leaves them
+ * untouched. On PostgreSQL the table is partitioned by the {@link BookingPartitionManager}, when enabled, before
+ * its indexes are created, so they are inherited by every partition.
+ * </p>
+ * <p>
+ * The {@link BookingCalendar} is told when the table-wide exclusion constraint is in place, the only case in which
+ * the database backs up the dates it reports as free.
+ * </p>
+ * Every statement is idempotent, so it runs at every startup, after Hibernate updated the schema.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingSchemaInitializer {
+
+    static final String EXCLUSION_CONSTRAINT = "booking_no_overlapping_active_stays";
+    static final String STAY_INDEX = "idx_booking_property_stay";
+    static final String ACTIVE_STAY_INDEX = "idx_booking_active_stay";
+
+    /**
+     * Predicate of the partial indexes, matching {@code BookingRepository.ACTIVE}.
+     */
+    static final String ACTIVE = "status IN ('PENDING', 'CONFIRMED')";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingPartitionManager bookingPartitionManager;
+    private final BookingCalendar bookingCalendar;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        boolean postgreSql = isPostgreSql();
+        widenStatuses(postgreSql);
+
+        // Bookings made before the status existed were all confirmed
+        jdbcTemplate.update("UPDATE booking SET status = 'CONFIRMED' WHERE status IS NULL");
+
+        if (postgreSql) {
+            initializePostgreSql();
+        } else if (!hasIndex(STAY_INDEX)) {
+            jdbcTemplate.execute("CREATE INDEX " + STAY_INDEX + " ON booking (property_id, status, check_out_date, check_in_date)");
+        }
+    }
+
+    private void initializePostgreSql() {
+        boolean stayColumn = true;
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+            jdbcTemplate.execute("ALTER TABLE booking ADD COLUMN IF NOT EXISTS stay daterange " +
+                    "GENERATED ALWAYS AS (daterange(check_in_date, check_out_date, '[)')) STORED");
+        } catch (DataAccessException e) {
+            stayColumn = false;
+            log.warn("Unable to add the stay column on the bookings: {}", e.getMessage());
+        }
+
+        bookingPartitionManager.partition();
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + ACTIVE_STAY_INDEX +
+                " ON booking (property_id, check_out_date, check_in_date) WHERE " + ACTIVE);
+        // Superseded by the partial index
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + STAY_INDEX);
+
+        // A partitioned table gets the constraint on each of its partitions instead
+        if (!stayColumn || bookingPartitionManager.isPartitioned()) {
+            return;
+        }
+        try {
+            // Superseded by the constraint on the active bookings only, which lets cancelled dates be booked again
+            jdbcTemplate.execute("ALTER TABLE booking DROP CONSTRAINT IF EXISTS booking_no_overlapping_stays");
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_constraint WHERE conname = ?", Integer.class, EXCLUSION_CONSTRAINT);
+            if (existing == null || existing == 0) {
+                jdbcTemplate.execute("ALTER TABLE booking ADD CONSTRAINT " + EXCLUSION_CONSTRAINT +
+                        " EXCLUDE USING gist (property_id WITH =, stay WITH &&) WHERE (" + ACTIVE + ")");
+            }
+            bookingCalendar.setConstrained(true);
+        } catch (DataAccessException e) {
+            // Typically active bookings that already overlap: the application keeps working with the btree index only
+            log.warn("Unable to add the exclusion constraint on the bookings: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lets the status column hold every booking status, when it was restricted to the statuses known
+     * at the time Hibernate created the table.
+     */
+    private void widenStatuses(boolean postgreSql) {
+        String statuses = Arrays.stream(BookingStatus.values())
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        try {
+            if (postgreSql) {
+                String check = jdbcTemplate.query("SELECT pg_get_constraintdef(oid) FROM pg_constraint " +
+                        "WHERE conrelid = 'booking'::regclass AND conname = 'booking_status_check'",
+                        rs -> rs.next() ? rs.getString(1) : null);
+                if (check != null && !listsEveryStatus(check)) {
+                    jdbcTemplate.execute("ALTER TABLE booking DROP CONSTRAINT booking_status_check");
+                    jdbcTemplate.execute("ALTER TABLE booking ADD CONSTRAINT booking_status_check CHECK (status IN (" + statuses + "))");
+                }
+            } else {
+                String type = jdbcTemplate.query("SELECT column_type FROM information_schema.columns " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'booking' AND column_name = 'status'",
+                        rs -> rs.next() ? rs.getString(1) : null);
+                if (type != null && type.toLowerCase().startsWith("enum(") && !listsEveryStatus(type)) {
+                    jdbcTemplate.execute("ALTER TABLE booking MODIFY status ENUM(" + statuses + ")");
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to widen the statuses of the bookings: {}", e.getMessage());
+        }
+    }
+
+    private static boolean listsEveryStatus(String definition) {
+        return Arrays.stream(BookingStatus.values()).allMatch(status -> definition.contains("'" + status.name() + "'"));
+    }
+
+    private boolean isPostgreSql() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> metaData.getDatabaseProductName());
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean hasIndex(String name) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+                try (ResultSet indexes = metaData.getIndexInfo(null, null, "booking", false, true)) {
+                    while (indexes.next()) {
+                        if (name.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            });
+        } catch (Exception e) {
+            // Unable to tell, the schema is left as it is
+            return true;
+        }
+    }
+}
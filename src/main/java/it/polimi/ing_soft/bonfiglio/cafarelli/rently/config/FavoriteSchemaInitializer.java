@@ -0,0 +1,164 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Brings the favorites table of the earlier schema in line with {@code FavoriteProperty}.
+ * <p>
+ * The table used to be the join table of a list of properties on the user, with neither a primary key nor a
+ * cascade on its foreign keys, and updating the schema adds neither of them. Without the primary key
+ * the guarded insert of {@code FavoritePropertyRepository.addFavorite} can race into duplicate rows, which
+ * are counted twice, and without the cascade deleting a user or a property is refused, or leaves orphaned rows
+ * behind where the foreign key is missing.
+ * </p>
+ * Duplicates and orphans are removed first, then the primary key is added and every foreign key is made to
+ * cascade. Every step checks the schema before altering it, so it runs at every startup, after Hibernate
+ * updated the schema.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FavoriteSchemaInitializer {
+
+    static final String TABLE = "user_favorites";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        boolean postgreSql = isPostgreSql();
+        try {
+            if (!hasPrimaryKey()) {
+                removeDuplicates(postgreSql);
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (user_id, property_id)");
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to add the primary key on the favorites: {}", e.getMessage());
+        }
+
+        Map<String, ForeignKey> foreignKeys = foreignKeys();
+        cascade(postgreSql, "user_id", foreignKeys.getOrDefault("user_id", new ForeignKey(null, "user", false)));
+        cascade(postgreSql, "property_id", foreignKeys.getOrDefault("property_id", new ForeignKey(null, "property", false)));
+    }
+
+    /**
+     * Keeps the oldest of the rows sharing a user and a property. The rows are identical but for their date,
+     * so the duplicated pairs are copied aside, deleted and inserted back once.
+     */
+    private void removeDuplicates(boolean postgreSql) {
+        Integer duplicated = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT user_id FROM " + TABLE +
+                " GROUP BY user_id, property_id HAVING COUNT(*) > 1) duplicated", Integer.class);
+        if (duplicated == null || duplicated == 0) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE favorite_duplicates AS SELECT user_id, property_id, " +
+                    "MIN(created_at) AS created_at FROM " + TABLE + " GROUP BY user_id, property_id HAVING COUNT(*) > 1");
+            jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE EXISTS (SELECT 1 FROM favorite_duplicates d " +
+                    "WHERE d.user_id = " + TABLE + ".user_id AND d.property_id = " + TABLE + ".property_id)");
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (user_id, property_id, created_at) " +
+                    "SELECT user_id, property_id, created_at FROM favorite_duplicates");
+            // Without TEMPORARY, MySQL would commit the transaction
+            jdbcTemplate.execute(postgreSql ? "DROP TABLE favorite_duplicates" : "DROP TEMPORARY TABLE favorite_duplicates");
+        });
+        log.info("Removed the duplicates of {} favorites", duplicated);
+    }
+
+    /**
+     * Makes the foreign key on the given column delete the favorites along with the row it references,
+     * replacing the foreign key without a cascade, if any.
+     */
+    private void cascade(boolean postgreSql, String column, ForeignKey foreignKey) {
+        if (foreignKey.cascades()) {
+            return;
+        }
+        String referenced = quote(postgreSql, foreignKey.referencedTable());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (foreignKey.name() != null) {
+                    jdbcTemplate.execute("ALTER TABLE " + TABLE + (postgreSql ? " DROP CONSTRAINT " : " DROP FOREIGN KEY ") +
+                            foreignKey.name());
+                } else {
+                    // Nothing kept these rows from outliving what they reference
+                    jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE NOT EXISTS (SELECT 1 FROM " + referenced +
+                            " r WHERE r.id = " + TABLE + "." + column + ")");
+                }
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT fk_" + TABLE + "_" + column +
+                        " FOREIGN KEY (" + column + ") REFERENCES " + referenced + " (id) ON DELETE CASCADE");
+            });
+        } catch (DataAccessException e) {
+            log.warn("Unable to cascade the favorites on {}: {}", foreignKey.referencedTable(), e.getMessage());
+        }
+    }
+
+    private static String quote(boolean postgreSql, String table) {
+        // "user" is a reserved word on PostgreSQL
+        return postgreSql ? "\"" + table + "\"" : "`" + table + "`";
+    }
+
+    private boolean isPostgreSql() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean hasPrimaryKey() {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+                try (ResultSet keys = metaData.getPrimaryKeys(null, null, TABLE)) {
+                    return keys.next();
+                }
+            });
+        } catch (Exception e) {
+            // Unable to tell, the schema is left as it is
+            return true;
+        }
+    }
+
+    /**
+     * Foreign keys of the favorites by column.
+     */
+    private Map<String, ForeignKey> foreignKeys() {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+                Map<String, ForeignKey> foreignKeys = new HashMap<>();
+                try (ResultSet keys = metaData.getImportedKeys(null, null, TABLE)) {
+                    while (keys.next()) {
+                        foreignKeys.put(keys.getString("FKCOLUMN_NAME").toLowerCase(), new ForeignKey(
+                                keys.getString("FK_NAME"),
+                                keys.getString("PKTABLE_NAME"),
+                                keys.getShort("DELETE_RULE") == DatabaseMetaData.importedKeyCascade));
+                    }
+                }
+                return foreignKeys;
+            });
+        } catch (Exception e) {
+            // Unable to tell, the schema is left as it is
+            return Map.of(
+                    "user_id", new ForeignKey(null, "user", true),
+                    "property_id", new ForeignKey(null, "property", true));
+        }
+    }
+
+    private record ForeignKey(String name, String referencedTable, boolean cascades) {
+    }
+}
@@ -2,6 +2,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.listeners.NotificationListener;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.listeners.TrendingListener;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,6 +14,7 @@ public class ObserverConfig {
 
     private final EventManager eventManager;
     private final NotificationListener notificationListener;
+    private final TrendingListener trendingListener;
 
     @PostConstruct
     public void configureEventListeners() {
@@ -21,5 +23,10 @@ public class ObserverConfig {
         eventManager.subscribe("BOOKING_CANCELED", notificationListener);
         eventManager.subscribe("CHANGEROLE_ACCEPTED", notificationListener);
         eventManager.subscribe("CHANGEROLE_REJECTED", notificationListener);
+
+        // Registra il listener che aggiorna la classifica delle proprietà più popolari
+        eventManager.subscribe("BOOKING_CREATED", trendingListener);
+        eventManager.subscribe("PROPERTY_FAVORITED", trendingListener);
+        eventManager.subscribe("PROPERTY_VIEWED", trendingListener);
     }
 }
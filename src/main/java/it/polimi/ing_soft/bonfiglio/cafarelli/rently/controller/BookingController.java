@@ -10,18 +10,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.BookingCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingDashboardResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UnavailablePropertyException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.BookingService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.ApiPathUtil;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -36,6 +40,7 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final ExportService exportService;
 
     /**
      * Saves a new booking.
@@ -105,7 +110,7 @@ public class BookingController {
             description = "List of bookings retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                array = @ArraySchema(schema = @Schema(implementation = Booking.class))
+                array = @ArraySchema(schema = @Schema(implementation = BookingResponse.class))
             )
         ),
         @ApiResponse(
@@ -116,11 +121,40 @@ public class BookingController {
     })
     @GetMapping("/bookings")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        List<Booking> bookings = bookingService.getAllBookings();
+    public ResponseEntity<List<BookingResponse>> getAllBookings() {
+        List<BookingResponse> bookings = bookingService.getAllBookings();
         return ResponseEntity.ok(bookings);
     }
 
+    @Operation(
+        summary = "Export all bookings (Admin)",
+        description = "Streams all the bookings as NDJSON or CSV, written while they are read, whatever their number"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Export of the bookings streamed successfully",
+            content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown export format",
+            content = @Content
+        )
+    })
+    @GetMapping("/bookings/export")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @Parameter(description = "Format of the export, NDJSON or CSV")
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("bookings"))
+                .body(out -> exportService.exportBookings(exportFormat, out));
+    }
+
     /**
      * Retrieves all bookings made by a specific user.
      * <p>
@@ -140,7 +174,7 @@ public class BookingController {
             description = "List of user's bookings retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                array = @ArraySchema(schema = @Schema(implementation = Booking.class))
+                array = @ArraySchema(schema = @Schema(implementation = BookingResponse.class))
             )
         ),
         @ApiResponse(
@@ -156,10 +190,10 @@ public class BookingController {
     })
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAuthority('ROLE_CLIENT')")
-    public ResponseEntity<List<Booking>> getAllBookings(
+    public ResponseEntity<List<BookingResponse>> getAllBookings(
         @Parameter(description = "ID of the user whose bookings to retrieve", required = true)
         @PathVariable Long userId) {
-        List<Booking> bookings = bookingService.getAllBookings(userId);
+        List<BookingResponse> bookings = bookingService.getAllBookings(userId);
         return ResponseEntity.ok(bookings);
     }
 
@@ -72,6 +72,26 @@ public class ChatController {
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Retrieves the archived messages between the authenticated user and another user.
+     * <p>
+     * Messages past the chat horizon are left out of the conversation. This endpoint returns them
+     * one page at a time, the most recent ones first, as the user scrolls back.
+     * </p>
+     *
+     * @param userId the ID of the user to retrieve the messages with
+     * @param page the number of the page, starting from 0
+     * @return a ResponseEntity containing the messages of the page, empty past the oldest one
+     */
+    @CrossOrigin(origins = "*")
+    @GetMapping("/user/{userId}/archived")
+    public ResponseEntity<List<ChatMessage>> getArchivedMessages(@PathVariable Long userId,
+                                                                 @RequestParam(defaultValue = "0") int page) {
+        List<ChatMessage> messages = chatService.getArchivedMessages(userId, page);
+
+        return ResponseEntity.ok(messages);
+    }
+
     /**
      * Retrieves all users that have exchanged messages with the authenticated host.
      * <p>
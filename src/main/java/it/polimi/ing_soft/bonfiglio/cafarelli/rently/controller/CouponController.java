@@ -0,0 +1,107 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.CouponCampaignRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.CouponService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.ApiPathUtil;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controller for handling coupon-related requests.
+ * This class provides administration endpoints for coupons.
+ */
+@RestController
+@RequestMapping(ApiPathUtil.REST_PATH + "/coupon")
+@AllArgsConstructor
+@Tag(name = "Coupons", description = "API for coupon management operations")
+public class CouponController {
+
+    private final CouponService couponService;
+
+    /**
+     * Retrieves the statistics of the coupon catalog cache.
+     *
+     * @return a response entity with the hit/miss counters of the cache
+     */
+    @Operation(
+        summary = "Get coupon cache statistics (Admin)",
+        description = "Retrieves the hit/miss counters of the in-memory coupon catalog - Admin access only"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Cache statistics retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CacheStatsResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin access required",
+            content = @Content
+        )
+    })
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<CacheStatsResponse> getCatalogCacheStats() {
+        return ResponseEntity.ok(couponService.getCatalogCacheStats());
+    }
+
+    /**
+     * Generates a campaign of coupons with unique codes.
+     * <p>
+     * The coupons are persisted in batches while the generated codes are streamed back
+     * as a downloadable text file with one code per line.
+     * </p>
+     *
+     * @param request the campaign details
+     * @return a response entity streaming the generated codes
+     */
+    @Operation(
+        summary = "Generate a coupon campaign (Admin)",
+        description = "Generates the requested number of coupons with unique codes and downloads their codes - Admin access only"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Coupons generated, the body lists their codes",
+            content = @Content(mediaType = "text/plain")
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid input data",
+            content = @Content
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin access required",
+            content = @Content
+        )
+    })
+    @PostMapping("/campaign")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> generateCampaign(
+        @Parameter(description = "Campaign details including number of coupons, discount and expiry date", required = true)
+        @Valid @RequestBody CouponCampaignRequest request) {
+        StreamingResponseBody body = outputStream -> couponService.generateCampaign(request, outputStream);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"coupons.txt\"")
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(body);
+    }
+}
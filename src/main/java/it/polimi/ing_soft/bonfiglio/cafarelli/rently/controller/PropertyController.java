@@ -10,9 +10,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AvailablePropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FacetedPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FlexibleAvailabilityRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.MapAreaPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.NearbyPropertiesRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetedSearchResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FlexibleAvailabilityResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PropertyService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.ApiPathUtil;
@@ -246,12 +254,75 @@ public class PropertyController {
         )
     })
     @GetMapping("/{propertyId}")
-    public ResponseEntity<Property> getPropertyById(
+    public ResponseEntity<byte[]> getPropertyById(
         @Parameter(description = "ID of the property to retrieve", required = true)
         @PathVariable Long propertyId) {
-        Property property = propertyService.findById(propertyId);
+        // Details are served as the cached JSON, without loading or serializing the entity again
+        byte[] property = propertyService.findDetailById(propertyId);
         return ResponseEntity
-                .ok(property);
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(property);
+    }
+
+    /**
+     * Retrieves the statistics of the property detail cache.
+     *
+     * @return a response entity with the hit/miss counters of the cache
+     */
+    @Operation(
+        summary = "Get property cache statistics (Admin)",
+        description = "Retrieves the hit/miss counters of the in-memory property detail cache - Admin access only"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Cache statistics retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CacheStatsResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin access required",
+            content = @Content
+        )
+    })
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<CacheStatsResponse> getDetailCacheStats() {
+        return ResponseEntity.ok(propertyService.getDetailCacheStats());
+    }
+
+    /**
+     * Retrieves the statistics of the availability search cache.
+     *
+     * @return a response entity with the hit/miss counters of the cache
+     */
+    @Operation(
+        summary = "Get availability search cache statistics (Admin)",
+        description = "Retrieves the hit/miss counters of the in-memory availability search cache - Admin access only"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Cache statistics retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CacheStatsResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - Admin access required",
+            content = @Content
+        )
+    })
+    @GetMapping("/search/available/cache-stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<CacheStatsResponse> getAvailabilityCacheStats() {
+        return ResponseEntity.ok(propertyService.getAvailabilityCacheStats());
     }
 
     /**
@@ -320,6 +391,45 @@ public class PropertyController {
                 .ok(properties);
     }
 
+    /**
+     * Retrieves the view and favorite counts of the properties of a host.
+     * <p>
+     * This endpoint feeds the host dashboard. Counts include the latest views and favorites,
+     * even the ones not yet written to the database.
+     * </p>
+     *
+     * @param hostId the ID of the host whose properties to describe, who must be the authenticated user
+     * @return ResponseEntity containing the counts of every property of the host
+     */
+    @Operation(
+        summary = "Get the audience of a host's properties",
+        description = "Retrieves the number of views and favorites of every property of a specific host"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Property counts retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = PropertyStatsResponse.class))
+            )
+        ),
+        @ApiResponse(
+            responseCode = "401",
+            description = "The host is not the authenticated user",
+            content = @Content
+        )
+    })
+    @GetMapping("/host/{hostId}/stats")
+    @PreAuthorize("hasAuthority('ROLE_HOST')")
+    public ResponseEntity<List<PropertyStatsResponse>> getHostPropertyStats(
+        @Parameter(description = "ID of the host whose properties to describe", required = true)
+        @PathVariable Long hostId) {
+        List<PropertyStatsResponse> stats = propertyService.getHostPropertyStats(hostId);
+        return ResponseEntity
+                .ok(stats);
+    }
+
     /**
      * Retrieves all properties in a specific city.
      * <p>
@@ -352,6 +462,83 @@ public class PropertyController {
                 .ok(properties);
     }
 
+    /**
+     * Searches properties by free text.
+     * <p>
+     * This endpoint matches the words of the query against the title, description, city, state and country
+     * of the properties and returns the best matches first.
+     * </p>
+     *
+     * @param query the text to search for
+     * @param limit the maximum number of results
+     * @return ResponseEntity containing the matching properties, best match first
+     */
+    @Operation(
+        summary = "Search properties",
+        description = "Finds the properties whose title, description or location best match a free-text query"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Matching properties retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = Property.class))
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Blank query or invalid number of results",
+            content = @Content
+        )
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<Property>> searchProperties(
+        @Parameter(description = "Text to search for", required = true)
+        @RequestParam("q") String query,
+        @Parameter(description = "Maximum number of results, between 1 and 100")
+        @RequestParam(defaultValue = "20") int limit) {
+        List<Property> properties = propertyService.search(query, limit);
+        return ResponseEntity
+                .ok(properties);
+    }
+
+    /**
+     * Rebuilds the full-text search index.
+     * <p>
+     * This endpoint allows administrators to rebuild the search index from the database,
+     * for example after properties were changed directly in the database.
+     * </p>
+     *
+     * @return ResponseEntity with a custom response reporting the number of indexed properties
+     */
+    @Operation(
+        summary = "Rebuild the search index",
+        description = "Rebuilds the full-text search index of the properties from the database"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Search index rebuilt successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CustomResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden - User is not an administrator",
+            content = @Content
+        )
+    })
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<CustomResponse> rebuildSearchIndex() {
+        int indexed = propertyService.rebuildSearchIndex();
+        return ResponseEntity
+                .ok(new CustomResponse("Search index rebuilt with " + indexed + " properties"));
+    }
+
     /**
      * Retrieves all currently available properties.
      * <p>
@@ -463,4 +650,205 @@ public class PropertyController {
         return ResponseEntity
                 .ok(properties);
     }
+
+    /**
+     * Searches for the properties that can host a stay of a given length inside a window of dates.
+     * <p>
+     * This endpoint answers searches like "any 3 nights in the next two weeks" in a single call,
+     * returning every property of the city that can accommodate the guests together with all
+     * the dates on which the stay can start.
+     * </p>
+     *
+     * @param request the city, the window, the length of the stay and the number of guests
+     * @return ResponseEntity containing the matching properties with their feasible Check-in dates
+     */
+    @Operation(
+        summary = "Search for available properties with flexible dates",
+        description = "Finds the properties of a city that can accommodate the specified number of guests for a stay of the given length anywhere inside a window of dates, with every feasible Check-in date"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of properties with their feasible Check-in dates retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = FlexibleAvailabilityResponse.class))
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid search criteria",
+            content = @Content
+        )
+    })
+    @PostMapping("/search/flexible")
+    @PreAuthorize("hasAuthority('ROLE_CLIENT')")
+    public ResponseEntity<List<FlexibleAvailabilityResponse>> searchFlexibleAvailability(
+        @Parameter(description = "City, window of dates, length of the stay and number of guests", required = true)
+        @Valid @RequestBody FlexibleAvailabilityRequest request) {
+        List<FlexibleAvailabilityResponse> properties = propertyService.findFlexibleAvailability(request);
+        return ResponseEntity
+                .ok(properties);
+    }
+
+    /**
+     * Searches for available properties around a point.
+     * <p>
+     * This endpoint allows users to find the properties within a distance from a point,
+     * such as their current position, that can accommodate the specified number of guests
+     * and, when dates are given, are free for the whole stay.
+     * </p>
+     *
+     * @param request the center, the radius and the criteria for the stay
+     * @return ResponseEntity containing the matching properties, closest first
+     */
+    @Operation(
+        summary = "Search for available properties near a point",
+        description = "Finds properties within a radius from a point that can accommodate the specified number of guests and, when dates are given, are available for the whole stay"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of nearby properties retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = Property.class))
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid search criteria",
+            content = @Content
+        )
+    })
+    @PostMapping("/search/nearby")
+    @PreAuthorize("hasAuthority('ROLE_CLIENT')")
+    public ResponseEntity<List<Property>> searchNearbyProperties(
+        @Parameter(description = "Center, radius and criteria for the stay", required = true)
+        @Valid @RequestBody NearbyPropertiesRequest request) {
+        List<Property> properties = propertyService.findNearby(request);
+        return ResponseEntity
+                .ok(properties);
+    }
+
+    /**
+     * Searches for available properties inside the visible area of a map.
+     * <p>
+     * This endpoint is called every time the user pans or zooms the map, and returns
+     * the properties inside the bounding box that can accommodate the specified number
+     * of guests and, when dates are given, are free for the whole stay.
+     * </p>
+     *
+     * @param request the bounds of the area and the criteria for the stay
+     * @return ResponseEntity containing the matching properties, closest to the center of the area first
+     */
+    @Operation(
+        summary = "Search for available properties in a map area",
+        description = "Finds properties inside a bounding box that can accommodate the specified number of guests and, when dates are given, are available for the whole stay"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "List of properties in the area retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = Property.class))
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid search criteria",
+            content = @Content
+        )
+    })
+    @PostMapping("/search/area")
+    @PreAuthorize("hasAuthority('ROLE_CLIENT')")
+    public ResponseEntity<List<Property>> searchPropertiesInMapArea(
+        @Parameter(description = "Bounds of the area and criteria for the stay", required = true)
+        @Valid @RequestBody MapAreaPropertiesRequest request) {
+        List<Property> properties = propertyService.findInMapArea(request);
+        return ResponseEntity
+                .ok(properties);
+    }
+
+    /**
+     * Searches the available properties of a city with facet filters and counts.
+     * <p>
+     * This endpoint allows users to narrow the properties of a city by price range, bedrooms,
+     * bathrooms and maximum guests, and returns how many properties fall in every bucket
+     * of every facet, so the filters can show their counts.
+     * </p>
+     *
+     * @param request the city, the selected facet buckets and the requested page
+     * @return ResponseEntity containing a page of matching properties with the facet counts
+     */
+    @Operation(
+        summary = "Faceted search of the properties of a city",
+        description = "Filters the available properties of a city by price range, bedrooms, bathrooms and maximum guests, and returns the number of properties in every facet bucket"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Matching properties and facet counts retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = FacetedSearchResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid search criteria",
+            content = @Content
+        )
+    })
+    @PostMapping("/search/faceted")
+    @PreAuthorize("hasAuthority('ROLE_CLIENT')")
+    public ResponseEntity<FacetedSearchResponse> searchPropertiesFaceted(
+        @Parameter(description = "City, selected facet buckets and page", required = true)
+        @Valid @RequestBody FacetedPropertiesRequest request) {
+        FacetedSearchResponse response = propertyService.findFaceted(request);
+        return ResponseEntity
+                .ok(response);
+    }
+
+    /**
+     * Retrieves the most popular properties, overall or in a city.
+     * <p>
+     * This endpoint ranks the properties by their recent views, favorites and bookings,
+     * with older activity counting less and less. The ranking is kept in memory.
+     * </p>
+     *
+     * @param city the city of the properties, all the cities when omitted
+     * @param limit the maximum number of properties
+     * @return ResponseEntity containing the most popular properties, the most popular first
+     */
+    @Operation(
+        summary = "Trending properties",
+        description = "Retrieves the properties with the most recent views, favorites and bookings, overall or in a city"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Trending properties retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = Property.class))
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid number of results",
+            content = @Content
+        )
+    })
+    @GetMapping("/trending")
+    public ResponseEntity<List<Property>> getTrendingProperties(
+        @Parameter(description = "City of the properties, all the cities when omitted")
+        @RequestParam(required = false) String city,
+        @Parameter(description = "Maximum number of results, between 1 and 50")
+        @RequestParam(defaultValue = "10") int limit) {
+        List<Property> properties = propertyService.findTrending(city, limit);
+        return ResponseEntity
+                .ok(properties);
+    }
 }
@@ -2,7 +2,6 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,18 +9,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.HostResponseRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewCreateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewPageRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CursorPageResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ReviewService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.ApiPathUtil;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller for managing review-related operations.
@@ -40,6 +44,7 @@ public class ReviewController {
      * Service responsible for handling business logic related to reviews.
      */
     private final ReviewService reviewService;
+    private final ExportService exportService;
 
     /**
      * Creates a new review for a property.
@@ -298,27 +303,33 @@ public class ReviewController {
     }
 
     /**
-     * Retrieves all reviews for a specific property.
+     * Retrieves a page of the reviews for a specific property.
      * <p>
-     * This endpoint allows users to see all reviews for a particular property.
+     * This endpoint allows users to browse the reviews for a particular property, newest or best rated first.
      * </p>
      *
      * @param propertyId the ID of the property whose reviews to retrieve
-     * @return ResponseEntity containing a list of reviews for the property
+     * @param pageRequest the order, cursor and size of the page
+     * @return ResponseEntity containing a page of reviews for the property
      */
     @Operation(
         summary = "Get reviews by property ID",
-        description = "Retrieves all reviews for a specific property"
+        description = "Retrieves a page of the reviews for a specific property"
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of reviews retrieved successfully",
+            description = "Page of reviews retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                array = @ArraySchema(schema = @Schema(implementation = Review.class))
+                schema = @Schema(implementation = CursorPageResponse.class)
             )
         ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid page request",
+            content = @Content
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Property not found",
@@ -327,75 +338,163 @@ public class ReviewController {
     })
     @GetMapping("/property/{propertyId}")
     @PreAuthorize("hasAnyAuthority('ROLE_CLIENT','ROLE_HOST')")
-    public ResponseEntity<List<Review>> getReviewsByPropertyId(
+    public ResponseEntity<CursorPageResponse<Review>> getReviewsByPropertyId(
         @Parameter(description = "ID of the property whose reviews to retrieve", required = true)
-        @PathVariable Long propertyId) {
+        @PathVariable Long propertyId,
+        @ParameterObject @Valid ReviewPageRequest pageRequest) {
+
+        CursorPageResponse<Review> reviews = reviewService.findByPropertyId(propertyId, pageRequest);
+        return ResponseEntity.ok(reviews);
+    }
+
+    /**
+     * Retrieves a page of the reviews received by a specific user.
+     * <p>
+     * This endpoint allows users to browse the reviews left about a host or a customer.
+     * </p>
+     *
+     * @param reviewedUserId the ID of the user whose reviews to retrieve
+     * @param pageRequest the order, cursor and size of the page
+     * @return ResponseEntity containing a page of reviews for the user
+     */
+    @Operation(
+        summary = "Get reviews by reviewed user ID",
+        description = "Retrieves a page of the reviews received by a specific user"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Page of reviews retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CursorPageResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid page request",
+            content = @Content
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "User not found",
+            content = @Content
+        )
+    })
+    @GetMapping("/user/{reviewedUserId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_CLIENT','ROLE_HOST')")
+    public ResponseEntity<CursorPageResponse<Review>> getReviewsByReviewedUserId(
+        @Parameter(description = "ID of the user whose reviews to retrieve", required = true)
+        @PathVariable Long reviewedUserId,
+        @ParameterObject @Valid ReviewPageRequest pageRequest) {
 
-        List<Review> reviews = reviewService.findByPropertyId(propertyId);
+        CursorPageResponse<Review> reviews = reviewService.findByReviewedUserId(reviewedUserId, pageRequest);
         return ResponseEntity.ok(reviews);
     }
 
     /**
-     * Retrieves all reviews by a specific reviewer.
+     * Retrieves a page of the reviews by a specific reviewer.
      * <p>
-     * This endpoint allows users to see all reviews written by a particular reviewer.
+     * This endpoint allows users to browse the reviews written by a particular reviewer.
      * </p>
      *
      * @param reviewerId the ID of the reviewer whose reviews to retrieve
-     * @return ResponseEntity containing a list of reviews by the reviewer
+     * @param pageRequest the order, cursor and size of the page
+     * @return ResponseEntity containing a page of reviews by the reviewer
      */
     @Operation(
         summary = "Get reviews by reviewer ID",
-        description = "Retrieves all reviews written by a specific reviewer"
+        description = "Retrieves a page of the reviews written by a specific reviewer"
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of reviews retrieved successfully",
+            description = "Page of reviews retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                array = @ArraySchema(schema = @Schema(implementation = Review.class))
+                schema = @Schema(implementation = CursorPageResponse.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid page request",
+            content = @Content
         )
     })
     @GetMapping("/reviewer/{reviewerId}")
     @PreAuthorize("hasAuthority('ROLE_MODERATOR')")
-    public ResponseEntity<List<Review>> getReviewsByReviewerId(
+    public ResponseEntity<CursorPageResponse<Review>> getReviewsByReviewerId(
         @Parameter(description = "ID of the reviewer whose reviews to retrieve", required = true)
-        @PathVariable Long reviewerId) {
+        @PathVariable Long reviewerId,
+        @ParameterObject @Valid ReviewPageRequest pageRequest) {
 
-        List<Review> reviews = reviewService.findByReviewerId(reviewerId);
+        CursorPageResponse<Review> reviews = reviewService.findByReviewerId(reviewerId, pageRequest);
         return ResponseEntity.ok(reviews);
     }
 
     /**
-     * Retrieves all reviews in the system.
+     * Retrieves a page of all reviews in the system.
      * <p>
-     * This endpoint returns a list of all reviews available on the platform.
+     * This endpoint pages through all reviews available on the platform.
      * </p>
      *
-     * @return ResponseEntity containing a list of all reviews
+     * @param pageRequest the order, cursor and size of the page
+     * @return ResponseEntity containing a page of reviews
      */
     @Operation(
         summary = "Get all reviews",
-        description = "Retrieves a list of all reviews available on the platform"
+        description = "Retrieves a page of all reviews available on the platform"
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of reviews retrieved successfully",
+            description = "Page of reviews retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                array = @ArraySchema(schema = @Schema(implementation = Review.class))
+                schema = @Schema(implementation = CursorPageResponse.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid page request",
+            content = @Content
         )
     })
     @GetMapping
-    public ResponseEntity<List<Review>> getAllReviews() {
-        List<Review> reviews = reviewService.findAll();
+    public ResponseEntity<CursorPageResponse<Review>> getAllReviews(@ParameterObject @Valid ReviewPageRequest pageRequest) {
+        CursorPageResponse<Review> reviews = reviewService.findAll(pageRequest);
         return ResponseEntity.ok(reviews);
     }
 
+    @Operation(
+        summary = "Export all reviews",
+        description = "Streams all the reviews as NDJSON or CSV, written while they are read, whatever their number"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Export of the reviews streamed successfully",
+            content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown export format",
+            content = @Content
+        )
+    })
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MODERATOR')")
+    public ResponseEntity<StreamingResponseBody> exportReviews(
+            @Parameter(description = "Format of the export, NDJSON or CSV")
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("reviews"))
+                .body(out -> exportService.exportReviews(exportFormat, out));
+    }
+
     /**
      * Adds a host response to a property review.
      * <p>
@@ -11,20 +11,24 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AddTicketReplyRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.TicketCreationRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.TicketDetailResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Ticket;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketReply;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.TicketService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.ApiPathUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -41,6 +45,7 @@ import java.util.List;
 @Tag(name = "Tickets", description = "API for support ticket management operations")
 public class TicketController {
     private final TicketService ticketService;
+    private final ExportService exportService;
 
     /**
      * Creates a new support ticket.
@@ -220,6 +225,35 @@ public class TicketController {
         return ResponseEntity.ok(tickets);
     }
 
+    @Operation(
+        summary = "Export all tickets",
+        description = "Streams all the tickets as NDJSON or CSV, written while they are read, whatever their number"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Export of the tickets streamed successfully",
+            content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown export format",
+            content = @Content
+        )
+    })
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ROLE_MODERATOR')")
+    public ResponseEntity<StreamingResponseBody> exportTickets(
+            @Parameter(description = "Format of the export, NDJSON or CSV")
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("tickets"))
+                .body(out -> exportService.exportTickets(exportFormat, out));
+    }
+
     /**
      * Assigns a ticket to a moderator.
      * <p>
@@ -12,20 +12,24 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserModifyRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserPasswordChangeRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.UserService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.ApiPathUtil;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import jakarta.validation.Validator;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -48,6 +52,7 @@ public class UserController {
      * Service responsible for handling business logic related to user operations.
      */
     private final UserService userService;
+    private final ExportService exportService;
 
     private final Validator validator;
 
@@ -329,19 +334,50 @@ public class UserController {
         return ResponseEntity.ok(userService.findAll());
     }
 
+    @Operation(
+            summary = "Export all users",
+            description = "Streams all the users as NDJSON or CSV, written while they are read, whatever their number"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Export of the users streamed successfully",
+                    content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Unknown export format",
+                    content = @Content
+            )
+    })
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MODERATOR')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @Parameter(description = "Format of the export, NDJSON or CSV")
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("users"))
+                .body(out -> exportService.exportUsers(exportFormat, out));
+    }
+
     /**
-     * Retrieves all favorite properties for a specific user.
+     * Retrieves a page of the favorite properties of a specific user.
      * <p>
-     * This endpoint returns a list of properties that have been marked as
-     * favorites by the specified user.
+     * This endpoint returns the properties that have been marked as
+     * favorites by the specified user, the most recently added first.
      * </p>
      *
      * @param username the username of the user whose favorites to retrieve
-     * @return ResponseEntity containing a list of favorite properties
+     * @param page the number of the page, starting from 0
+     * @param size the number of properties in a page
+     * @return ResponseEntity containing a page of favorite properties
      */
     @Operation(
             summary = "Get user's favorite properties",
-            description = "Retrieves all properties marked as favorites by a specific user"
+            description = "Retrieves a page of the properties marked as favorites by a specific user, the most recently added first"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -352,6 +388,11 @@ public class UserController {
                             array = @ArraySchema(schema = @Schema(implementation = Property.class))
                     )
             ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid page number or size",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "User not found",
@@ -360,10 +401,14 @@ public class UserController {
     })
     @GetMapping("/favorite-properties")
     @PreAuthorize("hasAuthority('ROLE_CLIENT')")
-    public ResponseEntity<List<Property>> getAllFavoriteProperties(
+    public ResponseEntity<List<Property>> getFavoriteProperties(
             @Parameter(description = "Username of the user whose favorites to retrieve", required = true)
-            @RequestParam String username) {
-        return ResponseEntity.ok(userService.getAllFavoriteProperties(username));
+            @RequestParam String username,
+            @Parameter(description = "Number of the page, starting from 0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of properties in a page, at most 100")
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(userService.getFavoriteProperties(username, page, size));
     }
 
     /**
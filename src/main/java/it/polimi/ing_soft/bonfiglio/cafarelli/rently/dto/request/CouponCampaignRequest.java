@@ -0,0 +1,40 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO for generating a coupon campaign.
+ * Every generated coupon shares the same discount and expiry date and gets its own unique code.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponCampaignRequest {
+    @Min(value = 1, message = "At least one coupon must be generated")
+    @Max(value = 1_000_000, message = "At most one million coupons can be generated at once")
+    private int count;
+    @Pattern(regexp = "[A-Z0-9-]{0,20}", message = "The prefix can only contain up to 20 uppercase letters, digits and dashes")
+    private String prefix;
+    @Min(value = 6, message = "The random part of the code must be at least 6 characters long")
+    @Max(value = 12, message = "The random part of the code must be at most 12 characters long")
+    private int codeLength = 10;
+    @PositiveOrZero(message = "Discount amount cannot be less than zero")
+    private BigDecimal discountAmount;
+    @PositiveOrZero(message = "Discount percentage cannot be less than zero")
+    @Max(value = 100, message = "Discount percentage cannot be more than 100")
+    private BigDecimal discountPercentage;
+    @NotNull(message = "Expiry date is mandatory")
+    @Future(message = "Expiry date must be in the future")
+    private LocalDate expiryDate;
+
+    @AssertTrue(message = "A coupon needs a discount amount or a discount percentage")
+    public boolean isDiscountPresent() {
+        return discountAmount != null || discountPercentage != null;
+    }
+}
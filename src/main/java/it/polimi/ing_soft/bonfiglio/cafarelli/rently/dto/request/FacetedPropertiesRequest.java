@@ -0,0 +1,40 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * DTO for a faceted search of the properties of a city.
+ * Every facet filter holds the labels of the selected buckets, as returned in the facet counts;
+ * an empty filter does not restrict the results. The dates are optional.
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedPropertiesRequest {
+    @NotBlank(message = "Please select a city")
+    private String city;
+    @Future(message = "Check-in date cannot be in the past")
+    private LocalDate checkInDate;
+    @Future(message = "Check-out date cannot be in the past")
+    private LocalDate checkOutDate;
+    private Set<String> price = new HashSet<>();
+    private Set<String> bedrooms = new HashSet<>();
+    private Set<String> bathrooms = new HashSet<>();
+    private Set<String> maxGuests = new HashSet<>();
+    @Min(value = 0, message = "Page cannot be negative")
+    private int page;
+    @Min(value = 1, message = "Page size must be at least 1")
+    @Max(value = 100, message = "Page size cannot exceed 100")
+    private int size = 20;
+}
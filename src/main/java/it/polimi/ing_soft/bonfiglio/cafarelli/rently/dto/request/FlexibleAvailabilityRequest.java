@@ -0,0 +1,36 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for requesting the properties of a city that can host a stay of a given length
+ * anywhere inside a window of dates, e.g. "any 3 nights in the next two weeks".
+ */
+
+@Data
+@AllArgsConstructor
+public class FlexibleAvailabilityRequest {
+    @NotBlank(message = "Please select a city")
+    String city;
+    @NotNull(message = "Please enter the earliest Check-in date")
+    @Future(message = "Check-in date cannot be in the past")
+    LocalDate earliestCheckInDate;
+    @NotNull(message = "Please enter the latest Check-out date")
+    @Future(message = "Check-out date cannot be in the past")
+    LocalDate latestCheckOutDate;
+    @Min(value = 1, message = "Please enter at least one night")
+    @Max(value = 30, message = "A stay cannot be longer than 30 nights")
+    int nights;
+    @Min(value = 1, message = "Please enter at least one adult")
+    int numOfAdults;
+    @Min(value = 0, message = "Number of children must not be less than zero")
+    int numOfChildren;
+}
@@ -0,0 +1,52 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for requesting the properties inside the visible area of a map.
+ * When {@code west} is greater than {@code east} the area crosses the antimeridian.
+ * The dates are optional: without them only the number of guests is checked.
+ */
+
+@Data
+@AllArgsConstructor
+public class MapAreaPropertiesRequest {
+    @NotNull(message = "Please enter the southern latitude")
+    @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90", message = "Latitude must be between -90 and 90")
+    Double south;
+    @NotNull(message = "Please enter the western longitude")
+    @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180", message = "Longitude must be between -180 and 180")
+    Double west;
+    @NotNull(message = "Please enter the northern latitude")
+    @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90", message = "Latitude must be between -90 and 90")
+    Double north;
+    @NotNull(message = "Please enter the eastern longitude")
+    @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180", message = "Longitude must be between -180 and 180")
+    Double east;
+    @Future(message = "Check-in date cannot be in the past")
+    LocalDate checkInDate;
+    @Future(message = "Check-out date cannot be in the past")
+    LocalDate checkOutDate;
+    @Min(value = 1, message = "Please enter at least one adult")
+    int numOfAdults;
+    @Min(value = 0, message = "Number of children must not be less than zero")
+    int numOfChildren;
+
+    @AssertTrue(message = "The southern latitude cannot be above the northern one")
+    public boolean isValidArea() {
+        return south == null || north == null || south <= north;
+    }
+}
@@ -0,0 +1,42 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for requesting the properties within a distance from a point.
+ * The dates are optional: without them only the number of guests is checked.
+ */
+
+@Data
+@AllArgsConstructor
+public class NearbyPropertiesRequest {
+    @NotNull(message = "Please enter the latitude")
+    @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90", message = "Latitude must be between -90 and 90")
+    Double latitude;
+    @NotNull(message = "Please enter the longitude")
+    @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180", message = "Longitude must be between -180 and 180")
+    Double longitude;
+    @NotNull(message = "Please enter the radius")
+    @Positive(message = "Radius must be positive")
+    @DecimalMax(value = "200", message = "Radius cannot exceed 200 km")
+    Double radiusKm;
+    @Future(message = "Check-in date cannot be in the past")
+    LocalDate checkInDate;
+    @Future(message = "Check-out date cannot be in the past")
+    LocalDate checkOutDate;
+    @Min(value = 1, message = "Please enter at least one adult")
+    int numOfAdults;
+    @Min(value = 0, message = "Number of children must not be less than zero")
+    int numOfChildren;
+}
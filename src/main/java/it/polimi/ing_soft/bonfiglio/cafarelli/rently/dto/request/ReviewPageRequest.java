@@ -0,0 +1,29 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for requesting a page of reviews.
+ * The first page is requested without a cursor, the following ones with the cursor returned by the previous page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewPageRequest {
+
+    @NotNull(message = "Sort is required")
+    private ReviewSort sort = ReviewSort.CREATED_AT;
+
+    private String cursor;
+
+    @Min(value = 1, message = "Page size must be at least 1")
+    @Max(value = 100, message = "Page size cannot exceed 100")
+    private int size = 20;
+
+    private boolean withHostResponse;
+}
@@ -0,0 +1,26 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Orders available for review listings, newest or best rated first.
+ * Ties are broken by the review ID, so every review has a stable position for keyset pagination.
+ */
+@Getter
+@AllArgsConstructor
+public enum ReviewSort {
+    CREATED_AT("createdAt", LocalDateTime::parse),
+    RATING("rating", Integer::valueOf);
+
+    private final String property;
+    private final Function<String, Object> parser;
+
+    public Sort toSort() {
+        return Sort.by(Sort.Order.desc(property), Sort.Order.desc("id"));
+    }
+}
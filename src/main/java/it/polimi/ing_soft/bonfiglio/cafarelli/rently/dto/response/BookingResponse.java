@@ -0,0 +1,47 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A booking as returned by the booking listings, with the few property details they show
+ * and the user referred to by ID, instead of the whole entity graph.
+ */
+@Data
+@AllArgsConstructor
+public class BookingResponse {
+    private Long id;
+    private String bookingConfirmationCode;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private int numOfAdults;
+    private int numOfChildren;
+    private BigDecimal total;
+    private BookingStatus status;
+    private Long userId;
+    private Long propertyId;
+    private String propertyTitle;
+    private String propertyCity;
+
+    public static BookingResponse fromEntity(Booking booking) {
+        return new BookingResponse(
+                booking.getId(),
+                booking.getBookingConfirmationCode(),
+                booking.getCheckInDate(),
+                booking.getCheckOutDate(),
+                booking.getNumOfAdults(),
+                booking.getNumOfChildren(),
+                booking.getTotal(),
+                booking.getStatus(),
+                booking.getUser() != null ? booking.getUser().getId() : null,
+                booking.getProperty() != null ? booking.getProperty().getId() : null,
+                booking.getProperty() != null ? booking.getProperty().getTitle() : null,
+                booking.getProperty() != null ? booking.getProperty().getCity() : null
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO exposing the hit/miss counters of an in-memory cache.
+ */
+@Data
+@AllArgsConstructor
+public class CacheStatsResponse {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int size;
+    private double hitRatio;
+}
@@ -0,0 +1,21 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO for a page of a keyset paginated listing.
+ *
+ * @param <T> the type of the listed items
+ */
+@Data
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> items;
+    /**
+     * Cursor of the next page, or null if this is the last page.
+     */
+    private String nextCursor;
+}
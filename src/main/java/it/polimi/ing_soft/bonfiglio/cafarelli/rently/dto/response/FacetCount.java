@@ -0,0 +1,14 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO for the number of properties in a bucket of a facet.
+ */
+@Data
+@AllArgsConstructor
+public class FacetCount {
+    private String bucket;
+    private int count;
+}
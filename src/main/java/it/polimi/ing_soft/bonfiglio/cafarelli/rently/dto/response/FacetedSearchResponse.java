@@ -0,0 +1,25 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for a page of a faceted property search.
+ */
+@Data
+@AllArgsConstructor
+public class FacetedSearchResponse {
+    private List<Property> properties;
+    /**
+     * Number of properties matching every filter, across all pages.
+     */
+    private int total;
+    /**
+     * Bucket counts of every facet, each one computed with the filters of the other facets only.
+     */
+    private Map<String, List<FacetCount>> facets;
+}
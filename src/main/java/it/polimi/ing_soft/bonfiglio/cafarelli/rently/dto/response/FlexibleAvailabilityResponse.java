@@ -0,0 +1,21 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for a property matching a flexible-date search.
+ */
+@Data
+@AllArgsConstructor
+public class FlexibleAvailabilityResponse {
+    private Property property;
+    /**
+     * Every date, in ascending order, on which the requested stay can start.
+     */
+    private List<LocalDate> checkInDates;
+}
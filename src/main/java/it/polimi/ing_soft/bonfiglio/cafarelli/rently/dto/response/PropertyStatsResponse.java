@@ -0,0 +1,16 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO exposing the audience of a property on the host dashboard.
+ */
+@Data
+@AllArgsConstructor
+public class PropertyStatsResponse {
+    private Long propertyId;
+    private String title;
+    private long viewCount;
+    private long favoriteCount;
+}
@@ -44,6 +44,19 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.CONFLICT);
     }
 
+    /**
+     * Handles exceptions thrown when a limited coupon has no redemptions left.
+     *
+     * @param e the thrown CouponSoldOutException
+     * @return a ResponseEntity with the error message and HTTP 409 status
+     */
+
+    @ExceptionHandler(CouponSoldOutException.class)
+    public ResponseEntity<CustomResponse> handleCouponSoldOutException(CouponSoldOutException e) {
+        CustomResponse response = new CustomResponse(e.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
     /**
      * Handles exceptions thrown during entity deletion.
      *
@@ -0,0 +1,7 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom;
+
+public class CouponSoldOutException extends RuntimeException {
+    public CouponSoldOutException() {
+        super("Coupon has no redemptions left");
+    }
+}
@@ -0,0 +1,14 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A booking as exported, referring to its user and property by ID.
+ */
+public record BookingExportRow(Long id, String bookingConfirmationCode, Long userId, Long propertyId,
+                               LocalDate checkInDate, LocalDate checkOutDate, int numOfAdults, int numOfChildren,
+                               BigDecimal total, BookingStatus status) {
+}
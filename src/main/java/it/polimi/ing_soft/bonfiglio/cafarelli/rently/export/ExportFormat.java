@@ -0,0 +1,38 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+/**
+ * The formats of the exports: one JSON object per line, or comma-separated values with a header line.
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    public static ExportFormat fromString(String format) {
+        for (ExportFormat exportFormat : ExportFormat.values()) {
+            if (exportFormat.name().equalsIgnoreCase(format)) {
+                return exportFormat;
+            }
+        }
+        throw new DataValidationException("Unknown export format: " + format);
+    }
+
+    /**
+     * Returns the value of the Content-Disposition header making the export a download.
+     *
+     * @param name the name of the exported file, without extension
+     * @return the header value
+     */
+    public String attachment(String name) {
+        return "attachment; filename=\"" + name + "." + extension + "\"";
+    }
+}
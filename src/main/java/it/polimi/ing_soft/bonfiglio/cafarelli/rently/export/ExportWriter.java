@@ -0,0 +1,87 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of export rows to an output stream as they come, so an export holds one row in memory
+ * whatever its size. In CSV the header lists the components of the row record.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExportWriter {
+
+    /**
+     * Rows fetched per round trip by the export queries, which are read forward only.
+     */
+    public static final String FETCH_SIZE = "1000";
+
+    private final ObjectMapper objectMapper;
+
+    public <T extends Record> void write(Stream<T> rows, Class<T> type, ExportFormat format, OutputStream out) {
+        RecordComponent[] components = type.getRecordComponents();
+        try {
+            // Not closed, the output stream belongs to the caller
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (format == ExportFormat.CSV) {
+                writer.write(Arrays.stream(components).map(RecordComponent::getName).collect(Collectors.joining(",")));
+                writer.write('\n');
+            }
+            for (Iterator<T> iterator = rows.iterator(); iterator.hasNext(); ) {
+                T row = iterator.next();
+                writer.write(format == ExportFormat.CSV ? toCsv(row, components) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCsv(Record row, RecordComponent[] components) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < components.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value;
+            try {
+                value = components[i].getAccessor().invoke(row);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not read " + components[i].getName(), e);
+            }
+            if (value != null) {
+                line.append(value instanceof String text ? escape(text) : value.toString());
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Quotes a text value when needed, and defuses the ones a spreadsheet would run as formulas.
+     */
+    static String escape(String text) {
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.chars().anyMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,10 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import java.time.LocalDateTime;
+
+/**
+ * A review as exported, referring to its reviewer and to the reviewed property or user by ID.
+ */
+public record ReviewExportRow(long id, Long reviewerId, Long propertyId, Long reviewedUserId, int rating, String title,
+                              String description, LocalDateTime createdAt, String hostResponse) {
+}
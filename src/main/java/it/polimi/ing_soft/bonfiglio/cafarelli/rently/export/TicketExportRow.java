@@ -0,0 +1,12 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * A ticket as exported, referring to its user by ID.
+ */
+public record TicketExportRow(Long id, String title, String description, TicketStatus status, Long userId,
+                              LocalDateTime creationDate, LocalDateTime closingDate) {
+}
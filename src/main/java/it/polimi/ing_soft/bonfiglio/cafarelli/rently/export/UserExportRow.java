@@ -0,0 +1,13 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Role;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A user as exported, without credentials.
+ */
+public record UserExportRow(Long id, String username, String email, String firstname, String lastname, Role role,
+                            boolean active, BigDecimal balance, LocalDateTime createdAt) {
+}
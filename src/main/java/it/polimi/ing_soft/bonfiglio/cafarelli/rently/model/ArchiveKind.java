@@ -0,0 +1,10 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
+
+/**
+ * The kinds of records moved to the archive.
+ */
+public enum ArchiveKind {
+    BOOKING,
+    CHAT_MESSAGE,
+    TICKET
+}
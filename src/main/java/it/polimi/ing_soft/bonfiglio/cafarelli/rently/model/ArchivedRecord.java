@@ -0,0 +1,43 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * This class represents a record moved out of its primary table by the archiver.
+ * The record itself is kept as a compressed JSON snapshot: only the keys of the historical lookups,
+ * the ID of the original row and, for bookings, the confirmation code, are indexed.
+ */
+@Data
+@Entity
+@Table(name = "archived_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_archived_record_source", columnNames = {"kind", "source_id"}),
+        indexes = @Index(name = "idx_archived_record_lookup", columnList = "kind, lookup_key"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private ArchiveKind kind;
+
+    @Column(name = "source_id", nullable = false)
+    private Long sourceId;
+
+    @Column(name = "lookup_key")
+    private String lookupKey;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    @Column(nullable = false, length = 16_777_215)
+    private byte[] payload;
+}
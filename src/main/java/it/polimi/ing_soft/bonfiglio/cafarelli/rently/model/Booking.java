@@ -1,5 +1,6 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.Min;
@@ -12,14 +13,21 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * This class represents a booking made by a user for a property.
  * It contains information about the booking such as check-in and check-out dates,
  * number of adults and children, total price, confirmation code, user and property details.
+ * A booking starts as a {@link BookingStatus#PENDING} hold that expires at {@code holdExpiresAt}
+ * and becomes {@link BookingStatus#CONFIRMED} once the payment succeeds. Cancelled bookings are kept
+ * as {@link BookingStatus#CANCELLED}.
+ * The index on the stays of the active bookings, and on PostgreSQL the exclusion constraint rejecting
+ * overlapping stays, are managed by {@code BookingSchemaInitializer}.
  */
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_booking_user_property_check_out", columnList = "user_id, property_id, check_out_date"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Booking implements Serializable {
@@ -56,5 +64,9 @@ public class Booking implements Serializable {
     @JoinColumn(name = "property_id")
     private Property property;
 
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
 
+    @JsonIgnore
+    private LocalDateTime holdExpiresAt;
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
+
+/**
+ * Enum representing the status of a booking.
+ * The status can be one of the following:
+ * - PENDING: The dates are held for the customer while the payment is processed.
+ * - CONFIRMED: The payment succeeded and the booking is final.
+ * - CANCELLED: The booking was cancelled and its dates are free again. The row is kept for the history.
+ * - COMPLETED: The stay is over.
+ * Only PENDING and CONFIRMED bookings take dates, and only they are covered by the partial indexes on the bookings.
+ */
+public enum BookingStatus {
+    PENDING,
+    CONFIRMED,
+    CANCELLED,
+    COMPLETED;
+
+    public static BookingStatus fromString(String status) {
+        for (BookingStatus bookingStatus : BookingStatus.values()) {
+            if (bookingStatus.name().equalsIgnoreCase(status)) {
+                return bookingStatus;
+            }
+        }
+        throw new IllegalArgumentException("Unknown status: " + status);
+    }
+}
@@ -1,10 +1,12 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponCacheListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -15,10 +17,11 @@ import java.util.List;
 
 /**
  * This class represents a coupon that can be used for discounts on bookings.
- * It contains information about the coupon code, discount amount, percentage, and expiry date.
+ * It contains information about the coupon code, discount amount, percentage, expiry date and redemption limit.
  */
 @Data
 @Entity
+@EntityListeners(CouponCacheListener.class)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Coupon implements Serializable {
@@ -29,7 +32,7 @@ public class Coupon implements Serializable {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(nullable = false, unique = true)
     private String code;
 
     @Column
@@ -41,11 +44,26 @@ public class Coupon implements Serializable {
     @Column(nullable = false)
     private LocalDate expiryDate;
 
+    /**
+     * How many times the coupon can be redeemed in total, or null when there is no limit.
+     */
+    @Column
+    private Integer maxRedemptions;
+
+    /**
+     * How many times the coupon was redeemed, only written by {@code CouponRepository#incrementRedemptionCount}.
+     */
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int redemptionCount;
+
     @JsonIgnore
     @ManyToMany(cascade = CascadeType.ALL)
     @JoinTable(name="used_coupon",
             joinColumns = @JoinColumn(name="code"),
-            inverseJoinColumns = @JoinColumn(name="user_id"))
+            inverseJoinColumns = @JoinColumn(name="user_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_used_coupon_code_user", columnNames = {"code", "user_id"}))
 
     private List<User> users = new ArrayList<>();
 }
@@ -0,0 +1,66 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * This class represents a property marked as favorite by a user.
+ * The pair of user and property is the primary key, so a property is among the favorites of a user at most once,
+ * and rows are inserted and deleted one by one instead of rewriting the whole list of the user.
+ */
+@Data
+@Entity
+@Table(name = "user_favorites",
+        indexes = @Index(name = "idx_user_favorites_user_created_at", columnList = "user_id, created_at"))
+@IdClass(FavoriteProperty.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class FavoriteProperty implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "property_id")
+    private Long propertyId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "property_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Property property;
+
+    @Column(name = "created_at", nullable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    private LocalDateTime createdAt;
+
+    /**
+     * Primary key of a favorite.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private Long propertyId;
+    }
+}
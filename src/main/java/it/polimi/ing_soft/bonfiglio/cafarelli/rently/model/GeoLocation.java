@@ -0,0 +1,43 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * This class represents an entry of the local geocoding table.
+ * It maps a city, in its state and country, to the coordinates used to place the properties located there.
+ */
+@Data
+@Entity
+@Table(name = "geo_location",
+        uniqueConstraints = @UniqueConstraint(name = "uk_geo_location_place", columnNames = {"city", "state", "country"}),
+        indexes = @Index(name = "idx_geo_location_city_country", columnList = "city, country"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoLocation implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String city;
+
+    private String state;
+
+    @Column(nullable = false)
+    private String country;
+
+    @Column(nullable = false)
+    private double latitude;
+
+    @Column(nullable = false)
+    private double longitude;
+}
@@ -6,6 +6,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -20,12 +22,21 @@ import java.util.List;
  */
 @Data
 @Entity
+@NamedEntityGraph(name = Property.WITH_HOST_AND_IMAGES, attributeNodes = {
+        @NamedAttributeNode("host"),
+        @NamedAttributeNode("propertyImages")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Property implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Fetch plan loading the host and the images together with the property, as needed to serialize it.
+     */
+    public static final String WITH_HOST_AND_IMAGES = "Property.withHostAndImages";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -52,6 +63,10 @@ public class Property implements Serializable {
     @Column(nullable = false)
     private String country;
 
+    private Double latitude;
+
+    private Double longitude;
+
     @Column(precision = 10, scale = 2, nullable = false)
     private BigDecimal pricePerNight;
 
@@ -73,9 +88,20 @@ public class Property implements Serializable {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
-    @JsonIgnore
-    @ManyToMany(mappedBy = "favorite", cascade = CascadeType.ALL)
-    private List<User> favoritedBy;
+    /**
+     * Number of users having the property among their favorites, updated in batches by {@code PropertyFavoriteCounter}.
+     * Saving the property never writes it, so the batched deltas are not overwritten by stale copies.
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private long favoriteCount;
+
+    /**
+     * Number of times the details of the property were served, updated in batches by {@code PropertyViewCounter}.
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private long viewCount;
 
     @JsonIgnore
     @OneToMany(mappedBy = "property", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
@@ -83,12 +109,16 @@ public class Property implements Serializable {
 
     @CollectionTable(name = "property_image", joinColumns = @JoinColumn(name = "propertyId"))
     @ElementCollection
+    @BatchSize(size = 50)
     private List<String> propertyImages = new ArrayList<>();
 
     @JsonIgnore
     @OneToMany(mappedBy = "property", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Review> reviews = new ArrayList<>();
 
+    @Embedded
+    private RatingSummary rating = new RatingSummary();
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -0,0 +1,64 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * This class represents the aggregated ratings received by a property or a user.
+ * It is stored in the row of its owner and kept up to date at every review change,
+ * so the average rating is available without reading the reviews.
+ * The columns are only written by the delta updates of the repositories: saving the owner never
+ * writes them, so a stale copy of the entity cannot erase ratings added in the meantime.
+ */
+@Data
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummary implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    private long count;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    private long sum;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_one_star", nullable = false, insertable = false, updatable = false)
+    private long oneStar;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_two_stars", nullable = false, insertable = false, updatable = false)
+    private long twoStars;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_three_stars", nullable = false, insertable = false, updatable = false)
+    private long threeStars;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_four_stars", nullable = false, insertable = false, updatable = false)
+    private long fourStars;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_five_stars", nullable = false, insertable = false, updatable = false)
+    private long fiveStars;
+
+    /**
+     * Returns the average rating, or 0 when there are no ratings yet.
+     *
+     * @return the average rating
+     */
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
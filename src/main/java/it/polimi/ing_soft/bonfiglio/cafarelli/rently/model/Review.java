@@ -11,6 +11,16 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_review_property_created_at", columnList = "property_id, created_at"),
+        @Index(name = "idx_review_property_rating", columnList = "property_id, rating"),
+        @Index(name = "idx_review_reviewed_user_created_at", columnList = "reviewed_user_id, created_at"),
+        @Index(name = "idx_review_reviewed_user_rating", columnList = "reviewed_user_id, rating, id"),
+        @Index(name = "idx_review_reviewer_created_at", columnList = "reviewer_id, created_at"),
+        @Index(name = "idx_review_reviewer_rating", columnList = "reviewer_id, rating, id"),
+        @Index(name = "idx_review_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_review_rating", columnList = "rating, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,25 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.listeners;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex.Signal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TrendingListener implements EventListener {
+
+    private final PropertyTrendingIndex propertyTrendingIndex;
+
+    @Override
+    public void update(String eventType, Object data) {
+        if ("BOOKING_CREATED".equals(eventType) && data instanceof Booking booking) {
+            propertyTrendingIndex.record(booking.getProperty().getId(), Signal.BOOKING);
+        } else if ("PROPERTY_FAVORITED".equals(eventType) && data instanceof Long propertyId) {
+            propertyTrendingIndex.record(propertyId, Signal.FAVORITE);
+        } else if ("PROPERTY_VIEWED".equals(eventType) && data instanceof Long propertyId) {
+            propertyTrendingIndex.record(propertyId, Signal.VIEW);
+        }
+    }
+}
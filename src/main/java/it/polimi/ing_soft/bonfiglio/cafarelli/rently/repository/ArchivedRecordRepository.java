@@ -0,0 +1,46 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ArchiveKind;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ArchivedRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for managing ArchivedRecord entities.
+ * It extends JpaRepository to provide CRUD operations and custom query methods.
+ */
+@Repository
+public interface ArchivedRecordRepository extends JpaRepository<ArchivedRecord, Long> {
+
+    /**
+     * Finds an archived record by the ID it had in its primary table.
+     *
+     * @param kind the kind of the record
+     * @param sourceId the ID of the original row
+     * @return an Optional containing the archived record if found, or empty if not found
+     */
+    Optional<ArchivedRecord> findByKindAndSourceId(ArchiveKind kind, Long sourceId);
+
+    /**
+     * Finds an archived record by its lookup key, such as the confirmation code of a booking.
+     *
+     * @param kind the kind of the record
+     * @param lookupKey the lookup key of the record
+     * @return an Optional containing the archived record if found, or empty if not found
+     */
+    Optional<ArchivedRecord> findFirstByKindAndLookupKey(ArchiveKind kind, String lookupKey);
+
+    /**
+     * Finds a page of the archived records sharing a lookup key, such as the batches of a conversation.
+     *
+     * @param kind the kind of the records
+     * @param lookupKey the lookup key of the records
+     * @param pageable the page and order of the records
+     * @return the archived records of the page
+     */
+    List<ArchivedRecord> findByKindAndLookupKey(ArchiveKind kind, String lookupKey, Pageable pageable);
+}
@@ -1,15 +1,31 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookedStay;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.ExpiredHold;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.BookingExportRow;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportWriter;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.BookedInterval;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Booking entities.
@@ -19,29 +35,53 @@ import java.util.Optional;
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     /**
-     * Finds a Booking by its confirmation code.
+     * JPQL condition, on a booking aliased {@code b}, selecting the bookings that take dates.
+     * It is written with literals so that it matches the predicate of the partial indexes on PostgreSQL.
+     */
+    String ACTIVE = "b.status IN (it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.PENDING, " +
+            "it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.CONFIRMED)";
+
+    /**
+     * JPQL select clause, on a booking aliased {@code b} left-joined to its property aliased {@code p},
+     * building the flat response of the booking listings.
+     */
+    String RESPONSE = "SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse(" +
+            "b.id, b.bookingConfirmationCode, b.checkInDate, b.checkOutDate, b.numOfAdults, b.numOfChildren, " +
+            "b.total, b.status, b.user.id, p.id, p.title, p.city) FROM Booking b LEFT JOIN b.property p ";
+
+    /**
+     * Finds a booking by its confirmation code.
      *
      * @param confirmationCode the confirmation code of the booking
-     * @return an Optional containing the Booking if found, or empty if not found
+     * @return an Optional containing the booking if found, or empty if not found
      */
+    @Query(RESPONSE + "WHERE b.bookingConfirmationCode = :confirmationCode")
+    Optional<BookingResponse> findResponseByConfirmationCode(@Param("confirmationCode") String confirmationCode);
 
-    Optional<Booking> findByBookingConfirmationCode(String confirmationCode);
+    /**
+     * Finds all the bookings, the latest first.
+     *
+     * @return the bookings
+     */
+    @Query(RESPONSE + "ORDER BY b.id DESC")
+    List<BookingResponse> findAllResponses();
 
     /**
-     * Finds all Bookings associated with a specific user.
+     * Finds all the bookings of a user.
      *
      * @param userId the ID of the user
-     * @return a List of Bookings associated with the user
+     * @return the bookings of the user
      */
-
-    List<Booking> findByUserId(Long userId);
+    @Query(RESPONSE + "WHERE b.user.id = :userId")
+    List<BookingResponse> findResponsesByUserId(@Param("userId") Long userId);
 
 
     @Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END " +
             "FROM Booking b " +
             "JOIN b.property p " +
             "WHERE p.host = :host " +
-            "AND b.user = :customer ")
+            "AND b.user = :customer " +
+            "AND b.status <> it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.CANCELLED")
 
     /**
      * Checks if a booking exists for a given host and customer.
@@ -55,24 +95,212 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
                                              @Param("customer") User customer
                                              );
 
+    /**
+     * Checks if a user has a confirmed stay at a property that ended before the given date.
+     * The lookup is served by the (user_id, property_id, check_out_date) index, whatever the booking history of the user.
+     *
+     * @param userId the ID of the user
+     * @param propertyId the ID of the property
+     * @param date the reference date
+     * @return true if such a stay exists, false otherwise
+     */
+    @Query("SELECT COUNT(b) > 0 FROM Booking b " +
+           "WHERE b.user.id = :userId AND b.property.id = :propertyId " +
+           "AND b.checkOutDate < :date " +
+           "AND b.status IN (it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.CONFIRMED, " +
+           "it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.COMPLETED)")
+    boolean existsConcludedStay(@Param("userId") Long userId,
+                                @Param("propertyId") Long propertyId,
+                                @Param("date") LocalDate date);
+
     Booking findByCheckInDateOrCheckOutDate(LocalDate checkInDate, LocalDate checkOutDate);
 
+    /**
+     * Checks if a property has a booking, or a live hold, sharing at least a night with a date range.
+     * Only the active bookings are scanned, through the index on the active stays.
+     *
+     * @param propertyId the ID of the property
+     * @param checkInDate the check-in date of the requested stay
+     * @param checkOutDate the check-out date of the requested stay
+     * @return true if the dates are taken, false otherwise
+     */
     @Query("SELECT COUNT(b) > 0 FROM Booking b " +
            "WHERE b.property.id = :propertyId " +
-           "AND (" +
-           "   :checkInDate = b.checkInDate " +
-           "   OR :checkOutDate = b.checkOutDate " +
-           "   OR (:checkInDate > b.checkInDate AND :checkInDate < b.checkOutDate) " +
-           "   OR (:checkOutDate > b.checkInDate AND :checkOutDate < b.checkOutDate) " +
-           "   OR (:checkInDate < b.checkInDate AND :checkOutDate > b.checkOutDate)" +
-           ")")
+           "AND b.checkOutDate > :checkInDate AND b.checkInDate < :checkOutDate AND " + ACTIVE + " " +
+           "AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt > CURRENT_TIMESTAMP)")
     boolean existsOverlappingBooking(@Param("propertyId") Long propertyId, 
                                     @Param("checkInDate") LocalDate checkInDate, 
                                     @Param("checkOutDate") LocalDate checkOutDate);
 
-    List<Booking> findByProperty_Host_Id(Long hostId);
+    /**
+     * Finds the properties of a city that are booked, or held, for part of a date range.
+     *
+     * @param city the city of the properties
+     * @param checkInDate the check-in date of the requested stay
+     * @param checkOutDate the check-out date of the requested stay
+     * @return the IDs of the booked properties
+     */
+    @Query("SELECT DISTINCT b.property.id FROM Booking b " +
+           "WHERE LOWER(b.property.city) = LOWER(:city) " +
+           "AND :checkInDate < b.checkOutDate AND :checkOutDate > b.checkInDate AND " + ACTIVE + " " +
+           "AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt > CURRENT_TIMESTAMP)")
+    Set<Long> findBookedPropertyIds(@Param("city") String city,
+                                    @Param("checkInDate") LocalDate checkInDate,
+                                    @Param("checkOutDate") LocalDate checkOutDate);
+
+    /**
+     * Finds the dates taken, by a booking or a pending hold, in the properties of a city during a window.
+     * The intervals are sorted by property and check-in date, so each property can be swept in one pass.
+     *
+     * @param city the city of the properties
+     * @param from the first day of the window
+     * @param to the last day of the window
+     * @return the taken intervals overlapping the window
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.BookedInterval(" +
+           "b.property.id, b.checkInDate, b.checkOutDate) FROM Booking b " +
+           "WHERE LOWER(b.property.city) = LOWER(:city) " +
+           "AND b.checkInDate < :to AND b.checkOutDate > :from AND " + ACTIVE + " " +
+           "AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt > CURRENT_TIMESTAMP) " +
+           "ORDER BY b.property.id, b.checkInDate")
+    List<BookedInterval> findBookedIntervals(@Param("city") String city,
+                                             @Param("from") LocalDate from,
+                                             @Param("to") LocalDate to);
+
+    /**
+     * Finds the bookings and live holds of a property that end after a given date.
+     *
+     * @param propertyId the ID of the property
+     * @param date the reference date
+     * @return the upcoming stays of the property
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookedStay(" +
+           "b.id, b.checkInDate, b.checkOutDate, b.holdExpiresAt) FROM Booking b " +
+           "WHERE b.property.id = :propertyId AND b.checkOutDate > :date AND " + ACTIVE + " " +
+           "AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt > CURRENT_TIMESTAMP)")
+    List<BookedStay> findUpcomingStays(@Param("propertyId") Long propertyId, @Param("date") LocalDate date);
+
+    /**
+     * Finds the bookings of the properties of a host, leaving out the ones with a given status.
+     *
+     * @param hostId the ID of the host
+     * @param status the status to leave out
+     * @return the bookings of the host
+     */
+    List<Booking> findByProperty_Host_IdAndStatusNot(Long hostId, BookingStatus status);
 
     boolean existsByPropertyId(Long propertyId);
 
+    /**
+     * Finds a batch of the bookings with one of the given statuses whose stay ended before a date.
+     *
+     * @param statuses the statuses of the bookings
+     * @param date the reference date
+     * @param pageable the size and order of the batch
+     * @return the bookings of the batch
+     */
+    List<Booking> findByStatusInAndCheckOutDateBefore(Collection<BookingStatus> statuses, LocalDate date, Pageable pageable);
+
+    /**
+     * Turns a pending hold into a booking with the given status.
+     * The update only applies while the hold still exists, is pending and has not expired yet: an expired
+     * hold may already have been replaced by another stay on the same dates. The check-out date lets a
+     * partitioned table look the row up in its partition only.
+     *
+     * @param bookingId the ID of the held booking
+     * @param checkOutDate the check-out date of the held booking
+     * @param status the status the booking moves to
+     * @param now the reference instant
+     * @return the number of updated rows, 0 if the hold was already released or expired
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :status, b.holdExpiresAt = NULL " +
+           "WHERE b.id = :bookingId AND b.checkOutDate = :checkOutDate " +
+           "AND b.holdExpiresAt IS NOT NULL AND b.holdExpiresAt > :now")
+    int confirmHold(@Param("bookingId") Long bookingId,
+                    @Param("checkOutDate") LocalDate checkOutDate,
+                    @Param("status") BookingStatus status,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Cancels a confirmed booking, updating its status only so the row and its history are kept.
+     * The check-out date lets a partitioned table look the row up in its partition only.
+     *
+     * @param bookingId the ID of the booking
+     * @param checkOutDate the check-out date of the booking
+     * @return the number of updated rows, 0 if the booking was not confirmed anymore
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.CANCELLED " +
+           "WHERE b.id = :bookingId AND b.checkOutDate = :checkOutDate " +
+           "AND b.status = it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.CONFIRMED")
+    int cancel(@Param("bookingId") Long bookingId, @Param("checkOutDate") LocalDate checkOutDate);
+
+    /**
+     * Marks as completed the confirmed bookings whose stay ended by the given date,
+     * moving them out of the partial indexes on the active bookings.
+     *
+     * @param date the reference date
+     * @return the number of completed bookings
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.COMPLETED " +
+           "WHERE b.status = it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus.CONFIRMED " +
+           "AND b.checkOutDate <= :date")
+    int completeFinishedBookings(@Param("date") LocalDate date);
+
+    /**
+     * Finds the pending holds that expired before the given instant.
+     *
+     * @param now the reference instant
+     * @return the expired holds, with the property and dates they held
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.ExpiredHold(" +
+           "b.id, p.id, p.city, b.checkInDate, b.checkOutDate) FROM Booking b JOIN b.property p " +
+           "WHERE b.holdExpiresAt IS NOT NULL AND b.holdExpiresAt < :now")
+    List<ExpiredHold> findExpiredHolds(@Param("now") LocalDateTime now);
+
+    /**
+     * Deletes the given holds that expired before the given instant, leaving out the ones confirmed meanwhile.
+     *
+     * @param ids the IDs of the holds
+     * @param now the reference instant
+     * @return the number of released holds
+     */
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.id IN :ids AND b.holdExpiresAt IS NOT NULL AND b.holdExpiresAt < :now")
+    int deleteExpiredHolds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes the expired holds of a property that overlap a date range, which would otherwise violate
+     * the exclusion constraint when the dates are booked again before the holds are reaped.
+     *
+     * @param propertyId the ID of the property
+     * @param checkInDate the check-in date of the new stay
+     * @param checkOutDate the check-out date of the new stay
+     * @param now the reference instant
+     * @return the number of released holds
+     */
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.property.id = :propertyId " +
+           "AND b.checkOutDate > :checkInDate AND b.checkInDate < :checkOutDate " +
+           "AND b.holdExpiresAt IS NOT NULL AND b.holdExpiresAt < :now")
+    int deleteExpiredHolds(@Param("propertyId") Long propertyId,
+                           @Param("checkInDate") LocalDate checkInDate,
+                           @Param("checkOutDate") LocalDate checkOutDate,
+                           @Param("now") LocalDateTime now);
 
+    /**
+     * Streams all the bookings for an export, ordered by ID, as flat rows that never enter the persistence context.
+     * The rows are fetched forward only in chunks of {@link ExportWriter#FETCH_SIZE}: the stream must be consumed,
+     * and closed, within a transaction.
+     *
+     * @return the stream of the exported bookings
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ExportWriter.FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.BookingExportRow(b.id, " +
+           "b.bookingConfirmationCode, b.user.id, b.property.id, b.checkInDate, b.checkOutDate, " +
+           "b.numOfAdults, b.numOfChildren, b.total, b.status) FROM Booking b ORDER BY b.id")
+    Stream<BookingExportRow> streamAllForExport();
 }
@@ -2,10 +2,12 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ChatMessage;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -34,4 +36,13 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      * @return a list of distinct ChatMessage objects received by the specified user
      */
     List<ChatMessage> findDistinctByReceiver(User user);
+
+    /**
+     * Finds a batch of the chat messages sent before an instant.
+     *
+     * @param instant the reference instant
+     * @param pageable the size and order of the batch
+     * @return the chat messages of the batch
+     */
+    List<ChatMessage> findBySendAtBefore(LocalDateTime instant, Pageable pageable);
 }
@@ -2,6 +2,9 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,7 +14,7 @@ import java.util.Optional;
  * It extends JpaRepository to provide CRUD operations and custom query methods.
  */
 @Repository
-public interface CouponRepository extends JpaRepository<Coupon, Long> {
+public interface CouponRepository extends JpaRepository<Coupon, Long>, CouponRepositoryCustom {
 
     /**
      * Finds a Coupon by its code.
@@ -21,4 +24,48 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
      */
 
     Optional<Coupon> findByCode(String code);
-}
\ No newline at end of file
+
+    /**
+     * Checks if a user already redeemed a coupon.
+     * The lookup only touches the {@code used_coupon} join table and its unique index.
+     *
+     * @param couponId the ID of the coupon
+     * @param userId the ID of the user
+     * @return true if the user already redeemed the coupon, false otherwise
+     */
+    @Query("SELECT COUNT(u) > 0 FROM Coupon c JOIN c.users u WHERE c.id = :couponId AND u.id = :userId")
+    boolean existsRedemption(@Param("couponId") Long couponId, @Param("userId") Long userId);
+
+    /**
+     * Records that a user redeemed a coupon by inserting the join row directly,
+     * without loading the users who already redeemed it.
+     *
+     * @param couponId the ID of the coupon
+     * @param userId the ID of the user
+     */
+    @Modifying
+    @Query(value = "INSERT INTO used_coupon (code, user_id) VALUES (:couponId, :userId)", nativeQuery = true)
+    void insertRedemption(@Param("couponId") Long couponId, @Param("userId") Long userId);
+
+    /**
+     * Finds how many redemptions of a limited coupon are still available.
+     *
+     * @param couponId the ID of the coupon
+     * @return the remaining redemptions, or null if the coupon does not exist or has no limit
+     */
+    @Query("SELECT c.maxRedemptions - c.redemptionCount FROM Coupon c WHERE c.id = :couponId")
+    Integer findRemainingRedemptions(@Param("couponId") Long couponId);
+
+    /**
+     * Counts one redemption of a coupon, unless its limit was already reached.
+     * The check and the increment happen in a single conditional update, so concurrent redemptions
+     * can never push the counter past the limit.
+     *
+     * @param couponId the ID of the coupon
+     * @return 1 if the redemption was counted, 0 if the coupon is sold out
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.redemptionCount = c.redemptionCount + 1 " +
+            "WHERE c.id = :couponId AND (c.maxRedemptions IS NULL OR c.redemptionCount < c.maxRedemptions)")
+    int incrementRedemptionCount(@Param("couponId") Long couponId);
+}
@@ -0,0 +1,30 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Custom repository fragment for bulk coupon operations that bypass the persistence context.
+ */
+public interface CouponRepositoryCustom {
+
+    /**
+     * Finds which of the given codes are already used by a coupon.
+     *
+     * @param codes the codes to check
+     * @return the subset of codes that already exist
+     */
+    Set<String> findExistingCodes(Collection<String> codes);
+
+    /**
+     * Inserts one coupon per code with a single JDBC batch.
+     * Every coupon copies the discount and expiry date of the template.
+     *
+     * @param codes the codes of the new coupons
+     * @param template the coupon holding the shared discount and expiry date
+     */
+    void batchInsert(List<String> codes, Coupon template);
+}
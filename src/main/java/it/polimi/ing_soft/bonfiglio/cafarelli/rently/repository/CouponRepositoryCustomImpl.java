@@ -0,0 +1,52 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDBC implementation of {@link CouponRepositoryCustom}.
+ */
+@RequiredArgsConstructor
+public class CouponRepositoryCustomImpl implements CouponRepositoryCustom {
+
+    private static final String INSERT_COUPON =
+            "INSERT INTO coupon (code, discount_amount, discount_percentage, expiry_date, max_redemptions, redemption_count) " +
+            "VALUES (:code, :discountAmount, :discountPercentage, :expiryDate, :maxRedemptions, 0)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public Set<String> findExistingCodes(Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT code FROM coupon WHERE code IN (:codes)",
+                Map.of("codes", codes),
+                String.class));
+    }
+
+    @Override
+    public void batchInsert(List<String> codes, Coupon template) {
+        Date expiryDate = Date.valueOf(template.getExpiryDate());
+        SqlParameterSource[] batch = codes.stream()
+                .map(code -> new MapSqlParameterSource()
+                        .addValue("code", code)
+                        .addValue("discountAmount", template.getDiscountAmount())
+                        .addValue("discountPercentage", template.getDiscountPercentage())
+                        .addValue("expiryDate", expiryDate)
+                        .addValue("maxRedemptions", template.getMaxRedemptions()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT_COUPON, batch);
+    }
+}
@@ -0,0 +1,56 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.FavoriteProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for managing the favorite properties of the users.
+ * Favorites are added and removed with single-row statements, without loading the favorites of the user.
+ */
+@Repository
+public interface FavoritePropertyRepository extends JpaRepository<FavoriteProperty, FavoriteProperty.Key> {
+
+    /**
+     * Adds a property to the favorites of a user, unless it is already there.
+     *
+     * @param userId the ID of the user
+     * @param propertyId the ID of the property
+     * @return the number of inserted rows, 0 if the property was already a favorite or does not exist
+     */
+    @Modifying
+    @Query("INSERT INTO FavoriteProperty (userId, propertyId, createdAt) " +
+           "SELECT :userId, p.id, CURRENT_TIMESTAMP FROM Property p " +
+           "WHERE p.id = :propertyId " +
+           "AND NOT EXISTS (SELECT 1 FROM FavoriteProperty f WHERE f.userId = :userId AND f.propertyId = :propertyId)")
+    int addFavorite(@Param("userId") Long userId, @Param("propertyId") Long propertyId);
+
+    /**
+     * Removes a property from the favorites of a user.
+     *
+     * @param userId the ID of the user
+     * @param propertyId the ID of the property
+     * @return the number of deleted rows, 0 if the property was not a favorite
+     */
+    @Modifying
+    @Query("DELETE FROM FavoriteProperty f WHERE f.userId = :userId AND f.propertyId = :propertyId")
+    int removeFavorite(@Param("userId") Long userId, @Param("propertyId") Long propertyId);
+
+    /**
+     * Finds a page of the favorite properties of a user, the most recently added first.
+     * The lookup is served by the (user_id, created_at) index.
+     *
+     * @param userId the ID of the user
+     * @param pageable the page to retrieve
+     * @return the IDs of the favorite properties in the page
+     */
+    @Query("SELECT f.propertyId FROM FavoriteProperty f WHERE f.userId = :userId " +
+           "ORDER BY f.createdAt DESC, f.propertyId DESC")
+    List<Long> findPropertyIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+}
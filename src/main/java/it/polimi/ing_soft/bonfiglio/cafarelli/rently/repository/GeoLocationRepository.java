@@ -0,0 +1,36 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.GeoLocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for managing the entries of the local geocoding table.
+ * It extends JpaRepository to provide CRUD operations and custom query methods.
+ */
+@Repository
+public interface GeoLocationRepository extends JpaRepository<GeoLocation, Long> {
+
+    /**
+     * Finds the coordinates of a city in a specific state and country.
+     *
+     * @param city the name of the city
+     * @param state the name of the state
+     * @param country the name of the country
+     * @return an Optional containing the GeoLocation if found, or empty if not found
+     */
+
+    Optional<GeoLocation> findFirstByCityIgnoreCaseAndStateIgnoreCaseAndCountryIgnoreCase(String city, String state, String country);
+
+    /**
+     * Finds the coordinates of a city in a specific country, whatever its state.
+     *
+     * @param city the name of the city
+     * @param country the name of the country
+     * @return an Optional containing the GeoLocation if found, or empty if not found
+     */
+
+    Optional<GeoLocation> findFirstByCityIgnoreCaseAndCountryIgnoreCase(String city, String country);
+}
@@ -1,27 +1,58 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacetDocument;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyLocation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertySearchDocument;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Property entities.
  * It extends JpaRepository to provide CRUD operations and custom query methods.
  */
 @Repository
-public interface PropertyRepository extends JpaRepository<Property, Long> {
+public interface PropertyRepository extends JpaRepository<Property, Long>, PropertyRepositoryCustom {
+
+    /**
+     * Finds all the Properties, with their hosts and images.
+     *
+     * @return a List of all the Properties
+     */
+    @Override
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
+    List<Property> findAll();
+
+    /**
+     * Finds the Properties with the given IDs, with their hosts and images.
+     *
+     * @param ids the IDs of the properties
+     * @return a List of the Properties found
+     */
+    @Override
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
+    List<Property> findAllById(Iterable<Long> ids);
+
     /**
      * Finds all the Properties by his owner.
      *
      * @param hostId the ID of the host
      * @return an Optional containing the Property if found, or empty if not found
      */
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
     List<Property> findByHostId(Long hostId);
 
     /**
@@ -43,6 +74,16 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
 
     Optional<Property> findByTitleAndHostId(String title, Long hostId);
 
+    /**
+     * Finds a Property with its host and images, in a single query.
+     *
+     * @param propertyId the ID of the property
+     * @return an Optional containing the Property if found, or empty if not found
+     */
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
+    @Query("SELECT p FROM Property p WHERE p.id = :propertyId")
+    Optional<Property> findDetailById(@Param("propertyId") Long propertyId);
+
     /**
      * Finds all Properties located in a specific city.
      *
@@ -50,6 +91,7 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
      * @return a List of Properties located in the specified city
      */
 
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
     List<Property> findByCity(String city);
 
     /**
@@ -58,20 +100,49 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
      * @return a List of Properties that are available
      */
 
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
     List<Property> findByIsAvailableIsTrue();
+
+    /**
+     * Finds a Property by its ID and locks its row until the end of the current transaction.
+     * Used to serialize booking holds on the same property.
+     *
+     * @param id the ID of the property
+     * @return an Optional containing the Property if found, or empty if not found
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Property p WHERE p.id = :id")
+    Optional<Property> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Streams the searchable text of every property, without loading the entities.
+     * Must be consumed inside a transaction.
+     *
+     * @return a Stream of the searchable text of the properties
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertySearchDocument(" +
+            "p.id, p.title, p.description, p.city, p.state, p.country) FROM Property p WHERE p.isAvailable = true")
+    Stream<PropertySearchDocument> streamSearchDocuments();
+
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
     @Query("SELECT DISTINCT p FROM Property p " +
-            "WHERE p.city = :city " +
+            "WHERE LOWER(p.city) = LOWER(:city) " +
             "AND p.maxGuests >= :numberOfGuests " +
             "AND p.isAvailable = true " +
-            "AND p.id NOT IN (" +
-            "    SELECT b.property.id FROM Booking b " +
-            "    WHERE (:checkInDate < b.checkOutDate) " +
-            "    AND (:checkOutDate > b.checkInDate)" +
-            ")")
+            "AND NOT EXISTS (" +
+            "    SELECT 1 FROM Booking b " +
+            "    WHERE b.property = p " +
+            "    AND b.checkOutDate > :checkInDate " +
+            "    AND b.checkInDate < :checkOutDate" +
+            "    AND " + BookingRepository.ACTIVE +
+            "    AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt > CURRENT_TIMESTAMP)" +
+            ") " +
+            "ORDER BY p.id")
     /**
      * Finds all available properties in a specific city
      * that can accommodate a given number of guests
      * and are not booked during the specified date range.
+     * Only the active bookings of every candidate are probed, through the index on the active stays.
      * @param city the city where the properties are located
      * @param checkInDate the check-in date for the booking
      * @param checkOutDate the check-out date for the booking
@@ -84,4 +155,130 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             @Param("checkOutDate") LocalDate checkOutDate,
             @Param("numberOfGuests") Integer numberOfGuests
     );
-}
\ No newline at end of file
+
+    /**
+     * Finds the available properties of a city that can accommodate a given number of guests, whatever their bookings.
+     *
+     * @param city the city where the properties are located
+     * @param numberOfGuests the number of guests for the stay
+     * @return the matching properties, sorted by ID
+     */
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
+    @Query("SELECT p FROM Property p " +
+            "WHERE LOWER(p.city) = LOWER(:city) " +
+            "AND p.maxGuests >= :numberOfGuests " +
+            "AND p.isAvailable = true " +
+            "ORDER BY p.id")
+    List<Property> findAvailableInCity(@Param("city") String city,
+                                       @Param("numberOfGuests") Integer numberOfGuests);
+
+    /**
+     * Finds, among the given properties, the available ones that can accommodate a given number of guests
+     * and are not booked during the specified date range.
+     *
+     * @param ids the IDs of the candidate properties
+     * @param checkInDate the check-in date for the booking
+     * @param checkOutDate the check-out date for the booking
+     * @param numberOfGuests the number of guests for the booking
+     * @return a List of the candidate Properties that are available
+     */
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
+    @Query("SELECT p FROM Property p " +
+            "WHERE p.id IN :ids " +
+            "AND p.maxGuests >= :numberOfGuests " +
+            "AND p.isAvailable = true " +
+            "AND NOT EXISTS (" +
+            "    SELECT 1 FROM Booking b " +
+            "    WHERE b.property = p " +
+            "    AND b.checkOutDate > :checkInDate " +
+            "    AND b.checkInDate < :checkOutDate" +
+            "    AND " + BookingRepository.ACTIVE +
+            "    AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt > CURRENT_TIMESTAMP)" +
+            ")")
+    List<Property> findAvailablePropertiesByIdIn(
+            @Param("ids") Collection<Long> ids,
+            @Param("checkInDate") LocalDate checkInDate,
+            @Param("checkOutDate") LocalDate checkOutDate,
+            @Param("numberOfGuests") Integer numberOfGuests
+    );
+
+    /**
+     * Finds, among the given properties, the available ones that can accommodate a given number of guests.
+     *
+     * @param ids the IDs of the candidate properties
+     * @param numberOfGuests the number of guests
+     * @return a List of the candidate Properties that are available
+     */
+
+    @EntityGraph(Property.WITH_HOST_AND_IMAGES)
+    List<Property> findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(Collection<Long> ids, Integer numberOfGuests);
+
+    /**
+     * Finds the view and favorite counts of the properties of a host, as written by the last flush.
+     *
+     * @param hostId the ID of the host
+     * @return the counts of the properties of the host, ordered by ID
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse(" +
+            "p.id, p.title, p.viewCount, p.favoriteCount) FROM Property p WHERE p.host.id = :hostId ORDER BY p.id")
+    List<PropertyStatsResponse> findStatsByHostId(@Param("hostId") Long hostId);
+
+    /**
+     * Streams the filterable attributes of every property, without loading the entities.
+     * Must be consumed inside a transaction.
+     *
+     * @return a Stream of the filterable attributes of the properties
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacetDocument(" +
+            "p.id, p.city, p.pricePerNight, p.bedrooms, p.bathrooms, p.maxGuests, p.isAvailable) FROM Property p")
+    Stream<PropertyFacetDocument> streamFacetDocuments();
+
+    /**
+     * Streams the position of every property placed on the map, without loading the entities.
+     * Must be consumed inside a transaction.
+     *
+     * @return a Stream of the positions of the properties
+     */
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyLocation(p.id, p.latitude, p.longitude) " +
+            "FROM Property p WHERE p.latitude IS NOT NULL AND p.longitude IS NOT NULL")
+    Stream<PropertyLocation> streamLocations();
+
+    /**
+     * Adds a change to the rating summary of a property in a single atomic update.
+     * Every argument is a delta, negative values remove a rating.
+     *
+     * @param propertyId the ID of the property
+     * @param count the change of the number of ratings
+     * @param sum the change of the sum of the ratings
+     * @param oneStar the change of the number of 1 star ratings
+     * @param twoStars the change of the number of 2 star ratings
+     * @param threeStars the change of the number of 3 star ratings
+     * @param fourStars the change of the number of 4 star ratings
+     * @param fiveStars the change of the number of 5 star ratings
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Property p SET p.rating.count = p.rating.count + :count, p.rating.sum = p.rating.sum + :sum, " +
+            "p.rating.oneStar = p.rating.oneStar + :oneStar, p.rating.twoStars = p.rating.twoStars + :twoStars, " +
+            "p.rating.threeStars = p.rating.threeStars + :threeStars, p.rating.fourStars = p.rating.fourStars + :fourStars, " +
+            "p.rating.fiveStars = p.rating.fiveStars + :fiveStars WHERE p.id = :propertyId")
+    int addToRating(@Param("propertyId") Long propertyId, @Param("count") long count, @Param("sum") long sum,
+                    @Param("oneStar") long oneStar, @Param("twoStars") long twoStars, @Param("threeStars") long threeStars,
+                    @Param("fourStars") long fourStars, @Param("fiveStars") long fiveStars);
+
+    /**
+     * Recomputes the rating summary of every property from its reviews, fixing any drift.
+     *
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Property p SET " +
+            "p.rating.count = (SELECT COUNT(r) FROM Review r WHERE r.property = p), " +
+            "p.rating.sum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.property = p), " +
+            "p.rating.oneStar = (SELECT COUNT(r) FROM Review r WHERE r.property = p AND r.rating = 1), " +
+            "p.rating.twoStars = (SELECT COUNT(r) FROM Review r WHERE r.property = p AND r.rating = 2), " +
+            "p.rating.threeStars = (SELECT COUNT(r) FROM Review r WHERE r.property = p AND r.rating = 3), " +
+            "p.rating.fourStars = (SELECT COUNT(r) FROM Review r WHERE r.property = p AND r.rating = 4), " +
+            "p.rating.fiveStars = (SELECT COUNT(r) FROM Review r WHERE r.property = p AND r.rating = 5)")
+    int rebuildRatings();
+}
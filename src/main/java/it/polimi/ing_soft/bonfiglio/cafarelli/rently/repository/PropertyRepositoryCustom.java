@@ -0,0 +1,25 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import java.util.Map;
+
+/**
+ * Custom repository fragment for bulk property updates that bypass the persistence context.
+ */
+public interface PropertyRepositoryCustom {
+
+    /**
+     * Adds a delta to the favorite count of each property with a single JDBC batch.
+     * Each row is updated relative to its current value, so concurrent flushes do not overwrite each other.
+     *
+     * @param deltas the delta to add, by property ID
+     */
+    void addToFavoriteCounts(Map<Long, Long> deltas);
+
+    /**
+     * Adds a delta to the view count of each property with a single JDBC batch.
+     * Each row is updated relative to its current value, so concurrent flushes do not overwrite each other.
+     *
+     * @param deltas the delta to add, by property ID
+     */
+    void addToViewCounts(Map<Long, Long> deltas);
+}
@@ -0,0 +1,45 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link PropertyRepositoryCustom}.
+ */
+@RequiredArgsConstructor
+public class PropertyRepositoryCustomImpl implements PropertyRepositoryCustom {
+
+    private static final String ADD_TO_FAVORITE_COUNT =
+            "UPDATE property SET favorite_count = favorite_count + :delta WHERE id = :id";
+
+    private static final String ADD_TO_VIEW_COUNT =
+            "UPDATE property SET view_count = view_count + :delta WHERE id = :id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addToFavoriteCounts(Map<Long, Long> deltas) {
+        addToCounts(ADD_TO_FAVORITE_COUNT, deltas);
+    }
+
+    @Override
+    public void addToViewCounts(Map<Long, Long> deltas) {
+        addToCounts(ADD_TO_VIEW_COUNT, deltas);
+    }
+
+    private void addToCounts(String update, Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = deltas.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("id", entry.getKey())
+                        .addValue("delta", entry.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(update, batch);
+    }
+}
@@ -1,19 +1,28 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportWriter;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ReviewExportRow;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Review entities.
- * It extends JpaRepository to provide CRUD operations and custom query methods.
+ * It extends JpaRepository to provide CRUD operations and custom query methods,
+ * and JpaSpecificationExecutor to scroll through filtered listings with keyset pagination.
  */
 @Repository
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, JpaSpecificationExecutor<Review> {
     /**
      * Finds all reviews made by a specific reviewer.
      *
@@ -68,4 +77,15 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
      */
     List<Review> findByReviewedUserId(Long reviewedUserId);
 
+    /**
+     * Streams all the reviews as export rows, ordered by ID, to be consumed within a transaction.
+     *
+     * @return the stream of the exported reviews
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ExportWriter.FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ReviewExportRow(r.id, r.reviewer.id, " +
+           "r.property.id, r.reviewedUser.id, r.rating, r.title, r.description, r.createdAt, r.hostResponse) " +
+           "FROM Review r ORDER BY r.id")
+    Stream<ReviewExportRow> streamAllForExport();
 }
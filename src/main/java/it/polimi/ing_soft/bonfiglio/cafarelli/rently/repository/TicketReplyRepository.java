@@ -3,6 +3,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketReply;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TicketReplyRepository extends JpaRepository<TicketReply, Long> {
@@ -15,4 +16,13 @@ public interface TicketReplyRepository extends JpaRepository<TicketReply, Long>
      */
 
     List<TicketReply> findByTicketIdOrderByCreationDate(Long ticketId);
+
+    /**
+     * Finds all replies associated with some tickets.
+     *
+     * @param ticketIds the IDs of the tickets
+     * @return a list of TicketReply objects associated with the specified tickets
+     */
+
+    List<TicketReply> findByTicketIdIn(Collection<Long> ticketIds);
 }
\ No newline at end of file
@@ -1,10 +1,20 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportWriter;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.TicketExportRow;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Ticket;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
 
@@ -25,4 +35,26 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
      */
 
     List<Ticket> findByStatus(TicketStatus status);
+
+    /**
+     * Finds a batch of the closed tickets that were closed, or opened when they have no closing date, before an instant.
+     *
+     * @param instant the reference instant
+     * @param pageable the size and order of the batch
+     * @return the tickets of the batch
+     */
+    @Query("SELECT t FROM Ticket t WHERE t.status = it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus.CLOSED " +
+           "AND COALESCE(t.closingDate, t.creationDate) < :instant")
+    List<Ticket> findClosedBefore(@Param("instant") LocalDateTime instant, Pageable pageable);
+
+    /**
+     * Streams all the tickets as export rows, ordered by ID, to be consumed within a transaction.
+     *
+     * @return the stream of the exported tickets
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ExportWriter.FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.TicketExportRow(t.id, t.title, " +
+           "t.description, t.status, t.user.id, t.creationDate, t.closingDate) FROM Ticket t ORDER BY t.id")
+    Stream<TicketExportRow> streamAllForExport();
 }
@@ -1,11 +1,20 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportWriter;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.UserExportRow;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import jakarta.persistence.QueryHint;
 import lombok.NonNull;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing User entities.
@@ -58,4 +67,54 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
 
     List<User> username(String username);
+
+    /**
+     * Adds a change to the rating summary of a user in a single atomic update.
+     * Every argument is a delta, negative values remove a rating.
+     *
+     * @param userId the ID of the user
+     * @param count the change of the number of ratings
+     * @param sum the change of the sum of the ratings
+     * @param oneStar the change of the number of 1 star ratings
+     * @param twoStars the change of the number of 2 star ratings
+     * @param threeStars the change of the number of 3 star ratings
+     * @param fourStars the change of the number of 4 star ratings
+     * @param fiveStars the change of the number of 5 star ratings
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.rating.count = u.rating.count + :count, u.rating.sum = u.rating.sum + :sum, " +
+            "u.rating.oneStar = u.rating.oneStar + :oneStar, u.rating.twoStars = u.rating.twoStars + :twoStars, " +
+            "u.rating.threeStars = u.rating.threeStars + :threeStars, u.rating.fourStars = u.rating.fourStars + :fourStars, " +
+            "u.rating.fiveStars = u.rating.fiveStars + :fiveStars WHERE u.id = :userId")
+    int addToRating(@Param("userId") Long userId, @Param("count") long count, @Param("sum") long sum,
+                    @Param("oneStar") long oneStar, @Param("twoStars") long twoStars, @Param("threeStars") long threeStars,
+                    @Param("fourStars") long fourStars, @Param("fiveStars") long fiveStars);
+
+    /**
+     * Recomputes the rating summary of every user from its reviews, fixing any drift.
+     *
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE User u SET " +
+            "u.rating.count = (SELECT COUNT(r) FROM Review r WHERE r.reviewedUser = u), " +
+            "u.rating.sum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.reviewedUser = u), " +
+            "u.rating.oneStar = (SELECT COUNT(r) FROM Review r WHERE r.reviewedUser = u AND r.rating = 1), " +
+            "u.rating.twoStars = (SELECT COUNT(r) FROM Review r WHERE r.reviewedUser = u AND r.rating = 2), " +
+            "u.rating.threeStars = (SELECT COUNT(r) FROM Review r WHERE r.reviewedUser = u AND r.rating = 3), " +
+            "u.rating.fourStars = (SELECT COUNT(r) FROM Review r WHERE r.reviewedUser = u AND r.rating = 4), " +
+            "u.rating.fiveStars = (SELECT COUNT(r) FROM Review r WHERE r.reviewedUser = u AND r.rating = 5)")
+    int rebuildRatings();
+
+    /**
+     * Streams all the users as export rows, ordered by ID, to be consumed within a transaction.
+     *
+     * @return the stream of the exported users
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ExportWriter.FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.UserExportRow(u.id, u.username, " +
+           "u.email, u.firstname, u.lastname, u.role, u.isActive, u.balance, u.createdAt) FROM User u ORDER BY u.id")
+    Stream<UserExportRow> streamAllForExport();
 }
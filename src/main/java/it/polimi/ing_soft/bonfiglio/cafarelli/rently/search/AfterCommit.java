@@ -0,0 +1,32 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers the changes of the in-memory indexes, and the events feeding them, until the database transaction
+ * that caused them commits, so a rolled back change is never visible to the searches.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Runs a change once the current transaction commits, or right away when there is no transaction.
+     *
+     * @param change the change to run
+     */
+    public static void run(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import java.time.LocalDate;
+
+/**
+ * The dates taken by a booking, or by a pending hold, of a property.
+ *
+ * @param propertyId the ID of the booked property
+ * @param checkInDate the first night taken
+ * @param checkOutDate the day the property is free again
+ */
+public record BookedInterval(Long propertyId, LocalDate checkInDate, LocalDate checkOutDate) {
+}
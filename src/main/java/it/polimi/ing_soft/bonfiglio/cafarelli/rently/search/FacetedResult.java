@@ -0,0 +1,15 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a faceted search.
+ *
+ * @param ids the IDs of the properties in the requested page
+ * @param total the number of properties matching every selected filter
+ * @param counts for every facet, the number of matching properties in each of its buckets,
+ *               counted with the filters of the other facets only
+ */
+public record FacetedResult(List<Long> ids, int total, Map<PropertyFacet, int[]> counts) {
+}
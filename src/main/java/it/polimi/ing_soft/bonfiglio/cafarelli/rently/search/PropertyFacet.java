@@ -0,0 +1,81 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import java.util.List;
+
+/**
+ * The facets a property search can be filtered and counted by.
+ * Every facet splits its values in buckets: bucket {@code i} holds the values below {@code bounds[i]}
+ * and not below {@code bounds[i - 1]}, the last bucket holds the values from the last bound on.
+ */
+public enum PropertyFacet {
+    PRICE("price", new double[]{50, 100, 150, 200, 300, 500},
+            List.of("0-50", "50-100", "100-150", "150-200", "200-300", "300-500", "500+")),
+    BEDROOMS("bedrooms", new double[]{2, 3, 4, 5},
+            List.of("1", "2", "3", "4", "5+")),
+    BATHROOMS("bathrooms", new double[]{2, 3, 4},
+            List.of("1", "2", "3", "4+")),
+    MAX_GUESTS("maxGuests", new double[]{3, 5, 7, 9},
+            List.of("1-2", "3-4", "5-6", "7-8", "9+"));
+
+    private final String key;
+    private final double[] bounds;
+    private final List<String> buckets;
+
+    PropertyFacet(String key, double[] bounds, List<String> buckets) {
+        this.key = key;
+        this.bounds = bounds;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Returns the name of the facet, as used by the API.
+     *
+     * @return the name of the facet
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the labels of the buckets of the facet, in order.
+     *
+     * @return the labels of the buckets
+     */
+    public List<String> buckets() {
+        return buckets;
+    }
+
+    /**
+     * Finds the bucket holding a value.
+     *
+     * @param value the value of the facet
+     * @return the index of the bucket
+     */
+    public int bucketOf(double value) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value < bounds[i]) {
+                return i;
+            }
+        }
+        return bounds.length;
+    }
+
+    /**
+     * Finds the bucket with a given label.
+     *
+     * @param label the label of the bucket
+     * @return the index of the bucket, or -1 if the facet has no such bucket
+     */
+    public int bucketOf(String label) {
+        return buckets.indexOf(label);
+    }
+
+    double valueOf(PropertyFacetDocument document) {
+        return switch (this) {
+            case PRICE -> document.pricePerNight().doubleValue();
+            case BEDROOMS -> document.bedrooms();
+            case BATHROOMS -> document.bathrooms();
+            case MAX_GUESTS -> document.maxGuests();
+        };
+    }
+}
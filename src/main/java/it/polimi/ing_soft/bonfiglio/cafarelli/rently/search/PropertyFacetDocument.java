@@ -0,0 +1,25 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+
+import java.math.BigDecimal;
+
+/**
+ * The filterable attributes of a property, as read by {@link PropertyFacetIndex}.
+ *
+ * @param id the ID of the property
+ * @param city the city of the property
+ * @param pricePerNight the price per night of the property
+ * @param bedrooms the number of bedrooms of the property
+ * @param bathrooms the number of bathrooms of the property
+ * @param maxGuests the maximum number of guests of the property
+ * @param available whether the property accepts bookings
+ */
+public record PropertyFacetDocument(Long id, String city, BigDecimal pricePerNight, Integer bedrooms,
+                                    Integer bathrooms, Integer maxGuests, boolean available) {
+
+    public static PropertyFacetDocument of(Property property) {
+        return new PropertyFacetDocument(property.getId(), property.getCity(), property.getPricePerNight(),
+                property.getBedrooms(), property.getBathrooms(), property.getMaxGuests(), property.isAvailable());
+    }
+}
@@ -0,0 +1,322 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory facet counts of the properties, grouped by city.
+ * <p>
+ * Every property of a city gets a slot, and every bucket of every {@link PropertyFacet} is a bitset of the slots
+ * whose value falls in it. Filtering is a union of the selected buckets of a facet intersected across facets,
+ * and counting a bucket is the cardinality of its intersection with the filters of the other facets,
+ * so a search never needs an aggregation query.
+ * </p>
+ * <p>
+ * Changes are applied right after their transaction commits, like in {@link PropertySearchIndex}.
+ * </p>
+ */
+@Component
+public class PropertyFacetIndex {
+
+    private static final PropertyFacet[] FACETS = PropertyFacet.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Catalog catalog = new Catalog();
+
+    /**
+     * Changes received while a rebuild is running, replayed on the rebuilt catalog.
+     */
+    private List<Change> pendingChanges;
+
+    /**
+     * Adds a property to the index, or replaces its previous version.
+     *
+     * @param document the filterable attributes of the property
+     */
+    public void index(PropertyFacetDocument document) {
+        AfterCommit.run(() -> apply(new Change(document.id(), document)));
+    }
+
+    /**
+     * Removes a property from the index.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void remove(Long propertyId) {
+        AfterCommit.run(() -> apply(new Change(propertyId, null)));
+    }
+
+    /**
+     * Filters the available properties of a city and counts them by facet.
+     * Buckets selected for the same facet are alternatives, filters on different facets must all match.
+     *
+     * @param city the city of the properties
+     * @param selected the selected buckets of every filtered facet
+     * @param excludedIds the properties to leave out, such as the ones booked for the requested dates
+     * @param offset the number of matching properties to skip
+     * @param limit the maximum number of properties to return
+     * @return the requested page of matching properties, their total and the facet counts
+     */
+    public FacetedResult search(String city, Map<PropertyFacet, Set<Integer>> selected, Collection<Long> excludedIds,
+                                int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            CityFacets facets = catalog.cities.get(normalize(city));
+            if (facets == null) {
+                Map<PropertyFacet, int[]> counts = new EnumMap<>(PropertyFacet.class);
+                for (PropertyFacet facet : FACETS) {
+                    counts.put(facet, new int[facet.buckets().size()]);
+                }
+                return new FacetedResult(List.of(), 0, counts);
+            }
+            return facets.search(selected, excludedIds, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the city of an indexed property, normalized to lower case.
+     *
+     * @param propertyId the ID of the property
+     * @return the city of the property, or null if the property is not indexed
+     */
+    public String cityOf(Long propertyId) {
+        lock.readLock().lock();
+        try {
+            return catalog.cityById.get(propertyId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given properties.
+     * Searches keep being answered by the previous index while the new one is built,
+     * and changes made in the meantime are applied to the new one before it is published.
+     *
+     * @param documents the filterable attributes of every property
+     * @return the number of indexed properties
+     */
+    public int rebuild(Stream<PropertyFacetDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Catalog rebuilt = new Catalog();
+        try {
+            documents.forEach(rebuilt::add);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(rebuilt::apply);
+            pendingChanges = null;
+            catalog = rebuilt;
+            return rebuilt.cityById.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed properties.
+     *
+     * @return the number of indexed properties
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return catalog.cityById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            catalog.apply(change);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A change to apply to the index: the new version of a property, or a removal when the document is null.
+     */
+    private record Change(Long id, PropertyFacetDocument document) { }
+
+    /**
+     * One generation of the index. Not thread safe, access is guarded by the lock of the index.
+     */
+    private static final class Catalog {
+        private final Map<String, CityFacets> cities = new HashMap<>();
+        private final Map<Long, String> cityById = new HashMap<>();
+
+        private void apply(Change change) {
+            if (change.document() == null) {
+                remove(change.id());
+            } else {
+                add(change.document());
+            }
+        }
+
+        private void add(PropertyFacetDocument document) {
+            remove(document.id());
+            String city = normalize(document.city());
+            cities.computeIfAbsent(city, c -> new CityFacets()).add(document);
+            cityById.put(document.id(), city);
+        }
+
+        private void remove(Long id) {
+            String city = cityById.remove(id);
+            if (city == null) {
+                return;
+            }
+            CityFacets facets = cities.get(city);
+            facets.remove(id);
+            if (facets.slotsById.isEmpty()) {
+                cities.remove(city);
+            }
+        }
+    }
+
+    /**
+     * The facet bitsets of the properties of one city.
+     */
+    private static final class CityFacets {
+        private final Map<Long, Integer> slotsById = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private final BitSet available = new BitSet();
+        private final BitSet[][] buckets = new BitSet[FACETS.length][];
+        private long[] ids = new long[16];
+        private int slotCount;
+
+        private CityFacets() {
+            for (PropertyFacet facet : FACETS) {
+                BitSet[] facetBuckets = new BitSet[facet.buckets().size()];
+                for (int i = 0; i < facetBuckets.length; i++) {
+                    facetBuckets[i] = new BitSet();
+                }
+                buckets[facet.ordinal()] = facetBuckets;
+            }
+        }
+
+        private void add(PropertyFacetDocument document) {
+            int slot;
+            if (freeSlots.isEmpty()) {
+                slot = slotCount++;
+                if (slot == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+            } else {
+                slot = freeSlots.pop();
+            }
+            ids[slot] = document.id();
+            slotsById.put(document.id(), slot);
+
+            for (PropertyFacet facet : FACETS) {
+                buckets[facet.ordinal()][facet.bucketOf(facet.valueOf(document))].set(slot);
+            }
+            available.set(slot, document.available());
+        }
+
+        private void remove(Long id) {
+            Integer slot = slotsById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            for (BitSet[] facetBuckets : buckets) {
+                for (BitSet bucket : facetBuckets) {
+                    bucket.clear(slot);
+                }
+            }
+            available.clear(slot);
+            freeSlots.push(slot);
+        }
+
+        private FacetedResult search(Map<PropertyFacet, Set<Integer>> selected, Collection<Long> excludedIds,
+                                     int offset, int limit) {
+            BitSet base = (BitSet) available.clone();
+            for (Long id : excludedIds) {
+                Integer slot = slotsById.get(id);
+                if (slot != null) {
+                    base.clear(slot);
+                }
+            }
+
+            // Union of the selected buckets of every filtered facet, null when the facet is not filtered
+            BitSet[] filters = new BitSet[FACETS.length];
+            for (PropertyFacet facet : FACETS) {
+                Set<Integer> facetSelection = selected.getOrDefault(facet, Set.of());
+                if (facetSelection.isEmpty()) {
+                    continue;
+                }
+                BitSet filter = new BitSet();
+                for (int bucket : facetSelection) {
+                    filter.or(buckets[facet.ordinal()][bucket]);
+                }
+                filters[facet.ordinal()] = filter;
+            }
+
+            BitSet matching = (BitSet) base.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    matching.and(filter);
+                }
+            }
+
+            // Each facet is counted against the filters of the other facets, so its alternatives stay visible
+            Map<PropertyFacet, int[]> counts = new EnumMap<>(PropertyFacet.class);
+            for (PropertyFacet facet : FACETS) {
+                BitSet others = (BitSet) base.clone();
+                for (int i = 0; i < filters.length; i++) {
+                    if (i != facet.ordinal() && filters[i] != null) {
+                        others.and(filters[i]);
+                    }
+                }
+                BitSet[] facetBuckets = buckets[facet.ordinal()];
+                int[] facetCounts = new int[facetBuckets.length];
+                for (int i = 0; i < facetBuckets.length; i++) {
+                    BitSet bucket = (BitSet) facetBuckets[i].clone();
+                    bucket.and(others);
+                    facetCounts[i] = bucket.cardinality();
+                }
+                counts.put(facet, facetCounts);
+            }
+
+            List<Long> page = new ArrayList<>(Math.min(limit, 64));
+            int skipped = 0;
+            for (int slot = matching.nextSetBit(0); slot >= 0 && page.size() < limit; slot = matching.nextSetBit(slot + 1)) {
+                if (skipped++ >= offset) {
+                    page.add(ids[slot]);
+                }
+            }
+            return new FacetedResult(page, matching.cardinality(), counts);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory spatial index over the positions of the properties.
+ * <p>
+ * The globe is split in a uniform grid of {@link #CELL_DEGREES} degrees, and every cell keeps the properties
+ * located inside it in primitive arrays. A radius or bounding box query only visits the cells overlapping the
+ * searched area, or the non-empty cells when they are fewer, and checks the exact position of their properties.
+ * Results are ordered by distance from the center of the searched area.
+ * </p>
+ * <p>
+ * Changes are applied right after their transaction commits, like in {@link PropertySearchIndex}.
+ * </p>
+ */
+@Component
+public class PropertyGeoIndex {
+
+    /**
+     * Side of a cell, about 5.5 km along the meridians.
+     */
+    static final double CELL_DEGREES = 0.05;
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int LATITUDE_CELLS = (int) Math.round(180 / CELL_DEGREES);
+    private static final int LONGITUDE_CELLS = (int) Math.round(360 / CELL_DEGREES);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Grid grid = new Grid();
+
+    /**
+     * Changes received while a rebuild is running, replayed on the rebuilt grid.
+     */
+    private List<Change> pendingChanges;
+
+    /**
+     * Adds a property to the index, or moves it to its new position.
+     *
+     * @param location the position of the property
+     */
+    public void index(PropertyLocation location) {
+        AfterCommit.run(() -> apply(new Change(location.id(), location)));
+    }
+
+    /**
+     * Removes a property from the index.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void remove(Long propertyId) {
+        AfterCommit.run(() -> apply(new Change(propertyId, null)));
+    }
+
+    /**
+     * Finds the properties within a distance from a point.
+     *
+     * @param latitude the latitude of the center, in degrees
+     * @param longitude the longitude of the center, in degrees
+     * @param radiusKm the maximum distance from the center, in kilometers
+     * @param limit the maximum number of results
+     * @return the IDs of the properties within the radius, closest first
+     */
+    public List<Long> withinRadius(double latitude, double longitude, double radiusKm, int limit) {
+        if (radiusKm <= 0 || limit <= 0) {
+            return List.of();
+        }
+
+        double angularRadius = radiusKm / EARTH_RADIUS_KM;
+        double south = latitude - Math.toDegrees(angularRadius);
+        double north = latitude + Math.toDegrees(angularRadius);
+        double west = -180;
+        double east = 180;
+        if (south > -90 && north < 90 && angularRadius < Math.PI / 2) {
+            double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude))));
+            west = normalizeLongitude(longitude - deltaLongitude);
+            east = normalizeLongitude(longitude + deltaLongitude);
+        }
+        Area area = new Area(Math.max(south, -90), west, Math.min(north, 90), east);
+
+        lock.readLock().lock();
+        try {
+            return grid.search(area, latitude, longitude, radiusKm, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the properties inside a bounding box, such as the viewport of a map.
+     * When {@code west} is greater than {@code east} the box crosses the antimeridian.
+     *
+     * @param south the southern latitude of the box, in degrees
+     * @param west the western longitude of the box, in degrees
+     * @param north the northern latitude of the box, in degrees
+     * @param east the eastern longitude of the box, in degrees
+     * @param limit the maximum number of results
+     * @return the IDs of the properties inside the box, closest to its center first
+     */
+    public List<Long> withinBox(double south, double west, double north, double east, int limit) {
+        if (south > north || limit <= 0) {
+            return List.of();
+        }
+
+        double centerLatitude = (south + north) / 2;
+        double centerLongitude = west <= east ? (west + east) / 2 : normalizeLongitude((west + east + 360) / 2);
+
+        lock.readLock().lock();
+        try {
+            return grid.search(new Area(south, west, north, east), centerLatitude, centerLongitude, Double.MAX_VALUE, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given positions.
+     * Queries keep being answered by the previous index while the new one is built,
+     * and changes made in the meantime are applied to the new one before it is published.
+     *
+     * @param locations the position of every placed property
+     * @return the number of indexed properties
+     */
+    public int rebuild(Stream<PropertyLocation> locations) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Grid rebuilt = new Grid();
+        try {
+            locations.forEach(rebuilt::add);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(rebuilt::apply);
+            pendingChanges = null;
+            grid = rebuilt;
+            return rebuilt.locations.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed properties.
+     *
+     * @return the number of indexed properties
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return grid.locations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            grid.apply(change);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Computes the great-circle distance between two points with the haversine formula.
+     *
+     * @return the distance, in kilometers
+     */
+    static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        if (longitude < -180) {
+            return longitude + 360;
+        }
+        if (longitude > 180) {
+            return longitude - 360;
+        }
+        return longitude;
+    }
+
+    private static int row(double latitude) {
+        return Math.min(Math.max((int) Math.floor((latitude + 90) / CELL_DEGREES), 0), LATITUDE_CELLS - 1);
+    }
+
+    private static int column(double longitude) {
+        return Math.min(Math.max((int) Math.floor((longitude + 180) / CELL_DEGREES), 0), LONGITUDE_CELLS - 1);
+    }
+
+    /**
+     * A change to apply to the index: the new position of a property, or a removal when the location is null.
+     */
+    private record Change(Long id, PropertyLocation location) { }
+
+    /**
+     * A searched area. When {@code west} is greater than {@code east} it crosses the antimeridian.
+     */
+    private record Area(double south, double west, double north, double east) {
+
+        private boolean contains(double latitude, double longitude) {
+            if (latitude < south || latitude > north) {
+                return false;
+            }
+            return west <= east
+                    ? longitude >= west && longitude <= east
+                    : longitude >= west || longitude <= east;
+        }
+
+        private boolean containsCell(int row, int column) {
+            if (row < row(south) || row > row(north)) {
+                return false;
+            }
+            return west <= east
+                    ? column >= column(west) && column <= column(east)
+                    : column >= column(west) || column <= column(east);
+        }
+
+        private long cellCount() {
+            long rows = row(north) - row(south) + 1L;
+            long columns = west <= east
+                    ? column(east) - column(west) + 1L
+                    : LONGITUDE_CELLS - column(west) + column(east) + 1L;
+            return rows * columns;
+        }
+    }
+
+    /**
+     * A result candidate, compared by distance from the center of the searched area.
+     */
+    private record Candidate(long id, double distance) { }
+
+    /**
+     * The properties located in one cell of the grid.
+     */
+    private static final class Cell {
+        private long[] ids = new long[4];
+        private double[] latitudes = new double[4];
+        private double[] longitudes = new double[4];
+        private int size;
+
+        private void add(PropertyLocation location) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            ids[size] = location.id();
+            latitudes[size] = location.latitude();
+            longitudes[size] = location.longitude();
+            size++;
+        }
+
+        private void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    latitudes[i] = latitudes[size];
+                    longitudes[i] = longitudes[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * One generation of the index. Not thread safe, access is guarded by the lock of the index.
+     */
+    private static final class Grid {
+        private final Map<Integer, Cell> cells = new HashMap<>();
+        private final Map<Long, PropertyLocation> locations = new HashMap<>();
+
+        private void apply(Change change) {
+            if (change.location() == null) {
+                remove(change.id());
+            } else {
+                add(change.location());
+            }
+        }
+
+        private void add(PropertyLocation location) {
+            remove(location.id());
+            cells.computeIfAbsent(key(row(location.latitude()), column(location.longitude())), key -> new Cell())
+                    .add(location);
+            locations.put(location.id(), location);
+        }
+
+        private void remove(Long id) {
+            PropertyLocation location = locations.remove(id);
+            if (location == null) {
+                return;
+            }
+            int key = key(row(location.latitude()), column(location.longitude()));
+            Cell cell = cells.get(key);
+            cell.remove(id);
+            if (cell.size == 0) {
+                cells.remove(key);
+            }
+        }
+
+        private List<Long> search(Area area, double centerLatitude, double centerLongitude, double maxDistanceKm, int limit) {
+            PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1,
+                    Comparator.comparingDouble(Candidate::distance).reversed());
+
+            if (area.cellCount() > cells.size()) {
+                // Sparse grid or wide area: walking the non-empty cells is cheaper than walking the area
+                cells.forEach((key, cell) -> {
+                    if (area.containsCell(key / LONGITUDE_CELLS, key % LONGITUDE_CELLS)) {
+                        collect(cell, area, centerLatitude, centerLongitude, maxDistanceKm, limit, best);
+                    }
+                });
+            } else {
+                for (int row = row(area.south()); row <= row(area.north()); row++) {
+                    int firstColumn = column(area.west());
+                    int lastColumn = column(area.east());
+                    if (area.west() <= area.east()) {
+                        collectRow(row, firstColumn, lastColumn, area, centerLatitude, centerLongitude, maxDistanceKm, limit, best);
+                    } else {
+                        collectRow(row, firstColumn, LONGITUDE_CELLS - 1, area, centerLatitude, centerLongitude, maxDistanceKm, limit, best);
+                        collectRow(row, 0, lastColumn, area, centerLatitude, centerLongitude, maxDistanceKm, limit, best);
+                    }
+                }
+            }
+
+            Long[] result = new Long[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = best.poll().id();
+            }
+            return Arrays.asList(result);
+        }
+
+        private void collectRow(int row, int firstColumn, int lastColumn, Area area, double centerLatitude,
+                                double centerLongitude, double maxDistanceKm, int limit, PriorityQueue<Candidate> best) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Cell cell = cells.get(key(row, column));
+                if (cell != null) {
+                    collect(cell, area, centerLatitude, centerLongitude, maxDistanceKm, limit, best);
+                }
+            }
+        }
+
+        private static void collect(Cell cell, Area area, double centerLatitude, double centerLongitude,
+                                    double maxDistanceKm, int limit, PriorityQueue<Candidate> best) {
+            for (int i = 0; i < cell.size; i++) {
+                if (!area.contains(cell.latitudes[i], cell.longitudes[i])) {
+                    continue;
+                }
+                double distance = distanceKm(centerLatitude, centerLongitude, cell.latitudes[i], cell.longitudes[i]);
+                if (distance > maxDistanceKm) {
+                    continue;
+                }
+                best.add(new Candidate(cell.ids[i], distance));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        private static int key(int row, int column) {
+            return row * LONGITUDE_CELLS + column;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+
+/**
+ * The position of a property on the map, as read by {@link PropertyGeoIndex}.
+ *
+ * @param id the ID of the property
+ * @param latitude the latitude of the property, in degrees
+ * @param longitude the longitude of the property, in degrees
+ */
+public record PropertyLocation(Long id, double latitude, double longitude) {
+
+    public static PropertyLocation of(Property property) {
+        return new PropertyLocation(property.getId(), property.getLatitude(), property.getLongitude());
+    }
+}
@@ -0,0 +1,21 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+
+/**
+ * The searchable text of a property, as read by {@link PropertySearchIndex}.
+ *
+ * @param id the ID of the property
+ * @param title the title of the property
+ * @param description the description of the property
+ * @param city the city of the property
+ * @param state the state of the property
+ * @param country the country of the property
+ */
+public record PropertySearchDocument(Long id, String title, String description, String city, String state, String country) {
+
+    public static PropertySearchDocument of(Property property) {
+        return new PropertySearchDocument(property.getId(), property.getTitle(), property.getDescription(),
+                property.getCity(), property.getState(), property.getCountry());
+    }
+}
@@ -0,0 +1,313 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the text of the properties.
+ * <p>
+ * Every term maps to a posting list of primitive arrays holding the properties that contain it and a
+ * precomputed weight, so a query only reads the posting lists of its own terms. Matches in the title count
+ * more than matches in the city, region or description, and results are ranked with a BM25-like score.
+ * </p>
+ * <p>
+ * Changes are applied right after their transaction commits. An updated property gets a new slot and its old
+ * slot is only marked as deleted; the slots left behind are reclaimed by {@link #rebuild(Stream)}.
+ * </p>
+ */
+@Component
+public class PropertySearchIndex {
+
+    static final float TITLE_WEIGHT = 3f;
+    static final float CITY_WEIGHT = 2f;
+    static final float REGION_WEIGHT = 1.5f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+
+    /**
+     * Saturation of the term frequency, as in BM25.
+     */
+    private static final float K1 = 1.2f;
+
+    /**
+     * Longer queries are cut, so the per-property count of matched terms fits in a byte.
+     */
+    static final int MAX_QUERY_TERMS = 32;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Segment segment = new Segment();
+
+    /**
+     * Changes received while a rebuild is running, replayed on the rebuilt segment.
+     */
+    private List<Change> pendingChanges;
+
+    /**
+     * Adds a property to the index, or replaces its previous version.
+     *
+     * @param document the searchable text of the property
+     */
+    public void index(PropertySearchDocument document) {
+        AfterCommit.run(() -> apply(new Change(document.id(), document)));
+    }
+
+    /**
+     * Removes a property from the index.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void remove(Long propertyId) {
+        AfterCommit.run(() -> apply(new Change(propertyId, null)));
+    }
+
+    /**
+     * Finds the properties that best match a free-text query.
+     *
+     * @param query the text to search for
+     * @param limit the maximum number of results
+     * @return the IDs of the matching properties, best match first
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().limit(MAX_QUERY_TERMS).toList();
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return segment.search(terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given properties.
+     * Searches keep being answered by the previous index while the new one is built,
+     * and changes made in the meantime are applied to the new one before it is published.
+     *
+     * @param documents the searchable text of every property
+     * @return the number of indexed properties
+     */
+    public int rebuild(Stream<PropertySearchDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Segment rebuilt = new Segment();
+        try {
+            documents.forEach(rebuilt::add);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(rebuilt::apply);
+            pendingChanges = null;
+            segment = rebuilt;
+            return rebuilt.live;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed properties.
+     *
+     * @return the number of indexed properties
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            segment.apply(change);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Splits a text into lower case terms without accents.
+     *
+     * @param text the text to split
+     * @return the terms of the text, in order
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARATORS.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty())
+                .toList();
+    }
+
+    /**
+     * A change to apply to the index: the new version of a property, or a removal when the document is null.
+     */
+    private record Change(Long id, PropertySearchDocument document) { }
+
+    /**
+     * A posting list: the slots of the properties containing a term, with the weight of the term in each of them.
+     */
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        private void add(int slot, float weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * One generation of the index. Not thread safe, access is guarded by the lock of the index.
+     */
+    private static final class Segment {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<Long, Integer> slotsById = new HashMap<>();
+        private final BitSet deleted = new BitSet();
+        private long[] ids = new long[1024];
+        private int slotCount;
+        private int live;
+
+        private void apply(Change change) {
+            if (change.document() == null) {
+                remove(change.id());
+            } else {
+                add(change.document());
+            }
+        }
+
+        private void add(PropertySearchDocument document) {
+            remove(document.id());
+
+            Map<String, Float> frequencies = new HashMap<>();
+            addField(frequencies, document.title(), TITLE_WEIGHT);
+            addField(frequencies, document.city(), CITY_WEIGHT);
+            addField(frequencies, document.state(), REGION_WEIGHT);
+            addField(frequencies, document.country(), REGION_WEIGHT);
+            addField(frequencies, document.description(), DESCRIPTION_WEIGHT);
+
+            int slot = slotCount++;
+            if (slot == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[slot] = document.id();
+            slotsById.put(document.id(), slot);
+            live++;
+
+            frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new Postings())
+                    .add(slot, frequency * (K1 + 1) / (frequency + K1)));
+        }
+
+        private void remove(Long id) {
+            Integer slot = slotsById.remove(id);
+            if (slot != null) {
+                deleted.set(slot);
+                live--;
+            }
+        }
+
+        private List<Long> search(List<String> terms, int limit) {
+            List<Postings> lists = new ArrayList<>(terms.size());
+            int matchedPostings = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                    matchedPostings += list.size;
+                }
+            }
+            if (matchedPostings == 0) {
+                return List.of();
+            }
+
+            // Scores are accumulated in an open-addressing table sized to the postings read, not to the catalog
+            int capacity = Integer.highestOneBit(Math.max(matchedPostings, 8) * 2 - 1) << 1;
+            int shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+            int[] slots = new int[capacity];
+            float[] scores = new float[capacity];
+            byte[] matchedTerms = new byte[capacity];
+            Arrays.fill(slots, -1);
+
+            for (Postings list : lists) {
+                double idf = Math.log(1 + (live - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int slot = list.slots[i];
+                    if (deleted.get(slot)) {
+                        continue;
+                    }
+                    int index = (slot * 0x9E3779B9) >>> shift;
+                    while (slots[index] != -1 && slots[index] != slot) {
+                        index = (index + 1) & (capacity - 1);
+                    }
+                    slots[index] = slot;
+                    scores[index] += (float) (idf * list.weights[i]);
+                    matchedTerms[index]++;
+                }
+            }
+
+            // Properties matching more of the query terms rank higher
+            PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(index -> scores[index]));
+            for (int index = 0; index < capacity; index++) {
+                if (slots[index] == -1) {
+                    continue;
+                }
+                scores[index] *= (float) matchedTerms[index] / terms.size();
+                best.add(index);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            Long[] result = new Long[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = ids[slots[best.poll()]];
+            }
+            return Arrays.asList(result);
+        }
+
+        private static void addField(Map<String, Float> frequencies, String text, float weight) {
+            for (String term : tokenize(text)) {
+                frequencies.merge(term, weight, Float::sum);
+            }
+        }
+    }
+}
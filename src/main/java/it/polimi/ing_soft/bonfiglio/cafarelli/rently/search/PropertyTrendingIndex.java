@@ -0,0 +1,279 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory popularity ranking of the properties, overall and by city.
+ * <p>
+ * Views, favorites and bookings add to the score of a property with a weight that halves every {@link #HALF_LIFE}.
+ * Scores use forward decay: a new signal is boosted by how much later it happened than a fixed landmark, instead
+ * of every older score being decayed, so a signal only touches the score of its property and the order of the
+ * scores stays the order of the decayed values. The landmark moves forward once boosts grow too large.
+ * </p>
+ * <p>
+ * As scores only grow, the {@link #TOP_K} best properties of every ranking are kept incrementally: a property
+ * enters the top when its new score beats the last one. Serving a ranking only walks its top.
+ * Signals are buffered in striped counters and folded into the scores every few seconds, so recording a view
+ * never waits for the lock. Scores are not persisted and build up again after a restart.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class PropertyTrendingIndex {
+
+    public static final int TOP_K = 50;
+    static final Duration HALF_LIFE = Duration.ofHours(24);
+    static final long FOLD_INTERVAL_MILLIS = 2_000;
+
+    private static final double DECAY_PER_MILLI = Math.log(2) / HALF_LIFE.toMillis();
+
+    /**
+     * Boost past which the landmark is moved forward, reached after 64 half-lives.
+     */
+    private static final double MAX_BOOST = 0x1p64;
+
+    private static final String ALL_CITIES = "";
+
+    /**
+     * The kinds of activity that make a property popular, with their weight.
+     */
+    public enum Signal {
+        VIEW(1),
+        FAVORITE(5),
+        BOOKING(20);
+
+        private final int weight;
+
+        Signal(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final PropertyFacetIndex propertyFacetIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Weighted signals not yet folded into the scores, by property ID.
+     * Counters are kept once created, so the map is bounded by the number of properties.
+     */
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final Map<Long, String> cityById = new HashMap<>();
+    private final Map<String, Ranking> rankings = new HashMap<>();
+    private long landmark = System.currentTimeMillis();
+
+    /**
+     * Records some activity on a property. It counts towards the rankings from the next fold.
+     *
+     * @param propertyId the ID of the property
+     * @param signal the kind of activity
+     */
+    public void record(Long propertyId, Signal signal) {
+        pending.computeIfAbsent(propertyId, id -> new LongAdder()).add(signal.weight);
+    }
+
+    /**
+     * Removes a deleted property from the rankings, once the current transaction commits.
+     *
+     * @param propertyId the ID of the property
+     */
+    public void remove(Long propertyId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                pending.remove(propertyId);
+                scores.remove(propertyId);
+                String city = cityById.remove(propertyId);
+                drop(ALL_CITIES, propertyId);
+                if (city != null) {
+                    drop(city, propertyId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Returns the most popular properties, overall or in a city.
+     *
+     * @param city the city of the properties, or null for every city
+     * @param limit the maximum number of properties to return, at most {@link #TOP_K}
+     * @return the IDs of the most popular properties, the most popular first
+     */
+    public List<Long> top(String city, int limit) {
+        lock.readLock().lock();
+        try {
+            Ranking ranking = rankings.get(city == null || city.isBlank() ? ALL_CITIES : normalize(city));
+            return ranking == null ? List.of() : ranking.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Folds the buffered signals into the scores.
+     */
+    @Scheduled(fixedDelay = FOLD_INTERVAL_MILLIS)
+    public void fold() {
+        fold(System.currentTimeMillis());
+    }
+
+    void fold(long now) {
+        Map<Long, Long> weights = new HashMap<>();
+        pending.forEach((propertyId, counter) -> {
+            long weight = counter.sum();
+            if (weight != 0) {
+                counter.add(-weight);
+                weights.put(propertyId, weight);
+            }
+        });
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (boost(now) > MAX_BOOST) {
+                moveLandmark(now);
+            }
+            double boost = boost(now);
+            weights.forEach((propertyId, weight) -> add(propertyId, weight * boost));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current decayed score of a property.
+     *
+     * @param propertyId the ID of the property
+     * @param now the current time, in milliseconds
+     * @return the score of the property, 0 if it has no recorded activity
+     */
+    double score(Long propertyId, long now) {
+        lock.readLock().lock();
+        try {
+            return scores.getOrDefault(propertyId, 0.0) / boost(now);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double boost(long now) {
+        return Math.exp(DECAY_PER_MILLI * (now - landmark));
+    }
+
+    private void add(Long propertyId, double boostedWeight) {
+        double score = scores.merge(propertyId, boostedWeight, Double::sum);
+
+        String city = propertyFacetIndex.cityOf(propertyId);
+        String previousCity = city == null ? cityById.remove(propertyId) : cityById.put(propertyId, city);
+        if (previousCity != null && !previousCity.equals(city)) {
+            drop(previousCity, propertyId);
+        }
+
+        rankings.computeIfAbsent(ALL_CITIES, c -> new Ranking()).offer(propertyId, score);
+        if (city != null) {
+            rankings.computeIfAbsent(city, c -> new Ranking()).offer(propertyId, score);
+        }
+    }
+
+    /**
+     * Removes a property from a ranking, and refills the ranking from the scores when it was in the top.
+     */
+    private void drop(String city, Long propertyId) {
+        Ranking ranking = rankings.get(city);
+        if (ranking == null || !ranking.remove(propertyId)) {
+            return;
+        }
+        scores.forEach((id, score) -> {
+            if (city.equals(ALL_CITIES) || city.equals(cityById.get(id))) {
+                ranking.offer(id, score);
+            }
+        });
+        if (ranking.isEmpty()) {
+            rankings.remove(city);
+        }
+    }
+
+    private void moveLandmark(long now) {
+        double scale = 1 / boost(now);
+        scores.replaceAll((id, score) -> score * scale);
+        rankings.values().forEach(ranking -> ranking.scale(scale));
+        landmark = now;
+    }
+
+    private static String normalize(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Ranked(Long id, double score) { }
+
+    private static final Comparator<Ranked> BY_SCORE_DESC =
+            Comparator.comparingDouble(Ranked::score).reversed().thenComparing(Ranked::id);
+
+    /**
+     * The {@link #TOP_K} best scores of one ranking. Not thread safe, access is guarded by the lock of the index.
+     */
+    private static final class Ranking {
+        private TreeSet<Ranked> top = new TreeSet<>(BY_SCORE_DESC);
+        private final Map<Long, Double> members = new HashMap<>();
+
+        private void offer(Long id, double score) {
+            Double current = members.get(id);
+            if (current != null) {
+                top.remove(new Ranked(id, current));
+            } else if (top.size() == TOP_K) {
+                Ranked last = top.last();
+                if (BY_SCORE_DESC.compare(new Ranked(id, score), last) >= 0) {
+                    return;
+                }
+                top.pollLast();
+                members.remove(last.id());
+            }
+            top.add(new Ranked(id, score));
+            members.put(id, score);
+        }
+
+        private boolean remove(Long id) {
+            Double score = members.remove(id);
+            return score != null && top.remove(new Ranked(id, score));
+        }
+
+        private List<Long> top(int limit) {
+            List<Long> ids = new ArrayList<>(Math.min(limit, top.size()));
+            for (Ranked ranked : top) {
+                if (ids.size() == limit) {
+                    break;
+                }
+                ids.add(ranked.id());
+            }
+            return ids;
+        }
+
+        private void scale(double factor) {
+            TreeSet<Ranked> scaled = new TreeSet<>(BY_SCORE_DESC);
+            for (Ranked ranked : top) {
+                scaled.add(new Ranked(ranked.id(), ranked.score() * factor));
+            }
+            members.replaceAll((id, score) -> score * factor);
+            top = scaled;
+        }
+
+        private boolean isEmpty() {
+            return top.isEmpty();
+        }
+    }
+}
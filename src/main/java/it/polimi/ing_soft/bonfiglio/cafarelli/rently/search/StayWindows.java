@@ -0,0 +1,51 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the dates on which a stay of a given length can start, by sweeping once over the bookings of a property.
+ */
+public final class StayWindows {
+
+    private StayWindows() {
+    }
+
+    /**
+     * Lists every check-in date inside a window for which the following nights are all free.
+     * Overlapping and adjacent bookings are allowed, and bookings outside the window are ignored.
+     *
+     * @param bookings the bookings of a single property, sorted by check-in date
+     * @param earliestCheckIn the first date the stay can start on
+     * @param latestCheckOut the last date the stay can end on
+     * @param nights the length of the stay
+     * @return the feasible check-in dates, in ascending order
+     */
+    public static List<LocalDate> feasibleCheckIns(List<BookedInterval> bookings, LocalDate earliestCheckIn,
+                                                   LocalDate latestCheckOut, int nights) {
+        List<LocalDate> checkIns = new ArrayList<>();
+        LocalDate free = earliestCheckIn;
+        for (BookedInterval booking : bookings) {
+            LocalDate gapEnd = booking.checkInDate().isBefore(latestCheckOut) ? booking.checkInDate() : latestCheckOut;
+            addCheckIns(checkIns, free, gapEnd, nights);
+            if (booking.checkOutDate().isAfter(free)) {
+                free = booking.checkOutDate();
+            }
+            if (!free.isBefore(latestCheckOut)) {
+                return checkIns;
+            }
+        }
+        addCheckIns(checkIns, free, latestCheckOut, nights);
+        return checkIns;
+    }
+
+    /**
+     * Adds the start of every stay fitting between two dates during which the property is free.
+     */
+    private static void addCheckIns(List<LocalDate> checkIns, LocalDate from, LocalDate to, int nights) {
+        for (LocalDate checkIn = from; !checkIn.plusDays(nights).isAfter(to); checkIn = checkIn.plusDays(1)) {
+            checkIns.add(checkIn);
+        }
+    }
+}
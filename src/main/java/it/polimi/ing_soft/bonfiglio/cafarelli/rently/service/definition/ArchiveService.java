@@ -0,0 +1,74 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ChatMessage;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Ticket;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketReply;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This interface defines the contract for the archive of the old records.
+ * It includes methods for moving the concluded bookings, the old chat messages and the closed tickets
+ * out of their primary tables, and for reading them back.
+ */
+public interface ArchiveService {
+
+    /**
+     * Archives the completed and cancelled bookings whose stay ended before the booking horizon.
+     *
+     * @return the number of archived bookings
+     */
+    int archiveBookings();
+
+    /**
+     * Archives the chat messages sent before the chat horizon.
+     *
+     * @return the number of archived messages
+     */
+    int archiveChatMessages();
+
+    /**
+     * Archives, with their replies, the tickets closed before the ticket horizon.
+     *
+     * @return the number of archived tickets
+     */
+    int archiveTickets();
+
+    /**
+     * Finds an archived booking by its confirmation code.
+     *
+     * @param confirmationCode the confirmation code of the booking
+     * @return an Optional containing the booking if archived, or empty if not
+     */
+    Optional<Booking> findArchivedBooking(String confirmationCode);
+
+    /**
+     * Retrieves a page of the archived messages exchanged by two users, whoever sent them. A page holds the messages
+     * archived together, page 0 being the most recent ones, and is ordered by send date.
+     *
+     * @param firstUser one of the users
+     * @param secondUser the other user
+     * @param page the number of the page, starting from 0
+     * @return the messages of the page, empty past the oldest one
+     */
+    List<ChatMessage> findArchivedConversation(User firstUser, User secondUser, int page);
+
+    /**
+     * Finds an archived ticket by the ID it had.
+     *
+     * @param ticketId the ID of the ticket
+     * @return an Optional containing the ticket if archived, or empty if not
+     */
+    Optional<Ticket> findArchivedTicket(Long ticketId);
+
+    /**
+     * Retrieves the replies of an archived ticket, ordered by creation date.
+     *
+     * @param ticketId the ID of the ticket
+     * @return the replies, empty if the ticket is not archived
+     */
+    List<TicketReply> findArchivedTicketReplies(Long ticketId);
+}
@@ -0,0 +1,48 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+
+/**
+ * This interface defines the contract for the short transactional steps of a booking.
+ * A booking is first reserved with an expiring hold, then paid and confirmed in one short transaction,
+ * so that no transaction stays open across the whole booking flow.
+ */
+public interface BookingHoldService {
+
+    /**
+     * Reserves the dates of a booking with a pending hold.
+     * The hold blocks competing bookings until it is confirmed, released or expired.
+     *
+     * @param booking the booking to hold
+     * @return the persisted pending booking
+     */
+
+    Booking placeHold(Booking booking);
+
+    /**
+     * Pays for a pending hold, redeeming the coupon if any, and confirms the hold.
+     * Nothing is charged if the hold expired, and a rejected payment or coupon leaves the hold pending.
+     *
+     * @param booking the held booking
+     * @param couponCode the coupon code used for the payment, or null
+     * @return the confirmed booking
+     */
+
+    Booking confirmHold(Booking booking, String couponCode);
+
+    /**
+     * Releases a pending hold, freeing its dates for other customers.
+     *
+     * @param booking the held booking
+     */
+
+    void releaseHold(Booking booking);
+
+    /**
+     * Releases every hold whose expiry has passed.
+     *
+     * @return the number of released holds
+     */
+
+    int releaseExpiredHolds();
+}
@@ -2,6 +2,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.BookingCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingDashboardResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
 
@@ -25,27 +26,27 @@ public interface BookingService {
      * Finds a booking by its confirmation code.
      *
      * @param confirmationCode the confirmation code of the booking
-     * @return the Booking object if found, otherwise null
+     * @return the booking, also looked up in the archive
      */
 
-   Booking findBookingByConfirmationCode(String confirmationCode);
+   BookingResponse findBookingByConfirmationCode(String confirmationCode);
 
     /**
      * Retrieves all bookings.
      *
-     * @return a list of all Booking objects
+     * @return a list of all bookings, the latest first
      */
 
-   List<Booking> getAllBookings();
+   List<BookingResponse> getAllBookings();
 
     /**
      * Retrieves all bookings for a specific user.
      *
      * @param userId the ID of the user whose bookings are to be retrieved
-     * @return a list of Booking objects for the specified user
+     * @return a list of bookings for the specified user
      */
 
-   List<Booking> getAllBookings(Long userId);
+   List<BookingResponse> getAllBookings(Long userId);
 
     /**
      * Cancels a booking by its ID.
@@ -57,4 +58,12 @@ public interface BookingService {
    CustomResponse cancelBooking(Long bookingId);
 
    List<BookingDashboardResponse> getAllBookingsByHostId(Long hostId);
+
+    /**
+     * Marks as completed the confirmed bookings whose stay is over.
+     * Runs periodically, so the active bookings only include the current and upcoming stays.
+     *
+     * @return the number of completed bookings
+     */
+   int completeFinishedBookings();
 }
@@ -28,6 +28,16 @@ public interface ChatService {
      */
     public List<ChatMessage> getConversation(Long receiverId);
 
+    /**
+     * Retrieves a page of the archived messages between the authenticated user and another user,
+     * older than every message of the conversation.
+     *
+     * @param receiverId the ID of the user to retrieve the messages with
+     * @param page the number of the page, starting from 0 for the most recent archived messages
+     * @return the messages of the page, ordered by send date, empty past the oldest one
+     */
+    public List<ChatMessage> getArchivedMessages(Long receiverId, int page);
+
     /**
      * Retrieves all users that have exchanged messages with the authenticated user.
      *
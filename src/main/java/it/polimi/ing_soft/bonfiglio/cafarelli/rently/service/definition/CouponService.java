@@ -1,7 +1,11 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.CouponCampaignRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 
 /**
@@ -30,4 +34,24 @@ public interface CouponService {
      */
 
     Coupon assertUsedCoupon(Long userId, String couponCode);
+
+    /**
+     * Returns the hit/miss statistics of the coupon catalog cache.
+     *
+     * @return the cache statistics
+     */
+
+    CacheStatsResponse getCatalogCacheStats();
+
+    /**
+     * Generates a campaign of coupons with unique codes.
+     * Coupons are persisted in chunks and every persisted code is written to the output stream, one per line.
+     *
+     * @param request the campaign details
+     * @param outputStream the stream receiving the generated codes
+     * @return the number of generated coupons
+     * @throws IOException if the codes cannot be written to the stream
+     */
+
+    long generateCampaign(CouponCampaignRequest request, OutputStream outputStream) throws IOException;
 }
@@ -0,0 +1,44 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
+
+import java.io.OutputStream;
+
+/**
+ * This interface defines the contract for the exports of the administration lists.
+ * Every export writes its rows to the output stream while they are read, whatever the size of the table.
+ */
+public interface ExportService {
+
+    /**
+     * Exports all the bookings, ordered by ID.
+     *
+     * @param format the format of the export
+     * @param out the stream the export is written to
+     */
+    void exportBookings(ExportFormat format, OutputStream out);
+
+    /**
+     * Exports all the users, ordered by ID.
+     *
+     * @param format the format of the export
+     * @param out the stream the export is written to
+     */
+    void exportUsers(ExportFormat format, OutputStream out);
+
+    /**
+     * Exports all the reviews, ordered by ID.
+     *
+     * @param format the format of the export
+     * @param out the stream the export is written to
+     */
+    void exportReviews(ExportFormat format, OutputStream out);
+
+    /**
+     * Exports all the tickets, ordered by ID.
+     *
+     * @param format the format of the export
+     * @param out the stream the export is written to
+     */
+    void exportTickets(ExportFormat format, OutputStream out);
+}
@@ -0,0 +1,20 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+
+/**
+ * This interface defines the contract for placing properties on the map.
+ * Coordinates are resolved from the local geocoding table, without calling any external service.
+ */
+public interface GeocodingService {
+
+    /**
+     * Sets the latitude and longitude of a property from its city, state and country.
+     * The coordinates are left untouched when the place is not in the geocoding table.
+     *
+     * @param property the property to place
+     * @return true if the property has been placed, false otherwise
+     */
+
+    boolean geocode(Property property);
+}
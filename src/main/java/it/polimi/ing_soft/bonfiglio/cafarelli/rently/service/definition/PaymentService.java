@@ -6,6 +6,8 @@ public interface PaymentService {
 
     /**
      * Processes a payment for accommodation.
+     * A coupon is redeemed in the same transaction as the balance transfer, so a coupon rejected
+     * when redeemed leaves both balances untouched.
      *
      * @param hostUsername the username of the host
      * @param username the username of the user making the payment
@@ -1,9 +1,17 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AvailablePropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FacetedPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FlexibleAvailabilityRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.MapAreaPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.NearbyPropertiesRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetedSearchResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FlexibleAvailabilityResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import lombok.NonNull;
 import org.springframework.web.multipart.MultipartFile;
@@ -64,6 +72,41 @@ public interface PropertyService {
 
     Property findById(Long propertyId);
 
+    /**
+     * Finds the details of a property, already serialized as served by the API.
+     * Details are cached until the property changes, and every call counts as a view of the property.
+     *
+     * @param propertyId the ID of the property to be found
+     * @return the JSON of the property
+     */
+
+    byte[] findDetailById(Long propertyId);
+
+    /**
+     * Returns the view and favorite counts of the properties of a host, including the ones not written yet.
+     *
+     * @param hostId the ID of the host, who must be the authenticated user
+     * @return the counts of the properties of the host
+     */
+
+    List<PropertyStatsResponse> getHostPropertyStats(Long hostId);
+
+    /**
+     * Returns the statistics of the property detail cache.
+     *
+     * @return the hit/miss counters of the cache
+     */
+
+    CacheStatsResponse getDetailCacheStats();
+
+    /**
+     * Returns the statistics of the availability search cache.
+     *
+     * @return the hit/miss counters of the cache
+     */
+
+    CacheStatsResponse getAvailabilityCacheStats();
+
     /**
      * Finds all properties.
      *
@@ -116,4 +159,90 @@ public interface PropertyService {
 
     List <Property> findAvailableProperties(AvailablePropertiesRequest request);
 
-}
\ No newline at end of file
+    /**
+     * Finds the properties matching a free-text query on their title, description, city, state and country.
+     *
+     * @param query the text to search for
+     * @param limit the maximum number of results
+     * @return the matching properties, best match first
+     */
+
+    List<Property> search(String query, int limit);
+
+    /**
+     * Rebuilds the full-text search index from the database.
+     *
+     * @return the number of indexed properties
+     */
+
+    int rebuildSearchIndex();
+
+    /**
+     * Finds the available properties within a distance from a point, closest first.
+     * The availability for the dates is only checked when both dates are given.
+     *
+     * @param request the center, the radius and the criteria for the stay
+     * @return the matching properties, closest first
+     */
+
+    List<Property> findNearby(NearbyPropertiesRequest request);
+
+    /**
+     * Finds the available properties inside the visible area of a map, closest to its center first.
+     * The availability for the dates is only checked when both dates are given.
+     *
+     * @param request the bounds of the area and the criteria for the stay
+     * @return the matching properties, closest to the center first
+     */
+
+    List<Property> findInMapArea(MapAreaPropertiesRequest request);
+
+    /**
+     * Rebuilds the spatial index from the database.
+     *
+     * @return the number of indexed properties
+     */
+
+    int rebuildGeoIndex();
+
+    /**
+     * Filters the available properties of a city by facets and counts them in every facet bucket.
+     * The counts come from the in-memory facet index, the availability for the dates is only checked
+     * when both dates are given.
+     *
+     * @param request the city, the selected facet buckets and the requested page
+     * @return the requested page of matching properties with the facet counts
+     */
+
+    FacetedSearchResponse findFaceted(FacetedPropertiesRequest request);
+
+    /**
+     * Finds the properties of a city that can host a stay of the given length somewhere inside a window of dates.
+     * The bookings of the whole city are read with a single query and swept once per property.
+     *
+     * @param request the city, the window, the length of the stay and the number of guests
+     * @return the properties with at least one feasible check-in date, each with all of its feasible dates
+     */
+
+    List<FlexibleAvailabilityResponse> findFlexibleAvailability(FlexibleAvailabilityRequest request);
+
+    /**
+     * Rebuilds the facet index from the database.
+     *
+     * @return the number of indexed properties
+     */
+
+    int rebuildFacetIndex();
+
+    /**
+     * Finds the most popular properties, overall or in a city.
+     * Popularity comes from the recent views, favorites and bookings, ranked in memory;
+     * properties that are not available are left out.
+     *
+     * @param city the city of the properties, or null for every city
+     * @param limit the maximum number of properties to return
+     * @return the most popular properties, the most popular first
+     */
+
+    List<Property> findTrending(String city, int limit);
+}
@@ -0,0 +1,41 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
+
+/**
+ * This interface defines the contract for maintaining the rating summaries of properties and users.
+ * Every method must run inside the transaction that changes the review, so the summary never diverges from it.
+ */
+public interface RatingAggregateService {
+
+    /**
+     * Adds the rating of a new review to the summary of its property or reviewed user.
+     *
+     * @param review the created review
+     */
+
+    void addRating(Review review);
+
+    /**
+     * Replaces the previous rating of an updated review in the summary of its property or reviewed user.
+     *
+     * @param review the updated review, holding the new rating
+     * @param previousRating the rating of the review before the update
+     */
+
+    void changeRating(Review review, int previousRating);
+
+    /**
+     * Removes the rating of a deleted review from the summary of its property or reviewed user.
+     *
+     * @param review the deleted review
+     */
+
+    void removeRating(Review review);
+
+    /**
+     * Recomputes every rating summary from the reviews.
+     */
+
+    void rebuildRatings();
+}
@@ -2,11 +2,12 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.HostResponseRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewCreateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewPageRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CursorPageResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
 
-import java.util.List;
 
 /**
  * This interface defines the contract for review services.
@@ -52,31 +53,35 @@ public interface ReviewService {
     Review findById(Long reviewId);
 
     /**
-     * Retrieves all reviews for a specific property
+     * Retrieves a page of the reviews for a specific property
      * @param propertyId the ID of the property
-     * @return a list of reviews for the property
+     * @param pageRequest the order, cursor and size of the page
+     * @return a page of reviews for the property
      */
-    List<Review> findByPropertyId(Long propertyId);
+    CursorPageResponse<Review> findByPropertyId(Long propertyId, ReviewPageRequest pageRequest);
 
     /**
-     * Retrieves all reviews for a specific user
-     * @param reviewedUserId the ID of the property
-     * @return a list of reviews for the property
+     * Retrieves a page of the reviews for a specific user
+     * @param reviewedUserId the ID of the user
+     * @param pageRequest the order, cursor and size of the page
+     * @return a page of reviews for the user
      */
-    List<Review> findByReviewedUserId(Long reviewedUserId);
+    CursorPageResponse<Review> findByReviewedUserId(Long reviewedUserId, ReviewPageRequest pageRequest);
 
     /**
-     * Retrieves all reviews by a specific reviewer
+     * Retrieves a page of the reviews by a specific reviewer
      * @param reviewerId the ID of the reviewer
-     * @return a list of reviews by the reviewer
+     * @param pageRequest the order, cursor and size of the page
+     * @return a page of reviews by the reviewer
      */
-    List<Review> findByReviewerId(Long reviewerId);
+    CursorPageResponse<Review> findByReviewerId(Long reviewerId, ReviewPageRequest pageRequest);
 
     /**
-     * Retrieves all reviews in the system
-     * @return a list of all reviews
+     * Retrieves a page of all reviews in the system
+     * @param pageRequest the order, cursor and size of the page
+     * @return a page of reviews
      */
-    List<Review> findAll();
+    CursorPageResponse<Review> findAll(ReviewPageRequest pageRequest);
 
     /**
      * Adds a host response to a property review
@@ -108,6 +108,7 @@ public interface UserService {
 
     /**
      * Adds a property to the user's favorites.
+     * Adding a property that is already a favorite leaves the favorites unchanged.
      *
      * @param username the username of the user
      * @param propertyId the ID of the property to be added to favorites
@@ -127,13 +128,15 @@ public interface UserService {
     User removeFavoriteProperty(String username, Long propertyId);
 
     /**
-     * Retrieves all favorite properties of a user.
+     * Retrieves a page of the favorite properties of a user, the most recently added first.
      *
      * @param username the username of the user
-     * @return a list of all favorite properties for the user
+     * @param page the number of the page, starting from 0
+     * @param size the number of properties in a page
+     * @return the favorite properties in the page
      */
 
-    List<Property> getAllFavoriteProperties(String username);
+    List<Property> getFavoriteProperties(String username, int page, int size);
 
     /**
      * Recharges the user's balance.
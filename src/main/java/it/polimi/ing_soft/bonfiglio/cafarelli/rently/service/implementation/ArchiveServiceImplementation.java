@@ -0,0 +1,210 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.ArchiveCodec;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.BookingSnapshot;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.ChatMessageSnapshot;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.TicketSnapshot;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.*;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.*;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.state.ticket.impl.Closed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the ArchiveService interface.
+ * <p>
+ * Every night the records older than their horizon are moved to the archived_record table as gzipped JSON
+ * snapshots, in batches of {@code application.archive.batch-size} rows, each in its own transaction so the
+ * primary tables are never locked for long. The horizons are configured in months with
+ * {@code application.archive.bookings-after-months}, {@code application.archive.chat-messages-after-months}
+ * and {@code application.archive.tickets-after-months}. Only the completed and cancelled bookings are archived,
+ * and the chat messages of a batch are grouped by conversation, which compresses far better than one by one.
+ * </p>
+ * Archived bookings and tickets are still found by their lookups, and archived chat messages are read back
+ * one batch at a time, only when asked for older messages. Archived bookings stop counting as stays for
+ * the review eligibility.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveServiceImplementation implements ArchiveService {
+
+    private static final List<BookingStatus> CONCLUDED = List.of(BookingStatus.COMPLETED, BookingStatus.CANCELLED);
+
+    private final ArchivedRecordRepository archivedRecordRepository;
+    private final BookingRepository bookingRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final TicketRepository ticketRepository;
+    private final TicketReplyRepository ticketReplyRepository;
+    private final UserRepository userRepository;
+    private final PropertyRepository propertyRepository;
+    private final ArchiveCodec archiveCodec;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${application.archive.bookings-after-months:12}")
+    private int bookingsAfterMonths;
+
+    @Value("${application.archive.chat-messages-after-months:12}")
+    private int chatMessagesAfterMonths;
+
+    @Value("${application.archive.tickets-after-months:6}")
+    private int ticketsAfterMonths;
+
+    /**
+     * Archives every kind of record past its horizon.
+     */
+    @Scheduled(cron = "0 0 5 * * *")
+    public void archive() {
+        log.info("Archived {} bookings, {} chat messages and {} tickets",
+                archiveBookings(), archiveChatMessages(), archiveTickets());
+    }
+
+    @Override
+    public int archiveBookings() {
+        LocalDate horizon = LocalDate.now().minusMonths(bookingsAfterMonths);
+        return inBatches(() -> {
+            List<Booking> bookings = bookingRepository.findByStatusInAndCheckOutDateBefore(CONCLUDED, horizon, batch());
+            archivedRecordRepository.saveAll(bookings.stream()
+                    .map(booking -> archived(ArchiveKind.BOOKING, booking.getId(), booking.getBookingConfirmationCode(),
+                            BookingSnapshot.of(booking)))
+                    .toList());
+            bookingRepository.deleteAllInBatch(bookings);
+            return bookings.size();
+        });
+    }
+
+    @Override
+    public int archiveChatMessages() {
+        LocalDateTime horizon = LocalDateTime.now().minusMonths(chatMessagesAfterMonths);
+        return inBatches(() -> {
+            List<ChatMessage> messages = chatMessageRepository.findBySendAtBefore(horizon, batch());
+            Map<String, List<ChatMessageSnapshot>> conversations = messages.stream()
+                    .map(ChatMessageSnapshot::of)
+                    .collect(Collectors.groupingBy(message -> ChatMessageSnapshot.conversationKey(
+                            message.senderId(), message.receiverId()), LinkedHashMap::new, Collectors.toList()));
+            archivedRecordRepository.saveAll(conversations.entrySet().stream()
+                    .map(conversation -> archived(ArchiveKind.CHAT_MESSAGE, conversation.getValue().get(0).id(),
+                            conversation.getKey(), conversation.getValue()))
+                    .toList());
+            chatMessageRepository.deleteAllInBatch(messages);
+            return messages.size();
+        });
+    }
+
+    @Override
+    public int archiveTickets() {
+        LocalDateTime horizon = LocalDateTime.now().minusMonths(ticketsAfterMonths);
+        return inBatches(() -> {
+            List<Ticket> tickets = ticketRepository.findClosedBefore(horizon, batch());
+            if (tickets.isEmpty()) {
+                return 0;
+            }
+            List<TicketReply> replies = ticketReplyRepository.findByTicketIdIn(tickets.stream().map(Ticket::getId).toList());
+            Map<Long, List<TicketReply>> repliesByTicket = replies.stream()
+                    .sorted(Comparator.comparing(TicketReply::getCreationDate, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .collect(Collectors.groupingBy(reply -> reply.getTicket().getId()));
+            archivedRecordRepository.saveAll(tickets.stream()
+                    .map(ticket -> archived(ArchiveKind.TICKET, ticket.getId(), null,
+                            TicketSnapshot.of(ticket, repliesByTicket.getOrDefault(ticket.getId(), List.of()))))
+                    .toList());
+            ticketReplyRepository.deleteAllInBatch(replies);
+            ticketRepository.deleteAllInBatch(tickets);
+            return tickets.size();
+        });
+    }
+
+    @Override
+    public Optional<Booking> findArchivedBooking(String confirmationCode) {
+        return archivedRecordRepository.findFirstByKindAndLookupKey(ArchiveKind.BOOKING, confirmationCode)
+                .map(archived -> archiveCodec.decode(archived.getPayload(), BookingSnapshot.class))
+                .map(booking -> booking.toBooking(
+                        booking.userId() != null ? userRepository.findById(booking.userId()).orElse(null) : null,
+                        booking.propertyId() != null ? propertyRepository.findById(booking.propertyId()).orElse(null) : null));
+    }
+
+    @Override
+    public List<ChatMessage> findArchivedConversation(User firstUser, User secondUser, int page) {
+        String conversationKey = ChatMessageSnapshot.conversationKey(firstUser.getId(), secondUser.getId());
+        // Batches are archived oldest first, so the latest batch holds the most recent archived messages
+        Pageable batch = PageRequest.of(page, 1, Sort.by(Sort.Direction.DESC, "id"));
+        return archivedRecordRepository.findByKindAndLookupKey(ArchiveKind.CHAT_MESSAGE, conversationKey, batch).stream()
+                .flatMap(archived -> Arrays.stream(archiveCodec.decode(archived.getPayload(), ChatMessageSnapshot[].class)))
+                .sorted(Comparator.comparing(ChatMessageSnapshot::sendAt).thenComparing(ChatMessageSnapshot::id))
+                .map(message -> firstUser.getId().equals(message.senderId())
+                        ? new ChatMessage(message.id(), message.content(), firstUser, secondUser, message.sendAt())
+                        : new ChatMessage(message.id(), message.content(), secondUser, firstUser, message.sendAt()))
+                .toList();
+    }
+
+    @Override
+    public Optional<Ticket> findArchivedTicket(Long ticketId) {
+        return findTicketSnapshot(ticketId).map(snapshot -> {
+            Ticket ticket = new Ticket();
+            ticket.setId(snapshot.id());
+            ticket.setTitle(snapshot.title());
+            ticket.setDescription(snapshot.description());
+            ticket.setCreationDate(snapshot.creationDate());
+            ticket.setClosingDate(snapshot.closingDate());
+            ticket.setUser(userRepository.findById(snapshot.userId()).orElse(null));
+            ticket.setState(new Closed());
+            return ticket;
+        });
+    }
+
+    @Override
+    public List<TicketReply> findArchivedTicketReplies(Long ticketId) {
+        return findTicketSnapshot(ticketId).map(snapshot -> {
+            Ticket ticket = new Ticket();
+            ticket.setId(snapshot.id());
+            return snapshot.replies().stream()
+                    .map(reply -> new TicketReply(reply.id(), reply.content(), reply.creationDate(), ticket,
+                            userRepository.findById(reply.userId()).orElse(null), reply.fromModerator()))
+                    .toList();
+        }).orElse(List.of());
+    }
+
+    private Optional<TicketSnapshot> findTicketSnapshot(Long ticketId) {
+        return archivedRecordRepository.findByKindAndSourceId(ArchiveKind.TICKET, ticketId)
+                .map(archived -> archiveCodec.decode(archived.getPayload(), TicketSnapshot.class));
+    }
+
+    /**
+     * Runs a batch in its own transaction until one comes back short.
+     *
+     * @return the total number of archived records
+     */
+    private int inBatches(IntSupplier batch) {
+        int total = 0;
+        int archived;
+        do {
+            archived = Objects.requireNonNull(transactionTemplate.execute(status -> batch.getAsInt()));
+            total += archived;
+        } while (archived == batchSize);
+        return total;
+    }
+
+    private Pageable batch() {
+        return PageRequest.of(0, batchSize, Sort.by("id"));
+    }
+
+    private ArchivedRecord archived(ArchiveKind kind, Long sourceId, String lookupKey, Object snapshot) {
+        return new ArchivedRecord(null, kind, sourceId, lookupKey, LocalDateTime.now(), archiveCodec.encode(snapshot));
+    }
+}
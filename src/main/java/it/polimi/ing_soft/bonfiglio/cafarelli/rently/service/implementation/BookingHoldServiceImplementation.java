@@ -0,0 +1,125 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookingCalendar;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.ExpiredHold;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.PaymentRejectedException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UnavailablePropertyException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.BookingHoldService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PaymentService;
+import jakarta.transaction.Transactional;
+import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * This class implements the BookingHoldService interface.
+ * Every method runs in its own short transaction. The payment joins the transaction of
+ * {@link #confirmHold(Booking, String)}, so the balances, the coupon redemption and the booking status
+ * are committed or rolled back together.
+ */
+@Service
+@AllArgsConstructor
+public class BookingHoldServiceImplementation implements BookingHoldService {
+
+    /**
+     * How long a hold blocks the dates. It is far longer than a payment takes,
+     * so only holds left behind by a crashed request are ever reaped.
+     */
+    static final long HOLD_DURATION_MINUTES = 15;
+
+    private static final long REAPER_INTERVAL_MS = 60_000;
+
+    private final BookingRepository bookingRepository;
+    private final PropertyRepository propertyRepository;
+    private final PaymentService paymentService;
+    private final AvailabilitySearchCache availabilitySearchCache;
+    private final BookingCalendar bookingCalendar;
+
+    @Override
+    @Transactional
+    public Booking placeHold(Booking booking) {
+        // Lock the property row so that two holds on the same dates cannot be placed concurrently
+        Property property = propertyRepository.findByIdForUpdate(booking.getProperty().getId())
+                .orElseThrow(() -> new EntityNotFoundException(Property.class));
+
+        // The calendar falls back on the overlap query unless the exclusion constraint backs its answers up
+        if (bookingCalendar.isTaken(property.getId(), booking.getCheckInDate(), booking.getCheckOutDate())) {
+            throw new UnavailablePropertyException("Property not available for the selected dates");
+        }
+
+        // Expired holds not reaped yet would still trip the exclusion constraint
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.deleteExpiredHolds(property.getId(), booking.getCheckInDate(), booking.getCheckOutDate(), now);
+
+        booking.setStatus(BookingStatus.PENDING);
+        booking.setHoldExpiresAt(now.plusMinutes(HOLD_DURATION_MINUTES));
+
+        Booking hold;
+        try {
+            hold = bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            // The exclusion constraint caught a stay the calendar missed
+            bookingCalendar.evict(property.getId());
+            throw new UnavailablePropertyException("Property not available for the selected dates");
+        }
+        bookingCalendar.add(hold);
+        availabilitySearchCache.invalidate(property.getCity(), booking.getCheckInDate(), booking.getCheckOutDate());
+        return hold;
+    }
+
+    @Override
+    @Transactional
+    public Booking confirmHold(Booking booking, String couponCode) {
+        if (bookingRepository.confirmHold(booking.getId(), booking.getCheckOutDate(), BookingStatus.CONFIRMED, LocalDateTime.now()) == 0) {
+            throw new UnavailablePropertyException("The booking hold expired before the confirmation");
+        }
+
+        boolean paid = paymentService.payForAccomodation(booking.getProperty().getHost().getUsername(),
+                booking.getUser().getUsername(), booking.getTotal(), couponCode);
+        if (!paid) {
+            throw new PaymentRejectedException("Unable to complete the payment");
+        }
+
+        booking.setStatus(BookingStatus.CONFIRMED);
+        booking.setHoldExpiresAt(null);
+        bookingCalendar.confirm(booking);
+
+        return booking;
+    }
+
+    @Override
+    @Transactional
+    public void releaseHold(Booking booking) {
+        bookingRepository.deleteById(booking.getId());
+        bookingCalendar.remove(booking);
+        availabilitySearchCache.invalidate(booking.getProperty().getCity(), booking.getCheckInDate(), booking.getCheckOutDate());
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelay = REAPER_INTERVAL_MS)
+    public int releaseExpiredHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ExpiredHold> expired = bookingRepository.findExpiredHolds(now);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        int released = bookingRepository.deleteExpiredHolds(expired.stream().map(ExpiredHold::bookingId).toList(), now);
+        for (ExpiredHold hold : expired) {
+            bookingCalendar.remove(hold.propertyId(), hold.bookingId());
+            availabilitySearchCache.invalidate(hold.city(), hold.checkInDate(), hold.checkOutDate());
+        }
+        return released;
+    }
+}
@@ -1,32 +1,37 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation.BookingBuilderImplementation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookingCalendar;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.BookingCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingDashboardResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.UserSummary;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.PaymentRejectedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UnavailablePropertyException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Role;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.BookingHoldService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.BookingService;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.CouponService;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PaymentService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.BookingUtils;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -39,14 +44,17 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class BookingServiceImplementation implements BookingService {
 
+    private static final long COMPLETION_INTERVAL_MS = 60 * 60 * 1000;
+
     private final BookingRepository bookingRepository;
-    private final CouponService couponService;
-    private final PaymentService paymentService;
     private final EventManager eventManager;
     private final UserRepository userRepository;
+    private final BookingHoldService bookingHoldService;
+    private final AvailabilitySearchCache availabilitySearchCache;
+    private final BookingCalendar bookingCalendar;
+    private final ArchiveService archiveService;
 
     @Override
-    @Transactional
     public CustomResponse saveBooking(BookingCreateRequest bookingRequest) {
         User customer = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
@@ -56,10 +64,6 @@ public class BookingServiceImplementation implements BookingService {
 
             Property property = bookingRequest.getProperty();
 
-            if (!propertyIsAvailable(bookingRequest)) {
-                throw new UnavailablePropertyException("Property not available for the selected dates");
-            }
-
             if(property.getMaxGuests() < (bookingRequest.getNumOfAdults() + bookingRequest.getNumOfChildren())) {
                 throw new UnavailablePropertyException("The property cannot accommodate that number of people");
             }
@@ -75,38 +79,40 @@ public class BookingServiceImplementation implements BookingService {
                     .bookingConfirmationCode(BookingUtils.generateRandomConfirmationCode(10))
                     .build();
 
+            // Reserve the dates first, so that competing bookings are blocked while the payment runs
+            Booking hold = bookingHoldService.placeHold(booking);
 
+            // The payment is rolled back with a failed confirmation, only the hold is left to release
+            Booking confirmed;
+            try {
+                confirmed = bookingHoldService.confirmHold(hold, bookingRequest.getCouponCode());
+            } catch (RuntimeException e) {
+                bookingHoldService.releaseHold(hold);
+                throw e;
+            }
 
-            if (paymentService.payForAccomodation(property.getHost().getUsername(), customer.getUsername(), booking.getTotal(), bookingRequest.getCouponCode())) {
-                bookingRepository.save(booking);
-
-                if (bookingRequest.getCouponCode() != null) {
-                    couponService.assertUsedCoupon(customer.getId(), bookingRequest.getCouponCode());
-                }
-
-                eventManager.notify("BOOKING_CREATED", booking);
+            // Notifications are sent once the booking is committed, outside of any transaction
+            eventManager.notify("BOOKING_CREATED", confirmed);
 
-                return new CustomResponse("Booking confirmed");
-            } else {
-                throw new PaymentRejectedException("Unable to complete the payment");
-            }
+            return new CustomResponse("Booking confirmed");
     }
 
     @Override
-    public Booking findBookingByConfirmationCode(String confirmationCode) {
+    public BookingResponse findBookingByConfirmationCode(String confirmationCode) {
 
-            return bookingRepository.findByBookingConfirmationCode(confirmationCode)
+            return bookingRepository.findResponseByConfirmationCode(confirmationCode)
+                    .or(() -> archiveService.findArchivedBooking(confirmationCode).map(BookingResponse::fromEntity))
                     .orElseThrow(() -> new EntityNotFoundException(Booking.class));
     }
 
     @Override
-    public List<Booking> getAllBookings() {
-        return bookingRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
+    public List<BookingResponse> getAllBookings() {
+        return bookingRepository.findAllResponses();
     }
 
     @Override
-    public List<Booking> getAllBookings(Long userId) {
-        return bookingRepository.findByUserId(userId);
+    public List<BookingResponse> getAllBookings(Long userId) {
+        return bookingRepository.findResponsesByUserId(userId);
     }
 
     @Override
@@ -123,7 +129,12 @@ public class BookingServiceImplementation implements BookingService {
             throw new UserUnauthorizedException("Utente non autorizzato");
         }
 
-        // Recupera utenti prima dell'eliminazione
+        // Cancella la prenotazione aggiornandone solo lo stato, così lo storico viene conservato
+        if (bookingRepository.cancel(bookingId, booking.getCheckOutDate()) == 0) {
+            throw new DataValidationException("La prenotazione è già cancellata o conclusa");
+        }
+
+        // Recupera gli utenti coinvolti
         User customer = booking.getUser();
         User host = booking.getProperty().getHost();
         BigDecimal refundAmount = booking.getTotal();
@@ -136,8 +147,9 @@ public class BookingServiceImplementation implements BookingService {
         userRepository.save(customer);
         userRepository.save(host);
 
-        // Elimina la prenotazione
-        bookingRepository.delete(booking);
+        // Libera le date
+        bookingCalendar.remove(booking);
+        availabilitySearchCache.invalidate(booking.getProperty().getCity(), booking.getCheckInDate(), booking.getCheckOutDate());
 
         // Notifica l'evento di cancellazione
         eventManager.notify("BOOKING_CANCELED", booking);
@@ -145,9 +157,16 @@ public class BookingServiceImplementation implements BookingService {
         return new CustomResponse("Prenotazione cancellata con successo");
     }
 
+    @Override
+    @Transactional
+    @Scheduled(fixedDelay = COMPLETION_INTERVAL_MS)
+    public int completeFinishedBookings() {
+        return bookingRepository.completeFinishedBookings(LocalDate.now());
+    }
+
     @Override
     public List<BookingDashboardResponse> getAllBookingsByHostId(Long hostId) {
-        List<Booking> bookings = bookingRepository.findByProperty_Host_Id(hostId);
+        List<Booking> bookings = bookingRepository.findByProperty_Host_IdAndStatusNot(hostId, BookingStatus.CANCELLED);
         return bookings.stream()
                 .map(booking -> new BookingDashboardResponse(
                         booking.getProperty().getTitle(),
@@ -163,13 +182,4 @@ public class BookingServiceImplementation implements BookingService {
                 ))
                 .collect(Collectors.toList());
     }
-
-
-    private boolean propertyIsAvailable(BookingCreateRequest bookingRequest) {
-        return !bookingRepository.existsOverlappingBooking(
-            bookingRequest.getProperty().getId(),
-            bookingRequest.getCheckInDate(),
-            bookingRequest.getCheckOutDate()
-        );
-    }
 }
\ No newline at end of file
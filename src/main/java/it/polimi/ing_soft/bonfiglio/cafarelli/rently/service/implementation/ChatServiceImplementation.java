@@ -3,9 +3,11 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.definition.ChatMessageBuilder;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ChatMessageRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ChatMessage;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.ChatMessageRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ChatService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.UserService;
 import lombok.AllArgsConstructor;
@@ -30,6 +32,8 @@ public class ChatServiceImplementation implements ChatService {
 
     private final UserService userService;
 
+    private final ArchiveService archiveService;
+
     /**
      * Sends a chat message from the authenticated user to another user.
      * 
@@ -54,6 +58,7 @@ public class ChatServiceImplementation implements ChatService {
 
     /**
      * Retrieves the conversation between the authenticated user and another user.
+     * Archived messages are left out, see {@link #getArchivedMessages(Long, int)}.
      * 
      * @param receiverId the ID of the user to retrieve conversation with
      * @return a list of chat messages representing the conversation
@@ -68,6 +73,25 @@ public class ChatServiceImplementation implements ChatService {
         return chatMessageRepository.findConversationBetweenUsers(sender, receiver);
     }
 
+    /**
+     * Retrieves a page of the archived messages between the authenticated user and another user,
+     * for when the client scrolls past the conversation.
+     *
+     * @param receiverId the ID of the user to retrieve the messages with
+     * @param page the number of the page, starting from 0 for the most recent archived messages
+     * @return the messages of the page, ordered by send date
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessage> getArchivedMessages(Long receiverId, int page) {
+        if (page < 0) {
+            throw new DataValidationException("The page number cannot be negative");
+        }
+        User sender = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User receiver = userService.findById(receiverId);
+
+        return archiveService.findArchivedConversation(sender, receiver, page);
+    }
+
     /**
      * Retrieves all users that have exchanged messages with the authenticated user.
      * 
@@ -1,35 +1,52 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation.CouponBuilderImplementation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponCatalogCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponQuotaCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponRedemptionCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.CouponCampaignRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponAlreadyUsedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponExpiredException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponSoldOutException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.CouponService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.util.CouponUtils;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.*;
 
 /**
  * This class implements the CouponService interface, providing methods for applying coupons to total prices.
- * It uses a CouponRepository to interact with the database.
+ * Coupons are looked up through the CouponCatalogCache, the CouponRepository is used to record redemptions.
  */
 @Service
 @AllArgsConstructor
 public class CouponServiceImplementation implements CouponService {
 
+    static final int CAMPAIGN_CHUNK_SIZE = 1_000;
+
     private final CouponRepository couponRepository;
     private final UserRepository userRepository;
+    private final CouponRedemptionCache couponRedemptionCache;
+    private final CouponCatalogCache couponCatalogCache;
+    private final CouponQuotaCache couponQuotaCache;
 
     @Override
     @Transactional
     public BigDecimal applyCoupon(Long userId, String couponCode, BigDecimal originalAmount) {
-        Coupon coupon = couponRepository.findByCode(couponCode).orElseThrow(() ->
+        Coupon coupon = couponCatalogCache.findByCode(couponCode).orElseThrow(() ->
                  new EntityNotFoundException(Coupon.class)
         );
 
@@ -37,13 +54,15 @@ public class CouponServiceImplementation implements CouponService {
             throw new CouponExpiredException();
         }
 
-        if (coupon.getUsers().stream().anyMatch(user -> user.getId().equals(userId))) {
+        if (couponRedemptionCache.hasRedeemed(coupon.getId(), userId)) {
             throw new CouponAlreadyUsedException();
         }
 
-        BigDecimal discountedAmount = originalAmount;
-
+        if (!couponQuotaCache.hasRemaining(coupon)) {
+            throw new CouponSoldOutException();
+        }
 
+        BigDecimal discountedAmount = originalAmount;
 
         // Apply percentage discount, if present
         if (coupon.getDiscountPercentage() != null) {
@@ -65,13 +84,92 @@ public class CouponServiceImplementation implements CouponService {
     }
 
     @Override
+    @Transactional
     public Coupon assertUsedCoupon(Long userId, String couponCode) {
-        Coupon coupon = couponRepository.findByCode(couponCode).orElseThrow(
+        Coupon coupon = couponCatalogCache.findByCode(couponCode).orElseThrow(
                 () -> new EntityNotFoundException(Coupon.class)
         );
-        coupon.getUsers().add(userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException(User.class)));
-        couponRepository.save(coupon);
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException(User.class);
+        }
+        // The in-memory permit rejects the bulk of a flash sale, the conditional update enforces the limit
+        if (!couponQuotaCache.tryReserve(coupon)) {
+            throw new CouponSoldOutException();
+        }
+        if (coupon.getMaxRedemptions() != null && couponRepository.incrementRedemptionCount(coupon.getId()) == 0) {
+            couponQuotaCache.markSoldOut(coupon.getId());
+            throw new CouponSoldOutException();
+        }
+        couponRepository.insertRedemption(coupon.getId(), userId);
+        couponRedemptionCache.recordRedemption(coupon.getId(), userId);
         return coupon;
     }
-}
\ No newline at end of file
+
+    @Override
+    public CacheStatsResponse getCatalogCacheStats() {
+        return couponCatalogCache.stats();
+    }
+
+    @Override
+    public long generateCampaign(CouponCampaignRequest request, OutputStream outputStream) throws IOException {
+        if (request.getDiscountAmount() == null && request.getDiscountPercentage() == null) {
+            throw new DataValidationException("A coupon needs a discount amount or a discount percentage");
+        }
+
+        String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        int length = request.getCodeLength();
+
+        Coupon template = new CouponBuilderImplementation()
+                .discountAmount(request.getDiscountAmount())
+                .discountPercentage(request.getDiscountPercentage())
+                .expiryDate(request.getExpiryDate())
+                .build();
+
+        // Codes are kept as sorted primitive values, 8 bytes each, instead of a set of strings
+        long[] values = CouponUtils.uniqueRandomCodeValues(request.getCount(), length);
+        Set<Long> replacements = new HashSet<>();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        long generated = 0;
+
+        for (int from = 0; from < values.length; from += CAMPAIGN_CHUNK_SIZE) {
+            int to = Math.min(from + CAMPAIGN_CHUNK_SIZE, values.length);
+            List<String> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(prefix + CouponUtils.encode(values[i], length));
+            }
+
+            // Codes already taken by older coupons are replaced and checked again
+            while (!chunk.isEmpty()) {
+                Set<String> existing = couponRepository.findExistingCodes(chunk);
+                List<String> fresh = chunk.stream().filter(code -> !existing.contains(code)).toList();
+
+                couponRepository.batchInsert(fresh, template);
+                for (String code : fresh) {
+                    writer.write(code);
+                    writer.write('\n');
+                }
+                generated += fresh.size();
+
+                chunk = new ArrayList<>(existing.size());
+                for (int i = 0; i < existing.size(); i++) {
+                    chunk.add(prefix + CouponUtils.encode(freshCodeValue(values, replacements, length), length));
+                }
+            }
+            writer.flush();
+        }
+
+        return generated;
+    }
+
+    /**
+     * Draws a code value that is neither in the campaign nor among the replacements already drawn.
+     */
+    private long freshCodeValue(long[] values, Set<Long> replacements, int length) {
+        long value;
+        do {
+            value = CouponUtils.randomCodeValue(length);
+        } while (Arrays.binarySearch(values, value) >= 0 || !replacements.add(value));
+        return value;
+    }
+}
@@ -0,0 +1,64 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.*;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.ReviewRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.TicketRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * This class implements the ExportService interface.
+ * <p>
+ * The rows are constructor projections streamed from a forward-only cursor, so neither the result set nor the
+ * persistence context grows with the table. The stream stays open, inside its own transaction, for as long as
+ * the response is written. On MySQL the driver only fetches in chunks with {@code useCursorFetch=true}
+ * in the connection URL.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportServiceImplementation implements ExportService {
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final ReviewRepository reviewRepository;
+    private final TicketRepository ticketRepository;
+    private final ExportWriter exportWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void exportBookings(ExportFormat format, OutputStream out) {
+        export(bookingRepository::streamAllForExport, BookingExportRow.class, format, out);
+    }
+
+    @Override
+    public void exportUsers(ExportFormat format, OutputStream out) {
+        export(userRepository::streamAllForExport, UserExportRow.class, format, out);
+    }
+
+    @Override
+    public void exportReviews(ExportFormat format, OutputStream out) {
+        export(reviewRepository::streamAllForExport, ReviewExportRow.class, format, out);
+    }
+
+    @Override
+    public void exportTickets(ExportFormat format, OutputStream out) {
+        export(ticketRepository::streamAllForExport, TicketExportRow.class, format, out);
+    }
+
+    private <T extends Record> void export(Supplier<Stream<T>> query, Class<T> type, ExportFormat format, OutputStream out) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<T> rows = query.get()) {
+                exportWriter.write(rows, type, format, out);
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.GeoLocation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.GeoLocationRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.GeocodingService;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * This class implements the GeocodingService interface on top of the local geocoding table.
+ * A place is first looked up by city, state and country, then by city and country only,
+ * since hosts do not always spell the state the same way as the table.
+ */
+@Service
+@RequiredArgsConstructor
+public class GeocodingServiceImplementation implements GeocodingService {
+
+    private final GeoLocationRepository geoLocationRepository;
+
+    @Override
+    public boolean geocode(@NonNull Property property) {
+        if (property.getCity() == null || property.getCountry() == null) {
+            return false;
+        }
+
+        Optional<GeoLocation> location = geoLocationRepository
+                .findFirstByCityIgnoreCaseAndStateIgnoreCaseAndCountryIgnoreCase(property.getCity().trim(),
+                        property.getState() == null ? "" : property.getState().trim(), property.getCountry().trim())
+                .or(() -> geoLocationRepository.findFirstByCityIgnoreCaseAndCountryIgnoreCase(
+                        property.getCity().trim(), property.getCountry().trim()));
+
+        location.ifPresent(geoLocation -> {
+            property.setLatitude(geoLocation.getLatitude());
+            property.setLongitude(geoLocation.getLongitude());
+        });
+        return location.isPresent();
+    }
+}
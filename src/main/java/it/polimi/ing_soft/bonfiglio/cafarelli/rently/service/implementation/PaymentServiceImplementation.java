@@ -30,6 +30,8 @@ public class PaymentServiceImplementation implements PaymentService {
 
 
             if(userService.deductBalance(username, discountedPrice)) {
+                // Redeeming in the payment transaction: a sold out coupon rolls the deduction back
+                couponService.assertUsedCoupon(userId, couponCode);
                 userService.rechargeBalance(hostUsername, discountedPrice);
                 return true;
             } else {
@@ -1,30 +1,74 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation.PropertyBuilderImplementation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyDetailCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyFavoriteCounter;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyViewCounter;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AvailablePropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FacetedPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FlexibleAvailabilityRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.MapAreaPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.NearbyPropertiesRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetCount;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetedSearchResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FlexibleAvailabilityResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityRegistrationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.PropertyAlreadyExistsException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.BookedInterval;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.FacetedResult;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacet;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacetDocument;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacetIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyGeoIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyLocation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertySearchDocument;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertySearchIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.StayWindows;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.GeocodingService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PropertyService;
+import jakarta.transaction.Transactional;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * This class implements the PropertyService interface and provides methods for managing properties.
@@ -34,10 +78,43 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class PropertyServiceImplementation implements PropertyService {
 
+    static final int MAX_SEARCH_RESULTS = 100;
+
+    /**
+     * Maximum number of properties returned by a map or nearby search.
+     */
+    static final int MAX_GEO_RESULTS = 200;
+
+    /**
+     * Maximum number of candidates a map or nearby search takes from the spatial index before giving up
+     * on filling its results.
+     */
+    static final int MAX_GEO_CANDIDATES = 3_200;
+
+    /**
+     * Maximum number of candidate IDs bound to a single availability query.
+     */
+    static final int GEO_CHUNK_SIZE = 1_000;
+
+    /**
+     * Maximum number of days between the earliest Check-in and the latest Check-out of a flexible-date search.
+     */
+    static final int MAX_FLEXIBLE_WINDOW_DAYS = 60;
+
     private final PropertyRepository propertyRepository;
     private final UserRepository userRepository;
     private final LocalStorageService localStorageService;
     private final BookingRepository bookingRepository;
+    private final PropertySearchIndex propertySearchIndex;
+    private final PropertyGeoIndex propertyGeoIndex;
+    private final PropertyFacetIndex propertyFacetIndex;
+    private final PropertyDetailCache propertyDetailCache;
+    private final GeocodingService geocodingService;
+    private final PropertyTrendingIndex propertyTrendingIndex;
+    private final EventManager eventManager;
+    private final PropertyViewCounter propertyViewCounter;
+    private final PropertyFavoriteCounter propertyFavoriteCounter;
+    private final AvailabilitySearchCache availabilitySearchCache;
 
     @Override
     public CustomResponse createProperty(@NonNull PropertyCreateRequest request, @NotNull List<MultipartFile> images) {
@@ -70,12 +147,14 @@ public class PropertyServiceImplementation implements PropertyService {
         List<String> pathToPropertyImages = localStorageService.savePropertyImages(images, host.getId());
 
         property.setPropertyImages(pathToPropertyImages);
+        geocodingService.geocode(property);
 
         try {
             propertyRepository.save(property);
         } catch (Exception e) {
             throw new EntityRegistrationException(Property.class);
         }
+        indexProperty(property);
 
         return new CustomResponse("Property created successfully");
     }
@@ -102,12 +181,17 @@ public class PropertyServiceImplementation implements PropertyService {
         modifiedProperty.setBedrooms(propertyUpdateRequest.getBedrooms());
         modifiedProperty.setBathrooms(propertyUpdateRequest.getBathrooms());
         modifiedProperty.setMaxGuests(propertyUpdateRequest.getMaxGuests());
+        if (modifiedProperty.getLatitude() == null) {
+            geocodingService.geocode(modifiedProperty);
+        }
 
         try {
             propertyRepository.save(modifiedProperty);
         } catch (Exception e) {
             return new CustomResponse("Error modifying property");
         }
+        indexProperty(modifiedProperty);
+        propertyDetailCache.evict(modifiedProperty.getId());
 
         return new CustomResponse("Property modified successfully");
     }
@@ -133,6 +217,9 @@ public class PropertyServiceImplementation implements PropertyService {
         modifiedProperty.setBedrooms(propertyUpdateRequest.getBedrooms());
         modifiedProperty.setBathrooms(propertyUpdateRequest.getBathrooms());
         modifiedProperty.setMaxGuests(propertyUpdateRequest.getMaxGuests());
+        if (modifiedProperty.getLatitude() == null) {
+            geocodingService.geocode(modifiedProperty);
+        }
 
         List<String> pathToPropertyImages = localStorageService.savePropertyImages(images, currentUser.getId());
 
@@ -143,6 +230,8 @@ public class PropertyServiceImplementation implements PropertyService {
         } catch (Exception e) {
             return new CustomResponse("Error modifying property");
         }
+        indexProperty(modifiedProperty);
+        propertyDetailCache.evict(modifiedProperty.getId());
 
         return new CustomResponse("Property modified successfully");
     }
@@ -168,6 +257,12 @@ public class PropertyServiceImplementation implements PropertyService {
         } catch (Exception e) {
             return new CustomResponse("Error deleting property");
         }
+        propertySearchIndex.remove(propertyId);
+        propertyGeoIndex.remove(propertyId);
+        propertyFacetIndex.remove(propertyId);
+        propertyTrendingIndex.remove(propertyId);
+        propertyDetailCache.evict(propertyId);
+        availabilitySearchCache.invalidateCity(property.getCity());
 
         return new CustomResponse("Property deleted successfully");
     }
@@ -177,6 +272,37 @@ public class PropertyServiceImplementation implements PropertyService {
                 .orElseThrow(() -> new RuntimeException("Property not found with ID: " + propertyId));
     }
 
+    @Override
+    public byte[] findDetailById(@NonNull Long propertyId) {
+        byte[] detail = propertyDetailCache.get(propertyId);
+        propertyViewCounter.increment(propertyId);
+        eventManager.notify("PROPERTY_VIEWED", propertyId);
+        return detail;
+    }
+
+    @Override
+    public List<PropertyStatsResponse> getHostPropertyStats(@NonNull Long hostId) {
+        if (!hostId.equals(getCurrentUser().getId())) {
+            throw new UserUnauthorizedException("You can only see the statistics of your own properties");
+        }
+        List<PropertyStatsResponse> stats = propertyRepository.findStatsByHostId(hostId);
+        stats.forEach(property -> {
+            property.setViewCount(property.getViewCount() + propertyViewCounter.pending(property.getPropertyId()));
+            property.setFavoriteCount(property.getFavoriteCount() + propertyFavoriteCounter.pending(property.getPropertyId()));
+        });
+        return stats;
+    }
+
+    @Override
+    public CacheStatsResponse getDetailCacheStats() {
+        return propertyDetailCache.stats();
+    }
+
+    @Override
+    public CacheStatsResponse getAvailabilityCacheStats() {
+        return availabilitySearchCache.stats();
+    }
+
     @Override
     public List<Property> findAll() {
         return propertyRepository.findAll();
@@ -210,6 +336,10 @@ public class PropertyServiceImplementation implements PropertyService {
 
         property.setAvailable(!property.isAvailable());
         Property updatedProperty = propertyRepository.save(property);
+        indexSearchDocument(updatedProperty);
+        propertyFacetIndex.index(PropertyFacetDocument.of(updatedProperty));
+        propertyDetailCache.evict(propertyId);
+        availabilitySearchCache.invalidateCity(updatedProperty.getCity());
 
         String statusMessage = updatedProperty.isAvailable() ? "activated" : "deactivated";
 
@@ -223,16 +353,260 @@ public class PropertyServiceImplementation implements PropertyService {
             throw new DataValidationException("The Check-out date cannot be before the Check-in date");
         }
 
-        List<Property> availableProperties = propertyRepository.findAvailableProperties(
+        AvailabilitySearchCache.Key key = AvailabilitySearchCache.Key.of(
                 request.getCity(),
                 request.getCheckInDate(),
                 request.getCheckOutDate(),
                 (request.getNumOfAdults() + request.getNumOfChildren()));
 
-        availableProperties = availableProperties.stream().filter(Property::isAvailable).toList();
+        List<Long> cachedIds = availabilitySearchCache.get(key);
+        if (cachedIds != null) {
+            if (cachedIds.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, Property> properties = propertyRepository.findAllById(cachedIds).stream()
+                    .collect(Collectors.toMap(Property::getId, Function.identity()));
+            return cachedIds.stream().map(properties::get).filter(Objects::nonNull).toList();
+        }
+
+        long version = availabilitySearchCache.version();
+        List<Property> availableProperties = propertyRepository.findAvailableProperties(
+                key.city(), key.checkInDate(), key.checkOutDate(), key.guests());
+        availabilitySearchCache.put(key, availableProperties.stream().map(Property::getId).toList(), version);
 
         return availableProperties;
+    }
+
+    @Override
+    public List<Property> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new DataValidationException("The search query cannot be blank");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new DataValidationException("The number of results must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+
+        List<Long> ids = propertySearchIndex.search(query, limit);
+        Map<Long, Property> properties = propertyRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+
+        // Keep the ranking of the index, skipping properties deleted in the meantime
+        return ids.stream().map(properties::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Rebuilds the search index at startup and every night, which also reclaims the space left by updated properties.
+     */
+    @Override
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0 4 * * *")
+    public int rebuildSearchIndex() {
+        try (Stream<PropertySearchDocument> documents = propertyRepository.streamSearchDocuments()) {
+            return propertySearchIndex.rebuild(documents);
+        }
+    }
+
+    @Override
+    public List<Property> findNearby(NearbyPropertiesRequest request) {
+        validateStay(request.getCheckInDate(), request.getCheckOutDate());
+
+        return findAvailableAmong(limit -> propertyGeoIndex.withinRadius(request.getLatitude(), request.getLongitude(),
+                request.getRadiusKm(), limit), request.getCheckInDate(), request.getCheckOutDate(),
+                request.getNumOfAdults() + request.getNumOfChildren());
+    }
+
+    @Override
+    public List<Property> findInMapArea(MapAreaPropertiesRequest request) {
+        validateStay(request.getCheckInDate(), request.getCheckOutDate());
+
+        return findAvailableAmong(limit -> propertyGeoIndex.withinBox(request.getSouth(), request.getWest(),
+                request.getNorth(), request.getEast(), limit), request.getCheckInDate(), request.getCheckOutDate(),
+                request.getNumOfAdults() + request.getNumOfChildren());
+    }
 
+    @Override
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public int rebuildGeoIndex() {
+        try (Stream<PropertyLocation> locations = propertyRepository.streamLocations()) {
+            return propertyGeoIndex.rebuild(locations);
+        }
+    }
+
+    @Override
+    public FacetedSearchResponse findFaceted(FacetedPropertiesRequest request) {
+        validateStay(request.getCheckInDate(), request.getCheckOutDate());
+
+        Map<PropertyFacet, Set<Integer>> selected = new EnumMap<>(PropertyFacet.class);
+        selected.put(PropertyFacet.PRICE, toBuckets(PropertyFacet.PRICE, request.getPrice()));
+        selected.put(PropertyFacet.BEDROOMS, toBuckets(PropertyFacet.BEDROOMS, request.getBedrooms()));
+        selected.put(PropertyFacet.BATHROOMS, toBuckets(PropertyFacet.BATHROOMS, request.getBathrooms()));
+        selected.put(PropertyFacet.MAX_GUESTS, toBuckets(PropertyFacet.MAX_GUESTS, request.getMaxGuests()));
+
+        Set<Long> booked = request.getCheckInDate() == null
+                ? Set.of()
+                : bookingRepository.findBookedPropertyIds(request.getCity(), request.getCheckInDate(), request.getCheckOutDate());
+
+        FacetedResult result = propertyFacetIndex.search(request.getCity(), selected, booked,
+                request.getPage() * request.getSize(), request.getSize());
+
+        Map<Long, Property> properties = result.ids().isEmpty()
+                ? Map.of()
+                : propertyRepository.findAllById(result.ids()).stream()
+                        .collect(Collectors.toMap(Property::getId, Function.identity()));
+
+        Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+        result.counts().forEach((facet, counts) -> facets.put(facet.key(),
+                IntStream.range(0, counts.length)
+                        .mapToObj(bucket -> new FacetCount(facet.buckets().get(bucket), counts[bucket]))
+                        .toList()));
+
+        return new FacetedSearchResponse(
+                result.ids().stream().map(properties::get).filter(Objects::nonNull).toList(),
+                result.total(),
+                facets);
+    }
+
+    @Override
+    public List<FlexibleAvailabilityResponse> findFlexibleAvailability(FlexibleAvailabilityRequest request) {
+        LocalDate earliestCheckIn = request.getEarliestCheckInDate();
+        LocalDate latestCheckOut = request.getLatestCheckOutDate();
+        if (earliestCheckIn.plusDays(request.getNights()).isAfter(latestCheckOut)) {
+            throw new DataValidationException("The window is shorter than the requested stay");
+        }
+        if (earliestCheckIn.plusDays(MAX_FLEXIBLE_WINDOW_DAYS).isBefore(latestCheckOut)) {
+            throw new DataValidationException("The window cannot be longer than " + MAX_FLEXIBLE_WINDOW_DAYS + " days");
+        }
+
+        List<Property> candidates = propertyRepository.findAvailableInCity(request.getCity().trim(),
+                request.getNumOfAdults() + request.getNumOfChildren());
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<BookedInterval>> bookings = bookingRepository
+                .findBookedIntervals(request.getCity().trim(), earliestCheckIn, latestCheckOut).stream()
+                .collect(Collectors.groupingBy(BookedInterval::propertyId));
+
+        List<FlexibleAvailabilityResponse> results = new ArrayList<>();
+        for (Property property : candidates) {
+            List<LocalDate> checkIns = StayWindows.feasibleCheckIns(
+                    bookings.getOrDefault(property.getId(), List.of()),
+                    earliestCheckIn, latestCheckOut, request.getNights());
+            if (!checkIns.isEmpty()) {
+                results.add(new FlexibleAvailabilityResponse(property, checkIns));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public int rebuildFacetIndex() {
+        try (Stream<PropertyFacetDocument> documents = propertyRepository.streamFacetDocuments()) {
+            return propertyFacetIndex.rebuild(documents);
+        }
+    }
+
+    @Override
+    public List<Property> findTrending(String city, int limit) {
+        if (limit < 1 || limit > PropertyTrendingIndex.TOP_K) {
+            throw new DataValidationException("The limit must be between 1 and " + PropertyTrendingIndex.TOP_K);
+        }
+
+        // The whole ranking is read, so that inactive or moved properties do not shorten the result
+        List<Long> ids = propertyTrendingIndex.top(city, PropertyTrendingIndex.TOP_K);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Property> properties = propertyRepository.findAllById(ids).stream()
+                .filter(Property::isAvailable)
+                .filter(property -> city == null || city.isBlank() || property.getCity().equalsIgnoreCase(city.trim()))
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+
+        return ids.stream().map(properties::get).filter(Objects::nonNull).limit(limit).toList();
+    }
+
+    /**
+     * Refreshes a saved property in every in-memory index, and drops the cached searches it may now match.
+     */
+    private void indexProperty(Property property) {
+        availabilitySearchCache.invalidateCity(property.getCity());
+        indexSearchDocument(property);
+        propertyFacetIndex.index(PropertyFacetDocument.of(property));
+        if (property.getLatitude() != null && property.getLongitude() != null) {
+            propertyGeoIndex.index(PropertyLocation.of(property));
+        }
+    }
+
+    /**
+     * Keeps only the active properties in the full-text index, which has no other way to leave out the inactive ones.
+     */
+    private void indexSearchDocument(Property property) {
+        if (property.isAvailable()) {
+            propertySearchIndex.index(PropertySearchDocument.of(property));
+        } else {
+            propertySearchIndex.remove(property.getId());
+        }
+    }
+
+    private static Set<Integer> toBuckets(PropertyFacet facet, Set<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return Set.of();
+        }
+        Set<Integer> buckets = new HashSet<>();
+        for (String label : labels) {
+            int bucket = facet.bucketOf(label);
+            if (bucket < 0) {
+                throw new DataValidationException("Unknown " + facet.key() + " filter '" + label + "', expected one of " + facet.buckets());
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    private void validateStay(LocalDate checkInDate, LocalDate checkOutDate) {
+        if ((checkInDate == null) != (checkOutDate == null)) {
+            throw new DataValidationException("Please enter both the Check-in and the Check-out date");
+        }
+        if (checkInDate != null && !checkOutDate.isAfter(checkInDate)) {
+            throw new DataValidationException("The Check-out date cannot be before the Check-in date");
+        }
+    }
+
+    /**
+     * Loads the properties found by the spatial index that match the stay, keeping the order of the index.
+     * The index is asked for twice as many candidates at every round, and only the new ones are checked,
+     * until enough of them match, the area has no more properties or {@link #MAX_GEO_CANDIDATES} were taken.
+     * Booked or too small properties near the center therefore never hide the matching ones further away,
+     * while a crowded area with few matches costs a bounded number of queries of at most {@link #GEO_CHUNK_SIZE} IDs.
+     */
+    private List<Property> findAvailableAmong(IntFunction<List<Long>> candidates, LocalDate checkInDate,
+                                              LocalDate checkOutDate, int numberOfGuests) {
+        List<Property> found = new ArrayList<>();
+        Set<Long> checked = new HashSet<>();
+
+        for (int limit = MAX_GEO_RESULTS; ; limit = Math.min(limit * 2, MAX_GEO_CANDIDATES)) {
+            List<Long> ids = candidates.apply(limit);
+            List<Long> unchecked = ids.stream().filter(checked::add).toList();
+
+            for (int from = 0; from < unchecked.size() && found.size() < MAX_GEO_RESULTS; from += GEO_CHUNK_SIZE) {
+                List<Long> chunk = unchecked.subList(from, Math.min(from + GEO_CHUNK_SIZE, unchecked.size()));
+                List<Property> available = checkInDate == null
+                        ? propertyRepository.findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(chunk, numberOfGuests)
+                        : propertyRepository.findAvailablePropertiesByIdIn(chunk, checkInDate, checkOutDate, numberOfGuests);
+                Map<Long, Property> properties = available.stream()
+                        .collect(Collectors.toMap(Property::getId, Function.identity()));
+                chunk.stream().map(properties::get).filter(Objects::nonNull).forEach(found::add);
+            }
+
+            if (found.size() >= MAX_GEO_RESULTS || ids.size() < limit || limit >= MAX_GEO_CANDIDATES) {
+                return found.size() > MAX_GEO_RESULTS ? found.subList(0, MAX_GEO_RESULTS) : found;
+            }
+        }
     }
 
     private User getCurrentUser() {
@@ -0,0 +1,82 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyDetailCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.RatingAggregateService;
+import jakarta.transaction.Transactional;
+import lombok.AllArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This class implements the RatingAggregateService interface.
+ * Summaries are changed with atomic delta updates, so concurrent reviews of the same property never lose a rating.
+ */
+@Service
+@AllArgsConstructor
+public class RatingAggregateServiceImplementation implements RatingAggregateService {
+
+    private final PropertyRepository propertyRepository;
+    private final UserRepository userRepository;
+    private final PropertyDetailCache propertyDetailCache;
+
+    @Override
+    @Transactional
+    public void addRating(Review review) {
+        apply(review, 1, review.getRating());
+    }
+
+    @Override
+    @Transactional
+    public void changeRating(Review review, int previousRating) {
+        if (previousRating == review.getRating()) {
+            return;
+        }
+        long[] histogram = new long[6];
+        bucket(histogram, review.getRating(), 1);
+        bucket(histogram, previousRating, -1);
+        update(review, 0, review.getRating() - previousRating, histogram);
+    }
+
+    @Override
+    @Transactional
+    public void removeRating(Review review) {
+        apply(review, -1, review.getRating());
+    }
+
+    /**
+     * Recomputes every summary from the reviews every night, fixing any drift left by direct database changes.
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "0 30 3 * * *")
+    public void rebuildRatings() {
+        propertyRepository.rebuildRatings();
+        userRepository.rebuildRatings();
+    }
+
+    private void apply(Review review, int sign, int rating) {
+        long[] histogram = new long[6];
+        bucket(histogram, rating, sign);
+        update(review, sign, (long) sign * rating, histogram);
+    }
+
+    private void update(Review review, long count, long sum, long[] histogram) {
+        if (review.isPropertyReview()) {
+            propertyRepository.addToRating(review.getProperty().getId(), count, sum,
+                    histogram[1], histogram[2], histogram[3], histogram[4], histogram[5]);
+            propertyDetailCache.evict(review.getProperty().getId());
+        } else if (review.isUserReview()) {
+            userRepository.addToRating(review.getReviewedUser().getId(), count, sum,
+                    histogram[1], histogram[2], histogram[3], histogram[4], histogram[5]);
+        }
+    }
+
+    private void bucket(long[] histogram, int rating, int delta) {
+        if (rating >= 1 && rating <= 5) {
+            histogram[rating] += delta;
+        }
+    }
+}
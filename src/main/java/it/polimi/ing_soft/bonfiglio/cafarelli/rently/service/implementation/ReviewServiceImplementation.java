@@ -1,26 +1,37 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.implementation.ReviewBuilderImplementation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.ReviewEligibilityCache;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.HostResponseRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewCreateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewPageRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewSort;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CursorPageResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.*;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.ReviewRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.RatingAggregateService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ReviewService;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This class implements the ReviewService interface and provides methods for managing reviews.
@@ -30,10 +41,13 @@ import java.util.List;
 @AllArgsConstructor
 public class ReviewServiceImplementation implements ReviewService {
 
+    private static final String CURSOR_SEPARATOR = "~";
+
     private final ReviewRepository reviewRepository;
     private final PropertyRepository propertyRepository;
-    private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
+    private final RatingAggregateService ratingAggregateService;
+    private final ReviewEligibilityCache reviewEligibilityCache;
 
     @Override
     @Transactional
@@ -49,14 +63,7 @@ public class ReviewServiceImplementation implements ReviewService {
         }
 
         // Check if the user has a concluded booking for this property
-        List<Booking> userBookings = bookingRepository.findByUserId(reviewer.getId());
-        boolean hasConcludedBooking = userBookings.stream()
-                .anyMatch(booking -> 
-                    booking.getProperty().getId().equals(propertyId) &&
-                    booking.getCheckOutDate().isBefore(LocalDate.now())
-                );
-
-        if (!hasConcludedBooking) {
+        if (!reviewEligibilityCache.hasStayed(reviewer.getId(), propertyId)) {
             throw new UserUnauthorizedException("You can only review properties you have stayed at");
         }
 
@@ -71,11 +78,13 @@ public class ReviewServiceImplementation implements ReviewService {
                 .build();
 
         reviewRepository.save(review);
+        ratingAggregateService.addRating(review);
 
         return new CustomResponse("Review submitted successfully");
     }
 
     @Override
+    @Transactional
     public CustomResponse createUserReview(Long reviewedUserId, ReviewCreateRequest reviewCreateRequest){
         User reviewer = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
@@ -95,7 +104,7 @@ public class ReviewServiceImplementation implements ReviewService {
             return new CustomResponse("You have already reviewed this User");
         }
 
-        if (bookingRepository.existsBookingByHostIdAndClientId(reviewer, reviewedUser)) {
+        if (reviewEligibilityCache.hasBooked(reviewer, reviewedUser)) {
             throw new IllegalArgumentException("You can review only customer who stayed in your properties");
         }
 
@@ -110,6 +119,7 @@ public class ReviewServiceImplementation implements ReviewService {
                 .build();
 
         reviewRepository.save(review);
+        ratingAggregateService.addRating(review);
 
         return new CustomResponse("Review submitted successfully");
 
@@ -128,11 +138,13 @@ public class ReviewServiceImplementation implements ReviewService {
             throw new UserUnauthorizedException("You can only update your own reviews");
         }
 
+        int previousRating = review.getRating();
         review.setTitle(reviewUpdateRequest.getTitle());
         review.setDescription(reviewUpdateRequest.getDescription());
         review.setRating(reviewUpdateRequest.getRating());
 
         reviewRepository.save(review);
+        ratingAggregateService.changeRating(review, previousRating);
 
         return new CustomResponse("Review updated successfully");
     }
@@ -154,6 +166,7 @@ public class ReviewServiceImplementation implements ReviewService {
         }
 
         reviewRepository.delete(review);
+        ratingAggregateService.removeRating(review);
 
         return new CustomResponse("Review deleted successfully");
     }
@@ -165,33 +178,33 @@ public class ReviewServiceImplementation implements ReviewService {
     }
 
     @Override
-    public List<Review> findByPropertyId(Long propertyId) {
+    public CursorPageResponse<Review> findByPropertyId(Long propertyId, ReviewPageRequest pageRequest) {
         // Verify property exists
         if (!propertyRepository.existsById(propertyId)) {
             throw new EntityNotFoundException(Property.class);
         }
 
-        return reviewRepository.findByPropertyId(propertyId);
+        return findPage((root, query, cb) -> cb.equal(root.get("property").get("id"), propertyId), pageRequest);
     }
 
     @Override
-    public List<Review> findByReviewedUserId(Long reviewedUserId) {
+    public CursorPageResponse<Review> findByReviewedUserId(Long reviewedUserId, ReviewPageRequest pageRequest) {
         // Verify user exists
         if (!userRepository.existsById(reviewedUserId)) {
             throw new EntityNotFoundException(User.class);
         }
 
-        return reviewRepository.findByReviewedUserId(reviewedUserId);
+        return findPage((root, query, cb) -> cb.equal(root.get("reviewedUser").get("id"), reviewedUserId), pageRequest);
     }
 
     @Override
-    public List<Review> findByReviewerId(Long reviewerId) {
-        return reviewRepository.findByReviewerId(reviewerId);
+    public CursorPageResponse<Review> findByReviewerId(Long reviewerId, ReviewPageRequest pageRequest) {
+        return findPage((root, query, cb) -> cb.equal(root.get("reviewer").get("id"), reviewerId), pageRequest);
     }
 
     @Override
-    public List<Review> findAll() {
-        return reviewRepository.findAll();
+    public CursorPageResponse<Review> findAll(ReviewPageRequest pageRequest) {
+        return findPage((root, query, cb) -> cb.conjunction(), pageRequest);
     }
 
     @Override
@@ -227,4 +240,46 @@ public class ReviewServiceImplementation implements ReviewService {
 
         return new CustomResponse("Response added successfully");
     }
+
+    /**
+     * Reads one page of reviews with keyset pagination: the page starts right after the review the cursor points to,
+     * so the cost of a page does not depend on how deep in the listing it is.
+     */
+    private CursorPageResponse<Review> findPage(Specification<Review> scope, ReviewPageRequest pageRequest) {
+        Specification<Review> specification = pageRequest.isWithHostResponse()
+                ? scope.and((root, query, cb) -> cb.isNotNull(root.get("hostResponse")))
+                : scope;
+        ReviewSort sort = pageRequest.getSort();
+        KeysetScrollPosition position = decodeCursor(sort, pageRequest.getCursor());
+
+        Window<Review> window = reviewRepository.findBy(specification, query -> query
+                .sortBy(sort.toSort())
+                .limit(pageRequest.getSize())
+                .scroll(position));
+
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encodeCursor(sort, (KeysetScrollPosition) window.positionAt(window.size() - 1))
+                : null;
+        return new CursorPageResponse<>(window.getContent(), nextCursor);
+    }
+
+    private String encodeCursor(ReviewSort sort, KeysetScrollPosition position) {
+        String key = position.getKeys().get(sort.getProperty()) + CURSOR_SEPARATOR + position.getKeys().get("id");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private KeysetScrollPosition decodeCursor(ReviewSort sort, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(CURSOR_SEPARATOR);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(sort.getProperty(), sort.getParser().apply(key[0]));
+            keys.put("id", Long.valueOf(key[1]));
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new DataValidationException("Invalid page cursor");
+        }
+    }
 }
@@ -7,6 +7,7 @@ import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauth
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.*;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.TicketReplyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.TicketRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.TicketService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +20,7 @@ import java.util.List;
 public class TicketServiceImplementation implements TicketService {
     private final TicketRepository ticketRepository;
     private final TicketReplyRepository ticketReplyRepository;
+    private final ArchiveService archiveService;
 
     public Ticket createTicket(TicketCreationRequest request) {
         User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -27,7 +29,9 @@ public class TicketServiceImplementation implements TicketService {
     }
 
     public Ticket getTicketById(Long id) {
+        // I ticket chiusi da tempo vengono cercati nell'archivio, dove non possono più cambiare stato
         return ticketRepository.findById(id)
+                .or(() -> archiveService.findArchivedTicket(id))
                 .orElseThrow(() -> new EntityNotFoundException(Ticket.class));
     }
 
@@ -92,9 +96,13 @@ public class TicketServiceImplementation implements TicketService {
     }
 
     public List<TicketReply> getTicketReplies(Long ticketId) {
-        // Verifica che il ticket esista
+        // Verifica che il ticket esista, altrimenti ne cerca le risposte nell'archivio
         if (!ticketRepository.existsById(ticketId)) {
-            throw new EntityNotFoundException(Ticket.class);
+            List<TicketReply> archived = archiveService.findArchivedTicketReplies(ticketId);
+            if (archived.isEmpty() && archiveService.findArchivedTicket(ticketId).isEmpty()) {
+                throw new EntityNotFoundException(Ticket.class);
+            }
+            return archived;
         }
 
         return ticketReplyRepository.findByTicketIdOrderByCreationDate(ticketId);
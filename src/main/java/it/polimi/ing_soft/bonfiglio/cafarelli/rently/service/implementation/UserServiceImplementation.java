@@ -1,25 +1,36 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyFavoriteCounter;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserModifyRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserPasswordChangeRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.*;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.FavoritePropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.AfterCommit;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.UserService;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * This class implements the UserService interface and provides methods for managing users.
@@ -29,10 +40,16 @@ import java.util.Optional;
 @AllArgsConstructor
 public class UserServiceImplementation implements UserService {
 
+    static final int MAX_FAVORITES_PAGE_SIZE = 100;
+
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
     private final PropertyRepository propertyRepository;
     private final LocalStorageService localStorageService;
+    private final FavoritePropertyRepository favoritePropertyRepository;
+    private final PropertyFavoriteCounter propertyFavoriteCounter;
+    private final EventManager eventManager;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public CustomResponse modify(@NonNull UserModifyRequest userModifyRequest) {
@@ -207,25 +224,63 @@ public class UserServiceImplementation implements UserService {
     @Override
     public User addFavoriteProperty(String username, Long propertyId) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new EntityNotFoundException(User.class));
-        Property property = propertyRepository.findById(propertyId).orElseThrow(() -> new EntityNotFoundException(Property.class));
-        if (!user.getFavorite().contains(property)) {
-            user.getFavorite().add(property);
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new EntityNotFoundException(Property.class);
+        }
+        if (addFavorite(user.getId(), propertyId)) {
+            propertyFavoriteCounter.increment(propertyId);
+            AfterCommit.run(() -> eventManager.notify("PROPERTY_FAVORITED", propertyId));
+        }
+        return user;
+    }
+
+    /**
+     * Inserts a favorite in a transaction of its own, which a duplicate key can roll back without failing the request.
+     *
+     * @return true if the favorite was inserted, false if it was already there
+     */
+    private boolean addFavorite(Long userId, Long propertyId) {
+        try {
+            Integer inserted = transactionTemplate.execute(status -> favoritePropertyRepository.addFavorite(userId, propertyId));
+            return inserted != null && inserted > 0;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent add of the same favorite passed the NOT EXISTS guard too and committed first
+            return false;
         }
-        return userRepository.save(user);
     }
 
     @Override
+    @Transactional
     public User removeFavoriteProperty(String username, Long propertyId) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new EntityNotFoundException(User.class));
-        Property property = propertyRepository.findById(propertyId).orElseThrow(() -> new EntityNotFoundException(Property.class));
-        user.getFavorite().remove(property);
-        return userRepository.save(user);
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new EntityNotFoundException(Property.class);
+        }
+        if (favoritePropertyRepository.removeFavorite(user.getId(), propertyId) > 0) {
+            propertyFavoriteCounter.decrement(propertyId);
+        }
+        return user;
     }
 
     @Override
-    public List<Property> getAllFavoriteProperties(String username) {
+    public List<Property> getFavoriteProperties(String username, int page, int size) {
+        if (page < 0) {
+            throw new DataValidationException("The page number cannot be negative");
+        }
+        if (size < 1 || size > MAX_FAVORITES_PAGE_SIZE) {
+            throw new DataValidationException("The page size must be between 1 and " + MAX_FAVORITES_PAGE_SIZE);
+        }
+
         User user = userRepository.findByUsername(username).orElseThrow(() -> new EntityNotFoundException(User.class));
-        return user.getFavorite();
+        List<Long> ids = favoritePropertyRepository.findPropertyIdsByUserId(user.getId(), PageRequest.of(page, size));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Property> properties = propertyRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+
+        return ids.stream().map(properties::get).filter(Objects::nonNull).toList();
     }
 
     @Transactional
@@ -0,0 +1,81 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.util;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Utility class for generating random coupon codes.
+ * <p>
+ * Like {@link BookingUtils}, codes are drawn with a {@link SecureRandom} from an uppercase alphanumeric alphabet.
+ * A code of up to 12 characters is handled as a base-36 number, so large batches can be deduplicated
+ * in a primitive array instead of a set of strings.
+ */
+public class CouponUtils {
+
+    private static final String ALPHANUMERIC_STRING = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    public static final int MAX_CODE_LENGTH = 12;
+
+    /**
+     * Returns the number of distinct codes of the given length.
+     */
+    public static long codeSpace(int length) {
+        if (length < 1 || length > MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Code length must be between 1 and " + MAX_CODE_LENGTH);
+        }
+        long space = 1;
+        for (int i = 0; i < length; i++) {
+            space *= ALPHANUMERIC_STRING.length();
+        }
+        return space;
+    }
+
+    /**
+     * Draws a random code value of the given length.
+     */
+    public static long randomCodeValue(int length) {
+        return secureRandom.nextLong(codeSpace(length));
+    }
+
+    /**
+     * Draws {@code count} distinct random code values of the given length, sorted in ascending order.
+     */
+    public static long[] uniqueRandomCodeValues(int count, int length) {
+        long space = codeSpace(length);
+        if (count > space / 2) {
+            throw new IllegalArgumentException("Too many codes requested for a code length of " + length);
+        }
+
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = secureRandom.nextLong(space);
+        }
+
+        // Redraw the duplicates until every value is unique, collisions are rare so this converges quickly
+        boolean duplicates = true;
+        while (duplicates) {
+            Arrays.sort(values);
+            duplicates = false;
+            for (int i = 1; i < count; i++) {
+                if (values[i] == values[i - 1]) {
+                    values[i] = secureRandom.nextLong(space);
+                    duplicates = true;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Encodes a code value as an alphanumeric string of the given length.
+     */
+    public static String encode(long value, int length) {
+        char[] code = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            code[i] = ALPHANUMERIC_STRING.charAt((int) (value % ALPHANUMERIC_STRING.length()));
+            value /= ALPHANUMERIC_STRING.length();
+        }
+        return new String(code);
+    }
+}
@@ -0,0 +1,52 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveCodecTest {
+
+    private final ArchiveCodec archiveCodec = new ArchiveCodec(new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void encode_bookingSnapshot_isReadBack() {
+        BookingSnapshot booking = new BookingSnapshot(1L, LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 4), 2, 1,
+                new BigDecimal("300.00"), "ABC123", 3L, 4L, BookingStatus.COMPLETED);
+
+        byte[] payload = archiveCodec.encode(booking);
+
+        assertEquals(booking, archiveCodec.decode(payload, BookingSnapshot.class));
+    }
+
+    @Test
+    void encode_conversation_isCompressed() {
+        List<ChatMessageSnapshot> conversation = java.util.stream.LongStream.range(0, 200)
+                .mapToObj(id -> new ChatMessageSnapshot(id, "Is the apartment still available in July?", 1L, 2L,
+                        LocalDateTime.of(2024, 1, 1, 10, 0).plusMinutes(id)))
+                .toList();
+
+        byte[] payload = archiveCodec.encode(conversation);
+        ChatMessageSnapshot[] decoded = archiveCodec.decode(payload, ChatMessageSnapshot[].class);
+
+        assertEquals(conversation, List.of(decoded));
+        assertTrue(payload.length < conversation.size() * 40);
+    }
+
+    @Test
+    void decode_corruptedPayload_throwsException() {
+        assertThrows(IllegalStateException.class, () -> archiveCodec.decode(new byte[]{1, 2, 3}, BookingSnapshot.class));
+    }
+
+    @Test
+    void conversationKey_isTheSameBothWays() {
+        assertEquals("2:5", ChatMessageSnapshot.conversationKey(5L, 2L));
+        assertEquals("2:5", ChatMessageSnapshot.conversationKey(2L, 5L));
+    }
+}
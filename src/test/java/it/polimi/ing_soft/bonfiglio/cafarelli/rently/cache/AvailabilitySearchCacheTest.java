@@ -0,0 +1,122 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache.Key;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilitySearchCacheTest {
+
+    private static final LocalDate JULY_1 = LocalDate.now().plusMonths(2).withDayOfMonth(1);
+
+    private AvailabilitySearchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AvailabilitySearchCache();
+    }
+
+    @Test
+    void key_normalizesTheCity() {
+        assertEquals(Key.of("milano", JULY_1, JULY_1.plusDays(3), 2),
+                Key.of(" Milano ", JULY_1, JULY_1.plusDays(3), 2));
+    }
+
+    @Test
+    void get_returnsTheCachedIds() {
+        Key key = Key.of("Milano", JULY_1, JULY_1.plusDays(3), 2);
+        assertNull(cache.get(key));
+
+        cache.put(key, List.of(3L, 1L), cache.version());
+
+        assertEquals(List.of(3L, 1L), cache.get(key));
+        CacheStatsResponse stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void put_afterAnInvalidation_isDropped() {
+        Key key = Key.of("Milano", JULY_1, JULY_1.plusDays(3), 2);
+        long version = cache.version();
+
+        cache.invalidateCity("Roma");
+        cache.put(key, List.of(1L), version);
+
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void invalidate_dropsOnlyOverlappingSearchesOfTheCity() {
+        Key overlapping = Key.of("Milano", JULY_1, JULY_1.plusDays(3), 2);
+        Key before = Key.of("Milano", JULY_1.minusDays(3), JULY_1.plusDays(1), 2);
+        Key after = Key.of("Milano", JULY_1.plusDays(5), JULY_1.plusDays(7), 2);
+        Key otherCity = Key.of("Roma", JULY_1, JULY_1.plusDays(3), 2);
+        for (Key key : List.of(overlapping, before, after, otherCity)) {
+            cache.put(key, List.of(1L), cache.version());
+        }
+
+        cache.invalidate("milano", JULY_1.plusDays(1), JULY_1.plusDays(5));
+
+        assertNull(cache.get(overlapping));
+        assertNotNull(cache.get(before));
+        assertNotNull(cache.get(after));
+        assertNotNull(cache.get(otherCity));
+    }
+
+    @Test
+    void invalidateCity_dropsEverySearchOfTheCity() {
+        Key milano = Key.of("Milano", JULY_1, JULY_1.plusDays(3), 2);
+        Key milanoLater = Key.of("Milano", JULY_1.plusDays(30), JULY_1.plusDays(33), 4);
+        Key roma = Key.of("Roma", JULY_1, JULY_1.plusDays(3), 2);
+        for (Key key : List.of(milano, milanoLater, roma)) {
+            cache.put(key, List.of(1L), cache.version());
+        }
+
+        cache.invalidateCity("Milano");
+
+        assertNull(cache.get(milano));
+        assertNull(cache.get(milanoLater));
+        assertNotNull(cache.get(roma));
+    }
+
+    @Test
+    void clear_dropsEverything() {
+        Key key = Key.of("Milano", JULY_1, JULY_1.plusDays(3), 2);
+        cache.put(key, List.of(1L), cache.version());
+
+        cache.clear();
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    void timeToLive_isShorterForStaysStartingSoon() {
+        LocalDate today = LocalDate.now();
+        assertEquals(AvailabilitySearchCache.SHORT_TIME_TO_LIVE, AvailabilitySearchCache.timeToLive(today.plusDays(2)));
+        assertEquals(AvailabilitySearchCache.MEDIUM_TIME_TO_LIVE, AvailabilitySearchCache.timeToLive(today.plusDays(10)));
+        assertEquals(AvailabilitySearchCache.LONG_TIME_TO_LIVE, AvailabilitySearchCache.timeToLive(today.plusDays(60)));
+    }
+
+    @Test
+    void put_beyondCapacity_evictsTheLeastRecentlyUsedSearch() {
+        Key first = Key.of("Milano", JULY_1, JULY_1.plusDays(1), 1);
+        cache.put(first, List.of(1L), cache.version());
+        for (int guests = 2; guests <= AvailabilitySearchCache.MAX_ENTRIES + 1; guests++) {
+            cache.put(Key.of("Milano", JULY_1, JULY_1.plusDays(1), guests), List.of(1L), cache.version());
+        }
+
+        assertNull(cache.get(first));
+        assertEquals(AvailabilitySearchCache.MAX_ENTRIES, cache.stats().getSize());
+
+        cache.invalidateCity("Milano");
+        assertEquals(0, cache.stats().getSize());
+    }
+}
@@ -0,0 +1,83 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the overlap check of the calendar of a property with several thousand bookings against an in-memory
+ * linear scan applying the predicate of {@code BookingRepository.existsOverlappingBooking} to every booking.
+ * Both sides run in memory: the scan is the algorithmic baseline only, it leaves out the round trip, the planner
+ * and the indexes of the actual query, so its figures are not the latency of {@code existsOverlappingBooking}.
+ * Disabled by default, run it with {@code mvn test -Dtest=BookingCalendarBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BookingCalendarBenchmark {
+
+    private static final int BOOKINGS = 5_000;
+    private static final int QUERIES = 100_000;
+
+    @Test
+    void checkOverlapsOnABusyProperty() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Back to back stays of 1 to 7 nights, with some free nights in between
+        long[] checkIns = new long[BOOKINGS];
+        long[] checkOuts = new long[BOOKINGS];
+        IntervalTree tree = new IntervalTree();
+        long day = 20_000;
+        for (int i = 0; i < BOOKINGS; i++) {
+            day += random.nextInt(3);
+            checkIns[i] = day;
+            day += 1 + random.nextInt(7);
+            checkOuts[i] = day;
+            tree.add(i, checkIns[i], checkOuts[i], null);
+        }
+
+        long[] treeLatencies = new long[QUERIES];
+        long[] linearScanLatencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long checkIn = 20_000 + random.nextInt((int) (day - 20_000));
+            long checkOut = checkIn + 1 + random.nextInt(7);
+
+            long start = System.nanoTime();
+            boolean inTree = tree.overlaps(checkIn, checkOut, now);
+            treeLatencies[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            boolean inScan = linearScan(checkIns, checkOuts, checkIn, checkOut);
+            linearScanLatencies[i] = System.nanoTime() - start;
+
+            assertEquals(inScan, inTree);
+        }
+        Arrays.sort(treeLatencies);
+        Arrays.sort(linearScanLatencies);
+
+        System.out.printf("%d bookings, interval tree p50 %.2f us p99 %.2f us, in-memory linear scan p50 %.2f us p99 %.2f us%n",
+                BOOKINGS,
+                treeLatencies[QUERIES / 2] / 1e3, treeLatencies[QUERIES * 99 / 100] / 1e3,
+                linearScanLatencies[QUERIES / 2] / 1e3, linearScanLatencies[QUERIES * 99 / 100] / 1e3);
+    }
+
+    /**
+     * The five-way condition of the repository query, checked booking by booking on arrays in memory.
+     */
+    private static boolean linearScan(long[] checkIns, long[] checkOuts, long checkIn, long checkOut) {
+        for (int i = 0; i < checkIns.length; i++) {
+            if (checkIn == checkIns[i]
+                    || checkOut == checkOuts[i]
+                    || (checkIn > checkIns[i] && checkIn < checkOuts[i])
+                    || (checkOut > checkIns[i] && checkOut < checkOuts[i])
+                    || (checkIn < checkIns[i] && checkOut > checkOuts[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
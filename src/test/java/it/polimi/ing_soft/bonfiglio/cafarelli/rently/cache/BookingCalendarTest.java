@@ -0,0 +1,136 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingCalendarTest {
+
+    private static final Long PROPERTY_ID = 3L;
+    private static final LocalDate JULY_1 = LocalDate.now().plusMonths(2).withDayOfMonth(1);
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @InjectMocks
+    private BookingCalendar bookingCalendar;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bookingCalendar, "singleInstance", true);
+        bookingCalendar.setConstrained(true);
+    }
+
+    private static Booking booking(Long id, LocalDate checkIn, LocalDate checkOut) {
+        Property property = new Property();
+        property.setId(PROPERTY_ID);
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setProperty(property);
+        booking.setCheckInDate(checkIn);
+        booking.setCheckOutDate(checkOut);
+        return booking;
+    }
+
+    @Test
+    void isTaken_loadsTheCalendarOnce() {
+        when(bookingRepository.findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class))).thenReturn(List.of(
+                new BookedStay(1L, JULY_1, JULY_1.plusDays(3), null)));
+
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1.plusDays(3), JULY_1.plusDays(5)));
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1.minusDays(2), JULY_1));
+
+        verify(bookingRepository, times(1)).findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class));
+        verify(bookingRepository, never()).existsOverlappingBooking(any(), any(), any());
+    }
+
+    @Test
+    void isTaken_confirmsTakenDatesWithTheDatabase() {
+        when(bookingRepository.findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class))).thenReturn(List.of(
+                new BookedStay(1L, JULY_1, JULY_1.plusDays(3), null)));
+        when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, JULY_1.plusDays(1), JULY_1.plusDays(4))).thenReturn(true);
+
+        assertTrue(bookingCalendar.isTaken(PROPERTY_ID, JULY_1.plusDays(1), JULY_1.plusDays(4)));
+    }
+
+    @Test
+    void isTaken_staleCalendar_isLoadedAgain() {
+        when(bookingRepository.findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class)))
+                .thenReturn(List.of(new BookedStay(1L, JULY_1, JULY_1.plusDays(3), null)))
+                .thenReturn(List.of());
+        when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, JULY_1, JULY_1.plusDays(3))).thenReturn(false);
+
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(3)));
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(3)));
+
+        verify(bookingRepository, times(2)).findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class));
+        verify(bookingRepository, times(1)).existsOverlappingBooking(any(), any(), any());
+    }
+
+    @Test
+    void add_blocksTheDatesOfALoadedCalendar() {
+        when(bookingRepository.findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class))).thenReturn(List.of());
+        when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, JULY_1, JULY_1.plusDays(2))).thenReturn(true);
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(2)));
+
+        Booking hold = booking(2L, JULY_1.plusDays(1), JULY_1.plusDays(4));
+        hold.setHoldExpiresAt(LocalDateTime.now().plusMinutes(15));
+        bookingCalendar.add(hold);
+
+        assertTrue(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(2)));
+    }
+
+    @Test
+    void remove_freesTheDates() {
+        when(bookingRepository.findUpcomingStays(eq(PROPERTY_ID), any(LocalDate.class))).thenReturn(List.of(
+                new BookedStay(1L, JULY_1, JULY_1.plusDays(3), null)));
+        bookingCalendar.isTaken(PROPERTY_ID, JULY_1.plusDays(5), JULY_1.plusDays(6));
+
+        bookingCalendar.remove(booking(1L, JULY_1, JULY_1.plusDays(3)));
+
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(3)));
+        verify(bookingRepository, never()).existsOverlappingBooking(any(), any(), any());
+    }
+
+    @Test
+    void add_calendarNotLoaded_isLeftToTheNextLoad() {
+        bookingCalendar.add(booking(2L, JULY_1, JULY_1.plusDays(4)));
+
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void isTaken_withoutTheConstraint_asksTheDatabase() {
+        bookingCalendar.setConstrained(false);
+        when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, JULY_1, JULY_1.plusDays(2))).thenReturn(false);
+
+        assertFalse(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(2)));
+        verify(bookingRepository, never()).findUpcomingStays(any(), any());
+    }
+
+    @Test
+    void isTaken_severalInstances_asksTheDatabase() {
+        ReflectionTestUtils.setField(bookingCalendar, "singleInstance", false);
+        when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, JULY_1, JULY_1.plusDays(2))).thenReturn(true);
+
+        assertTrue(bookingCalendar.isTaken(PROPERTY_ID, JULY_1, JULY_1.plusDays(2)));
+        verify(bookingRepository, never()).findUpcomingStays(any(), any());
+    }
+}
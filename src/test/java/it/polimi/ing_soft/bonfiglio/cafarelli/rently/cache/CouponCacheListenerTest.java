@@ -0,0 +1,54 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponCacheListenerTest {
+
+    @Mock
+    private CouponCatalogCache couponCatalogCache;
+
+    @Mock
+    private CouponRedemptionCache couponRedemptionCache;
+
+    @Mock
+    private CouponQuotaCache couponQuotaCache;
+
+    @InjectMocks
+    private CouponCacheListener couponCacheListener;
+
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        coupon = new Coupon();
+        coupon.setId(5L);
+        coupon.setCode("SUMMER");
+    }
+
+    @Test
+    void onCouponUpdated_evictsCatalogEntryAndQuota() {
+        couponCacheListener.onCouponUpdated(coupon);
+
+        verify(couponCatalogCache).evictById(5L);
+        verify(couponQuotaCache).evict(5L);
+        verifyNoInteractions(couponRedemptionCache);
+    }
+
+    @Test
+    void onCouponRemoved_evictsAllCaches() {
+        couponCacheListener.onCouponRemoved(coupon);
+
+        verify(couponCatalogCache).evictById(5L);
+        verify(couponRedemptionCache).evict(5L);
+        verify(couponQuotaCache).evict(5L);
+    }
+}
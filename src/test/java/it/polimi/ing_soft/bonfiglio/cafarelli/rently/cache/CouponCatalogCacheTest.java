@@ -0,0 +1,127 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponCatalogCacheTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @InjectMocks
+    private CouponCatalogCache couponCatalogCache;
+
+    private Coupon coupon(Long id, String code, LocalDate expiryDate) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setCode(code);
+        coupon.setDiscountPercentage(new BigDecimal("10"));
+        coupon.setExpiryDate(expiryDate);
+        return coupon;
+    }
+
+    @Test
+    void findByCode_secondLookup_isServedFromMemory() {
+        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon(1L, "WELCOME10", LocalDate.now().plusDays(3))));
+
+        assertTrue(couponCatalogCache.findByCode("WELCOME10").isPresent());
+        Optional<Coupon> cached = couponCatalogCache.findByCode("WELCOME10");
+
+        assertTrue(cached.isPresent());
+        assertEquals(1L, cached.get().getId());
+        verify(couponRepository, times(1)).findByCode("WELCOME10");
+
+        CacheStatsResponse stats = couponCatalogCache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    void findByCode_expiredCoupon_isNotCached() {
+        when(couponRepository.findByCode("OLD")).thenReturn(Optional.of(coupon(2L, "OLD", LocalDate.now().minusDays(1))));
+
+        assertTrue(couponCatalogCache.findByCode("OLD").isPresent());
+        assertTrue(couponCatalogCache.findByCode("OLD").isPresent());
+
+        verify(couponRepository, times(2)).findByCode("OLD");
+        assertEquals(0, couponCatalogCache.stats().getSize());
+    }
+
+    @Test
+    void findByCode_unknownCode_returnsEmpty() {
+        when(couponRepository.findByCode("FAKE")).thenReturn(Optional.empty());
+
+        assertTrue(couponCatalogCache.findByCode("FAKE").isEmpty());
+    }
+
+    @Test
+    void evict_forcesReload() {
+        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon(1L, "WELCOME10", LocalDate.now().plusDays(3))));
+
+        couponCatalogCache.findByCode("WELCOME10");
+        couponCatalogCache.evict("WELCOME10");
+        couponCatalogCache.findByCode("WELCOME10");
+
+        verify(couponRepository, times(2)).findByCode("WELCOME10");
+        assertEquals(1, couponCatalogCache.stats().getEvictions());
+    }
+
+    @Test
+    void evictById_removesEntryCachedUnderAnyCode() {
+        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon(1L, "WELCOME10", LocalDate.now().plusDays(3))));
+
+        couponCatalogCache.findByCode("WELCOME10");
+        couponCatalogCache.evictById(1L);
+
+        assertEquals(0, couponCatalogCache.stats().getSize());
+    }
+
+    @Test
+    void findByCode_invalidatedWhileLoading_doesNotCacheTheLoadedCoupon() {
+        when(couponRepository.findByCode("WELCOME10")).thenAnswer(invocation -> {
+            // The coupon changes after it was read and before the load puts it
+            couponCatalogCache.evictById(1L);
+            return Optional.of(coupon(1L, "WELCOME10", LocalDate.now().plusDays(3)));
+        });
+
+        assertTrue(couponCatalogCache.findByCode("WELCOME10").isPresent());
+
+        assertEquals(0, couponCatalogCache.stats().getSize());
+    }
+
+    @Test
+    void cachedIds_listsCachedCoupons() {
+        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon(1L, "WELCOME10", LocalDate.now().plusDays(3))));
+
+        couponCatalogCache.findByCode("WELCOME10");
+
+        assertEquals(Set.of(1L), couponCatalogCache.cachedIds());
+    }
+
+    @Test
+    void evictExpired_keepsValidCoupons() {
+        when(couponRepository.findByCode("VALID")).thenReturn(Optional.of(coupon(1L, "VALID", LocalDate.now())));
+
+        couponCatalogCache.findByCode("VALID");
+        couponCatalogCache.evictExpired();
+
+        assertEquals(1, couponCatalogCache.stats().getSize());
+    }
+}
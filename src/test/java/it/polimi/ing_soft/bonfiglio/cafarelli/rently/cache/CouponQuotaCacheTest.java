@@ -0,0 +1,118 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponQuotaCacheTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @InjectMocks
+    private CouponQuotaCache couponQuotaCache;
+
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        coupon = new Coupon();
+        coupon.setId(3L);
+        coupon.setMaxRedemptions(2);
+    }
+
+    @Test
+    void tryReserve_unlimitedCoupon_neverQueriesDatabase() {
+        coupon.setMaxRedemptions(null);
+
+        assertTrue(couponQuotaCache.tryReserve(coupon));
+        assertTrue(couponQuotaCache.hasRemaining(coupon));
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void tryReserve_limitReached_rejectsFromMemory() {
+        when(couponRepository.findRemainingRedemptions(3L)).thenReturn(2);
+
+        assertTrue(couponQuotaCache.tryReserve(coupon));
+        assertTrue(couponQuotaCache.tryReserve(coupon));
+        assertFalse(couponQuotaCache.tryReserve(coupon));
+        assertFalse(couponQuotaCache.hasRemaining(coupon));
+        verify(couponRepository, times(1)).findRemainingRedemptions(3L);
+    }
+
+    @Test
+    void tryReserve_rolledBack_givesPermitBack() {
+        when(couponRepository.findRemainingRedemptions(3L)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(couponQuotaCache.tryReserve(coupon));
+            assertFalse(couponQuotaCache.hasRemaining(coupon));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(couponQuotaCache.hasRemaining(coupon));
+    }
+
+    @Test
+    void markSoldOut_thenEvict_reloadsFromDatabase() {
+        when(couponRepository.findRemainingRedemptions(3L)).thenReturn(2);
+
+        couponQuotaCache.markSoldOut(3L);
+        assertFalse(couponQuotaCache.tryReserve(coupon));
+
+        couponQuotaCache.evict(3L);
+        assertTrue(couponQuotaCache.tryReserve(coupon));
+        verify(couponRepository, times(2)).findRemainingRedemptions(3L);
+    }
+
+    @Test
+    void tryReserve_concurrentAttempts_grantExactlyTheLimit() throws Exception {
+        int limit = 500;
+        int attempts = 10_000;
+        coupon.setMaxRedemptions(limit);
+        when(couponRepository.findRemainingRedemptions(3L)).thenReturn(limit);
+
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            futures.add(executor.submit(() -> {
+                if (couponQuotaCache.tryReserve(coupon)) {
+                    granted.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(limit, granted.get());
+        assertFalse(couponQuotaCache.hasRemaining(coupon));
+    }
+}
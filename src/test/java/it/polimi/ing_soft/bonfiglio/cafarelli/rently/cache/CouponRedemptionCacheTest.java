@@ -0,0 +1,106 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponRedemptionCacheTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponCatalogCache couponCatalogCache;
+
+    @InjectMocks
+    private CouponRedemptionCache couponRedemptionCache;
+
+    @Test
+    void hasRedeemed_notRedeemed_queriesDatabase() {
+        when(couponRepository.existsRedemption(1L, 2L)).thenReturn(false);
+
+        assertFalse(couponRedemptionCache.hasRedeemed(1L, 2L));
+        verify(couponRepository).existsRedemption(1L, 2L);
+    }
+
+    @Test
+    void hasRedeemed_redeemedInDatabase_isMemoized() {
+        when(couponRepository.existsRedemption(1L, 2L)).thenReturn(true);
+
+        assertTrue(couponRedemptionCache.hasRedeemed(1L, 2L));
+        assertTrue(couponRedemptionCache.hasRedeemed(1L, 2L));
+        verify(couponRepository, times(1)).existsRedemption(1L, 2L);
+    }
+
+    @Test
+    void recordRedemption_answersFromMemory() {
+        couponRedemptionCache.recordRedemption(1L, 2L);
+
+        assertTrue(couponRedemptionCache.hasRedeemed(1L, 2L));
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void recordRedemption_isPerCoupon() {
+        couponRedemptionCache.recordRedemption(1L, 2L);
+        when(couponRepository.existsRedemption(3L, 2L)).thenReturn(false);
+
+        assertFalse(couponRedemptionCache.hasRedeemed(3L, 2L));
+    }
+
+    @Test
+    void evict_forgetsRedemptions() {
+        couponRedemptionCache.recordRedemption(1L, 2L);
+        couponRedemptionCache.evict(1L);
+        when(couponRepository.existsRedemption(1L, 2L)).thenReturn(false);
+
+        assertFalse(couponRedemptionCache.hasRedeemed(1L, 2L));
+    }
+
+    @Test
+    void hasRedeemed_largeUserId_isMemoized() {
+        long bigId = Integer.MAX_VALUE + 1L;
+        when(couponRepository.existsRedemption(1L, bigId)).thenReturn(true);
+
+        assertTrue(couponRedemptionCache.hasRedeemed(1L, bigId));
+        assertTrue(couponRedemptionCache.hasRedeemed(1L, bigId));
+        verify(couponRepository, times(1)).existsRedemption(1L, bigId);
+    }
+
+    @Test
+    void recordRedemption_manyUsersInAnyOrder_areAllRemembered() {
+        for (long userId = 1_000; userId > 0; userId -= 7) {
+            couponRedemptionCache.recordRedemption(1L, userId);
+        }
+        couponRedemptionCache.recordRedemption(1L, 500L);
+
+        for (long userId = 1_000; userId > 0; userId -= 7) {
+            assertTrue(couponRedemptionCache.hasRedeemed(1L, userId));
+        }
+        assertTrue(couponRedemptionCache.hasRedeemed(1L, 500L));
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void evictUncatalogued_keepsOnlyCouponsInTheCatalogCache() {
+        couponRedemptionCache.recordRedemption(1L, 2L);
+        couponRedemptionCache.recordRedemption(3L, 2L);
+        when(couponCatalogCache.cachedIds()).thenReturn(Set.of(3L));
+        when(couponRepository.existsRedemption(1L, 2L)).thenReturn(false);
+
+        couponRedemptionCache.evictUncatalogued();
+
+        assertFalse(couponRedemptionCache.hasRedeemed(1L, 2L));
+        assertTrue(couponRedemptionCache.hasRedeemed(3L, 2L));
+        verify(couponRepository, never()).existsRedemption(3L, 2L);
+    }
+}
@@ -0,0 +1,86 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Test
+    void overlaps_isHalfOpen() {
+        IntervalTree tree = new IntervalTree();
+        tree.add(1, 10, 13, null);
+
+        assertTrue(tree.overlaps(12, 14, NOW));
+        assertTrue(tree.overlaps(8, 11, NOW));
+        assertTrue(tree.overlaps(11, 12, NOW));
+        assertTrue(tree.overlaps(5, 20, NOW));
+        assertFalse(tree.overlaps(13, 15, NOW));
+        assertFalse(tree.overlaps(7, 10, NOW));
+    }
+
+    @Test
+    void remove_freesTheDates() {
+        IntervalTree tree = new IntervalTree();
+        tree.add(1, 10, 13, null);
+        tree.add(2, 10, 11, null);
+
+        assertTrue(tree.remove(1));
+        assertFalse(tree.remove(1));
+
+        assertTrue(tree.overlaps(10, 11, NOW));
+        assertFalse(tree.overlaps(11, 13, NOW));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void expiredHolds_doNotCount() {
+        IntervalTree tree = new IntervalTree();
+        tree.add(1, 10, 13, NOW.minusMinutes(1));
+        tree.add(2, 20, 23, NOW.plusMinutes(1));
+
+        assertFalse(tree.overlaps(10, 13, NOW));
+        assertTrue(tree.overlaps(20, 23, NOW));
+    }
+
+    @Test
+    void confirm_makesTheHoldPermanent() {
+        IntervalTree tree = new IntervalTree();
+        tree.add(1, 10, 13, NOW.plusMinutes(1));
+
+        tree.confirm(1);
+
+        assertTrue(tree.overlaps(10, 13, NOW.plusDays(1)));
+    }
+
+    @Test
+    void overlaps_matchesALinearScan() {
+        Random random = new Random(7);
+        IntervalTree tree = new IntervalTree();
+        List<long[]> intervals = new ArrayList<>();
+        for (long id = 0; id < 2_000; id++) {
+            long start = random.nextInt(5_000);
+            long[] interval = { id, start, start + 1 + random.nextInt(10) };
+            intervals.add(interval);
+            tree.add(interval[0], interval[1], interval[2], null);
+        }
+        for (int i = 0; i < 500; i++) {
+            long[] removed = intervals.remove(random.nextInt(intervals.size()));
+            tree.remove(removed[0]);
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            long start = random.nextInt(5_100);
+            long end = start + 1 + random.nextInt(14);
+            boolean expected = intervals.stream().anyMatch(interval -> interval[1] < end && interval[2] > start);
+            assertEquals(expected, tree.overlaps(start, end, NOW), "range " + start + "-" + end);
+        }
+    }
+}
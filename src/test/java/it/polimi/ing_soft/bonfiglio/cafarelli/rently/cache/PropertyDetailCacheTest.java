@@ -0,0 +1,139 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PropertyDetailCacheTest {
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private PropertyDetailCache propertyDetailCache;
+
+    private Property property;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        propertyDetailCache = new PropertyDetailCache(propertyRepository, new ObjectMapper(), transactionTemplate);
+
+        property = new Property();
+        property.setId(1L);
+        property.setTitle("Lake house");
+    }
+
+    @Test
+    void get_miss_loadsAndSerializes() {
+        when(propertyRepository.findDetailById(1L)).thenReturn(Optional.of(property));
+
+        String json = new String(propertyDetailCache.get(1L));
+
+        assertTrue(json.contains("\"title\":\"Lake house\""));
+        assertEquals(1, propertyDetailCache.stats().getMisses());
+    }
+
+    @Test
+    void get_hit_skipsDatabase() {
+        when(propertyRepository.findDetailById(1L)).thenReturn(Optional.of(property));
+
+        byte[] first = propertyDetailCache.get(1L);
+        byte[] second = propertyDetailCache.get(1L);
+
+        assertSame(first, second);
+        verify(propertyRepository, times(1)).findDetailById(1L);
+        assertEquals(1, propertyDetailCache.stats().getHits());
+    }
+
+    @Test
+    void get_missingProperty_throwsAndIsNotCached() {
+        when(propertyRepository.findDetailById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> propertyDetailCache.get(2L));
+        assertThrows(EntityNotFoundException.class, () -> propertyDetailCache.get(2L));
+        verify(propertyRepository, times(2)).findDetailById(2L);
+    }
+
+    @Test
+    void evict_reloadsChangedProperty() {
+        when(propertyRepository.findDetailById(1L)).thenReturn(Optional.of(property));
+        propertyDetailCache.get(1L);
+
+        property.setTitle("Lake villa");
+        propertyDetailCache.evict(1L);
+
+        assertTrue(new String(propertyDetailCache.get(1L)).contains("Lake villa"));
+        assertEquals(1, propertyDetailCache.stats().getEvictions());
+    }
+
+    @Test
+    void evict_duringLoad_doesNotCacheStaleDetails() {
+        when(propertyRepository.findDetailById(1L)).thenAnswer(invocation -> {
+            propertyDetailCache.evict(1L);
+            return Optional.of(property);
+        });
+
+        propertyDetailCache.get(1L);
+        propertyDetailCache.get(1L);
+
+        verify(propertyRepository, times(2)).findDetailById(1L);
+    }
+
+    @Test
+    void get_concurrentMisses_loadOnce() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(propertyRepository.findDetailById(1L)).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            assertTrue(releaseLoad.await(5, TimeUnit.SECONDS));
+            return Optional.of(property);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            results.add(executor.submit(() -> propertyDetailCache.get(1L)));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 15; i++) {
+                results.add(executor.submit(() -> propertyDetailCache.get(1L)));
+            }
+            // Give the waiting requests time to join the running load
+            Thread.sleep(100);
+            releaseLoad.countDown();
+
+            byte[] expected = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(expected, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(propertyRepository, times(1)).findDetailById(1L);
+    }
+}
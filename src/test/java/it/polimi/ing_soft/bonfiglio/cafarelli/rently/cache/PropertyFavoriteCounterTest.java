@@ -0,0 +1,105 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PropertyFavoriteCounterTest {
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @InjectMocks
+    private PropertyFavoriteCounter propertyFavoriteCounter;
+
+    @Test
+    void flush_writesTheNetDeltaOfEachProperty() {
+        propertyFavoriteCounter.increment(1L);
+        propertyFavoriteCounter.increment(1L);
+        propertyFavoriteCounter.increment(2L);
+        propertyFavoriteCounter.decrement(2L);
+        propertyFavoriteCounter.decrement(3L);
+
+        propertyFavoriteCounter.flush();
+
+        verify(propertyRepository).addToFavoriteCounts(Map.of(1L, 2L, 3L, -1L));
+        assertEquals(0, propertyFavoriteCounter.pending(1L));
+        assertEquals(0, propertyFavoriteCounter.pending(3L));
+    }
+
+    @Test
+    void flush_withNothingPending_doesNotTouchTheDatabase() {
+        propertyFavoriteCounter.flush();
+
+        verifyNoInteractions(propertyRepository);
+    }
+
+    @Test
+    void flush_failure_keepsTheDeltasForTheNextFlush() {
+        propertyFavoriteCounter.increment(1L);
+        doThrow(new RuntimeException("connection lost")).when(propertyRepository).addToFavoriteCounts(anyMap());
+
+        assertThrows(RuntimeException.class, () -> propertyFavoriteCounter.flush());
+        assertEquals(1, propertyFavoriteCounter.pending(1L));
+
+        doNothing().when(propertyRepository).addToFavoriteCounts(anyMap());
+        propertyFavoriteCounter.flush();
+        assertEquals(0, propertyFavoriteCounter.pending(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_splitsTheDeltasInBatches() {
+        for (long id = 1; id <= PropertyFavoriteCounter.BATCH_SIZE + 1; id++) {
+            propertyFavoriteCounter.increment(id);
+        }
+        List<Map<Long, Long>> batches = new ArrayList<>();
+        doAnswer(invocation -> batches.add(new HashMap<>((Map<Long, Long>) invocation.getArgument(0))))
+                .when(propertyRepository).addToFavoriteCounts(anyMap());
+
+        propertyFavoriteCounter.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(PropertyFavoriteCounter.BATCH_SIZE + 1, batches.get(0).size() + batches.get(1).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentIncrements_areAllWritten() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    propertyFavoriteCounter.increment(1L);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        propertyFavoriteCounter.flush();
+
+        ArgumentCaptor<Map<Long, Long>> written = ArgumentCaptor.forClass(Map.class);
+        verify(propertyRepository).addToFavoriteCounts(written.capture());
+        assertEquals(8000L, written.getValue().get(1L));
+    }
+}
@@ -0,0 +1,112 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PropertyViewCounterTest {
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @InjectMocks
+    private PropertyViewCounter propertyViewCounter;
+
+    @Test
+    void flush_writesTheViewsOfEveryPropertyInOneBatch() {
+        propertyViewCounter.increment(1L);
+        propertyViewCounter.increment(1L);
+        propertyViewCounter.increment(2L);
+
+        assertEquals(2, propertyViewCounter.pending(1L));
+        propertyViewCounter.flush();
+
+        verify(propertyRepository).addToViewCounts(Map.of(1L, 2L, 2L, 1L));
+        assertEquals(0, propertyViewCounter.pending(1L));
+        assertEquals(0, propertyViewCounter.pending(2L));
+    }
+
+    @Test
+    void flush_writesOnlyTheViewsSinceTheLastFlush() {
+        propertyViewCounter.increment(1L);
+        propertyViewCounter.flush();
+        propertyViewCounter.flush();
+        propertyViewCounter.increment(1L);
+        propertyViewCounter.flush();
+
+        verify(propertyRepository, times(2)).addToViewCounts(Map.of(1L, 1L));
+        verifyNoMoreInteractions(propertyRepository);
+    }
+
+    @Test
+    void flush_failure_keepsTheViewsForTheNextFlush() {
+        propertyViewCounter.increment(1L);
+        doThrow(new RuntimeException("connection lost")).when(propertyRepository).addToViewCounts(anyMap());
+
+        assertThrows(RuntimeException.class, () -> propertyViewCounter.flush());
+        assertEquals(1, propertyViewCounter.pending(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void viewsCountedDuringAFlush_areNotLost() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch viewed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            viewed.await();
+            return null;
+        }).when(propertyRepository).addToViewCounts(anyMap());
+
+        propertyViewCounter.increment(1L);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> flush = executor.submit(() -> propertyViewCounter.flush());
+        writing.await();
+        propertyViewCounter.increment(1L);
+        viewed.countDown();
+        flush.get();
+        executor.shutdown();
+
+        assertEquals(1, propertyViewCounter.pending(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentViews_areAllWritten() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    propertyViewCounter.increment(1L);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        propertyViewCounter.flush();
+
+        ArgumentCaptor<Map<Long, Long>> written = ArgumentCaptor.forClass(Map.class);
+        verify(propertyRepository).addToViewCounts(written.capture());
+        assertEquals(8000L, written.getValue().get(1L));
+    }
+}
@@ -0,0 +1,65 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewEligibilityCacheTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @InjectMocks
+    private ReviewEligibilityCache reviewEligibilityCache;
+
+    @Test
+    void hasStayed_isAnsweredOncePerUserAndProperty() {
+        when(bookingRepository.existsConcludedStay(eq(1L), eq(2L), any(LocalDate.class))).thenReturn(true);
+        when(bookingRepository.existsConcludedStay(eq(1L), eq(3L), any(LocalDate.class))).thenReturn(false);
+
+        assertTrue(reviewEligibilityCache.hasStayed(1L, 2L));
+        assertTrue(reviewEligibilityCache.hasStayed(1L, 2L));
+        assertFalse(reviewEligibilityCache.hasStayed(1L, 3L));
+        assertFalse(reviewEligibilityCache.hasStayed(1L, 3L));
+
+        verify(bookingRepository, times(1)).existsConcludedStay(eq(1L), eq(2L), any(LocalDate.class));
+        verify(bookingRepository, times(1)).existsConcludedStay(eq(1L), eq(3L), any(LocalDate.class));
+    }
+
+    @Test
+    void hasBooked_isCachedSeparatelyFromStays() {
+        User host = new User();
+        host.setId(1L);
+        User customer = new User();
+        customer.setId(2L);
+        when(bookingRepository.existsBookingByHostIdAndClientId(host, customer)).thenReturn(true);
+        when(bookingRepository.existsConcludedStay(eq(1L), eq(2L), any(LocalDate.class))).thenReturn(false);
+
+        assertTrue(reviewEligibilityCache.hasBooked(host, customer));
+        assertTrue(reviewEligibilityCache.hasBooked(host, customer));
+        assertFalse(reviewEligibilityCache.hasStayed(1L, 2L));
+
+        verify(bookingRepository, times(1)).existsBookingByHostIdAndClientId(host, customer);
+    }
+
+    @Test
+    void evictExpired_keepsFreshEntries() {
+        when(bookingRepository.existsConcludedStay(eq(1L), eq(2L), any(LocalDate.class))).thenReturn(true);
+
+        reviewEligibilityCache.hasStayed(1L, 2L);
+        reviewEligibilityCache.evictExpired();
+        reviewEligibilityCache.hasStayed(1L, 2L);
+
+        verify(bookingRepository, times(1)).existsConcludedStay(eq(1L), eq(2L), any(LocalDate.class));
+    }
+}
@@ -0,0 +1,178 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookingPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private BookingPartitionManager bookingPartitionManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        bookingPartitionManager = new BookingPartitionManager(jdbcTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(bookingPartitionManager, "enabled", true);
+        ReflectionTestUtils.setField(bookingPartitionManager, "retentionMonths", 24);
+    }
+
+    @Test
+    void partition_disabled_leavesTheTableAlone() {
+        ReflectionTestUtils.setField(bookingPartitionManager, "enabled", false);
+
+        bookingPartitionManager.partition();
+
+        assertFalse(bookingPartitionManager.isPartitioned());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void partition_plainTable_isConvertedIntoMonthlyPartitions() {
+        YearMonth oldest = YearMonth.now().minusMonths(2);
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Integer.class))).thenReturn(0);
+        when(jdbcTemplate.queryForObject(contains("MIN(check_out_date)"), eq(LocalDate.class))).thenReturn(oldest.atDay(10));
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(String.class), eq("booking_unpartitioned")))
+                .thenReturn("id, check_in_date, check_out_date");
+        // The partitions created by the conversion are there for the maintenance that follows it
+        int created = BookingPartitionManager.MONTHS_AHEAD + 3;
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), anyString()))
+                .thenReturn(false, Collections.nCopies(created - 1, false).toArray(Boolean[]::new))
+                .thenReturn(true);
+        String first = BookingPartitionManager.partitionName(oldest);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(first, BookingPartitionManager.DEFAULT_PARTITION));
+
+        bookingPartitionManager.partition();
+
+        assertTrue(bookingPartitionManager.isPartitioned());
+        var order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("ALTER TABLE booking RENAME TO booking_unpartitioned");
+        order.verify(jdbcTemplate).execute(endsWith("PARTITION BY RANGE (check_out_date)"));
+        order.verify(jdbcTemplate).execute("ALTER TABLE booking ADD PRIMARY KEY (id, check_out_date)");
+        order.verify(jdbcTemplate).execute("CREATE TABLE booking_default PARTITION OF booking DEFAULT");
+        order.verify(jdbcTemplate).execute(startsWith("CREATE TABLE " + BookingPartitionManager.partitionName(oldest) + " PARTITION OF booking"));
+        order.verify(jdbcTemplate).execute("INSERT INTO booking (id, check_in_date, check_out_date) " +
+                "SELECT id, check_in_date, check_out_date FROM booking_unpartitioned");
+        order.verify(jdbcTemplate).execute("DROP TABLE booking_unpartitioned");
+        // The constraints come once the rows are copied, so overlapping stays cannot fail the copy
+        order.verify(jdbcTemplate).execute(startsWith("ALTER TABLE " + first + " ADD CONSTRAINT"));
+        verify(jdbcTemplate, times(1)).execute(contains("EXCLUDE USING gist"));
+        verify(jdbcTemplate, times(created))
+                .execute(matches("CREATE TABLE booking_p\\d{4}_\\d{2} PARTITION OF booking .*"));
+    }
+
+    @Test
+    void partition_overlappingStaysInAPartition_keepsTheConversion() {
+        String overlapping = BookingPartitionManager.partitionName(YearMonth.now());
+        String clean = BookingPartitionManager.partitionName(YearMonth.now().plusMonths(1));
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Integer.class))).thenReturn(0);
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), anyString())).thenReturn(true);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class))).thenReturn(List.of(overlapping, clean));
+        doThrow(new DataIntegrityViolationException("conflicting key value"))
+                .when(jdbcTemplate).execute(startsWith("ALTER TABLE " + overlapping + " ADD CONSTRAINT"));
+
+        bookingPartitionManager.partition();
+
+        assertTrue(bookingPartitionManager.isPartitioned());
+        verify(jdbcTemplate).execute(startsWith("ALTER TABLE " + clean + " ADD CONSTRAINT"));
+    }
+
+    @Test
+    void partition_failingConversion_keepsThePlainTable() {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Integer.class))).thenReturn(0);
+        doThrow(new DataIntegrityViolationException("could not create partition"))
+                .when(jdbcTemplate).execute("CREATE TABLE booking_default PARTITION OF booking DEFAULT");
+
+        assertDoesNotThrow(() -> bookingPartitionManager.partition());
+
+        assertFalse(bookingPartitionManager.isPartitioned());
+        verify(jdbcTemplate, never()).execute(contains("ADD CONSTRAINT"));
+    }
+
+    @Test
+    void partition_alreadyPartitioned_onlyMaintainsThePartitions() {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Integer.class))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), anyString())).thenReturn(true);
+
+        bookingPartitionManager.partition();
+
+        assertTrue(bookingPartitionManager.isPartitioned());
+        verify(jdbcTemplate, never()).execute(contains("RENAME"));
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE"));
+    }
+
+    @Test
+    void maintainPartitions_detachesThePartitionsPastTheRetention() {
+        ReflectionTestUtils.setField(bookingPartitionManager, "partitioned", true);
+        String expired = BookingPartitionManager.partitionName(YearMonth.now().minusMonths(25));
+        String kept = BookingPartitionManager.partitionName(YearMonth.now().minusMonths(24));
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), anyString())).thenReturn(true);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(expired, kept, BookingPartitionManager.DEFAULT_PARTITION));
+
+        bookingPartitionManager.maintainPartitions();
+
+        verify(jdbcTemplate).execute("ALTER TABLE booking DETACH PARTITION " + expired);
+        verify(jdbcTemplate, times(1)).execute(startsWith("ALTER TABLE booking DETACH"));
+    }
+
+    @Test
+    void maintainPartitions_notPartitioned_doesNothing() {
+        bookingPartitionManager.maintainPartitions();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void createPartition_movesTheRowsOutOfTheDefaultPartition() {
+        YearMonth month = YearMonth.of(2027, 3);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS"), eq(Boolean.class))).thenReturn(true);
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(String.class), eq("booking_default")))
+                .thenReturn("id, check_out_date");
+
+        bookingPartitionManager.createPartition(month);
+
+        var order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("CREATE TEMPORARY TABLE booking_stranded AS SELECT id, check_out_date FROM booking_default " +
+                "WHERE check_out_date >= '2027-03-01' AND check_out_date < '2027-04-01'");
+        order.verify(jdbcTemplate).update("DELETE FROM booking_default WHERE check_out_date >= '2027-03-01' AND check_out_date < '2027-04-01'");
+        order.verify(jdbcTemplate).execute("CREATE TABLE booking_p2027_03 PARTITION OF booking FOR VALUES FROM ('2027-03-01') TO ('2027-04-01')");
+        order.verify(jdbcTemplate).execute("INSERT INTO booking (id, check_out_date) SELECT id, check_out_date FROM booking_stranded");
+        order.verify(jdbcTemplate).execute("DROP TABLE booking_stranded");
+        order.verify(jdbcTemplate).execute(startsWith("ALTER TABLE booking_p2027_03 ADD CONSTRAINT booking_p2027_03_no_overlapping_active_stays"));
+    }
+
+    @Test
+    void monthOf_readsTheMonthBackFromThePartitionName() {
+        YearMonth month = YearMonth.of(2026, 11);
+
+        assertEquals(month, BookingPartitionManager.monthOf(BookingPartitionManager.partitionName(month)));
+        assertNull(BookingPartitionManager.monthOf(BookingPartitionManager.DEFAULT_PARTITION));
+    }
+}
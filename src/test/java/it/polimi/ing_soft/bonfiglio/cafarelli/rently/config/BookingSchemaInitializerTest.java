@@ -0,0 +1,162 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookingCalendar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookingSchemaInitializerTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BookingPartitionManager bookingPartitionManager;
+
+    @Mock
+    private BookingCalendar bookingCalendar;
+
+    private BookingSchemaInitializer bookingSchemaInitializer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        bookingSchemaInitializer = new BookingSchemaInitializer(dataSource, jdbcTemplate, bookingPartitionManager, bookingCalendar);
+    }
+
+    @Test
+    void initialize_onPostgreSql_addsTheExclusionConstraint() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(BookingSchemaInitializer.EXCLUSION_CONSTRAINT)))
+                .thenReturn(0);
+
+        bookingSchemaInitializer.initialize();
+
+        verify(jdbcTemplate).update("UPDATE booking SET status = 'CONFIRMED' WHERE status IS NULL");
+        verify(jdbcTemplate).execute(startsWith("CREATE INDEX IF NOT EXISTS " + BookingSchemaInitializer.ACTIVE_STAY_INDEX));
+        verify(jdbcTemplate).execute("DROP INDEX IF EXISTS " + BookingSchemaInitializer.STAY_INDEX);
+        verify(jdbcTemplate).execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+        verify(jdbcTemplate).execute(startsWith("ALTER TABLE booking ADD COLUMN IF NOT EXISTS stay daterange"));
+        verify(jdbcTemplate).execute(contains("EXCLUDE USING gist (property_id WITH =, stay WITH &&) WHERE (status IN ('PENDING', 'CONFIRMED'))"));
+        verify(bookingCalendar).setConstrained(true);
+    }
+
+    @Test
+    void initialize_partitioned_leavesTheConstraintToThePartitions() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(bookingPartitionManager.isPartitioned()).thenReturn(true);
+
+        bookingSchemaInitializer.initialize();
+
+        var order = inOrder(jdbcTemplate, bookingPartitionManager);
+        order.verify(jdbcTemplate).execute(startsWith("ALTER TABLE booking ADD COLUMN IF NOT EXISTS stay daterange"));
+        order.verify(bookingPartitionManager).partition();
+        order.verify(jdbcTemplate).execute(startsWith("CREATE INDEX IF NOT EXISTS " + BookingSchemaInitializer.ACTIVE_STAY_INDEX));
+        verify(jdbcTemplate, never()).execute(contains("EXCLUDE"));
+        verify(bookingCalendar, never()).setConstrained(true);
+    }
+
+    @Test
+    void initialize_statusCheckMissingNewStatuses_isWidened() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(jdbcTemplate.query(contains("booking_status_check"), ArgumentMatchers.<ResultSetExtractor<String>>any()))
+                .thenReturn("CHECK (((status)::text = ANY ((ARRAY['PENDING'::character varying, 'CONFIRMED'::character varying])::text[])))");
+
+        bookingSchemaInitializer.initialize();
+
+        verify(jdbcTemplate).execute("ALTER TABLE booking DROP CONSTRAINT booking_status_check");
+        verify(jdbcTemplate).execute("ALTER TABLE booking ADD CONSTRAINT booking_status_check " +
+                "CHECK (status IN ('PENDING', 'CONFIRMED', 'CANCELLED', 'COMPLETED'))");
+    }
+
+    @Test
+    void initialize_onMySqlWithAnOldEnum_widensTheEnum() throws SQLException {
+        ResultSet indexes = mock(ResultSet.class);
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(metaData.getIndexInfo(null, null, "booking", false, true)).thenReturn(indexes);
+        when(jdbcTemplate.query(contains("column_type"), ArgumentMatchers.<ResultSetExtractor<String>>any()))
+                .thenReturn("enum('PENDING','CONFIRMED')");
+
+        bookingSchemaInitializer.initialize();
+
+        verify(jdbcTemplate).execute("ALTER TABLE booking MODIFY status ENUM('PENDING', 'CONFIRMED', 'CANCELLED', 'COMPLETED')");
+    }
+
+    @Test
+    void initialize_constraintAlreadyThere_isNotAddedAgain() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(BookingSchemaInitializer.EXCLUSION_CONSTRAINT)))
+                .thenReturn(1);
+
+        bookingSchemaInitializer.initialize();
+
+        verify(jdbcTemplate, never()).execute(contains("EXCLUDE"));
+        verify(bookingCalendar).setConstrained(true);
+    }
+
+    @Test
+    void initialize_overlappingBookings_keepsTheApplicationRunning() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(BookingSchemaInitializer.EXCLUSION_CONSTRAINT)))
+                .thenReturn(0);
+        doThrow(new DataIntegrityViolationException("conflicting key value"))
+                .when(jdbcTemplate).execute(contains("EXCLUDE"));
+
+        assertDoesNotThrow(() -> bookingSchemaInitializer.initialize());
+        verify(bookingCalendar, never()).setConstrained(true);
+    }
+
+    @Test
+    void initialize_onMySql_addsTheBtreeIndex() throws SQLException {
+        ResultSet indexes = mock(ResultSet.class);
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(metaData.getIndexInfo(null, null, "booking", false, true)).thenReturn(indexes);
+        when(indexes.next()).thenReturn(false);
+
+        bookingSchemaInitializer.initialize();
+
+        verify(jdbcTemplate).execute("CREATE INDEX " + BookingSchemaInitializer.STAY_INDEX +
+                " ON booking (property_id, status, check_out_date, check_in_date)");
+        verify(jdbcTemplate, never()).execute(contains("EXCLUDE"));
+        verify(bookingCalendar, never()).setConstrained(true);
+    }
+
+    @Test
+    void initialize_onMySqlWithTheIndex_leavesTheSchemaAlone() throws SQLException {
+        ResultSet indexes = mock(ResultSet.class);
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(metaData.getIndexInfo(null, null, "booking", false, true)).thenReturn(indexes);
+        when(indexes.next()).thenReturn(true);
+        when(indexes.getString("INDEX_NAME")).thenReturn(BookingSchemaInitializer.STAY_INDEX);
+
+        bookingSchemaInitializer.initialize();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
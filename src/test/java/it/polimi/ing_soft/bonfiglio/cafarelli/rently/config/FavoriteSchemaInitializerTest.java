@@ -0,0 +1,152 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FavoriteSchemaInitializerTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ResultSet primaryKeys;
+
+    @Mock
+    private ResultSet foreignKeys;
+
+    private FavoriteSchemaInitializer favoriteSchemaInitializer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getPrimaryKeys(null, null, FavoriteSchemaInitializer.TABLE)).thenReturn(primaryKeys);
+        when(metaData.getImportedKeys(null, null, FavoriteSchemaInitializer.TABLE)).thenReturn(foreignKeys);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        favoriteSchemaInitializer = new FavoriteSchemaInitializer(dataSource, jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void initialize_oldJoinTable_removesDuplicatesAndAddsThePrimaryKey() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(primaryKeys.next()).thenReturn(false);
+        when(jdbcTemplate.queryForObject(contains("HAVING COUNT(*) > 1"), eq(Integer.class))).thenReturn(2);
+
+        favoriteSchemaInitializer.initialize();
+
+        var order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute(startsWith("CREATE TEMPORARY TABLE favorite_duplicates"));
+        order.verify(jdbcTemplate).update(startsWith("DELETE FROM user_favorites WHERE EXISTS"));
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO user_favorites"));
+        order.verify(jdbcTemplate).execute("DROP TABLE favorite_duplicates");
+        order.verify(jdbcTemplate).execute("ALTER TABLE user_favorites ADD PRIMARY KEY (user_id, property_id)");
+    }
+
+    @Test
+    void initialize_noDuplicates_onlyAddsThePrimaryKey() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(primaryKeys.next()).thenReturn(false);
+        when(jdbcTemplate.queryForObject(contains("HAVING COUNT(*) > 1"), eq(Integer.class))).thenReturn(0);
+
+        favoriteSchemaInitializer.initialize();
+
+        verify(jdbcTemplate, never()).execute(contains("favorite_duplicates"));
+        verify(jdbcTemplate).execute("ALTER TABLE user_favorites ADD PRIMARY KEY (user_id, property_id)");
+    }
+
+    @Test
+    void initialize_foreignKeysWithoutCascade_areReplaced() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(primaryKeys.next()).thenReturn(true);
+        when(foreignKeys.next()).thenReturn(true, true, false);
+        when(foreignKeys.getString("FKCOLUMN_NAME")).thenReturn("user_id", "property_id");
+        when(foreignKeys.getString("FK_NAME")).thenReturn("fk_user", "fk_property");
+        when(foreignKeys.getString("PKTABLE_NAME")).thenReturn("user", "property");
+        when(foreignKeys.getShort("DELETE_RULE")).thenReturn((short) DatabaseMetaData.importedKeyNoAction);
+
+        favoriteSchemaInitializer.initialize();
+
+        verify(jdbcTemplate).execute("ALTER TABLE user_favorites DROP CONSTRAINT fk_user");
+        verify(jdbcTemplate).execute("ALTER TABLE user_favorites ADD CONSTRAINT fk_user_favorites_user_id " +
+                "FOREIGN KEY (user_id) REFERENCES \"user\" (id) ON DELETE CASCADE");
+        verify(jdbcTemplate).execute("ALTER TABLE user_favorites DROP CONSTRAINT fk_property");
+        verify(jdbcTemplate).execute("ALTER TABLE user_favorites ADD CONSTRAINT fk_user_favorites_property_id " +
+                "FOREIGN KEY (property_id) REFERENCES \"property\" (id) ON DELETE CASCADE");
+        verify(jdbcTemplate, never()).update(contains("NOT EXISTS"));
+    }
+
+    @Test
+    void initialize_onMySqlWithoutForeignKeys_removesOrphansFirst() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(primaryKeys.next()).thenReturn(true);
+        when(foreignKeys.next()).thenReturn(false);
+
+        favoriteSchemaInitializer.initialize();
+
+        var order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("DELETE FROM user_favorites WHERE NOT EXISTS " +
+                "(SELECT 1 FROM `user` r WHERE r.id = user_favorites.user_id)");
+        order.verify(jdbcTemplate).execute("ALTER TABLE user_favorites ADD CONSTRAINT fk_user_favorites_user_id " +
+                "FOREIGN KEY (user_id) REFERENCES `user` (id) ON DELETE CASCADE");
+        verify(jdbcTemplate, never()).execute(contains("DROP FOREIGN KEY"));
+    }
+
+    @Test
+    void initialize_upToDateSchema_isLeftAlone() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(primaryKeys.next()).thenReturn(true);
+        when(foreignKeys.next()).thenReturn(true, true, false);
+        when(foreignKeys.getString("FKCOLUMN_NAME")).thenReturn("user_id", "property_id");
+        when(foreignKeys.getShort("DELETE_RULE")).thenReturn((short) DatabaseMetaData.importedKeyCascade);
+
+        favoriteSchemaInitializer.initialize();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void initialize_failingStatement_keepsTheApplicationRunning() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(primaryKeys.next()).thenReturn(false);
+        when(foreignKeys.next()).thenReturn(false);
+        when(jdbcTemplate.queryForObject(contains("HAVING COUNT(*) > 1"), eq(Integer.class))).thenReturn(0);
+        doThrow(new DataIntegrityViolationException("violates foreign key constraint"))
+                .when(jdbcTemplate).execute(contains("FOREIGN KEY"));
+
+        assertDoesNotThrow(() -> favoriteSchemaInitializer.initialize());
+        verify(jdbcTemplate).execute("ALTER TABLE user_favorites ADD PRIMARY KEY (user_id, property_id)");
+    }
+}
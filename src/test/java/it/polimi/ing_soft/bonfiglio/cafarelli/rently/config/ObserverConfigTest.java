@@ -2,6 +2,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.config;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.listeners.NotificationListener;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.listeners.TrendingListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -18,13 +19,16 @@ class ObserverConfigTest {
     @Mock
     private NotificationListener notificationListener;
 
+    @Mock
+    private TrendingListener trendingListener;
+
     @InjectMocks
     private ObserverConfig observerConfig;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        observerConfig = new ObserverConfig(eventManager, notificationListener);
+        observerConfig = new ObserverConfig(eventManager, notificationListener, trendingListener);
     }
 
     @Test
@@ -35,5 +39,8 @@ class ObserverConfigTest {
         verify(eventManager).subscribe("BOOKING_CANCELED", notificationListener);
         verify(eventManager).subscribe("CHANGEROLE_ACCEPTED", notificationListener);
         verify(eventManager).subscribe("CHANGEROLE_REJECTED", notificationListener);
+        verify(eventManager).subscribe("BOOKING_CREATED", trendingListener);
+        verify(eventManager).subscribe("PROPERTY_FAVORITED", trendingListener);
+        verify(eventManager).subscribe("PROPERTY_VIEWED", trendingListener);
     }
 }
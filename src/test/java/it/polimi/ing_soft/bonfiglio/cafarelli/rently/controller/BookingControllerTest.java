@@ -2,14 +2,22 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.BookingCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingDashboardResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.BookingService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
@@ -22,6 +30,9 @@ class BookingControllerTest {
     @Mock
     private BookingService bookingService;
 
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private BookingController bookingController;
 
@@ -45,11 +56,11 @@ class BookingControllerTest {
 
     @Test
     void getAllBookings_Admin_ShouldReturnAllBookings() {
-        List<Booking> mockBookings = List.of(new Booking(), new Booking());
+        List<BookingResponse> mockBookings = List.of(BookingResponse.fromEntity(new Booking()), BookingResponse.fromEntity(new Booking()));
 
         when(bookingService.getAllBookings()).thenReturn(mockBookings);
 
-        ResponseEntity<List<Booking>> response = bookingController.getAllBookings();
+        ResponseEntity<List<BookingResponse>> response = bookingController.getAllBookings();
 
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(2, response.getBody().size());
@@ -58,11 +69,11 @@ class BookingControllerTest {
     @Test
     void getAllBookings_User_ShouldReturnBookingsForUser() {
         Long userId = 1L;
-        List<Booking> mockBookings = List.of(new Booking(), new Booking());
+        List<BookingResponse> mockBookings = List.of(BookingResponse.fromEntity(new Booking()), BookingResponse.fromEntity(new Booking()));
 
         when(bookingService.getAllBookings(userId)).thenReturn(mockBookings);
 
-        ResponseEntity<List<Booking>> response = bookingController.getAllBookings(userId);
+        ResponseEntity<List<BookingResponse>> response = bookingController.getAllBookings(userId);
 
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(2, response.getBody().size());
@@ -97,4 +108,22 @@ class BookingControllerTest {
         assertEquals(2, response.getBody().size());
         assertEquals("Casa Mare", response.getBody().get(0).getTitle());
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportBookings_streamsTheExportInTheRequestedFormat() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = bookingController.exportBookings("csv");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(ExportFormat.CSV.getMediaType(), response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"bookings.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(exportService).exportBookings(ExportFormat.CSV, out);
+    }
+
+    @Test
+    void exportBookings_unknownFormat_throwsException() {
+        assertThrows(DataValidationException.class, () -> bookingController.exportBookings("xml"));
+        verifyNoInteractions(exportService);
+    }
+}
@@ -102,6 +102,19 @@ class ChatControllerTest {
         verify(chatService).getConversation(2L);
     }
 
+    @Test
+    void getArchivedMessages_success() {
+        // Arrange
+        when(chatService.getArchivedMessages(2L, 1)).thenReturn(chatMessages);
+
+        // Act
+        ResponseEntity<List<ChatMessage>> response = chatController.getArchivedMessages(2L, 1);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(chatMessages, response.getBody());
+    }
+
     @Test
     void getUsersWithMessages_success() {
         // Arrange
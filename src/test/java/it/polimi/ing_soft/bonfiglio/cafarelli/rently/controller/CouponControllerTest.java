@@ -0,0 +1,64 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.CouponCampaignRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.CouponService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CouponControllerTest {
+
+    @Mock
+    private CouponService couponService;
+
+    @InjectMocks
+    private CouponController couponController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void getCatalogCacheStats_ShouldReturnStats() {
+        CacheStatsResponse stats = new CacheStatsResponse(9, 1, 0, 4, 0.9);
+
+        when(couponService.getCatalogCacheStats()).thenReturn(stats);
+
+        ResponseEntity<CacheStatsResponse> response = couponController.getCatalogCacheStats();
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void generateCampaign_ShouldStreamCodesAsAttachment() throws Exception {
+        CouponCampaignRequest request = new CouponCampaignRequest(2, null, 10, null, new BigDecimal("10"), LocalDate.now().plusDays(10));
+        when(couponService.generateCampaign(eq(request), any())).thenAnswer(invocation -> {
+            ByteArrayOutputStream out = invocation.getArgument(1);
+            out.write("AAAAAAAAAA\nBBBBBBBBBB\n".getBytes());
+            return 2L;
+        });
+
+        ResponseEntity<StreamingResponseBody> response = couponController.generateCampaign(request);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("coupons.txt"));
+        assertEquals("AAAAAAAAAA\nBBBBBBBBBB\n", output.toString());
+    }
+}
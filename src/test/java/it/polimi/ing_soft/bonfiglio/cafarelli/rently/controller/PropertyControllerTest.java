@@ -2,9 +2,17 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AvailablePropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FacetedPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FlexibleAvailabilityRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.MapAreaPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.NearbyPropertiesRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetedSearchResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FlexibleAvailabilityResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PropertyService;
 import jakarta.validation.ConstraintViolation;
@@ -15,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
@@ -159,15 +168,15 @@ class PropertyControllerTest {
 
     @Test
     void getPropertyById_Success() {
-        Property property = new Property();
-        property.setId(1L);
-        when(propertyService.findById(1L)).thenReturn(property);
+        byte[] property = "{\"id\":1}".getBytes();
+        when(propertyService.findDetailById(1L)).thenReturn(property);
 
-        ResponseEntity<Property> response = propertyController.getPropertyById(1L);
+        ResponseEntity<byte[]> response = propertyController.getPropertyById(1L);
 
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(property, response.getBody());
-        verify(propertyService).findById(1L);
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertArrayEquals(property, response.getBody());
+        verify(propertyService).findDetailById(1L);
     }
 
     @Test
@@ -307,4 +316,108 @@ class PropertyControllerTest {
         assertTrue(response.getBody().isEmpty());
         verify(propertyService).findAvailableProperties(request);
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchProperties_Success() {
+        List<Property> properties = List.of(new Property());
+        when(propertyService.search("lake view", 20)).thenReturn(properties);
+
+        ResponseEntity<List<Property>> response = propertyController.searchProperties("lake view", 20);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(properties, response.getBody());
+    }
+
+    @Test
+    void rebuildSearchIndex_Success() {
+        when(propertyService.rebuildSearchIndex()).thenReturn(42);
+
+        ResponseEntity<CustomResponse> response = propertyController.rebuildSearchIndex();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("Search index rebuilt with 42 properties", response.getBody().getMessage());
+    }
+
+    @Test
+    void searchFlexibleAvailability_Success() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        FlexibleAvailabilityRequest request = new FlexibleAvailabilityRequest("Milano", from, from.plusDays(14), 3, 2, 0);
+        List<FlexibleAvailabilityResponse> properties = List.of(new FlexibleAvailabilityResponse(new Property(), List.of(from)));
+        when(propertyService.findFlexibleAvailability(request)).thenReturn(properties);
+
+        ResponseEntity<List<FlexibleAvailabilityResponse>> response = propertyController.searchFlexibleAvailability(request);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(properties, response.getBody());
+    }
+
+    @Test
+    void searchNearbyProperties_Success() {
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, null, null, 2, 0);
+        List<Property> properties = List.of(new Property());
+        when(propertyService.findNearby(request)).thenReturn(properties);
+
+        ResponseEntity<List<Property>> response = propertyController.searchNearbyProperties(request);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(properties, response.getBody());
+    }
+
+    @Test
+    void searchPropertiesInMapArea_Success() {
+        MapAreaPropertiesRequest request = new MapAreaPropertiesRequest(45.0, 9.0, 46.0, 10.0, null, null, 1, 0);
+        List<Property> properties = List.of(new Property(), new Property());
+        when(propertyService.findInMapArea(request)).thenReturn(properties);
+
+        ResponseEntity<List<Property>> response = propertyController.searchPropertiesInMapArea(request);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, response.getBody().size());
+    }
+
+    @Test
+    void searchPropertiesFaceted_Success() {
+        FacetedPropertiesRequest request = new FacetedPropertiesRequest();
+        request.setCity("Milano");
+        FacetedSearchResponse expected = new FacetedSearchResponse(List.of(new Property()), 1, Map.of());
+        when(propertyService.findFaceted(request)).thenReturn(expected);
+
+        ResponseEntity<FacetedSearchResponse> response = propertyController.searchPropertiesFaceted(request);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(expected, response.getBody());
+    }
+
+    @Test
+    void getTrendingProperties_Success() {
+        List<Property> properties = List.of(new Property(), new Property());
+        when(propertyService.findTrending("Milano", 10)).thenReturn(properties);
+
+        ResponseEntity<List<Property>> response = propertyController.getTrendingProperties("Milano", 10);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(properties, response.getBody());
+    }
+
+    @Test
+    void getHostPropertyStats_Success() {
+        List<PropertyStatsResponse> stats = List.of(new PropertyStatsResponse(1L, "Loft", 10, 2));
+        when(propertyService.getHostPropertyStats(1L)).thenReturn(stats);
+
+        ResponseEntity<List<PropertyStatsResponse>> response = propertyController.getHostPropertyStats(1L);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getAvailabilityCacheStats_Success() {
+        CacheStatsResponse stats = new CacheStatsResponse(3, 1, 0, 2, 0.75);
+        when(propertyService.getAvailabilityCacheStats()).thenReturn(stats);
+
+        ResponseEntity<CacheStatsResponse> response = propertyController.getAvailabilityCacheStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody());
+    }
+}
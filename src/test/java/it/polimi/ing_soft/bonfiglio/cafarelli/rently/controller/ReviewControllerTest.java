@@ -2,17 +2,26 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.HostResponseRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewCreateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewPageRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CursorPageResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ReviewService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,6 +32,9 @@ class ReviewControllerTest {
     @Mock
     private ReviewService reviewService;
 
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private ReviewController reviewController;
 
@@ -95,38 +107,54 @@ class ReviewControllerTest {
     }
 
     @Test
-    void getReviewsByPropertyId_returnsReviewList() {
+    void getReviewsByPropertyId_returnsReviewPage() {
         Long propertyId = 6L;
-        List<Review> expectedReviews = List.of(new Review());
+        ReviewPageRequest pageRequest = new ReviewPageRequest();
+        CursorPageResponse<Review> expectedPage = new CursorPageResponse<>(List.of(new Review()), "next");
+
+        when(reviewService.findByPropertyId(propertyId, pageRequest)).thenReturn(expectedPage);
+
+        ResponseEntity<CursorPageResponse<Review>> response = reviewController.getReviewsByPropertyId(propertyId, pageRequest);
+
+        assertEquals(expectedPage, response.getBody());
+    }
+
+    @Test
+    void getReviewsByReviewedUserId_returnsReviewPage() {
+        Long reviewedUserId = 5L;
+        ReviewPageRequest pageRequest = new ReviewPageRequest();
+        CursorPageResponse<Review> expectedPage = new CursorPageResponse<>(List.of(new Review()), null);
 
-        when(reviewService.findByPropertyId(propertyId)).thenReturn(expectedReviews);
+        when(reviewService.findByReviewedUserId(reviewedUserId, pageRequest)).thenReturn(expectedPage);
 
-        ResponseEntity<List<Review>> response = reviewController.getReviewsByPropertyId(propertyId);
+        ResponseEntity<CursorPageResponse<Review>> response = reviewController.getReviewsByReviewedUserId(reviewedUserId, pageRequest);
 
-        assertEquals(expectedReviews, response.getBody());
+        assertEquals(expectedPage, response.getBody());
     }
 
     @Test
-    void getReviewsByReviewerId_returnsReviewList() {
+    void getReviewsByReviewerId_returnsReviewPage() {
         Long reviewerId = 7L;
-        List<Review> expectedReviews = List.of(new Review());
+        ReviewPageRequest pageRequest = new ReviewPageRequest();
+        CursorPageResponse<Review> expectedPage = new CursorPageResponse<>(List.of(new Review()), null);
 
-        when(reviewService.findByReviewerId(reviewerId)).thenReturn(expectedReviews);
+        when(reviewService.findByReviewerId(reviewerId, pageRequest)).thenReturn(expectedPage);
 
-        ResponseEntity<List<Review>> response = reviewController.getReviewsByReviewerId(reviewerId);
+        ResponseEntity<CursorPageResponse<Review>> response = reviewController.getReviewsByReviewerId(reviewerId, pageRequest);
 
-        assertEquals(expectedReviews, response.getBody());
+        assertEquals(expectedPage, response.getBody());
     }
 
     @Test
-    void getAllReviews_returnsReviewList() {
-        List<Review> expectedReviews = List.of(new Review());
+    void getAllReviews_returnsReviewPage() {
+        ReviewPageRequest pageRequest = new ReviewPageRequest();
+        CursorPageResponse<Review> expectedPage = new CursorPageResponse<>(List.of(new Review()), null);
 
-        when(reviewService.findAll()).thenReturn(expectedReviews);
+        when(reviewService.findAll(pageRequest)).thenReturn(expectedPage);
 
-        ResponseEntity<List<Review>> response = reviewController.getAllReviews();
+        ResponseEntity<CursorPageResponse<Review>> response = reviewController.getAllReviews(pageRequest);
 
-        assertEquals(expectedReviews, response.getBody());
+        assertEquals(expectedPage, response.getBody());
     }
 
     @Test
@@ -141,4 +169,22 @@ class ReviewControllerTest {
 
         assertEquals(expectedResponse, response.getBody());
     }
+
+    @Test
+    void exportReviews_streamsTheExportInTheRequestedFormat() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews("csv");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(ExportFormat.CSV.getMediaType(), response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"reviews.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(exportService).exportReviews(ExportFormat.CSV, out);
+    }
+
+    @Test
+    void exportReviews_unknownFormat_throwsException() {
+        assertThrows(DataValidationException.class, () -> reviewController.exportReviews("xml"));
+        verifyNoInteractions(exportService);
+    }
 }
@@ -4,10 +4,13 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.controller;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AddTicketReplyRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.TicketCreationRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.TicketDetailResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Ticket;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketReply;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.TicketService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,11 +18,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +43,9 @@ class TicketControllerTest {
     @Mock
     private Authentication authentication;
 
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private TicketController ticketController;
 
@@ -165,4 +175,22 @@ class TicketControllerTest {
         assertEquals(201, response.getStatusCodeValue());
         assertEquals(reply, response.getBody());
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportTickets_streamsTheExportInTheRequestedFormat() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = ticketController.exportTickets("csv");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(ExportFormat.CSV.getMediaType(), response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"tickets.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(exportService).exportTickets(ExportFormat.CSV, out);
+    }
+
+    @Test
+    void exportTickets_unknownFormat_throwsException() {
+        assertThrows(DataValidationException.class, () -> ticketController.exportTickets("xml"));
+        verifyNoInteractions(exportService);
+    }
+}
@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserModifyRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserPasswordChangeRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.ExportFormat;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ExportService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.UserService;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -15,9 +18,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
@@ -34,6 +40,9 @@ class UserControllerTest {
     @Mock
     private Validator validator;
 
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private UserController userController;
 
@@ -175,12 +184,12 @@ class UserControllerTest {
     }
 
     @Test
-    void getAllFavoriteProperties_ShouldReturnPropertyList() {
+    void getFavoriteProperties_ShouldReturnPropertyList() {
         List<Property> properties = List.of(new Property(), new Property());
 
-        when(userService.getAllFavoriteProperties("testuser")).thenReturn(properties);
+        when(userService.getFavoriteProperties("testuser", 0, 20)).thenReturn(properties);
 
-        ResponseEntity<List<Property>> response = userController.getAllFavoriteProperties("testuser");
+        ResponseEntity<List<Property>> response = userController.getFavoriteProperties("testuser", 0, 20);
 
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(2, response.getBody().size());
@@ -222,4 +231,22 @@ class UserControllerTest {
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(user, response.getBody());
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportUsers_streamsTheExportInTheRequestedFormat() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = userController.exportUsers("csv");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(ExportFormat.CSV.getMediaType(), response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"users.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(exportService).exportUsers(ExportFormat.CSV, out);
+    }
+
+    @Test
+    void exportUsers_unknownFormat_throwsException() {
+        assertThrows(DataValidationException.class, () -> userController.exportUsers("xml"));
+        verifyNoInteractions(exportService);
+    }
+}
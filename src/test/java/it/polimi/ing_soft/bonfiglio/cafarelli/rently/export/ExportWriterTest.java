@@ -0,0 +1,65 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.TicketStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportWriterTest {
+
+    private final ExportWriter exportWriter = new ExportWriter(new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+    private final TicketExportRow ticket = new TicketExportRow(1L, "Heater, broken", "It says \"error\"",
+            TicketStatus.OPEN, 2L, LocalDateTime.of(2025, 1, 2, 10, 30), null);
+
+    @Test
+    void write_ndjson_writesOneObjectPerLine() {
+        String export = write(Stream.of(ticket, ticket), ExportFormat.NDJSON);
+
+        String[] lines = export.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":1,\"title\":\"Heater, broken\",\"description\":\"It says \\\"error\\\"\",\"status\":\"OPEN\"," +
+                "\"userId\":2,\"creationDate\":\"2025-01-02T10:30:00\",\"closingDate\":null}", lines[0]);
+        assertTrue(export.endsWith("\n"));
+    }
+
+    @Test
+    void write_csv_writesTheHeaderAndQuotesTheValues() {
+        String export = write(Stream.of(ticket), ExportFormat.CSV);
+
+        assertEquals("id,title,description,status,userId,creationDate,closingDate\n" +
+                "1,\"Heater, broken\",\"It says \"\"error\"\"\",OPEN,2,2025-01-02T10:30,\n", export);
+    }
+
+    @Test
+    void write_readsTheRowsLazily() {
+        AtomicInteger read = new AtomicInteger();
+        Stream<TicketExportRow> rows = Stream.generate(() -> ticket).limit(1000).peek(row -> read.incrementAndGet());
+
+        write(rows, ExportFormat.CSV);
+
+        assertEquals(1000, read.get());
+    }
+
+    @Test
+    void escape_defusesFormulas() {
+        assertEquals("'=1+1", ExportWriter.escape("=1+1"));
+        assertEquals("'@SUM(A1)", ExportWriter.escape("@SUM(A1)"));
+        assertEquals("plain", ExportWriter.escape("plain"));
+    }
+
+    private String write(Stream<TicketExportRow> rows, ExportFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportWriter.write(rows, TicketExportRow.class, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,55 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.listeners;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex.Signal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.*;
+
+class TrendingListenerTest {
+
+    private PropertyTrendingIndex propertyTrendingIndex;
+    private TrendingListener trendingListener;
+
+    @BeforeEach
+    void setUp() {
+        propertyTrendingIndex = mock(PropertyTrendingIndex.class);
+        trendingListener = new TrendingListener(propertyTrendingIndex);
+    }
+
+    @Test
+    void update_BookingCreated_ShouldRecordBooking() {
+        Property property = new Property();
+        property.setId(7L);
+        Booking booking = new Booking();
+        booking.setProperty(property);
+
+        trendingListener.update("BOOKING_CREATED", booking);
+
+        verify(propertyTrendingIndex).record(7L, Signal.BOOKING);
+    }
+
+    @Test
+    void update_PropertyFavorited_ShouldRecordFavorite() {
+        trendingListener.update("PROPERTY_FAVORITED", 7L);
+
+        verify(propertyTrendingIndex).record(7L, Signal.FAVORITE);
+    }
+
+    @Test
+    void update_PropertyViewed_ShouldRecordView() {
+        trendingListener.update("PROPERTY_VIEWED", 7L);
+
+        verify(propertyTrendingIndex).record(7L, Signal.VIEW);
+    }
+
+    @Test
+    void update_OtherEvent_ShouldBeIgnored() {
+        trendingListener.update("BOOKING_CANCELED", new Booking());
+
+        verifyNoInteractions(propertyTrendingIndex);
+    }
+}
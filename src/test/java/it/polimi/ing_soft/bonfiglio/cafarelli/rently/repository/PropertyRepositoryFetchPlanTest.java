@@ -0,0 +1,108 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.EntityGraph;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the fetch plan declared for the property list paths.
+ * <p>
+ * Serializing a property reads its host and its images. A list of N properties only costs a constant number
+ * of statements if every repository method returning properties loads both in the same query, so every such
+ * method must declare the {@link Property#WITH_HOST_AND_IMAGES} fetch plan, and the plan must cover every
+ * association that is serialized.
+ * </p>
+ * <p>
+ * These are checks on the mapping only: the build has no embedded database, so the statements actually issued
+ * are not counted, and associations reached through the host or through custom serializers are not covered.
+ * </p>
+ */
+class PropertyRepositoryFetchPlanTest {
+
+    private static final List<Class<? extends Annotation>> ASSOCIATIONS =
+            List.of(ManyToOne.class, OneToOne.class, OneToMany.class, ManyToMany.class, ElementCollection.class);
+
+    @Test
+    void fetchPlan_loadsHostAndImages() {
+        NamedEntityGraph graph = Property.class.getAnnotation(NamedEntityGraph.class);
+
+        assertNotNull(graph);
+        assertEquals(Property.WITH_HOST_AND_IMAGES, graph.name());
+        assertEquals(Set.of("host", "propertyImages"),
+                Arrays.stream(graph.attributeNodes()).map(NamedAttributeNode::value).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void fetchPlan_coversEverySerializedAssociation() {
+        Set<String> planned = Arrays.stream(Property.class.getAnnotation(NamedEntityGraph.class).attributeNodes())
+                .map(NamedAttributeNode::value)
+                .collect(Collectors.toSet());
+
+        List<String> notPlanned = Arrays.stream(Property.class.getDeclaredFields())
+                .filter(field -> !field.isAnnotationPresent(JsonIgnore.class))
+                .filter(field -> ASSOCIATIONS.stream().anyMatch(field::isAnnotationPresent))
+                .map(Field::getName)
+                .filter(name -> !planned.contains(name))
+                .sorted()
+                .toList();
+
+        assertEquals(List.of(), notPlanned, "Serialized associations missing from the fetch plan");
+    }
+
+    @Test
+    void everyPropertyListPath_usesFetchPlan() {
+        List<String> withoutFetchPlan = Arrays.stream(PropertyRepository.class.getDeclaredMethods())
+                .filter(method -> returnsPropertyList(method.getGenericReturnType()))
+                .filter(method -> !usesFetchPlan(method))
+                .map(Method::getName)
+                .sorted()
+                .toList();
+
+        assertEquals(List.of(), withoutFetchPlan, "Property list paths without a fetch plan");
+    }
+
+    @Test
+    void inheritedListPaths_areOverriddenWithFetchPlan() throws NoSuchMethodException {
+        assertTrue(usesFetchPlan(PropertyRepository.class.getDeclaredMethod("findAll")));
+        assertTrue(usesFetchPlan(PropertyRepository.class.getDeclaredMethod("findAllById", Iterable.class)));
+    }
+
+    private static boolean usesFetchPlan(Method method) {
+        EntityGraph entityGraph = method.getAnnotation(EntityGraph.class);
+        return entityGraph != null && Property.WITH_HOST_AND_IMAGES.equals(entityGraph.value());
+    }
+
+    /**
+     * Tells whether a method returns a list of properties. Single property lookups always cost a constant
+     * number of statements, so only the list paths are checked.
+     */
+    private static boolean returnsPropertyList(Type returnType) {
+        if (returnType instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw
+                && (Iterable.class.isAssignableFrom(raw) || raw == Stream.class)) {
+            return parameterized.getActualTypeArguments()[0] == Property.class;
+        }
+        return false;
+    }
+}
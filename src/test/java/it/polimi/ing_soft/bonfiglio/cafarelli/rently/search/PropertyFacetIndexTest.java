@@ -0,0 +1,142 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyFacetIndexTest {
+
+    private PropertyFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PropertyFacetIndex();
+        index.index(document(1L, "Milano", 80, 1, 1, 2, true));
+        index.index(document(2L, "Milano", 120, 2, 1, 4, true));
+        index.index(document(3L, "Milano", 250, 3, 2, 6, true));
+        index.index(document(4L, "milano ", 90, 2, 2, 4, true));
+        index.index(document(5L, "Milano", 95, 1, 1, 2, false));
+        index.index(document(6L, "Roma", 70, 1, 1, 2, true));
+    }
+
+    @Test
+    void bucketOf_placesValuesInBuckets() {
+        assertEquals(0, PropertyFacet.PRICE.bucketOf(49.99));
+        assertEquals(1, PropertyFacet.PRICE.bucketOf(50));
+        assertEquals(6, PropertyFacet.PRICE.bucketOf(1000));
+        assertEquals(4, PropertyFacet.BEDROOMS.bucketOf(7));
+        assertEquals(2, PropertyFacet.MAX_GUESTS.bucketOf("5-6"));
+        assertEquals(-1, PropertyFacet.MAX_GUESTS.bucketOf("5"));
+    }
+
+    @Test
+    void search_withoutFilters_countsAvailablePropertiesOfCity() {
+        FacetedResult result = index.search("Milano", Map.of(), Set.of(), 0, 10);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), result.ids());
+        assertEquals(4, result.total());
+        assertArrayEquals(new int[]{0, 2, 1, 0, 1, 0, 0}, result.counts().get(PropertyFacet.PRICE));
+        assertArrayEquals(new int[]{1, 2, 1, 0, 0}, result.counts().get(PropertyFacet.BEDROOMS));
+    }
+
+    @Test
+    void search_filtersWithinFacetAreAlternatives() {
+        FacetedResult result = index.search("Milano", Map.of(PropertyFacet.BEDROOMS, Set.of(0, 2)), Set.of(), 0, 10);
+
+        assertEquals(List.of(1L, 3L), result.ids());
+    }
+
+    @Test
+    void search_filtersAcrossFacetsMustAllMatch() {
+        FacetedResult result = index.search("Milano",
+                Map.of(PropertyFacet.BEDROOMS, Set.of(1), PropertyFacet.BATHROOMS, Set.of(1)), Set.of(), 0, 10);
+
+        assertEquals(List.of(4L), result.ids());
+        assertEquals(1, result.total());
+    }
+
+    @Test
+    void search_facetIsCountedWithFiltersOfOtherFacetsOnly() {
+        FacetedResult result = index.search("Milano", Map.of(PropertyFacet.BEDROOMS, Set.of(1)), Set.of(), 0, 10);
+
+        // Bedroom alternatives stay visible, the price counts only include two bedroom properties
+        assertArrayEquals(new int[]{1, 2, 1, 0, 0}, result.counts().get(PropertyFacet.BEDROOMS));
+        assertArrayEquals(new int[]{0, 1, 1, 0, 0, 0, 0}, result.counts().get(PropertyFacet.PRICE));
+    }
+
+    @Test
+    void search_excludedProperties_areNotCounted() {
+        FacetedResult result = index.search("Milano", Map.of(), Set.of(2L, 6L), 0, 10);
+
+        assertEquals(List.of(1L, 3L, 4L), result.ids());
+        assertArrayEquals(new int[]{0, 2, 0, 0, 1, 0, 0}, result.counts().get(PropertyFacet.PRICE));
+    }
+
+    @Test
+    void search_returnsRequestedPage() {
+        FacetedResult result = index.search("Milano", Map.of(), Set.of(), 2, 1);
+
+        assertEquals(List.of(3L), result.ids());
+        assertEquals(4, result.total());
+    }
+
+    @Test
+    void search_unknownCity_returnsEmptyCounts() {
+        FacetedResult result = index.search("Torino", Map.of(), Set.of(), 0, 10);
+
+        assertTrue(result.ids().isEmpty());
+        assertArrayEquals(new int[5], result.counts().get(PropertyFacet.MAX_GUESTS));
+    }
+
+    @Test
+    void index_toggledProperty_updatesCounts() {
+        index.index(document(5L, "Milano", 95, 1, 1, 2, true));
+        index.index(document(1L, "Milano", 80, 1, 1, 2, false));
+
+        FacetedResult result = index.search("Milano", Map.of(), Set.of(), 0, 10);
+        assertEquals(List.of(2L, 3L, 4L, 5L), result.ids());
+    }
+
+    @Test
+    void index_updatedProperty_movesBucketAndCity() {
+        index.index(document(3L, "Roma", 40, 1, 1, 2, true));
+
+        assertEquals(3, index.search("Milano", Map.of(), Set.of(), 0, 10).total());
+        FacetedResult roma = index.search("Roma", Map.of(PropertyFacet.PRICE, Set.of(0)), Set.of(), 0, 10);
+        assertEquals(List.of(3L), roma.ids());
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    void remove_freesSlotForReuse() {
+        index.remove(2L);
+        index.index(document(7L, "Milano", 600, 5, 4, 10, true));
+
+        FacetedResult result = index.search("Milano", Map.of(PropertyFacet.PRICE, Set.of(6)), Set.of(), 0, 10);
+        assertEquals(List.of(7L), result.ids());
+        assertEquals(4, index.search("Milano", Map.of(), Set.of(), 0, 10).total());
+    }
+
+    @Test
+    void rebuild_keepsChangesMadeWhileRunning() {
+        int indexed = index.rebuild(Stream.of(document(8L, "Napoli", 60, 1, 1, 2, true))
+                .peek(document -> index.remove(1L))
+                .peek(document -> index.index(document(9L, "Napoli", 60, 1, 1, 2, true))));
+
+        assertEquals(2, indexed);
+        assertEquals(List.of(8L, 9L), index.search("Napoli", Map.of(), Set.of(), 0, 10).ids());
+        assertEquals(0, index.search("Milano", Map.of(), Set.of(), 0, 10).total());
+    }
+
+    private static PropertyFacetDocument document(Long id, String city, double price, int bedrooms, int bathrooms,
+                                                  int maxGuests, boolean available) {
+        return new PropertyFacetDocument(id, city, BigDecimal.valueOf(price), bedrooms, bathrooms, maxGuests, available);
+    }
+}
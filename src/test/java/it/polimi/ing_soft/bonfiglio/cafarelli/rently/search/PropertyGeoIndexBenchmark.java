@@ -0,0 +1,57 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Builds the spatial index over one million synthetic listings spread over Italy and measures the latency
+ * of map viewport and radius queries.
+ * Disabled by default, run it with {@code mvn test -Dtest=PropertyGeoIndexBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PropertyGeoIndexBenchmark {
+
+    private static final int LISTINGS = 1_000_000;
+    private static final int QUERIES = 1_000;
+
+    @Test
+    void queryOneMillionListings() {
+        Random random = new Random(42);
+        PropertyGeoIndex index = new PropertyGeoIndex();
+
+        long start = System.nanoTime();
+        index.rebuild(LongStream.rangeClosed(1, LISTINGS).mapToObj(id ->
+                new PropertyLocation(id, 37 + random.nextDouble() * 9, 7 + random.nextDouble() * 11)));
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(LISTINGS, index.size());
+
+        long[] boxLatencies = new long[QUERIES];
+        long[] radiusLatencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            double latitude = 38 + random.nextDouble() * 7;
+            double longitude = 8 + random.nextDouble() * 9;
+
+            // A city-level viewport, as when panning the map
+            long queryStart = System.nanoTime();
+            index.withinBox(latitude - 0.1, longitude - 0.15, latitude + 0.1, longitude + 0.15, 200);
+            boxLatencies[i] = System.nanoTime() - queryStart;
+
+            queryStart = System.nanoTime();
+            index.withinRadius(latitude, longitude, 10, 200);
+            radiusLatencies[i] = System.nanoTime() - queryStart;
+        }
+        Arrays.sort(boxLatencies);
+        Arrays.sort(radiusLatencies);
+
+        System.out.printf("Indexed %d listings in %d ms, viewport p50 %.2f ms p99 %.2f ms, radius p50 %.2f ms p99 %.2f ms%n",
+                LISTINGS, buildMillis,
+                boxLatencies[QUERIES / 2] / 1e6, boxLatencies[QUERIES * 99 / 100] / 1e6,
+                radiusLatencies[QUERIES / 2] / 1e6, radiusLatencies[QUERIES * 99 / 100] / 1e6);
+    }
+}
@@ -0,0 +1,99 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyGeoIndexTest {
+
+    private static final PropertyLocation DUOMO = new PropertyLocation(1L, 45.4642, 9.1900);
+    private static final PropertyLocation NAVIGLI = new PropertyLocation(2L, 45.4510, 9.1750);
+    private static final PropertyLocation COMO = new PropertyLocation(3L, 45.8081, 9.0852);
+    private static final PropertyLocation ROMA = new PropertyLocation(4L, 41.9028, 12.4964);
+
+    private PropertyGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PropertyGeoIndex();
+        Stream.of(ROMA, COMO, NAVIGLI, DUOMO).forEach(index::index);
+    }
+
+    @Test
+    void distanceKm_matchesKnownDistance() {
+        assertEquals(477, PropertyGeoIndex.distanceKm(DUOMO.latitude(), DUOMO.longitude(), ROMA.latitude(), ROMA.longitude()), 5);
+    }
+
+    @Test
+    void withinRadius_returnsClosestFirst() {
+        assertEquals(List.of(1L, 2L), index.withinRadius(45.4640, 9.1895, 5, 10));
+        assertEquals(List.of(1L, 2L, 3L), index.withinRadius(45.4640, 9.1895, 50, 10));
+    }
+
+    @Test
+    void withinRadius_respectsLimit() {
+        assertEquals(List.of(1L), index.withinRadius(45.4640, 9.1895, 50, 1));
+    }
+
+    @Test
+    void withinRadius_checksExactDistanceInsideCells() {
+        // Navigli is about 1.8 km from the Duomo, in a neighbouring cell
+        assertEquals(List.of(1L), index.withinRadius(DUOMO.latitude(), DUOMO.longitude(), 1, 10));
+    }
+
+    @Test
+    void withinBox_returnsPropertiesInsideViewport() {
+        assertEquals(List.of(1L, 2L, 3L), index.withinBox(45.0, 8.5, 46.0, 9.5, 10).stream().sorted().toList());
+        assertEquals(List.of(4L), index.withinBox(41.0, 12.0, 42.5, 13.0, 10));
+    }
+
+    @Test
+    void withinBox_wideArea_scansNonEmptyCells() {
+        assertEquals(4, index.withinBox(-90, -180, 90, 180, 10).size());
+    }
+
+    @Test
+    void withinBox_crossingAntimeridian() {
+        index.index(new PropertyLocation(5L, -17.7134, 178.0650));
+        index.index(new PropertyLocation(6L, -13.7590, -172.1046));
+
+        assertEquals(List.of(5L, 6L), index.withinBox(-20, 170, -10, -170, 10).stream().sorted().toList());
+    }
+
+    @Test
+    void index_movedProperty_leavesPreviousCell() {
+        index.index(new PropertyLocation(3L, 41.9000, 12.5000));
+
+        assertEquals(List.of(1L, 2L), index.withinRadius(45.4640, 9.1895, 50, 10));
+        assertEquals(List.of(3L, 4L), index.withinRadius(41.9000, 12.5000, 5, 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void remove_dropsProperty() {
+        index.remove(1L);
+
+        assertEquals(List.of(2L), index.withinRadius(45.4640, 9.1895, 5, 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void rebuild_replacesWholeIndex() {
+        assertEquals(1, index.rebuild(Stream.of(ROMA)));
+
+        assertTrue(index.withinRadius(45.4640, 9.1895, 50, 10).isEmpty());
+        assertEquals(List.of(4L), index.withinRadius(ROMA.latitude(), ROMA.longitude(), 1, 10));
+    }
+
+    @Test
+    void rebuild_keepsChangesMadeWhileRunning() {
+        index.rebuild(Stream.of(ROMA).peek(location -> index.index(DUOMO)));
+
+        assertEquals(List.of(1L), index.withinRadius(DUOMO.latitude(), DUOMO.longitude(), 1, 10));
+        assertEquals(2, index.size());
+    }
+}
@@ -0,0 +1,72 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Builds the search index over one million synthetic listings and measures the query latency.
+ * Disabled by default, run it with {@code mvn test -Dtest=PropertySearchIndexBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PropertySearchIndexBenchmark {
+
+    private static final int LISTINGS = 1_000_000;
+    private static final int QUERIES = 1_000;
+
+    private static final String[] WORDS = {
+            "cozy", "modern", "rustic", "sunny", "quiet", "spacious", "charming", "luxury", "family", "historic",
+            "loft", "villa", "apartment", "studio", "cottage", "chalet", "house", "room", "penthouse", "farmhouse",
+            "lake", "sea", "mountain", "garden", "terrace", "pool", "balcony", "fireplace", "view", "beach",
+            "center", "station", "park", "river", "vineyard", "forest", "old", "town", "harbour", "castle"
+    };
+    private static final String[] CITIES = {
+            "Milano", "Roma", "Torino", "Napoli", "Firenze", "Venezia", "Bologna", "Como", "Bergamo", "Genova"
+    };
+
+    @Test
+    void searchOneMillionListings() {
+        Random random = new Random(42);
+        PropertySearchIndex index = new PropertySearchIndex();
+
+        long start = System.nanoTime();
+        index.rebuild(LongStream.rangeClosed(1, LISTINGS).mapToObj(id -> new PropertySearchDocument(id,
+                sentence(random, 3) + " " + id,
+                sentence(random, 25),
+                CITIES[random.nextInt(CITIES.length)], "Regione", "Italia")));
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(LISTINGS, index.size());
+
+        // Warm up, then measure
+        for (int i = 0; i < 100; i++) {
+            index.search(sentence(random, 2), 20);
+        }
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String query = sentence(random, 1 + random.nextInt(3)) + " " + CITIES[random.nextInt(CITIES.length)];
+            long queryStart = System.nanoTime();
+            assertFalse(index.search(query, 20).isEmpty());
+            latencies[i] = System.nanoTime() - queryStart;
+        }
+        java.util.Arrays.sort(latencies);
+
+        System.out.printf("Indexed %d listings in %d ms, query latency p50 %.2f ms, p99 %.2f ms%n",
+                LISTINGS, buildMillis, latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 99 / 100] / 1e6);
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
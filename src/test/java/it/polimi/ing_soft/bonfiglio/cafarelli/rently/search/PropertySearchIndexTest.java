@@ -0,0 +1,112 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertySearchIndexTest {
+
+    private PropertySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PropertySearchIndex();
+        index.index(new PropertySearchDocument(1L, "Cozy loft", "A quiet loft near the lake", "Como", "Lombardia", "Italia"));
+        index.index(new PropertySearchDocument(2L, "Lake house", "Wooden house with a private dock", "Como", "Lombardia", "Italia"));
+        index.index(new PropertySearchDocument(3L, "City apartment", "Modern flat close to the Duomo", "Milano", "Lombardia", "Italia"));
+    }
+
+    @Test
+    void search_titleMatchesRankFirst() {
+        assertEquals(List.of(2L, 1L), index.search("lake", 10));
+    }
+
+    @Test
+    void search_moreMatchedTermsRankHigher() {
+        assertEquals(List.of(3L), index.search("modern duomo", 10));
+        assertEquals(2L, index.search("lake dock", 10).get(0));
+    }
+
+    @Test
+    void search_ignoresCaseAndAccents() {
+        index.index(new PropertySearchDocument(4L, "Château", "Castle", "Aosta", "Valle d'Aosta", "Italia"));
+
+        assertEquals(List.of(4L), index.search("CHATEAU", 10));
+        assertEquals(List.of(4L), index.search("valle d aosta", 10).subList(0, 1));
+    }
+
+    @Test
+    void search_respectsLimit() {
+        assertEquals(1, index.search("lombardia", 1).size());
+        assertEquals(3, index.search("lombardia", 10).size());
+    }
+
+    @Test
+    void search_manyMatches_ranksEveryMatchedProperty() {
+        for (long id = 10; id < 2_010; id++) {
+            String title = id % 100 == 0 ? "Lake villa" : "Villa";
+            index.index(new PropertySearchDocument(id, title, "Garden", "Como", "Lombardia", "Italia"));
+        }
+
+        List<Long> result = index.search("lake villa", 25);
+
+        assertEquals(25, result.size());
+        // The 20 villas matching both terms come first, then the lake properties matching one term only
+        assertEquals(20, result.subList(0, 20).stream().filter(id -> id >= 10 && id % 100 == 0).count());
+        assertEquals(2L, result.get(20));
+    }
+
+    @Test
+    void search_unknownOrBlankQuery_returnsNothing() {
+        assertTrue(index.search("beach", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void index_updatedProperty_replacesPreviousVersion() {
+        index.index(new PropertySearchDocument(2L, "Mountain chalet", "Ski in ski out", "Bormio", "Lombardia", "Italia"));
+
+        assertEquals(List.of(1L), index.search("lake", 10));
+        assertEquals(List.of(2L), index.search("chalet", 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void remove_dropsProperty() {
+        index.remove(1L);
+
+        assertEquals(List.of(2L), index.search("lake", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void rebuild_replacesWholeIndex() {
+        int indexed = index.rebuild(Stream.of(
+                new PropertySearchDocument(5L, "Beach villa", "Sea view", "Cagliari", "Sardegna", "Italia")));
+
+        assertEquals(1, indexed);
+        assertTrue(index.search("lake", 10).isEmpty());
+        assertEquals(List.of(5L), index.search("beach", 10));
+    }
+
+    @Test
+    void rebuild_keepsChangesMadeWhileRunning() {
+        Stream<PropertySearchDocument> documents = Stream.of(
+                new PropertySearchDocument(1L, "Cozy loft", "A quiet loft near the lake", "Como", "Lombardia", "Italia"))
+                .peek(document -> index.index(new PropertySearchDocument(6L, "Trullo", "Stone house", "Alberobello", "Puglia", "Italia")));
+
+        index.rebuild(documents);
+
+        assertEquals(List.of(6L), index.search("trullo", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void tokenize_splitsOnPunctuation() {
+        assertEquals(List.of("sea", "view", "2", "bedrooms"), PropertySearchIndex.tokenize("Sea-view, 2 bedrooms!"));
+    }
+}
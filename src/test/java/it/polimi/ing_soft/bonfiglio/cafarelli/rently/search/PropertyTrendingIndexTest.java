@@ -0,0 +1,141 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex.Signal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyTrendingIndexTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private PropertyFacetIndex facetIndex;
+    private PropertyTrendingIndex index;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        facetIndex = new PropertyFacetIndex();
+        for (long id = 1; id <= 3; id++) {
+            facetIndex.index(document(id, "Milano"));
+        }
+        facetIndex.index(document(4L, "Roma"));
+        index = new PropertyTrendingIndex(facetIndex);
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void top_ranksBySignalWeight() {
+        index.record(1L, Signal.VIEW);
+        index.record(2L, Signal.BOOKING);
+        index.record(3L, Signal.FAVORITE);
+        index.record(4L, Signal.FAVORITE);
+        index.record(4L, Signal.FAVORITE);
+        index.fold(now);
+
+        assertEquals(List.of(2L, 4L, 3L, 1L), index.top(null, 10));
+        assertEquals(List.of(2L, 3L, 1L), index.top(" milano ", 10));
+        assertEquals(List.of(4L), index.top("Roma", 10));
+        assertEquals(List.of(2L, 4L), index.top(null, 2));
+        assertTrue(index.top("Napoli", 10).isEmpty());
+    }
+
+    @Test
+    void signalsCountOnlyOnceFolded() {
+        index.record(1L, Signal.VIEW);
+
+        assertTrue(index.top(null, 10).isEmpty());
+        index.fold(now);
+        assertEquals(List.of(1L), index.top(null, 10));
+    }
+
+    @Test
+    void olderActivity_decaysWithHalfLife() {
+        index.record(1L, Signal.BOOKING);
+        index.fold(now);
+
+        long halfLife = PropertyTrendingIndex.HALF_LIFE.toMillis();
+        assertEquals(20, index.score(1L, now), 1e-9);
+        assertEquals(10, index.score(1L, now + halfLife), 1e-9);
+
+        for (int i = 0; i < 15; i++) {
+            index.record(2L, Signal.VIEW);
+        }
+        index.fold(now + halfLife);
+
+        assertEquals(List.of(2L, 1L), index.top(null, 10));
+    }
+
+    @Test
+    void scoresSurviveTheLandmarkMoving() {
+        index.record(1L, Signal.BOOKING);
+        index.fold(now);
+        index.record(2L, Signal.FAVORITE);
+        long muchLater = now + 70 * PropertyTrendingIndex.HALF_LIFE.toMillis();
+        index.fold(muchLater);
+
+        assertEquals(5, index.score(2L, muchLater), 1e-9);
+        assertEquals(20 * Math.pow(2, -70), index.score(1L, muchLater), 1e-25);
+        assertEquals(List.of(2L, 1L), index.top(null, 10));
+    }
+
+    @Test
+    void top_keepsOnlyTheBestProperties() {
+        for (long id = 100; id < 100 + PropertyTrendingIndex.TOP_K + 10; id++) {
+            for (long i = 0; i < id; i++) {
+                index.record(id, Signal.VIEW);
+            }
+        }
+        index.fold(now);
+
+        List<Long> top = index.top(null, PropertyTrendingIndex.TOP_K + 10);
+        assertEquals(PropertyTrendingIndex.TOP_K, top.size());
+        assertEquals(100L + PropertyTrendingIndex.TOP_K + 9, top.get(0));
+        assertEquals(110L, top.get(PropertyTrendingIndex.TOP_K - 1));
+
+        index.record(100L, Signal.BOOKING);
+        index.record(100L, Signal.BOOKING);
+        index.fold(now + HOUR);
+        assertTrue(index.top(null, PropertyTrendingIndex.TOP_K).contains(100L));
+    }
+
+    @Test
+    void remove_refillsTheRankingFromTheScores() {
+        for (long id = 100; id < 100 + PropertyTrendingIndex.TOP_K + 1; id++) {
+            for (long i = 0; i < id; i++) {
+                index.record(id, Signal.VIEW);
+            }
+        }
+        index.fold(now);
+        assertFalse(index.top(null, PropertyTrendingIndex.TOP_K).contains(100L));
+
+        index.remove(100L + PropertyTrendingIndex.TOP_K);
+
+        List<Long> top = index.top(null, PropertyTrendingIndex.TOP_K);
+        assertEquals(PropertyTrendingIndex.TOP_K, top.size());
+        assertFalse(top.contains(100L + PropertyTrendingIndex.TOP_K));
+        assertTrue(top.contains(100L));
+    }
+
+    @Test
+    void movedProperty_leavesItsPreviousCity() {
+        index.record(1L, Signal.BOOKING);
+        index.record(2L, Signal.VIEW);
+        index.fold(now);
+
+        facetIndex.index(document(1L, "Roma"));
+        index.record(1L, Signal.VIEW);
+        index.fold(now + HOUR);
+
+        assertEquals(List.of(2L), index.top("Milano", 10));
+        assertEquals(List.of(1L), index.top("Roma", 10));
+    }
+
+    private static PropertyFacetDocument document(Long id, String city) {
+        return new PropertyFacetDocument(id, city, BigDecimal.valueOf(100), 1, 1, 2, true);
+    }
+}
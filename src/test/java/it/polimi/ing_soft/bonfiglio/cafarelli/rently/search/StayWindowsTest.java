@@ -0,0 +1,61 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StayWindowsTest {
+
+    private static final LocalDate DAY_1 = LocalDate.of(2030, 7, 1);
+
+    private static LocalDate day(int day) {
+        return DAY_1.plusDays(day - 1);
+    }
+
+    private static BookedInterval booking(int checkIn, int checkOut) {
+        return new BookedInterval(1L, day(checkIn), day(checkOut));
+    }
+
+    @Test
+    void feasibleCheckIns_withoutBookings_coversTheWholeWindow() {
+        assertEquals(List.of(day(1), day(2), day(3)),
+                StayWindows.feasibleCheckIns(List.of(), day(1), day(6), 3));
+    }
+
+    @Test
+    void feasibleCheckIns_skipsTheBookedNights() {
+        // Booked from the 4th to the 6th: stays of 2 nights fit from the 1st to the 2nd and from the 6th on
+        List<LocalDate> checkIns = StayWindows.feasibleCheckIns(List.of(booking(4, 6)), day(1), day(10), 2);
+
+        assertEquals(List.of(day(1), day(2), day(6), day(7), day(8)), checkIns);
+    }
+
+    @Test
+    void feasibleCheckIns_allowsCheckInOnTheCheckOutDay() {
+        List<LocalDate> checkIns = StayWindows.feasibleCheckIns(List.of(booking(1, 3), booking(5, 8)), day(1), day(8), 2);
+
+        assertEquals(List.of(day(3)), checkIns);
+    }
+
+    @Test
+    void feasibleCheckIns_mergesOverlappingBookings() {
+        List<LocalDate> checkIns = StayWindows.feasibleCheckIns(List.of(booking(2, 9), booking(3, 5)), day(1), day(12), 3);
+
+        assertEquals(List.of(day(9)), checkIns);
+    }
+
+    @Test
+    void feasibleCheckIns_ignoresBookingsStartingBeforeTheWindow() {
+        List<LocalDate> checkIns = StayWindows.feasibleCheckIns(List.of(booking(-5, 3)), day(1), day(6), 3);
+
+        assertEquals(List.of(day(3)), checkIns);
+    }
+
+    @Test
+    void feasibleCheckIns_fullyBooked_isEmpty() {
+        assertTrue(StayWindows.feasibleCheckIns(List.of(booking(1, 4), booking(5, 20)), day(1), day(14), 2).isEmpty());
+    }
+}
@@ -0,0 +1,211 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.ArchiveCodec;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.BookingSnapshot;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.ChatMessageSnapshot;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.archive.TicketSnapshot;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.*;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ArchiveServiceImplementationTest {
+
+    @Mock private ArchivedRecordRepository archivedRecordRepository;
+    @Mock private BookingRepository bookingRepository;
+    @Mock private ChatMessageRepository chatMessageRepository;
+    @Mock private TicketRepository ticketRepository;
+    @Mock private TicketReplyRepository ticketReplyRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private PropertyRepository propertyRepository;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    private final ArchiveCodec archiveCodec = new ArchiveCodec(new ObjectMapper().findAndRegisterModules());
+
+    private ArchiveServiceImplementation archiveService;
+
+    private User client;
+    private User host;
+    private Property property;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        archiveService = new ArchiveServiceImplementation(archivedRecordRepository, bookingRepository,
+                chatMessageRepository, ticketRepository, ticketReplyRepository, userRepository, propertyRepository,
+                archiveCodec, transactionTemplate);
+        ReflectionTestUtils.setField(archiveService, "batchSize", 2);
+
+        client = new User();
+        client.setId(1L);
+        host = new User();
+        host.setId(2L);
+        property = new Property();
+        property.setId(10L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveBookings_movesTheConcludedBookingsInBatches() {
+        Booking first = booking(1L, "CODE1");
+        Booking second = booking(2L, "CODE2");
+        Booking third = booking(3L, "CODE3");
+        when(bookingRepository.findByStatusInAndCheckOutDateBefore(anyCollection(), any(LocalDate.class), any()))
+                .thenReturn(List.of(first, second), List.of(third));
+
+        int archived = archiveService.archiveBookings();
+
+        assertEquals(3, archived);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(bookingRepository).deleteAllInBatch(List.of(first, second));
+        verify(bookingRepository).deleteAllInBatch(List.of(third));
+        ArgumentCaptor<List<ArchivedRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(archivedRecordRepository, times(2)).saveAll(records.capture());
+        ArchivedRecord record = records.getAllValues().get(0).get(1);
+        assertEquals(ArchiveKind.BOOKING, record.getKind());
+        assertEquals(2L, record.getSourceId());
+        assertEquals("CODE2", record.getLookupKey());
+        assertEquals(BookingSnapshot.of(second), archiveCodec.decode(record.getPayload(), BookingSnapshot.class));
+    }
+
+    @Test
+    void archiveBookings_nothingToArchive_stopsAfterOneBatch() {
+        when(bookingRepository.findByStatusInAndCheckOutDateBefore(anyCollection(), any(LocalDate.class), any()))
+                .thenReturn(List.of());
+
+        assertEquals(0, archiveService.archiveBookings());
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveChatMessages_groupsTheMessagesByConversation() {
+        ReflectionTestUtils.setField(archiveService, "batchSize", 3);
+        ChatMessage question = new ChatMessage(1L, "Hi", client, host, LocalDateTime.of(2023, 1, 1, 10, 0));
+        ChatMessage answer = new ChatMessage(2L, "Hello", host, client, LocalDateTime.of(2023, 1, 1, 10, 5));
+        when(chatMessageRepository.findBySendAtBefore(any(LocalDateTime.class), any()))
+                .thenReturn(List.of(question, answer));
+
+        assertEquals(2, archiveService.archiveChatMessages());
+
+        ArgumentCaptor<List<ArchivedRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(archivedRecordRepository).saveAll(records.capture());
+        assertEquals(1, records.getValue().size());
+        ArchivedRecord record = records.getValue().get(0);
+        assertEquals("1:2", record.getLookupKey());
+        assertEquals(1L, record.getSourceId());
+        assertEquals(2, archiveCodec.decode(record.getPayload(), ChatMessageSnapshot[].class).length);
+        verify(chatMessageRepository).deleteAllInBatch(List.of(question, answer));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveTickets_archivesTheRepliesWithTheirTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setId(5L);
+        ticket.setUser(client);
+        ticket.setStatus(TicketStatus.CLOSED);
+        TicketReply reply = new TicketReply(7L, "Solved", LocalDateTime.of(2023, 2, 1, 9, 0), ticket, host, true);
+        when(ticketRepository.findClosedBefore(any(LocalDateTime.class), any())).thenReturn(List.of(ticket));
+        when(ticketReplyRepository.findByTicketIdIn(List.of(5L))).thenReturn(List.of(reply));
+
+        assertEquals(1, archiveService.archiveTickets());
+
+        ArgumentCaptor<List<ArchivedRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(archivedRecordRepository).saveAll(records.capture());
+        TicketSnapshot snapshot = archiveCodec.decode(records.getValue().get(0).getPayload(), TicketSnapshot.class);
+        assertEquals(1, snapshot.replies().size());
+        assertEquals("Solved", snapshot.replies().get(0).content());
+        var order = inOrder(ticketReplyRepository, ticketRepository);
+        order.verify(ticketReplyRepository).deleteAllInBatch(List.of(reply));
+        order.verify(ticketRepository).deleteAllInBatch(List.of(ticket));
+    }
+
+    @Test
+    void findArchivedBooking_rebuildsTheBooking() {
+        Booking booking = booking(1L, "CODE1");
+        when(archivedRecordRepository.findFirstByKindAndLookupKey(ArchiveKind.BOOKING, "CODE1"))
+                .thenReturn(Optional.of(record(ArchiveKind.BOOKING, BookingSnapshot.of(booking))));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(client));
+        when(propertyRepository.findById(10L)).thenReturn(Optional.of(property));
+
+        Booking result = archiveService.findArchivedBooking("CODE1").orElseThrow();
+
+        assertEquals("CODE1", result.getBookingConfirmationCode());
+        assertEquals(client, result.getUser());
+        assertEquals(property, result.getProperty());
+        assertEquals(BookingStatus.COMPLETED, result.getStatus());
+    }
+
+    @Test
+    void findArchivedBooking_notArchived_returnsEmpty() {
+        when(archivedRecordRepository.findFirstByKindAndLookupKey(ArchiveKind.BOOKING, "CODE1")).thenReturn(Optional.empty());
+
+        assertTrue(archiveService.findArchivedBooking("CODE1").isEmpty());
+    }
+
+    @Test
+    void findArchivedConversation_readsOneBatchInSendOrder() {
+        ChatMessageSnapshot answer = new ChatMessageSnapshot(2L, "Hello", 2L, 1L, LocalDateTime.of(2023, 1, 1, 10, 5));
+        ChatMessageSnapshot question = new ChatMessageSnapshot(1L, "Hi", 1L, 2L, LocalDateTime.of(2023, 1, 1, 10, 0));
+        when(archivedRecordRepository.findByKindAndLookupKey(ArchiveKind.CHAT_MESSAGE, "1:2",
+                PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "id"))))
+                .thenReturn(List.of(record(ArchiveKind.CHAT_MESSAGE, List.of(answer, question))));
+
+        List<ChatMessage> conversation = archiveService.findArchivedConversation(host, client, 1);
+
+        assertEquals(List.of(
+                new ChatMessage(1L, "Hi", client, host, question.sendAt()),
+                new ChatMessage(2L, "Hello", host, client, answer.sendAt())), conversation);
+    }
+
+    @Test
+    void findArchivedTicket_rebuildsAClosedTicketWithItsReplies() {
+        TicketSnapshot snapshot = new TicketSnapshot(5L, "Broken heater", "It does not work",
+                LocalDateTime.of(2023, 1, 1, 9, 0), LocalDateTime.of(2023, 1, 3, 9, 0), 1L, TicketStatus.CLOSED,
+                List.of(new TicketSnapshot.Reply(7L, "Fixed", LocalDateTime.of(2023, 1, 2, 9, 0), 2L, true)));
+        when(archivedRecordRepository.findByKindAndSourceId(ArchiveKind.TICKET, 5L))
+                .thenReturn(Optional.of(record(ArchiveKind.TICKET, snapshot)));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(client));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(host));
+
+        Ticket ticket = archiveService.findArchivedTicket(5L).orElseThrow();
+        List<TicketReply> replies = archiveService.findArchivedTicketReplies(5L);
+
+        assertEquals(TicketStatus.CLOSED, ticket.getStatus());
+        assertEquals(client, ticket.getUser());
+        assertEquals(1, replies.size());
+        assertEquals(host, replies.get(0).getUser());
+        assertEquals(5L, replies.get(0).getTicket().getId());
+    }
+
+    private Booking booking(Long id, String code) {
+        return new Booking(id, LocalDate.of(2023, 7, 1), LocalDate.of(2023, 7, 4), 2, 0, new BigDecimal("300.00"),
+                code, client, property, BookingStatus.COMPLETED, null);
+    }
+
+    private ArchivedRecord record(ArchiveKind kind, Object snapshot) {
+        return new ArchivedRecord(1L, kind, 1L, null, LocalDateTime.now(), archiveCodec.encode(snapshot));
+    }
+}
@@ -0,0 +1,215 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookingCalendar;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.ExpiredHold;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponSoldOutException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.PaymentRejectedException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UnavailablePropertyException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PaymentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingHoldServiceImplementationTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private AvailabilitySearchCache availabilitySearchCache;
+
+    @Mock
+    private BookingCalendar bookingCalendar;
+
+    @InjectMocks
+    private BookingHoldServiceImplementation bookingHoldService;
+
+    private Booking booking;
+    private Property property;
+
+    private static final Long PROPERTY_ID = 3L;
+    private static final Long BOOKING_ID = 4L;
+    private static final LocalDate CHECK_IN = LocalDate.of(2025, 7, 1);
+    private static final LocalDate CHECK_OUT = LocalDate.of(2025, 7, 4);
+    private static final BigDecimal TOTAL = new BigDecimal("300.00");
+
+    @BeforeEach
+    void setUp() {
+        User customer = new User();
+        customer.setId(1L);
+        customer.setUsername("client");
+
+        User host = new User();
+        host.setId(2L);
+        host.setUsername("host");
+
+        property = new Property();
+        property.setId(PROPERTY_ID);
+        property.setCity("Milano");
+        property.setHost(host);
+
+        booking = new Booking();
+        booking.setId(BOOKING_ID);
+        booking.setUser(customer);
+        booking.setProperty(property);
+        booking.setCheckInDate(CHECK_IN);
+        booking.setCheckOutDate(CHECK_OUT);
+        booking.setTotal(TOTAL);
+    }
+
+    @Test
+    void placeHold_datesFree_savesPendingBookingWithExpiry() {
+        when(propertyRepository.findByIdForUpdate(PROPERTY_ID)).thenReturn(Optional.of(property));
+        when(bookingCalendar.isTaken(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(false);
+        when(bookingRepository.saveAndFlush(booking)).thenReturn(booking);
+
+        LocalDateTime before = LocalDateTime.now();
+        Booking result = bookingHoldService.placeHold(booking);
+
+        assertEquals(BookingStatus.PENDING, result.getStatus());
+        assertNotNull(result.getHoldExpiresAt());
+        assertFalse(result.getHoldExpiresAt().isBefore(before.plusMinutes(BookingHoldServiceImplementation.HOLD_DURATION_MINUTES)));
+        verify(bookingRepository).deleteExpiredHolds(eq(PROPERTY_ID), eq(CHECK_IN), eq(CHECK_OUT), any(LocalDateTime.class));
+        verify(bookingRepository).saveAndFlush(booking);
+        verify(bookingCalendar).add(booking);
+        verify(availabilitySearchCache).invalidate("Milano", CHECK_IN, CHECK_OUT);
+    }
+
+    @Test
+    void placeHold_datesTaken_throwsException() {
+        when(propertyRepository.findByIdForUpdate(PROPERTY_ID)).thenReturn(Optional.of(property));
+        when(bookingCalendar.isTaken(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(true);
+
+        assertThrows(UnavailablePropertyException.class, () -> bookingHoldService.placeHold(booking));
+        verify(bookingRepository, never()).saveAndFlush(any());
+        verify(bookingCalendar, never()).add(any());
+        verifyNoInteractions(availabilitySearchCache);
+    }
+
+    @Test
+    void placeHold_overlapCaughtByTheConstraint_throwsException() {
+        when(propertyRepository.findByIdForUpdate(PROPERTY_ID)).thenReturn(Optional.of(property));
+        when(bookingCalendar.isTaken(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(false);
+        when(bookingRepository.saveAndFlush(booking)).thenThrow(new DataIntegrityViolationException("booking_no_overlapping_stays"));
+
+        assertThrows(UnavailablePropertyException.class, () -> bookingHoldService.placeHold(booking));
+        verify(bookingCalendar).evict(PROPERTY_ID);
+        verify(bookingCalendar, never()).add(any());
+        verifyNoInteractions(availabilitySearchCache);
+    }
+
+    @Test
+    void placeHold_propertyNotFound_throwsException() {
+        when(propertyRepository.findByIdForUpdate(PROPERTY_ID)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> bookingHoldService.placeHold(booking));
+    }
+
+    @Test
+    void confirmHold_paid_confirmsBooking() {
+        booking.setStatus(BookingStatus.PENDING);
+        booking.setHoldExpiresAt(LocalDateTime.now().plusMinutes(5));
+        when(bookingRepository.confirmHold(eq(BOOKING_ID), eq(CHECK_OUT), eq(BookingStatus.CONFIRMED), any(LocalDateTime.class))).thenReturn(1);
+        when(paymentService.payForAccomodation("host", "client", TOTAL, "DISCOUNT20")).thenReturn(true);
+
+        Booking result = bookingHoldService.confirmHold(booking, "DISCOUNT20");
+
+        assertEquals(BookingStatus.CONFIRMED, result.getStatus());
+        assertNull(result.getHoldExpiresAt());
+        verify(bookingCalendar).confirm(booking);
+    }
+
+    @Test
+    void confirmHold_holdExpired_throwsExceptionWithoutCharging() {
+        LocalDateTime before = LocalDateTime.now();
+        when(bookingRepository.confirmHold(eq(BOOKING_ID), eq(CHECK_OUT), eq(BookingStatus.CONFIRMED), any(LocalDateTime.class))).thenReturn(0);
+
+        assertThrows(UnavailablePropertyException.class, () -> bookingHoldService.confirmHold(booking, "DISCOUNT20"));
+        verify(bookingRepository).confirmHold(eq(BOOKING_ID), eq(CHECK_OUT), eq(BookingStatus.CONFIRMED),
+                argThat(now -> !now.isBefore(before)));
+        verifyNoInteractions(paymentService, bookingCalendar);
+    }
+
+    @Test
+    void confirmHold_paymentRejected_throwsException() {
+        when(bookingRepository.confirmHold(eq(BOOKING_ID), eq(CHECK_OUT), eq(BookingStatus.CONFIRMED), any(LocalDateTime.class))).thenReturn(1);
+        when(paymentService.payForAccomodation("host", "client", TOTAL, "DISCOUNT20")).thenReturn(false);
+
+        assertThrows(PaymentRejectedException.class, () -> bookingHoldService.confirmHold(booking, "DISCOUNT20"));
+        verifyNoInteractions(bookingCalendar);
+    }
+
+    @Test
+    void confirmHold_couponSoldOut_throwsExceptionWithoutConfirming() {
+        when(bookingRepository.confirmHold(eq(BOOKING_ID), eq(CHECK_OUT), eq(BookingStatus.CONFIRMED), any(LocalDateTime.class))).thenReturn(1);
+        when(paymentService.payForAccomodation("host", "client", TOTAL, "DISCOUNT20")).thenThrow(new CouponSoldOutException());
+
+        assertThrows(CouponSoldOutException.class, () -> bookingHoldService.confirmHold(booking, "DISCOUNT20"));
+        verifyNoInteractions(bookingCalendar);
+    }
+
+    @Test
+    void releaseHold_deletesBooking() {
+        bookingHoldService.releaseHold(booking);
+
+        verify(bookingRepository).deleteById(BOOKING_ID);
+        verify(bookingCalendar).remove(booking);
+        verify(availabilitySearchCache).invalidate("Milano", CHECK_IN, CHECK_OUT);
+    }
+
+    @Test
+    void releaseExpiredHolds_dropsOnlyWhatTheHoldsAffected() {
+        ExpiredHold first = new ExpiredHold(BOOKING_ID, PROPERTY_ID, "Milano", CHECK_IN, CHECK_OUT);
+        ExpiredHold second = new ExpiredHold(8L, 4L, "Roma", CHECK_IN.plusDays(10), CHECK_OUT.plusDays(10));
+        when(bookingRepository.findExpiredHolds(any(LocalDateTime.class))).thenReturn(List.of(first, second));
+        when(bookingRepository.deleteExpiredHolds(eq(List.of(BOOKING_ID, 8L)), any(LocalDateTime.class))).thenReturn(2);
+
+        assertEquals(2, bookingHoldService.releaseExpiredHolds());
+        verify(bookingCalendar).remove(PROPERTY_ID, BOOKING_ID);
+        verify(bookingCalendar).remove(4L, 8L);
+        verify(availabilitySearchCache).invalidate("Milano", CHECK_IN, CHECK_OUT);
+        verify(availabilitySearchCache).invalidate("Roma", CHECK_IN.plusDays(10), CHECK_OUT.plusDays(10));
+        verify(availabilitySearchCache, never()).clear();
+        verify(bookingCalendar, never()).clear();
+    }
+
+    @Test
+    void releaseExpiredHolds_nothingExpired_keepsCachedSearches() {
+        when(bookingRepository.findExpiredHolds(any(LocalDateTime.class))).thenReturn(List.of());
+
+        assertEquals(0, bookingHoldService.releaseExpiredHolds());
+        verify(bookingRepository, never()).deleteExpiredHolds(anyCollection(), any(LocalDateTime.class));
+        verifyNoInteractions(availabilitySearchCache, bookingCalendar);
+    }
+}
@@ -1,21 +1,27 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.BookingCalendar;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.BookingCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingDashboardResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.BookingResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponExpiredException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.PaymentRejectedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UnavailablePropertyException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Booking;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.BookingStatus;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Role;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.CouponService;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.PaymentService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.BookingHoldService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,7 +29,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -45,10 +50,7 @@ class BookingServiceImplementationTest {
     private BookingRepository bookingRepository;
 
     @Mock
-    private CouponService couponService;
-
-    @Mock
-    private PaymentService paymentService;
+    private BookingHoldService bookingHoldService;
 
     @Mock
     private EventManager eventManager;
@@ -56,6 +58,15 @@ class BookingServiceImplementationTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private AvailabilitySearchCache availabilitySearchCache;
+
+    @Mock
+    private BookingCalendar bookingCalendar;
+
+    @Mock
+    private ArchiveService archiveService;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -141,18 +152,18 @@ class BookingServiceImplementationTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getPrincipal()).thenReturn(customer);
 
-            when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(false);
-            when(paymentService.payForAccomodation(host.getUsername(), customer.getUsername(), TOTAL_AMOUNT, COUPON_CODE)).thenReturn(true);
-            when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.placeHold(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.confirmHold(booking, COUPON_CODE)).thenReturn(booking);
 
             // When
             CustomResponse result = bookingService.saveBooking(bookingRequest);
 
             // Then
             assertEquals("Booking confirmed", result.getMessage());
-            verify(bookingRepository).save(any(Booking.class));
-            verify(couponService).assertUsedCoupon(CUSTOMER_ID, COUPON_CODE);
-            verify(eventManager).notify(eq("BOOKING_CREATED"), any(Booking.class));
+            verify(bookingHoldService).placeHold(any(Booking.class));
+            verify(bookingHoldService).confirmHold(booking, COUPON_CODE);
+            verify(bookingHoldService, never()).releaseHold(any());
+            verify(eventManager).notify("BOOKING_CREATED", booking);
         }
     }
 
@@ -166,18 +177,16 @@ class BookingServiceImplementationTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getPrincipal()).thenReturn(customer);
 
-            when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(false);
-            when(paymentService.payForAccomodation(host.getUsername(), customer.getUsername(), TOTAL_AMOUNT, null)).thenReturn(true);
-            when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.placeHold(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.confirmHold(booking, null)).thenReturn(booking);
 
             // When
             CustomResponse result = bookingService.saveBooking(bookingRequest);
 
             // Then
             assertEquals("Booking confirmed", result.getMessage());
-            verify(bookingRepository).save(any(Booking.class));
-            verify(couponService, never()).assertUsedCoupon(any(), any());
-            verify(eventManager).notify(eq("BOOKING_CREATED"), any(Booking.class));
+            verify(bookingHoldService).confirmHold(booking, null);
+            verify(eventManager).notify("BOOKING_CREATED", booking);
         }
     }
 
@@ -194,6 +203,7 @@ class BookingServiceImplementationTest {
 
             // When & Then
             assertThrows(IllegalArgumentException.class, () -> bookingService.saveBooking(bookingRequest));
+            verify(bookingHoldService, never()).placeHold(any());
         }
     }
 
@@ -205,10 +215,12 @@ class BookingServiceImplementationTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getPrincipal()).thenReturn(customer);
 
-            when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(true);
+            when(bookingHoldService.placeHold(any(Booking.class)))
+                    .thenThrow(new UnavailablePropertyException("Property not available for the selected dates"));
 
             // When & Then
             assertThrows(UnavailablePropertyException.class, () -> bookingService.saveBooking(bookingRequest));
+            verify(bookingHoldService, never()).confirmHold(any(), any());
         }
     }
 
@@ -223,10 +235,9 @@ class BookingServiceImplementationTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getPrincipal()).thenReturn(customer);
 
-            when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(false);
-
             // When & Then
             assertThrows(UnavailablePropertyException.class, () -> bookingService.saveBooking(bookingRequest));
+            verify(bookingHoldService, never()).placeHold(any());
         }
     }
 
@@ -238,33 +249,88 @@ class BookingServiceImplementationTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getPrincipal()).thenReturn(customer);
 
-            when(bookingRepository.existsOverlappingBooking(PROPERTY_ID, CHECK_IN, CHECK_OUT)).thenReturn(false);
-            when(paymentService.payForAccomodation(host.getUsername(), customer.getUsername(), TOTAL_AMOUNT, COUPON_CODE)).thenReturn(false);
+            when(bookingHoldService.placeHold(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.confirmHold(booking, COUPON_CODE))
+                    .thenThrow(new PaymentRejectedException("Unable to complete the payment"));
 
             // When & Then
             assertThrows(PaymentRejectedException.class, () -> bookingService.saveBooking(bookingRequest));
-            verify(bookingRepository, never()).save(any());
-            verify(couponService, never()).assertUsedCoupon(any(), any());
+            verify(bookingHoldService).releaseHold(booking);
+            verify(eventManager, never()).notify(any(), any());
+        }
+    }
+
+    @Test
+    void saveBooking_CouponRejected_ReleasesHold() throws Exception {
+        // Given
+        try (MockedStatic<SecurityContextHolder> mockedSecurityContext = mockStatic(SecurityContextHolder.class)) {
+            mockedSecurityContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getPrincipal()).thenReturn(customer);
+
+            when(bookingHoldService.placeHold(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.confirmHold(booking, COUPON_CODE)).thenThrow(new CouponExpiredException());
+
+            // When & Then
+            assertThrows(CouponExpiredException.class, () -> bookingService.saveBooking(bookingRequest));
+            verify(bookingHoldService).releaseHold(booking);
+        }
+    }
+
+    @Test
+    void saveBooking_HoldExpired_ReleasesHold() throws Exception {
+        // Given
+        try (MockedStatic<SecurityContextHolder> mockedSecurityContext = mockStatic(SecurityContextHolder.class)) {
+            mockedSecurityContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getPrincipal()).thenReturn(customer);
+
+            when(bookingHoldService.placeHold(any(Booking.class))).thenReturn(booking);
+            when(bookingHoldService.confirmHold(booking, COUPON_CODE))
+                    .thenThrow(new UnavailablePropertyException("The booking hold expired before the confirmation"));
+
+            // When & Then
+            assertThrows(UnavailablePropertyException.class, () -> bookingService.saveBooking(bookingRequest));
+            verify(bookingHoldService).releaseHold(booking);
+            verify(eventManager, never()).notify(any(), any());
         }
     }
 
     @Test
     void findBookingByConfirmationCode_Success() {
         // Given
-        when(bookingRepository.findByBookingConfirmationCode(CONFIRMATION_CODE)).thenReturn(Optional.of(booking));
+        BookingResponse response = BookingResponse.fromEntity(booking);
+        when(bookingRepository.findResponseByConfirmationCode(CONFIRMATION_CODE)).thenReturn(Optional.of(response));
+
+        // When
+        BookingResponse result = bookingService.findBookingByConfirmationCode(CONFIRMATION_CODE);
+
+        // Then
+        assertEquals(response, result);
+        verify(bookingRepository).findResponseByConfirmationCode(CONFIRMATION_CODE);
+        verifyNoInteractions(archiveService);
+    }
+
+    @Test
+    void findBookingByConfirmationCode_Archived_FallsBackToTheArchive() {
+        // Given
+        when(bookingRepository.findResponseByConfirmationCode(CONFIRMATION_CODE)).thenReturn(Optional.empty());
+        when(archiveService.findArchivedBooking(CONFIRMATION_CODE)).thenReturn(Optional.of(booking));
 
         // When
-        Booking result = bookingService.findBookingByConfirmationCode(CONFIRMATION_CODE);
+        BookingResponse result = bookingService.findBookingByConfirmationCode(CONFIRMATION_CODE);
 
         // Then
-        assertEquals(booking, result);
-        verify(bookingRepository).findByBookingConfirmationCode(CONFIRMATION_CODE);
+        assertEquals(booking.getId(), result.getId());
+        assertEquals(CUSTOMER_ID, result.getUserId());
+        assertEquals(PROPERTY_ID, result.getPropertyId());
+        assertEquals("Beautiful Apartment", result.getPropertyTitle());
     }
 
     @Test
     void findBookingByConfirmationCode_NotFound_ThrowsException() {
         // Given
-        when(bookingRepository.findByBookingConfirmationCode(CONFIRMATION_CODE)).thenReturn(Optional.empty());
+        when(bookingRepository.findResponseByConfirmationCode(CONFIRMATION_CODE)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(EntityNotFoundException.class, () ->
@@ -274,29 +340,29 @@ class BookingServiceImplementationTest {
     @Test
     void getAllBookings_Success() {
         // Given
-        List<Booking> bookings = Arrays.asList(booking);
-        when(bookingRepository.findAll(Sort.by(Sort.Direction.DESC, "id"))).thenReturn(bookings);
+        List<BookingResponse> bookings = Arrays.asList(BookingResponse.fromEntity(booking));
+        when(bookingRepository.findAllResponses()).thenReturn(bookings);
 
         // When
-        List<Booking> result = bookingService.getAllBookings();
+        List<BookingResponse> result = bookingService.getAllBookings();
 
         // Then
         assertEquals(bookings, result);
-        verify(bookingRepository).findAll(Sort.by(Sort.Direction.DESC, "id"));
+        verify(bookingRepository).findAllResponses();
     }
 
     @Test
     void getAllBookingsByUserId_Success() {
         // Given
-        List<Booking> bookings = Arrays.asList(booking);
-        when(bookingRepository.findByUserId(CUSTOMER_ID)).thenReturn(bookings);
+        List<BookingResponse> bookings = Arrays.asList(BookingResponse.fromEntity(booking));
+        when(bookingRepository.findResponsesByUserId(CUSTOMER_ID)).thenReturn(bookings);
 
         // When
-        List<Booking> result = bookingService.getAllBookings(CUSTOMER_ID);
+        List<BookingResponse> result = bookingService.getAllBookings(CUSTOMER_ID);
 
         // Then
         assertEquals(bookings, result);
-        verify(bookingRepository).findByUserId(CUSTOMER_ID);
+        verify(bookingRepository).findResponsesByUserId(CUSTOMER_ID);
     }
 
     @Test
@@ -308,6 +374,7 @@ class BookingServiceImplementationTest {
             when(authentication.getPrincipal()).thenReturn(customer);
 
             when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+            when(bookingRepository.cancel(BOOKING_ID, booking.getCheckOutDate())).thenReturn(1);
 
             // When
             CustomResponse result = bookingService.cancelBooking(BOOKING_ID);
@@ -315,7 +382,10 @@ class BookingServiceImplementationTest {
             // Then
             assertEquals("Prenotazione cancellata con successo", result.getMessage());
             verify(userRepository, times(2)).save(any(User.class));
-            verify(bookingRepository).delete(booking);
+            verify(bookingRepository).cancel(BOOKING_ID, booking.getCheckOutDate());
+            verify(bookingRepository, never()).delete(any());
+            verify(bookingCalendar).remove(booking);
+            verify(availabilitySearchCache).invalidate(booking.getProperty().getCity(), booking.getCheckInDate(), booking.getCheckOutDate());
             verify(eventManager).notify("BOOKING_CANCELED", booking);
 
             // Verifica aggiornamento saldi
@@ -337,13 +407,15 @@ class BookingServiceImplementationTest {
             when(authentication.getPrincipal()).thenReturn(admin);
 
             when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+            when(bookingRepository.cancel(BOOKING_ID, booking.getCheckOutDate())).thenReturn(1);
 
             // When
             CustomResponse result = bookingService.cancelBooking(BOOKING_ID);
 
             // Then
             assertEquals("Prenotazione cancellata con successo", result.getMessage());
-            verify(bookingRepository).delete(booking);
+            verify(bookingRepository).cancel(BOOKING_ID, booking.getCheckOutDate());
+            verify(bookingRepository, never()).delete(any());
         }
     }
 
@@ -360,13 +432,15 @@ class BookingServiceImplementationTest {
             when(authentication.getPrincipal()).thenReturn(moderator);
 
             when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+            when(bookingRepository.cancel(BOOKING_ID, booking.getCheckOutDate())).thenReturn(1);
 
             // When
             CustomResponse result = bookingService.cancelBooking(BOOKING_ID);
 
             // Then
             assertEquals("Prenotazione cancellata con successo", result.getMessage());
-            verify(bookingRepository).delete(booking);
+            verify(bookingRepository).cancel(BOOKING_ID, booking.getCheckOutDate());
+            verify(bookingRepository, never()).delete(any());
         }
     }
 
@@ -386,7 +460,28 @@ class BookingServiceImplementationTest {
 
             // When & Then
             assertThrows(UserUnauthorizedException.class, () -> bookingService.cancelBooking(BOOKING_ID));
-            verify(bookingRepository, never()).delete(any());
+            verify(bookingRepository, never()).cancel(any(), any());
+        }
+    }
+
+    @Test
+    void cancelBooking_AlreadyCancelled_ThrowsException() {
+        // Given
+        try (MockedStatic<SecurityContextHolder> mockedSecurityContext = mockStatic(SecurityContextHolder.class)) {
+            mockedSecurityContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getPrincipal()).thenReturn(customer);
+
+            when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+            when(bookingRepository.cancel(BOOKING_ID, booking.getCheckOutDate())).thenReturn(0);
+
+            // When & Then
+            assertThrows(DataValidationException.class, () -> bookingService.cancelBooking(BOOKING_ID));
+            verify(userRepository, never()).save(any());
+            verifyNoInteractions(bookingCalendar, availabilitySearchCache, eventManager);
+
+            // I saldi restano invariati
+            assertEquals(new BigDecimal("500.00"), customer.getBalance());
         }
     }
 
@@ -409,7 +504,7 @@ class BookingServiceImplementationTest {
     void getAllBookingsByHostId_Success() {
         // Given
         List<Booking> bookings = Arrays.asList(booking);
-        when(bookingRepository.findByProperty_Host_Id(HOST_ID)).thenReturn(bookings);
+        when(bookingRepository.findByProperty_Host_IdAndStatusNot(HOST_ID, BookingStatus.CANCELLED)).thenReturn(bookings);
 
         // When
         List<BookingDashboardResponse> result = bookingService.getAllBookingsByHostId(HOST_ID);
@@ -426,19 +521,26 @@ class BookingServiceImplementationTest {
         assertEquals(CHECK_OUT, response.getCheckOutDate());
         assertEquals(TOTAL_AMOUNT, response.getTotal());
 
-        verify(bookingRepository).findByProperty_Host_Id(HOST_ID);
+        verify(bookingRepository).findByProperty_Host_IdAndStatusNot(HOST_ID, BookingStatus.CANCELLED);
     }
 
     @Test
     void getAllBookingsByHostId_EmptyList_Success() {
         // Given
-        when(bookingRepository.findByProperty_Host_Id(HOST_ID)).thenReturn(Arrays.asList());
+        when(bookingRepository.findByProperty_Host_IdAndStatusNot(HOST_ID, BookingStatus.CANCELLED)).thenReturn(Arrays.asList());
 
         // When
         List<BookingDashboardResponse> result = bookingService.getAllBookingsByHostId(HOST_ID);
 
         // Then
         assertTrue(result.isEmpty());
-        verify(bookingRepository).findByProperty_Host_Id(HOST_ID);
+        verify(bookingRepository).findByProperty_Host_IdAndStatusNot(HOST_ID, BookingStatus.CANCELLED);
+    }
+
+    @Test
+    void completeFinishedBookings_completesTheStaysEndedByToday() {
+        when(bookingRepository.completeFinishedBookings(LocalDate.now())).thenReturn(4);
+
+        assertEquals(4, bookingService.completeFinishedBookings());
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,11 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.builder.definition.ChatMessageBuilder;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ChatMessageRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.ChatMessage;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.ChatMessageRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +36,9 @@ class ChatServiceImplementationTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private ArchiveService archiveService;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -127,6 +132,34 @@ class ChatServiceImplementationTest {
         verify(chatMessageRepository).findConversationBetweenUsers(sender, receiver);
     }
 
+    @Test
+    void getConversation_leavesTheArchiveAlone() {
+        when(authentication.getPrincipal()).thenReturn(sender);
+        when(userService.findById(2L)).thenReturn(receiver);
+        when(chatMessageRepository.findConversationBetweenUsers(sender, receiver)).thenReturn(chatMessages);
+
+        chatService.getConversation(2L);
+
+        verifyNoInteractions(archiveService);
+    }
+
+    @Test
+    void getArchivedMessages_readsTheRequestedPage() {
+        ChatMessage archived = new ChatMessage(0L, "Hi", receiver, sender, LocalDateTime.now().minusYears(2));
+        when(authentication.getPrincipal()).thenReturn(sender);
+        when(userService.findById(2L)).thenReturn(receiver);
+        when(archiveService.findArchivedConversation(sender, receiver, 1)).thenReturn(List.of(archived));
+
+        assertEquals(List.of(archived), chatService.getArchivedMessages(2L, 1));
+    }
+
+    @Test
+    void getArchivedMessages_negativePage_throwsException() {
+        assertThrows(DataValidationException.class, () -> chatService.getArchivedMessages(2L, -1));
+
+        verifyNoInteractions(archiveService);
+    }
+
     @Test
     void getUsersWithMessages_success() {
         // Arrange
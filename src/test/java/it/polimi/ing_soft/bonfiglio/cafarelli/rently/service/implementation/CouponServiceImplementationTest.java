@@ -1,7 +1,14 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponCatalogCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponQuotaCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.CouponRedemptionCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.CouponCampaignRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CacheStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponAlreadyUsedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponExpiredException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponSoldOutException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Coupon;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
@@ -14,14 +21,25 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +51,15 @@ class CouponServiceImplementationTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CouponRedemptionCache couponRedemptionCache;
+
+    @Mock
+    private CouponCatalogCache couponCatalogCache;
+
+    @Mock
+    private CouponQuotaCache couponQuotaCache;
+
     @InjectMocks
     private CouponServiceImplementation couponService;
 
@@ -47,17 +74,21 @@ class CouponServiceImplementationTest {
         user.setId(1L);
 
         coupon = new Coupon();
+        coupon.setId(7L);
         coupon.setCode("WELCOME10");
         coupon.setExpiryDate(LocalDate.now().plusDays(1));  // valido
         coupon.setDiscountPercentage(new BigDecimal("10"));
         coupon.setDiscountAmount(new BigDecimal("5"));
         coupon.setUsers(new ArrayList<>());
+
+        when(couponQuotaCache.hasRemaining(any(Coupon.class))).thenReturn(true);
+        when(couponQuotaCache.tryReserve(any(Coupon.class))).thenReturn(true);
     }
 
     @Test
     void applyCoupon_validPercentageAndFixedDiscount_shouldApplyCorrectly() {
         BigDecimal originalAmount = new BigDecimal("100");
-        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
 
         BigDecimal result = couponService.applyCoupon(1L, "WELCOME10", originalAmount);
 
@@ -73,7 +104,7 @@ class CouponServiceImplementationTest {
     @Test
     void applyCoupon_couponExpired_shouldThrowException() {
         coupon.setExpiryDate(LocalDate.now().minusDays(1));
-        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
 
         assertThrows(CouponExpiredException.class, () ->
                 couponService.applyCoupon(1L, "WELCOME10", new BigDecimal("100"))
@@ -82,8 +113,8 @@ class CouponServiceImplementationTest {
 
     @Test
     void applyCoupon_couponAlreadyUsed_shouldThrowException() {
-        coupon.getUsers().add(user);  // lo stesso utente ha già usato il coupon
-        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(couponRedemptionCache.hasRedeemed(7L, 1L)).thenReturn(true);  // lo stesso utente ha già usato il coupon
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
 
         assertThrows(CouponAlreadyUsedException.class, () ->
                 couponService.applyCoupon(1L, "WELCOME10", new BigDecimal("100"))
@@ -92,7 +123,7 @@ class CouponServiceImplementationTest {
 
     @Test
     void applyCoupon_couponNotFound_shouldThrowException() {
-        when(couponRepository.findByCode("FAKE")).thenReturn(Optional.empty());
+        when(couponCatalogCache.findByCode("FAKE")).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () ->
                 couponService.applyCoupon(1L, "FAKE", new BigDecimal("100"))
@@ -100,20 +131,137 @@ class CouponServiceImplementationTest {
     }
 
     @Test
-    void assertUsedCoupon_validInput_shouldSaveUserInCoupon() {
-        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(couponRepository.save(any(Coupon.class))).thenAnswer(i -> i.getArgument(0));
+    void assertUsedCoupon_validInput_shouldInsertRedemption() {
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(1L)).thenReturn(true);
 
         Coupon result = couponService.assertUsedCoupon(1L, "WELCOME10");
 
-        assertTrue(result.getUsers().contains(user));
-        verify(couponRepository).save(result);
+        assertEquals(coupon, result);
+        verify(couponRepository).insertRedemption(7L, 1L);
+        verify(couponRedemptionCache).recordRedemption(7L, 1L);
+        verify(couponRepository, never()).save(any(Coupon.class));
+    }
+
+    @Test
+    void applyCoupon_couponSoldOut_shouldThrowException() {
+        coupon.setMaxRedemptions(500);
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(couponQuotaCache.hasRemaining(coupon)).thenReturn(false);
+
+        assertThrows(CouponSoldOutException.class, () ->
+                couponService.applyCoupon(1L, "WELCOME10", new BigDecimal("100"))
+        );
+    }
+
+    @Test
+    void assertUsedCoupon_limitedCoupon_shouldIncrementCounter() {
+        coupon.setMaxRedemptions(500);
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(couponRepository.incrementRedemptionCount(7L)).thenReturn(1);
+
+        couponService.assertUsedCoupon(1L, "WELCOME10");
+
+        verify(couponRepository).incrementRedemptionCount(7L);
+        verify(couponRepository).insertRedemption(7L, 1L);
+    }
+
+    @Test
+    void assertUsedCoupon_unlimitedCoupon_shouldNotTouchCounter() {
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        couponService.assertUsedCoupon(1L, "WELCOME10");
+
+        verify(couponRepository, never()).incrementRedemptionCount(any());
+    }
+
+    @Test
+    void assertUsedCoupon_noPermitLeft_shouldThrowException() {
+        coupon.setMaxRedemptions(500);
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(couponQuotaCache.tryReserve(coupon)).thenReturn(false);
+
+        assertThrows(CouponSoldOutException.class, () ->
+                couponService.assertUsedCoupon(1L, "WELCOME10")
+        );
+        verify(couponRepository, never()).incrementRedemptionCount(any());
+        verify(couponRepository, never()).insertRedemption(any(), any());
+    }
+
+    @Test
+    void assertUsedCoupon_databaseLimitReached_shouldMarkSoldOut() {
+        coupon.setMaxRedemptions(500);
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(couponRepository.incrementRedemptionCount(7L)).thenReturn(0);
+
+        assertThrows(CouponSoldOutException.class, () ->
+                couponService.assertUsedCoupon(1L, "WELCOME10")
+        );
+        verify(couponQuotaCache).markSoldOut(7L);
+        verify(couponRepository, never()).insertRedemption(any(), any());
+    }
+
+    @Test
+    void assertUsedCoupon_concurrentRedemptions_shouldNeverExceedLimit() throws Exception {
+        int limit = 500;
+        int attempts = 10_000;
+        coupon.setMaxRedemptions(limit);
+
+        // Emulates the conditional update of the database
+        AtomicInteger redemptionCount = new AtomicInteger();
+        when(couponRepository.findRemainingRedemptions(7L)).thenReturn(limit);
+        when(couponRepository.incrementRedemptionCount(7L)).thenAnswer(invocation -> {
+            int current;
+            do {
+                current = redemptionCount.get();
+                if (current >= limit) {
+                    return 0;
+                }
+            } while (!redemptionCount.compareAndSet(current, current + 1));
+            return 1;
+        });
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(any())).thenReturn(true);
+
+        CouponServiceImplementation service = new CouponServiceImplementation(couponRepository, userRepository,
+                couponRedemptionCache, couponCatalogCache, new CouponQuotaCache(couponRepository));
+
+        AtomicInteger redeemed = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long userId = 1; userId <= attempts; userId++) {
+            long id = userId;
+            futures.add(executor.submit(() -> {
+                try {
+                    service.assertUsedCoupon(id, "WELCOME10");
+                    redeemed.incrementAndGet();
+                } catch (CouponSoldOutException e) {
+                    soldOut.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(limit, redeemed.get());
+        assertEquals(attempts - limit, soldOut.get());
+        assertEquals(limit, redemptionCount.get());
+        // Attempts after the sell-out are rejected by the in-memory permits alone
+        verify(couponRepository, times(limit)).incrementRedemptionCount(7L);
+        verify(couponRepository, times(limit)).insertRedemption(eq(7L), any());
     }
 
     @Test
     void assertUsedCoupon_couponNotFound_shouldThrowException() {
-        when(couponRepository.findByCode("INVALID")).thenReturn(Optional.empty());
+        when(couponCatalogCache.findByCode("INVALID")).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () ->
                 couponService.assertUsedCoupon(1L, "INVALID")
@@ -122,11 +270,66 @@ class CouponServiceImplementationTest {
 
     @Test
     void assertUsedCoupon_userNotFound_shouldThrowException() {
-        when(couponRepository.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(couponCatalogCache.findByCode("WELCOME10")).thenReturn(Optional.of(coupon));
+        when(userRepository.existsById(1L)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () ->
                 couponService.assertUsedCoupon(1L, "WELCOME10")
         );
+        verify(couponRepository, never()).insertRedemption(any(), any());
+    }
+
+    @Test
+    void getCatalogCacheStats_shouldReturnCacheStats() {
+        CacheStatsResponse stats = new CacheStatsResponse(3, 1, 0, 2, 0.75);
+        when(couponCatalogCache.stats()).thenReturn(stats);
+
+        assertEquals(stats, couponService.getCatalogCacheStats());
+    }
+
+    @Test
+    void generateCampaign_validRequest_shouldPersistAndStreamUniqueCodes() throws Exception {
+        CouponCampaignRequest request = new CouponCampaignRequest(2_500, "SUMMER-", 8, null, new BigDecimal("15"), LocalDate.now().plusDays(30));
+        when(couponRepository.findExistingCodes(anyCollection())).thenReturn(Set.of());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long generated = couponService.generateCampaign(request, output);
+
+        String[] codes = output.toString().split("\n");
+        assertEquals(2_500, generated);
+        assertEquals(2_500, codes.length);
+        assertEquals(2_500, new HashSet<>(Arrays.asList(codes)).size());
+        assertTrue(Arrays.stream(codes).allMatch(code -> code.matches("SUMMER-[A-Z0-9]{8}")));
+        // 2500 codes in chunks of 1000
+        verify(couponRepository, times(3)).batchInsert(anyList(), any(Coupon.class));
+    }
+
+    @Test
+    void generateCampaign_existingCode_shouldBeReplaced() throws Exception {
+        CouponCampaignRequest request = new CouponCampaignRequest(10, null, 10, new BigDecimal("5"), null, LocalDate.now().plusDays(30));
+        when(couponRepository.findExistingCodes(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> codes = invocation.getArgument(0);
+            // Pretend the first code of the first chunk is already taken
+            return codes.size() == 10 ? Set.of(codes.iterator().next()) : Set.of();
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long generated = couponService.generateCampaign(request, output);
+
+        String[] codes = output.toString().split("\n");
+        assertEquals(10, generated);
+        assertEquals(10, new HashSet<>(Arrays.asList(codes)).size());
+        verify(couponRepository).batchInsert(argThat(list -> list.size() == 9), any(Coupon.class));
+        verify(couponRepository).batchInsert(argThat(list -> list.size() == 1), any(Coupon.class));
+    }
+
+    @Test
+    void generateCampaign_withoutDiscount_shouldThrowException() {
+        CouponCampaignRequest request = new CouponCampaignRequest(10, null, 10, null, null, LocalDate.now().plusDays(30));
+
+        assertThrows(DataValidationException.class, () ->
+                couponService.generateCampaign(request, new ByteArrayOutputStream())
+        );
+        verify(couponRepository, never()).batchInsert(anyList(), any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.export.*;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Role;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.ReviewRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.TicketRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+class ExportServiceImplementationTest {
+
+    @Mock private BookingRepository bookingRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private ReviewRepository reviewRepository;
+    @Mock private TicketRepository ticketRepository;
+    @Mock private ExportWriter exportWriter;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    @InjectMocks private ExportServiceImplementation exportService;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void exportUsers_writesTheStreamWithinATransactionAndClosesIt() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<UserExportRow> rows = Stream.of(new UserExportRow(1L, "mario", "mario@example.com", "Mario", "Rossi",
+                Role.CLIENT, true, BigDecimal.TEN, LocalDateTime.now())).onClose(() -> closed.set(true));
+        when(userRepository.streamAllForExport()).thenReturn(rows);
+
+        exportService.exportUsers(ExportFormat.NDJSON, out);
+
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(exportWriter).write(same(rows), eq(UserExportRow.class), eq(ExportFormat.NDJSON), same(out));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void exportBookings_closesTheStreamWhenTheWriteFails() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<BookingExportRow> rows = Stream.<BookingExportRow>empty().onClose(() -> closed.set(true));
+        when(bookingRepository.streamAllForExport()).thenReturn(rows);
+        doThrow(new IllegalStateException("Broken pipe")).when(exportWriter)
+                .write(same(rows), eq(BookingExportRow.class), eq(ExportFormat.CSV), same(out));
+
+        assertThrows(IllegalStateException.class, () -> exportService.exportBookings(ExportFormat.CSV, out));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void exportReviewsAndTickets_useTheirOwnRows() {
+        when(reviewRepository.streamAllForExport()).thenReturn(Stream.empty());
+        when(ticketRepository.streamAllForExport()).thenReturn(Stream.empty());
+
+        exportService.exportReviews(ExportFormat.CSV, out);
+        exportService.exportTickets(ExportFormat.CSV, out);
+
+        verify(exportWriter).write(any(), eq(ReviewExportRow.class), eq(ExportFormat.CSV), same(out));
+        verify(exportWriter).write(any(), eq(TicketExportRow.class), eq(ExportFormat.CSV), same(out));
+    }
+}
@@ -0,0 +1,78 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.GeoLocation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.GeoLocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GeocodingServiceImplementationTest {
+
+    @Mock
+    private GeoLocationRepository geoLocationRepository;
+
+    @InjectMocks
+    private GeocodingServiceImplementation geocodingService;
+
+    private Property property;
+
+    @BeforeEach
+    void setUp() {
+        property = new Property();
+        property.setCity("Milano ");
+        property.setState("Lombardia");
+        property.setCountry("Italia");
+    }
+
+    @Test
+    void geocode_exactMatch_setsCoordinates() {
+        when(geoLocationRepository.findFirstByCityIgnoreCaseAndStateIgnoreCaseAndCountryIgnoreCase("Milano", "Lombardia", "Italia"))
+                .thenReturn(Optional.of(new GeoLocation(1L, "Milano", "Lombardia", "Italia", 45.4642, 9.19)));
+
+        assertTrue(geocodingService.geocode(property));
+        assertEquals(45.4642, property.getLatitude());
+        assertEquals(9.19, property.getLongitude());
+        verify(geoLocationRepository, never()).findFirstByCityIgnoreCaseAndCountryIgnoreCase(any(), any());
+    }
+
+    @Test
+    void geocode_unknownState_fallsBackToCityAndCountry() {
+        when(geoLocationRepository.findFirstByCityIgnoreCaseAndStateIgnoreCaseAndCountryIgnoreCase("Milano", "Lombardia", "Italia"))
+                .thenReturn(Optional.empty());
+        when(geoLocationRepository.findFirstByCityIgnoreCaseAndCountryIgnoreCase("Milano", "Italia"))
+                .thenReturn(Optional.of(new GeoLocation(1L, "Milano", "MI", "Italia", 45.4642, 9.19)));
+
+        assertTrue(geocodingService.geocode(property));
+        assertEquals(45.4642, property.getLatitude());
+    }
+
+    @Test
+    void geocode_unknownPlace_leavesCoordinatesEmpty() {
+        when(geoLocationRepository.findFirstByCityIgnoreCaseAndStateIgnoreCaseAndCountryIgnoreCase(any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(geoLocationRepository.findFirstByCityIgnoreCaseAndCountryIgnoreCase(any(), any()))
+                .thenReturn(Optional.empty());
+
+        assertFalse(geocodingService.geocode(property));
+        assertNull(property.getLatitude());
+        assertNull(property.getLongitude());
+    }
+
+    @Test
+    void geocode_missingCity_skipsLookup() {
+        property.setCity(null);
+
+        assertFalse(geocodingService.geocode(property));
+        verifyNoInteractions(geoLocationRepository);
+    }
+}
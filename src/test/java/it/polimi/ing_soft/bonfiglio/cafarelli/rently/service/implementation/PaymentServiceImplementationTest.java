@@ -2,6 +2,7 @@ package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponAlreadyUsedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponExpiredException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.CouponSoldOutException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.CouponService;
@@ -90,8 +91,28 @@ class PaymentServiceImplementationTest {
         assertTrue(result);
         verify(couponService).applyCoupon(1L, couponCode, originalAmount);
         verify(userService).deductBalance("client", discountedAmount);
+        verify(couponService).assertUsedCoupon(1L, couponCode);
         verify(userService).rechargeBalance("host", discountedAmount);
     }
+
+    @Test
+    void payForAccomodation_couponSoldOut_throwsExceptionBeforeCreditingHost() {
+        // Arrange
+        BigDecimal originalAmount = new BigDecimal("200");
+        BigDecimal discountedAmount = new BigDecimal("160");
+        String couponCode = "FLASH500";
+
+        when(userService.findByUsername("client")).thenReturn(client);
+        when(couponService.applyCoupon(1L, couponCode, originalAmount)).thenReturn(discountedAmount);
+        when(userService.deductBalance("client", discountedAmount)).thenReturn(true);
+        when(couponService.assertUsedCoupon(1L, couponCode)).thenThrow(new CouponSoldOutException());
+
+        // Act & Assert
+        assertThrows(CouponSoldOutException.class, () ->
+            paymentService.payForAccomodation("host", "client", originalAmount, couponCode)
+        );
+        verify(userService, never()).rechargeBalance(anyString(), any(BigDecimal.class));
+    }
     
     @Test
     void payForAccomodation_withCoupon_insufficientFunds_returnsFalse() throws EntityNotFoundException, CouponExpiredException, CouponAlreadyUsedException {
@@ -111,6 +132,7 @@ class PaymentServiceImplementationTest {
         assertFalse(result);
         verify(couponService).applyCoupon(1L, couponCode, originalAmount);
         verify(userService).deductBalance("client", discountedAmount);
+        verify(couponService, never()).assertUsedCoupon(anyLong(), anyString());
         verify(userService, never()).rechargeBalance(anyString(), any(BigDecimal.class));
     }
     
@@ -1,19 +1,44 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.AvailabilitySearchCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyDetailCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyFavoriteCounter;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyViewCounter;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.AvailablePropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FacetedPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.FlexibleAvailabilityRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.MapAreaPropertiesRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.NearbyPropertiesRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.PropertyUpdateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetCount;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FacetedSearchResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.FlexibleAvailabilityResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.PropertyStatsResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityRegistrationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.PropertyAlreadyExistsException;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Role;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.BookedInterval;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.FacetedResult;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacet;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacetDocument;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyFacetIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyGeoIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyLocation;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertySearchDocument;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertySearchIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.search.PropertyTrendingIndex;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.GeocodingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -25,8 +50,13 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -37,6 +67,16 @@ class PropertyServiceImplementationTest {
     @Mock private UserRepository userRepository;
     @Mock private LocalStorageService localStorageService;
     @Mock private BookingRepository bookingRepository;
+    @Mock private PropertySearchIndex propertySearchIndex;
+    @Mock private PropertyGeoIndex propertyGeoIndex;
+    @Mock private PropertyFacetIndex propertyFacetIndex;
+    @Mock private PropertyDetailCache propertyDetailCache;
+    @Mock private GeocodingService geocodingService;
+    @Mock private PropertyTrendingIndex propertyTrendingIndex;
+    @Mock private EventManager eventManager;
+    @Mock private PropertyViewCounter propertyViewCounter;
+    @Mock private PropertyFavoriteCounter propertyFavoriteCounter;
+    @Mock private AvailabilitySearchCache availabilitySearchCache;
     @Mock private MultipartFile mockImage;
 
     @InjectMocks private PropertyServiceImplementation propertyService;
@@ -127,6 +167,9 @@ class PropertyServiceImplementationTest {
         assertEquals("Property created successfully", response.getMessage());
         verify(propertyRepository).save(any(Property.class));
         verify(localStorageService).savePropertyImages(images, 1L);
+        verify(propertySearchIndex).index(argThat(document -> "New Property".equals(document.title())));
+        verify(geocodingService).geocode(any(Property.class));
+        verifyNoInteractions(propertyGeoIndex);
     }
 
     @Test
@@ -171,6 +214,8 @@ class PropertyServiceImplementationTest {
         assertEquals(5, property.getMaxGuests());
         assertEquals(2, property.getBathrooms());
         verify(propertyRepository).save(property);
+        verify(propertyDetailCache).evict(1L);
+        verify(availabilitySearchCache).invalidateCity("Test City");
     }
 
     @Test
@@ -223,6 +268,7 @@ class PropertyServiceImplementationTest {
         assertEquals(Arrays.asList("newimage1.jpg"), property.getPropertyImages());
         verify(propertyRepository).save(property);
         verify(localStorageService).savePropertyImages(images, 1L);
+        verify(propertyDetailCache).evict(1L);
     }
 
     @Test
@@ -237,6 +283,12 @@ class PropertyServiceImplementationTest {
         // Assert
         assertEquals("Property deleted successfully", response.getMessage());
         verify(propertyRepository).delete(property);
+        verify(propertySearchIndex).remove(1L);
+        verify(propertyGeoIndex).remove(1L);
+        verify(propertyFacetIndex).remove(1L);
+        verify(propertyTrendingIndex).remove(1L);
+        verify(propertyDetailCache).evict(1L);
+        verify(availabilitySearchCache).invalidateCity("Test City");
     }
 
     @Test
@@ -378,6 +430,26 @@ class PropertyServiceImplementationTest {
         assertEquals("Property deactivated successfully", response.getMessage());
         assertFalse(property.isAvailable());
         verify(propertyRepository).save(property);
+        verify(propertyFacetIndex).index(argThat(document -> !document.available()));
+        verify(propertySearchIndex).remove(1L);
+        verify(propertyDetailCache).evict(1L);
+        verify(availabilitySearchCache).invalidateCity("Test City");
+    }
+
+    @Test
+    void toggleActiveStatus_activated_indexesTextAgain() {
+        // Arrange
+        property.setAvailable(false);
+        when(propertyRepository.findById(1L)).thenReturn(Optional.of(property));
+        when(propertyRepository.save(property)).thenReturn(property);
+
+        // Act
+        CustomResponse response = propertyService.toggleActiveStatus(1L);
+
+        // Assert
+        assertEquals("Property activated successfully", response.getMessage());
+        verify(propertySearchIndex).index(argThat(document -> document.id().equals(1L)));
+        verify(propertySearchIndex, never()).remove(any());
     }
 
     @Test
@@ -426,8 +498,11 @@ class PropertyServiceImplementationTest {
         );
 
         List<Property> properties = Arrays.asList(property);
+        AvailabilitySearchCache.Key key = new AvailabilitySearchCache.Key("test city", checkInDate, checkOutDate, 3);
+        when(availabilitySearchCache.get(key)).thenReturn(null);
+        when(availabilitySearchCache.version()).thenReturn(7L);
         when(propertyRepository.findAvailableProperties(
-                "Test City", 
+                "test city", 
                 request.getCheckInDate(), 
                 request.getCheckOutDate(), 
                 3)).thenReturn(properties);
@@ -438,6 +513,35 @@ class PropertyServiceImplementationTest {
         // Assert
         assertEquals(1, result.size());
         assertEquals(property, result.get(0));
+        verify(availabilitySearchCache).put(key, List.of(property.getId()), 7L);
+    }
+
+    @Test
+    void findAvailableProperties_cached_loadsOnlyTheCachedIds() {
+        LocalDate checkInDate = LocalDate.now().plusDays(1);
+        LocalDate checkOutDate = LocalDate.now().plusDays(3);
+        AvailablePropertiesRequest request = new AvailablePropertiesRequest(checkInDate, checkOutDate, " Test City", 2, 0);
+        Property other = new Property();
+        other.setId(2L);
+        when(availabilitySearchCache.get(new AvailabilitySearchCache.Key("test city", checkInDate, checkOutDate, 2)))
+                .thenReturn(List.of(2L, 1L));
+        when(propertyRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(property, other));
+
+        List<Property> result = propertyService.findAvailableProperties(request);
+
+        assertEquals(List.of(other, property), result);
+        verify(propertyRepository, never()).findAvailableProperties(any(), any(), any(), any());
+    }
+
+    @Test
+    void findAvailableProperties_cachedEmptyResult_skipsTheDatabase() {
+        LocalDate checkInDate = LocalDate.now().plusDays(1);
+        LocalDate checkOutDate = LocalDate.now().plusDays(3);
+        AvailablePropertiesRequest request = new AvailablePropertiesRequest(checkInDate, checkOutDate, "Milano", 2, 0);
+        when(availabilitySearchCache.get(any())).thenReturn(List.of());
+
+        assertTrue(propertyService.findAvailableProperties(request).isEmpty());
+        verifyNoInteractions(propertyRepository);
     }
 
     @Test
@@ -458,4 +562,388 @@ class PropertyServiceImplementationTest {
             propertyService.findAvailableProperties(request)
         );
     }
+
+    @Test
+    void search_keepsIndexRanking() {
+        // Arrange
+        Property other = new Property();
+        other.setId(2L);
+        when(propertySearchIndex.search("lake view", 10)).thenReturn(List.of(2L, 1L, 3L));
+        when(propertyRepository.findAllById(List.of(2L, 1L, 3L))).thenReturn(List.of(property, other));
+
+        // Act
+        List<Property> result = propertyService.search("lake view", 10);
+
+        // Assert
+        assertEquals(List.of(other, property), result);
+    }
+
+    @Test
+    void search_blankQuery_throwsException() {
+        assertThrows(DataValidationException.class, () -> propertyService.search("  ", 10));
+        verifyNoInteractions(propertySearchIndex);
+    }
+
+    @Test
+    void search_limitOutOfRange_throwsException() {
+        assertThrows(DataValidationException.class, () -> propertyService.search("lake", 0));
+        assertThrows(DataValidationException.class, () -> propertyService.search("lake", 101));
+    }
+
+    @Test
+    void rebuildSearchIndex_streamsDocumentsIntoIndex() {
+        // Arrange
+        Stream<PropertySearchDocument> documents = Stream.of(PropertySearchDocument.of(property));
+        when(propertyRepository.streamSearchDocuments()).thenReturn(documents);
+        when(propertySearchIndex.rebuild(documents)).thenReturn(1);
+
+        // Act & Assert
+        assertEquals(1, propertyService.rebuildSearchIndex());
+    }
+
+    @Test
+    void findNearby_withoutDates_checksGuestsOnly() {
+        // Arrange
+        Property other = new Property();
+        other.setId(2L);
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, null, null, 2, 1);
+        when(propertyGeoIndex.withinRadius(45.46, 9.19, 5.0, PropertyServiceImplementation.MAX_GEO_RESULTS))
+                .thenReturn(List.of(2L, 1L));
+        when(propertyRepository.findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(List.of(2L, 1L), 3))
+                .thenReturn(List.of(property, other));
+
+        // Act
+        List<Property> result = propertyService.findNearby(request);
+
+        // Assert
+        assertEquals(List.of(other, property), result);
+        verify(propertyRepository, never()).findAvailablePropertiesByIdIn(any(), any(), any(), any());
+    }
+
+    @Test
+    void findNearby_withDates_checksAvailability() {
+        // Arrange
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        LocalDate checkOut = LocalDate.now().plusDays(3);
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, checkIn, checkOut, 2, 0);
+        when(propertyGeoIndex.withinRadius(45.46, 9.19, 5.0, PropertyServiceImplementation.MAX_GEO_RESULTS))
+                .thenReturn(List.of(1L));
+        when(propertyRepository.findAvailablePropertiesByIdIn(List.of(1L), checkIn, checkOut, 2))
+                .thenReturn(List.of(property));
+
+        // Act & Assert
+        assertEquals(List.of(property), propertyService.findNearby(request));
+    }
+
+    @Test
+    void findNearby_closestPropertiesBooked_looksFurtherAway() {
+        // Arrange
+        int first = PropertyServiceImplementation.MAX_GEO_RESULTS;
+        List<Long> closest = LongStream.rangeClosed(1, first).boxed().toList();
+        List<Long> wider = LongStream.rangeClosed(1, first + 10).boxed().toList();
+        Property further = new Property();
+        further.setId((long) first + 5);
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, null, null, 1, 0);
+        when(propertyGeoIndex.withinRadius(45.46, 9.19, 5.0, first)).thenReturn(closest);
+        when(propertyGeoIndex.withinRadius(45.46, 9.19, 5.0, first * 2)).thenReturn(wider);
+        when(propertyRepository.findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(closest, 1))
+                .thenReturn(List.of(property));
+        when(propertyRepository.findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(wider.subList(first, first + 10), 1))
+                .thenReturn(List.of(further));
+
+        // Act & Assert
+        assertEquals(List.of(property, further), propertyService.findNearby(request));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void findNearby_crowdedAreaWithoutMatches_stopsAtTheCandidateCap() {
+        // Arrange
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, null, null, 12, 0);
+        when(propertyGeoIndex.withinRadius(eq(45.46), eq(9.19), eq(5.0), anyInt())).thenAnswer(invocation ->
+                LongStream.rangeClosed(1, invocation.<Integer>getArgument(3)).boxed().toList());
+
+        // Act
+        assertTrue(propertyService.findNearby(request).isEmpty());
+
+        // Assert
+        verify(propertyGeoIndex).withinRadius(45.46, 9.19, 5.0, PropertyServiceImplementation.MAX_GEO_CANDIDATES);
+        verify(propertyGeoIndex, never()).withinRadius(eq(45.46), eq(9.19), eq(5.0),
+                intThat(limit -> limit > PropertyServiceImplementation.MAX_GEO_CANDIDATES));
+        ArgumentCaptor<List<Long>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(propertyRepository, atLeastOnce()).findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(chunks.capture(), eq(12));
+        assertTrue(chunks.getAllValues().stream().allMatch(chunk -> chunk.size() <= PropertyServiceImplementation.GEO_CHUNK_SIZE));
+        assertEquals(PropertyServiceImplementation.MAX_GEO_CANDIDATES,
+                chunks.getAllValues().stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void findNearby_noPropertyInRadius_skipsDatabase() {
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, null, null, 1, 0);
+        when(propertyGeoIndex.withinRadius(anyDouble(), anyDouble(), anyDouble(), anyInt())).thenReturn(List.of());
+
+        assertTrue(propertyService.findNearby(request).isEmpty());
+        verifyNoInteractions(propertyRepository);
+    }
+
+    @Test
+    void findNearby_onlyOneDate_throwsException() {
+        NearbyPropertiesRequest request = new NearbyPropertiesRequest(45.46, 9.19, 5.0, LocalDate.now().plusDays(1), null, 1, 0);
+
+        assertThrows(DataValidationException.class, () -> propertyService.findNearby(request));
+        verifyNoInteractions(propertyGeoIndex);
+    }
+
+    @Test
+    void findInMapArea_invalidDates_throwsException() {
+        MapAreaPropertiesRequest request = new MapAreaPropertiesRequest(45.0, 9.0, 46.0, 10.0,
+                LocalDate.now().plusDays(3), LocalDate.now().plusDays(1), 1, 0);
+
+        assertThrows(DataValidationException.class, () -> propertyService.findInMapArea(request));
+    }
+
+    @Test
+    void findInMapArea_success() {
+        // Arrange
+        MapAreaPropertiesRequest request = new MapAreaPropertiesRequest(45.0, 9.0, 46.0, 10.0, null, null, 1, 0);
+        when(propertyGeoIndex.withinBox(45.0, 9.0, 46.0, 10.0, PropertyServiceImplementation.MAX_GEO_RESULTS))
+                .thenReturn(List.of(1L));
+        when(propertyRepository.findByIdInAndMaxGuestsGreaterThanEqualAndIsAvailableIsTrue(List.of(1L), 1))
+                .thenReturn(List.of(property));
+
+        // Act & Assert
+        assertEquals(List.of(property), propertyService.findInMapArea(request));
+    }
+
+    @Test
+    void rebuildGeoIndex_streamsLocationsIntoIndex() {
+        Stream<PropertyLocation> locations = Stream.of(new PropertyLocation(1L, 45.46, 9.19));
+        when(propertyRepository.streamLocations()).thenReturn(locations);
+        when(propertyGeoIndex.rebuild(locations)).thenReturn(1);
+
+        assertEquals(1, propertyService.rebuildGeoIndex());
+    }
+
+    @Test
+    void findFaceted_mapsLabelsAndCounts() {
+        // Arrange
+        FacetedPropertiesRequest request = new FacetedPropertiesRequest("Milano", null, null,
+                Set.of("50-100"), Set.of("2", "3"), Set.of(), Set.of(), 1, 10);
+        Map<PropertyFacet, int[]> counts = new EnumMap<>(PropertyFacet.class);
+        for (PropertyFacet facet : PropertyFacet.values()) {
+            counts.put(facet, new int[facet.buckets().size()]);
+        }
+        counts.get(PropertyFacet.PRICE)[1] = 4;
+        when(propertyFacetIndex.search(eq("Milano"), argThat(selected ->
+                selected.get(PropertyFacet.PRICE).equals(Set.of(1))
+                        && selected.get(PropertyFacet.BEDROOMS).equals(Set.of(1, 2))
+                        && selected.get(PropertyFacet.BATHROOMS).isEmpty()), eq(Set.of()), eq(10), eq(10)))
+                .thenReturn(new FacetedResult(List.of(1L), 11, counts));
+        when(propertyRepository.findAllById(List.of(1L))).thenReturn(List.of(property));
+
+        // Act
+        FacetedSearchResponse response = propertyService.findFaceted(request);
+
+        // Assert
+        assertEquals(List.of(property), response.getProperties());
+        assertEquals(11, response.getTotal());
+        assertEquals(List.of("price", "bedrooms", "bathrooms", "maxGuests"), List.copyOf(response.getFacets().keySet()));
+        assertEquals(new FacetCount("50-100", 4), response.getFacets().get("price").get(1));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void findFaceted_withDates_excludesBookedProperties() {
+        // Arrange
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        LocalDate checkOut = LocalDate.now().plusDays(4);
+        FacetedPropertiesRequest request = new FacetedPropertiesRequest("Milano", checkIn, checkOut,
+                Set.of(), Set.of(), Set.of(), Set.of(), 0, 20);
+        when(bookingRepository.findBookedPropertyIds("Milano", checkIn, checkOut)).thenReturn(Set.of(2L));
+        when(propertyFacetIndex.search(eq("Milano"), any(), eq(Set.of(2L)), eq(0), eq(20)))
+                .thenReturn(new FacetedResult(List.of(), 0, new EnumMap<>(PropertyFacet.class)));
+
+        // Act
+        FacetedSearchResponse response = propertyService.findFaceted(request);
+
+        // Assert
+        assertTrue(response.getProperties().isEmpty());
+        verify(propertyRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void findFaceted_unknownBucket_throwsException() {
+        FacetedPropertiesRequest request = new FacetedPropertiesRequest("Milano", null, null,
+                Set.of("cheap"), Set.of(), Set.of(), Set.of(), 0, 20);
+
+        assertThrows(DataValidationException.class, () -> propertyService.findFaceted(request));
+        verifyNoInteractions(propertyFacetIndex);
+    }
+
+    @Test
+    void findFlexibleAvailability_sweepsTheBookingsOfEveryProperty() {
+        // Arrange
+        LocalDate from = LocalDate.now().plusDays(1);
+        LocalDate to = from.plusDays(5);
+        Property free = new Property();
+        free.setId(1L);
+        Property booked = new Property();
+        booked.setId(2L);
+        Property full = new Property();
+        full.setId(3L);
+        FlexibleAvailabilityRequest request = new FlexibleAvailabilityRequest(" Milano ", from, to, 3, 2, 0);
+        when(propertyRepository.findAvailableInCity("Milano", 2)).thenReturn(List.of(free, booked, full));
+        when(bookingRepository.findBookedIntervals("Milano", from, to)).thenReturn(List.of(
+                new BookedInterval(2L, from.plusDays(1), from.plusDays(2)),
+                new BookedInterval(3L, from, to)));
+
+        // Act
+        List<FlexibleAvailabilityResponse> result = propertyService.findFlexibleAvailability(request);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(free, result.get(0).getProperty());
+        assertEquals(List.of(from, from.plusDays(1), from.plusDays(2)), result.get(0).getCheckInDates());
+        assertEquals(booked, result.get(1).getProperty());
+        assertEquals(List.of(from.plusDays(2)), result.get(1).getCheckInDates());
+    }
+
+    @Test
+    void findFlexibleAvailability_noCandidate_skipsTheBookings() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        FlexibleAvailabilityRequest request = new FlexibleAvailabilityRequest("Milano", from, from.plusDays(14), 3, 1, 0);
+        when(propertyRepository.findAvailableInCity("Milano", 1)).thenReturn(List.of());
+
+        assertTrue(propertyService.findFlexibleAvailability(request).isEmpty());
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void findFlexibleAvailability_windowShorterThanTheStay_throwsException() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        FlexibleAvailabilityRequest request = new FlexibleAvailabilityRequest("Milano", from, from.plusDays(2), 3, 1, 0);
+
+        assertThrows(DataValidationException.class, () -> propertyService.findFlexibleAvailability(request));
+        verifyNoInteractions(propertyRepository);
+    }
+
+    @Test
+    void findFlexibleAvailability_windowTooLong_throwsException() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        FlexibleAvailabilityRequest request = new FlexibleAvailabilityRequest("Milano", from,
+                from.plusDays(PropertyServiceImplementation.MAX_FLEXIBLE_WINDOW_DAYS + 1), 3, 1, 0);
+
+        assertThrows(DataValidationException.class, () -> propertyService.findFlexibleAvailability(request));
+        verifyNoInteractions(propertyRepository);
+    }
+
+    @Test
+    void rebuildFacetIndex_streamsDocumentsIntoIndex() {
+        Stream<PropertyFacetDocument> documents = Stream.of(PropertyFacetDocument.of(property));
+        when(propertyRepository.streamFacetDocuments()).thenReturn(documents);
+        when(propertyFacetIndex.rebuild(documents)).thenReturn(1);
+
+        assertEquals(1, propertyService.rebuildFacetIndex());
+    }
+
+    @Test
+    void findDetailById_servesFromCache() {
+        byte[] json = "{\"id\":1}".getBytes();
+        when(propertyDetailCache.get(1L)).thenReturn(json);
+
+        assertSame(json, propertyService.findDetailById(1L));
+        verifyNoInteractions(propertyRepository);
+        verify(propertyViewCounter).increment(1L);
+        verify(eventManager).notify("PROPERTY_VIEWED", 1L);
+    }
+
+    @Test
+    void findDetailById_notFound_doesNotCountView() {
+        when(propertyDetailCache.get(999L)).thenThrow(new EntityNotFoundException(Property.class));
+
+        assertThrows(EntityNotFoundException.class, () -> propertyService.findDetailById(999L));
+        verifyNoInteractions(propertyViewCounter, eventManager);
+    }
+
+    @Test
+    void getHostPropertyStats_addsTheCountsNotWrittenYet() {
+        when(propertyRepository.findStatsByHostId(1L)).thenReturn(List.of(
+                new PropertyStatsResponse(1L, "Loft", 100, 4),
+                new PropertyStatsResponse(2L, "Villa", 0, 0)));
+        when(propertyViewCounter.pending(1L)).thenReturn(3L);
+        when(propertyFavoriteCounter.pending(1L)).thenReturn(-1L);
+        when(propertyViewCounter.pending(2L)).thenReturn(2L);
+
+        List<PropertyStatsResponse> stats = propertyService.getHostPropertyStats(1L);
+
+        assertEquals(List.of(
+                new PropertyStatsResponse(1L, "Loft", 103, 3),
+                new PropertyStatsResponse(2L, "Villa", 2, 0)), stats);
+    }
+
+    @Test
+    void getHostPropertyStats_anotherHost_throwsException() {
+        assertThrows(UserUnauthorizedException.class, () -> propertyService.getHostPropertyStats(2L));
+
+        verify(propertyRepository, never()).findStatsByHostId(any());
+    }
+
+    @Test
+    void findTrending_keepsRankingAndSkipsUnavailableAndMovedProperties() {
+        Property first = new Property();
+        first.setId(1L);
+        first.setCity("Milano");
+        Property moved = new Property();
+        moved.setId(2L);
+        moved.setCity("Roma");
+        Property unavailable = new Property();
+        unavailable.setId(3L);
+        unavailable.setCity("Milano");
+        unavailable.setAvailable(false);
+        Property second = new Property();
+        second.setId(4L);
+        second.setCity("milano");
+
+        when(propertyTrendingIndex.top("Milano", PropertyTrendingIndex.TOP_K)).thenReturn(List.of(4L, 3L, 2L, 1L));
+        when(propertyRepository.findAllById(List.of(4L, 3L, 2L, 1L))).thenReturn(List.of(first, moved, unavailable, second));
+
+        assertEquals(List.of(second, first), propertyService.findTrending("Milano", 10));
+    }
+
+    @Test
+    void findTrending_skippedPropertiesDoNotShortenTheResult() {
+        Property unavailable = new Property();
+        unavailable.setId(1L);
+        unavailable.setCity("Milano");
+        unavailable.setAvailable(false);
+        Property second = new Property();
+        second.setId(2L);
+        second.setCity("Milano");
+        second.setAvailable(true);
+        Property third = new Property();
+        third.setId(3L);
+        third.setCity("Milano");
+        third.setAvailable(true);
+
+        when(propertyTrendingIndex.top("Milano", PropertyTrendingIndex.TOP_K)).thenReturn(List.of(1L, 2L, 3L));
+        when(propertyRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(unavailable, second, third));
+
+        assertEquals(List.of(second), propertyService.findTrending("Milano", 1));
+    }
+
+    @Test
+    void findTrending_withoutActivity_skipsPropertyLookup() {
+        when(propertyTrendingIndex.top(null, PropertyTrendingIndex.TOP_K)).thenReturn(List.of());
+
+        assertTrue(propertyService.findTrending(null, 10).isEmpty());
+        verifyNoInteractions(propertyRepository);
+    }
+
+    @Test
+    void findTrending_invalidLimit_throwsDataValidationException() {
+        assertThrows(DataValidationException.class, () -> propertyService.findTrending(null, 0));
+        assertThrows(DataValidationException.class,
+                () -> propertyService.findTrending(null, PropertyTrendingIndex.TOP_K + 1));
+        verifyNoInteractions(propertyTrendingIndex);
+    }
 }
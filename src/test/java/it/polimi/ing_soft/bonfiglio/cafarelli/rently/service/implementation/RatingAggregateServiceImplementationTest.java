@@ -0,0 +1,98 @@
+package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
+
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyDetailCache;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Review;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingAggregateServiceImplementationTest {
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PropertyDetailCache propertyDetailCache;
+
+    @InjectMocks
+    private RatingAggregateServiceImplementation ratingAggregateService;
+
+    private Review propertyReview;
+    private Review userReview;
+
+    @BeforeEach
+    void setUp() {
+        Property property = new Property();
+        property.setId(10L);
+
+        User host = new User();
+        host.setId(20L);
+
+        propertyReview = new Review();
+        propertyReview.setProperty(property);
+        propertyReview.setRating(4);
+
+        userReview = new Review();
+        userReview.setReviewedUser(host);
+        userReview.setRating(2);
+    }
+
+    @Test
+    void addRating_propertyReview_incrementsPropertySummary() {
+        ratingAggregateService.addRating(propertyReview);
+
+        verify(propertyRepository).addToRating(10L, 1, 4, 0, 0, 0, 1, 0);
+        verify(propertyDetailCache).evict(10L);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void addRating_userReview_incrementsUserSummary() {
+        ratingAggregateService.addRating(userReview);
+
+        verify(userRepository).addToRating(20L, 1, 2, 0, 1, 0, 0, 0);
+        verifyNoInteractions(propertyRepository, propertyDetailCache);
+    }
+
+    @Test
+    void changeRating_movesRatingBetweenBuckets() {
+        ratingAggregateService.changeRating(propertyReview, 1);
+
+        verify(propertyRepository).addToRating(10L, 0, 3, -1, 0, 0, 1, 0);
+    }
+
+    @Test
+    void changeRating_sameRating_doesNothing() {
+        ratingAggregateService.changeRating(propertyReview, 4);
+
+        verifyNoInteractions(propertyRepository, userRepository);
+    }
+
+    @Test
+    void removeRating_decrementsSummary() {
+        ratingAggregateService.removeRating(propertyReview);
+
+        verify(propertyRepository).addToRating(10L, -1, -4, 0, 0, 0, -1, 0);
+    }
+
+    @Test
+    void rebuildRatings_rebuildsBothSummaries() {
+        ratingAggregateService.rebuildRatings();
+
+        verify(propertyRepository).rebuildRatings();
+        verify(userRepository).rebuildRatings();
+    }
+}
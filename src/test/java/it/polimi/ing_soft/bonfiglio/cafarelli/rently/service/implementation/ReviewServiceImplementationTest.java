@@ -1,30 +1,39 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.ReviewEligibilityCache;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.HostResponseRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewCreateRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewUpdateRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewPageRequest;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.ReviewSort;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CursorPageResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.DataValidationException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.EntityNotFoundException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauthorizedException;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.*;
-import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.BookingRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.ReviewRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.RatingAggregateService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,15 +42,15 @@ class ReviewServiceImplementationTest {
 
     @Mock private ReviewRepository reviewRepository;
     @Mock private PropertyRepository propertyRepository;
-    @Mock private BookingRepository bookingRepository;
     @Mock private UserRepository userRepository;
+    @Mock private RatingAggregateService ratingAggregateService;
+    @Mock private ReviewEligibilityCache reviewEligibilityCache;
 
     @InjectMocks private ReviewServiceImplementation reviewService;
 
     private User client;
     private User host;
     private Property property;
-    private Booking booking;
     private Review propertyReview;
     private Review userReview;
     private ReviewCreateRequest createRequest;
@@ -73,14 +82,6 @@ class ReviewServiceImplementationTest {
         property.setTitle("Test Property");
         property.setHost(host);
 
-        // Setup booking
-        booking = new Booking();
-        booking.setId(1L);
-        booking.setProperty(property);
-        booking.setUser(client);
-        booking.setCheckInDate(LocalDate.now().minusDays(10));
-        booking.setCheckOutDate(LocalDate.now().minusDays(5));
-
         // Setup property review
         propertyReview = new Review();
         propertyReview.setId(1L);
@@ -136,10 +137,7 @@ class ReviewServiceImplementationTest {
         // Arrange
         when(propertyRepository.findById(1L)).thenReturn(Optional.of(property));
         when(reviewRepository.findByReviewerIdAndPropertyId(1L, 1L)).thenReturn(Optional.empty());
-        
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(booking);
-        when(bookingRepository.findByUserId(1L)).thenReturn(bookings);
+        when(reviewEligibilityCache.hasStayed(1L, 1L)).thenReturn(true);
         
         // Act
         CustomResponse response = reviewService.createPropertyReview(1L, createRequest);
@@ -147,6 +145,7 @@ class ReviewServiceImplementationTest {
         // Assert
         assertEquals("Review submitted successfully", response.getMessage());
         verify(reviewRepository).save(any(Review.class));
+        verify(ratingAggregateService).addRating(any(Review.class));
     }
     
     @Test
@@ -168,7 +167,7 @@ class ReviewServiceImplementationTest {
         // Arrange
         when(propertyRepository.findById(1L)).thenReturn(Optional.of(property));
         when(reviewRepository.findByReviewerIdAndPropertyId(1L, 1L)).thenReturn(Optional.empty());
-        when(bookingRepository.findByUserId(1L)).thenReturn(new ArrayList<>());
+        when(reviewEligibilityCache.hasStayed(1L, 1L)).thenReturn(false);
         
         // Act & Assert
         assertThrows(UserUnauthorizedException.class, () -> 
@@ -178,18 +177,24 @@ class ReviewServiceImplementationTest {
     }
     
     @Test
-    void createPropertyReview_futureBooking_throwsException() {
+    void createPropertyReview_alreadyReviewed_skipsEligibilityCheck() {
+        // Arrange
+        when(propertyRepository.findById(1L)).thenReturn(Optional.of(property));
+        when(reviewRepository.findByReviewerIdAndPropertyId(1L, 1L)).thenReturn(Optional.of(propertyReview));
+
+        // Act
+        reviewService.createPropertyReview(1L, createRequest);
+
+        // Assert
+        verifyNoInteractions(reviewEligibilityCache);
+    }
+
+    @Test
+    void createPropertyReview_stayNotConcluded_throwsException() {
         // Arrange
         when(propertyRepository.findById(1L)).thenReturn(Optional.of(property));
         when(reviewRepository.findByReviewerIdAndPropertyId(1L, 1L)).thenReturn(Optional.empty());
-        
-        Booking futureBooking = new Booking();
-        futureBooking.setProperty(property);
-        futureBooking.setCheckOutDate(LocalDate.now().plusDays(5));
-        
-        List<Booking> bookings = new ArrayList<>();
-        bookings.add(futureBooking);
-        when(bookingRepository.findByUserId(1L)).thenReturn(bookings);
+        when(reviewEligibilityCache.hasStayed(1L, 1L)).thenReturn(false);
         
         // Act & Assert
         assertThrows(UserUnauthorizedException.class, () -> 
@@ -203,7 +208,7 @@ class ReviewServiceImplementationTest {
         // Arrange
         when(userRepository.findById(2L)).thenReturn(Optional.of(host));
         when(reviewRepository.findByReviewerIdAndReviewedUserId(1L, 2L)).thenReturn(Optional.empty());
-        when(bookingRepository.existsBookingByHostIdAndClientId(client, host)).thenReturn(false);
+        when(reviewEligibilityCache.hasBooked(client, host)).thenReturn(false);
         
         // Act
         CustomResponse response = reviewService.createUserReview(2L, createRequest);
@@ -211,6 +216,7 @@ class ReviewServiceImplementationTest {
         // Assert
         assertEquals("Review submitted successfully", response.getMessage());
         verify(reviewRepository).save(any(Review.class));
+        verify(ratingAggregateService).addRating(any(Review.class));
     }
     
     @Test
@@ -278,6 +284,7 @@ class ReviewServiceImplementationTest {
         assertEquals("Updated Description", propertyReview.getDescription());
         assertEquals(3, propertyReview.getRating());
         verify(reviewRepository).save(propertyReview);
+        verify(ratingAggregateService).changeRating(propertyReview, 5);
     }
 
     @Test
@@ -310,6 +317,7 @@ class ReviewServiceImplementationTest {
         // Assert
         assertEquals("Review deleted successfully", response.getMessage());
         verify(reviewRepository).delete(propertyReview);
+        verify(ratingAggregateService).removeRating(propertyReview);
     }
     
     @Test
@@ -327,6 +335,7 @@ class ReviewServiceImplementationTest {
         // Assert
         assertEquals("Review deleted successfully", response.getMessage());
         verify(reviewRepository).delete(propertyReview);
+        verify(ratingAggregateService).removeRating(propertyReview);
     }
 
     @Test
@@ -370,20 +379,61 @@ class ReviewServiceImplementationTest {
     }
     
     @Test
-    void findByPropertyId_success() {
+    void findByPropertyId_firstPage_returnsNextCursor() {
         // Arrange
-        List<Review> reviews = Arrays.asList(propertyReview);
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 30);
+        propertyReview.setCreatedAt(createdAt);
         when(propertyRepository.existsById(1L)).thenReturn(true);
-        when(reviewRepository.findByPropertyId(1L)).thenReturn(reviews);
-        
+        when(reviewRepository.findBy(any(Specification.class), any())).thenReturn(Window.from(
+                List.of(propertyReview), index -> ScrollPosition.forward(Map.of("createdAt", createdAt, "id", 1L)), true));
+
         // Act
-        List<Review> result = reviewService.findByPropertyId(1L);
-        
+        CursorPageResponse<Review> result = reviewService.findByPropertyId(1L, new ReviewPageRequest());
+
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(propertyReview, result.get(0));
+        assertEquals(List.of(propertyReview), result.getItems());
+        assertNotNull(result.getNextCursor());
     }
-    
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void findByPropertyId_withCursor_scrollsAfterCursor() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 30);
+        when(propertyRepository.existsById(1L)).thenReturn(true);
+        when(reviewRepository.findBy(any(Specification.class), any())).thenReturn(Window.from(
+                List.of(propertyReview), index -> ScrollPosition.forward(Map.of("createdAt", createdAt, "id", 1L)), true));
+        String cursor = reviewService.findByPropertyId(1L, new ReviewPageRequest()).getNextCursor();
+
+        ArgumentCaptor<Function<FluentQuery.FetchableFluentQuery<Review>, Window<Review>>> queryCaptor =
+                ArgumentCaptor.forClass(Function.class);
+        when(reviewRepository.findBy(any(Specification.class), queryCaptor.capture())).thenReturn(Window.from(
+                List.of(), index -> ScrollPosition.keyset(), false));
+
+        // Act
+        CursorPageResponse<Review> result = reviewService.findByPropertyId(1L,
+                new ReviewPageRequest(ReviewSort.CREATED_AT, cursor, 20, false));
+
+        // Assert
+        assertNull(result.getNextCursor());
+        FluentQuery.FetchableFluentQuery<Review> query = mock(FluentQuery.FetchableFluentQuery.class, RETURNS_SELF);
+        queryCaptor.getValue().apply(query);
+        verify(query).limit(20);
+        verify(query).scroll(argThat(position -> position instanceof KeysetScrollPosition keyset
+                && keyset.getKeys().equals(Map.of("createdAt", createdAt, "id", 1L))));
+    }
+
+    @Test
+    void findByPropertyId_invalidCursor_throwsException() {
+        // Arrange
+        when(propertyRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(DataValidationException.class, () ->
+            reviewService.findByPropertyId(1L, new ReviewPageRequest(ReviewSort.RATING, "not-a-cursor", 20, false))
+        );
+    }
+
     @Test
     void findByPropertyId_propertyNotFound_throwsException() {
         // Arrange
@@ -391,23 +441,24 @@ class ReviewServiceImplementationTest {
         
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> 
-            reviewService.findByPropertyId(999L)
+            reviewService.findByPropertyId(999L, new ReviewPageRequest())
         );
     }
     
     @Test
     void findByReviewedUserId_success() {
         // Arrange
-        List<Review> reviews = Arrays.asList(userReview);
         when(userRepository.existsById(2L)).thenReturn(true);
-        when(reviewRepository.findByReviewedUserId(2L)).thenReturn(reviews);
+        when(reviewRepository.findBy(any(Specification.class), any())).thenReturn(Window.from(
+                List.of(userReview), index -> ScrollPosition.keyset(), false));
         
         // Act
-        List<Review> result = reviewService.findByReviewedUserId(2L);
+        CursorPageResponse<Review> result = reviewService.findByReviewedUserId(2L, new ReviewPageRequest());
         
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(userReview, result.get(0));
+        assertEquals(1, result.getItems().size());
+        assertEquals(userReview, result.getItems().get(0));
+        assertNull(result.getNextCursor());
     }
     
     @Test
@@ -417,34 +468,34 @@ class ReviewServiceImplementationTest {
         
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> 
-            reviewService.findByReviewedUserId(999L)
+            reviewService.findByReviewedUserId(999L, new ReviewPageRequest())
         );
     }
     
     @Test
     void findByReviewerId_success() {
         // Arrange
-        List<Review> reviews = Arrays.asList(propertyReview, userReview);
-        when(reviewRepository.findByReviewerId(1L)).thenReturn(reviews);
+        when(reviewRepository.findBy(any(Specification.class), any())).thenReturn(Window.from(
+                List.of(propertyReview, userReview), index -> ScrollPosition.keyset(), false));
         
         // Act
-        List<Review> result = reviewService.findByReviewerId(1L);
+        CursorPageResponse<Review> result = reviewService.findByReviewerId(1L, new ReviewPageRequest());
         
         // Assert
-        assertEquals(2, result.size());
+        assertEquals(2, result.getItems().size());
     }
     
     @Test
     void findAll_success() {
         // Arrange
-        List<Review> reviews = Arrays.asList(propertyReview, userReview);
-        when(reviewRepository.findAll()).thenReturn(reviews);
+        when(reviewRepository.findBy(any(Specification.class), any())).thenReturn(Window.from(
+                List.of(propertyReview, userReview), index -> ScrollPosition.keyset(), false));
         
         // Act
-        List<Review> result = reviewService.findAll();
+        CursorPageResponse<Review> result = reviewService.findAll(new ReviewPageRequest(ReviewSort.RATING, null, 10, true));
         
         // Assert
-        assertEquals(2, result.size());
+        assertEquals(2, result.getItems().size());
     }
 
     @Test
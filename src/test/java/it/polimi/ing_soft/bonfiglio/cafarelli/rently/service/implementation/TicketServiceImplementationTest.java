@@ -7,6 +7,8 @@ import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.UserUnauth
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.*;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.TicketReplyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.TicketRepository;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.definition.ArchiveService;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.state.ticket.impl.Closed;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.state.ticket.impl.Open;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,6 +28,7 @@ class TicketServiceImplementationTest {
 
     @Mock private TicketRepository ticketRepository;
     @Mock private TicketReplyRepository ticketReplyRepository;
+    @Mock private ArchiveService archiveService;
 
     @InjectMocks private TicketServiceImplementation ticketService;
 
@@ -131,6 +134,21 @@ class TicketServiceImplementationTest {
         );
     }
 
+    @Test
+    void getTicketById_archived_isReadFromTheArchive() {
+        // Arrange
+        ticket.setState(new Closed());
+        when(ticketRepository.findById(1L)).thenReturn(Optional.empty());
+        when(archiveService.findArchivedTicket(1L)).thenReturn(Optional.of(ticket));
+
+        // Act
+        Ticket result = ticketService.getTicketById(1L);
+
+        // Assert
+        assertEquals(ticket, result);
+        assertThrows(IllegalStateException.class, result::closed);
+    }
+
     @Test
     void getTicketsByUser_success() {
         // Arrange
@@ -330,4 +348,18 @@ class TicketServiceImplementationTest {
             ticketService.getTicketReplies(999L)
         );
     }
+
+    @Test
+    void getTicketReplies_archivedTicket_isReadFromTheArchive() {
+        // Arrange
+        when(ticketRepository.existsById(1L)).thenReturn(false);
+        when(archiveService.findArchivedTicketReplies(1L)).thenReturn(List.of(ticketReply));
+
+        // Act
+        List<TicketReply> result = ticketService.getTicketReplies(1L);
+
+        // Assert
+        assertEquals(List.of(ticketReply), result);
+        verify(ticketReplyRepository, never()).findByTicketIdOrderByCreationDate(any());
+    }
 }
@@ -1,20 +1,27 @@
 package it.polimi.ing_soft.bonfiglio.cafarelli.rently.service.implementation;
 
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.cache.PropertyFavoriteCounter;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserModifyRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.request.UserPasswordChangeRequest;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.dto.response.CustomResponse;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.exception.custom.*;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.Property;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.model.User;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.observer.EventManager;
+import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.FavoritePropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.PropertyRepository;
 import it.polimi.ing_soft.bonfiglio.cafarelli.rently.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
@@ -29,6 +36,10 @@ class UserServiceImplementationTest {
     @Mock private UserRepository userRepository;
     @Mock private PropertyRepository propertyRepository;
     @Mock private LocalStorageService localStorageService;
+    @Mock private FavoritePropertyRepository favoritePropertyRepository;
+    @Mock private PropertyFavoriteCounter propertyFavoriteCounter;
+    @Mock private EventManager eventManager;
+    @Mock private TransactionTemplate transactionTemplate;
     @Mock private SecurityContext securityContext;
     @Mock private Authentication authentication;
 
@@ -39,6 +50,8 @@ class UserServiceImplementationTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
 
         // Configurazione utente di test
         user = new User();
@@ -48,7 +61,6 @@ class UserServiceImplementationTest {
         user.setPassword("encodedPassword");
         user.setActive(true);
         user.setBalance(BigDecimal.valueOf(100));
-        user.setFavorite(new ArrayList<>());
 
         // Configurazione SecurityContext
         SecurityContextHolder.setContext(securityContext);
@@ -354,16 +366,15 @@ class UserServiceImplementationTest {
 
     @Test
     void addFavoriteProperty_success() {
-        Property property = new Property();
-        property.setId(10L);
-
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
-        when(propertyRepository.findById(10L)).thenReturn(Optional.of(property));
-        when(userRepository.save(user)).thenReturn(user);
+        when(propertyRepository.existsById(10L)).thenReturn(true);
+        when(favoritePropertyRepository.addFavorite(1L, 10L)).thenReturn(1);
 
         User result = userService.addFavoriteProperty("user", 10L);
-        assertTrue(result.getFavorite().contains(property));
-        verify(userRepository).save(user);
+        assertEquals(user, result);
+        verify(propertyFavoriteCounter).increment(10L);
+        verify(eventManager).notify("PROPERTY_FAVORITED", 10L);
+        verify(userRepository, never()).save(any());
     }
 
     @Test
@@ -371,47 +382,61 @@ class UserServiceImplementationTest {
         when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> userService.addFavoriteProperty("nonexistent", 10L));
-        verify(propertyRepository, never()).findById(any());
-        verify(userRepository, never()).save(any());
+        verify(propertyRepository, never()).existsById(any());
+        verify(favoritePropertyRepository, never()).addFavorite(any(), any());
     }
 
     @Test
     void addFavoriteProperty_propertyNotFound_throwsEntityNotFoundException() {
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
-        when(propertyRepository.findById(999L)).thenReturn(Optional.empty());
+        when(propertyRepository.existsById(999L)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () -> userService.addFavoriteProperty("user", 999L));
-        verify(userRepository, never()).save(any());
+        verify(favoritePropertyRepository, never()).addFavorite(any(), any());
+        verifyNoInteractions(propertyFavoriteCounter);
     }
 
     @Test
-    void addFavoriteProperty_propertyAlreadyInFavorites_doesNotAddDuplicate() {
-        Property property = new Property();
-        property.setId(10L);
-        user.getFavorite().add(property);
+    void addFavoriteProperty_propertyAlreadyInFavorites_doesNotCountTwice() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(propertyRepository.existsById(10L)).thenReturn(true);
+        when(favoritePropertyRepository.addFavorite(1L, 10L)).thenReturn(0);
+
+        userService.addFavoriteProperty("user", 10L);
+        verifyNoInteractions(propertyFavoriteCounter, eventManager);
+    }
 
+    @Test
+    void addFavoriteProperty_concurrentAddWonTheRace_isAlreadyAFavorite() {
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
-        when(propertyRepository.findById(10L)).thenReturn(Optional.of(property));
-        when(userRepository.save(user)).thenReturn(user);
+        when(propertyRepository.existsById(10L)).thenReturn(true);
+        when(favoritePropertyRepository.addFavorite(1L, 10L))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
 
-        User result = userService.addFavoriteProperty("user", 10L);
-        assertEquals(1, result.getFavorite().size());
-        verify(userRepository).save(user);
+        assertEquals(user, userService.addFavoriteProperty("user", 10L));
+        verifyNoInteractions(propertyFavoriteCounter, eventManager);
     }
 
     @Test
     void removeFavoriteProperty_success() {
-        Property property = new Property();
-        property.setId(10L);
-        user.getFavorite().add(property);
-
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
-        when(propertyRepository.findById(10L)).thenReturn(Optional.of(property));
-        when(userRepository.save(user)).thenReturn(user);
+        when(propertyRepository.existsById(10L)).thenReturn(true);
+        when(favoritePropertyRepository.removeFavorite(1L, 10L)).thenReturn(1);
 
         User result = userService.removeFavoriteProperty("user", 10L);
-        assertFalse(result.getFavorite().contains(property));
-        verify(userRepository).save(user);
+        assertEquals(user, result);
+        verify(propertyFavoriteCounter).decrement(10L);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void removeFavoriteProperty_notInFavorites_doesNotCount() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(propertyRepository.existsById(10L)).thenReturn(true);
+        when(favoritePropertyRepository.removeFavorite(1L, 10L)).thenReturn(0);
+
+        userService.removeFavoriteProperty("user", 10L);
+        verifyNoInteractions(propertyFavoriteCounter);
     }
 
     @Test
@@ -419,37 +444,58 @@ class UserServiceImplementationTest {
         when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () -> userService.removeFavoriteProperty("nonexistent", 10L));
-        verify(propertyRepository, never()).findById(any());
-        verify(userRepository, never()).save(any());
+        verify(propertyRepository, never()).existsById(any());
+        verify(favoritePropertyRepository, never()).removeFavorite(any(), any());
     }
 
     @Test
     void removeFavoriteProperty_propertyNotFound_throwsEntityNotFoundException() {
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
-        when(propertyRepository.findById(999L)).thenReturn(Optional.empty());
+        when(propertyRepository.existsById(999L)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () -> userService.removeFavoriteProperty("user", 999L));
-        verify(userRepository, never()).save(any());
+        verify(favoritePropertyRepository, never()).removeFavorite(any(), any());
     }
 
     @Test
-    void getAllFavoriteProperties_success() {
-        Property property = new Property();
-        property.setId(10L);
-        user.getFavorite().add(property);
+    void getFavoriteProperties_success_keepsFavoritesOrder() {
+        Property first = new Property();
+        first.setId(10L);
+        Property second = new Property();
+        second.setId(20L);
 
         when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
-        List<Property> result = userService.getAllFavoriteProperties("user");
+        when(favoritePropertyRepository.findPropertyIdsByUserId(1L, PageRequest.of(1, 2))).thenReturn(List.of(20L, 10L));
+        when(propertyRepository.findAllById(List.of(20L, 10L))).thenReturn(List.of(first, second));
+
+        List<Property> result = userService.getFavoriteProperties("user", 1, 2);
 
-        assertEquals(1, result.size());
-        assertEquals(property, result.get(0));
+        assertEquals(List.of(second, first), result);
+    }
+
+    @Test
+    void getFavoriteProperties_emptyPage_skipsPropertyLookup() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(favoritePropertyRepository.findPropertyIdsByUserId(1L, PageRequest.of(0, 20))).thenReturn(List.of());
+
+        assertTrue(userService.getFavoriteProperties("user", 0, 20).isEmpty());
+        verify(propertyRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getFavoriteProperties_invalidPage_throwsDataValidationException() {
+        assertThrows(DataValidationException.class, () -> userService.getFavoriteProperties("user", -1, 20));
+        assertThrows(DataValidationException.class, () -> userService.getFavoriteProperties("user", 0, 0));
+        assertThrows(DataValidationException.class,
+                () -> userService.getFavoriteProperties("user", 0, UserServiceImplementation.MAX_FAVORITES_PAGE_SIZE + 1));
+        verifyNoInteractions(favoritePropertyRepository);
     }
 
     @Test
-    void getAllFavoriteProperties_userNotFound_throwsEntityNotFoundException() {
+    void getFavoriteProperties_userNotFound_throwsEntityNotFoundException() {
         when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
 
-        assertThrows(EntityNotFoundException.class, () -> userService.getAllFavoriteProperties("nonexistent"));
+        assertThrows(EntityNotFoundException.class, () -> userService.getFavoriteProperties("nonexistent", 0, 20));
     }
 
     @Test